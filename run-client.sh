@@ -1,3 +1,2 @@
 #!/bin/bash
-java -classpath target/classes comt.teragrep.cfe_16.TestClient $1 $2 $3 $4
-
+mvn -B -o test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.teragrep.cfe_16.load.LoadGenerator -Dexec.args="$*"
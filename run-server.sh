@@ -1,2 +1 @@
-mvn spring-boot:run -Dspring.config.location="file://src/main/resources/application.properties"
-
+mvn spring-boot:run -Dspring-boot.run.arguments="--spring.config.location=file:src/main/resources/application.properties"
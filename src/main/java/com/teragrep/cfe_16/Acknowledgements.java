@@ -51,16 +51,26 @@ import com.teragrep.cfe_16.bo.Ack;
 import com.teragrep.cfe_16.config.Configuration;
 import com.teragrep.cfe_16.exceptionhandling.InternalServerErrorException;
 import com.teragrep.cfe_16.exceptionhandling.ServerIsBusyException;
+import com.teragrep.cfe_16.jfr.AckAllocationContentionEvent;
+import com.teragrep.cfe_16.jfr.CleanerSweepEvent;
+import com.teragrep.cfe_16.snapshot.SnapshotReader;
+import com.teragrep.cfe_16.snapshot.SnapshotRestore;
+import com.teragrep.cfe_16.snapshot.SnapshotWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
-import java.util.Collections;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /*
  * Handles the acknowledgement statuses of the sent events (acks).
@@ -82,11 +92,16 @@ public final class Acknowledgements implements Runnable, LifeCycle {
         private int currentAckValue;
         private Ack ackToCompare;
         private Map<Integer, Ack> ackMap;
+        /**
+         * Guards the fields of this State.
+         */
+        private final Lock lock;
 
         public State() {
             this.currentAckValue = 0;
             this.ackToCompare = new Ack();
             this.ackMap = new HashMap<Integer, Ack>();
+            this.lock = new ReentrantLock();
         }
 
         public int getCurrentAckValue() {
@@ -146,7 +161,7 @@ public final class Acknowledgements implements Runnable, LifeCycle {
 
     @Autowired
     public Acknowledgements(final Configuration configuration) {
-        this(new ObjectMapper(), Collections.synchronizedMap(new HashMap<>()), configuration);
+        this(new ObjectMapper(), new ConcurrentHashMap<>(), configuration);
     }
 
     @Override
@@ -174,11 +189,7 @@ public final class Acknowledgements implements Runnable, LifeCycle {
     private State getOrCreateState(String authToken, String channel) {
         LOGGER.debug("Getting or creating state for channel <{}>", channel);
         String key = authToken + channel;
-        State state = this.ackStates.get(key);
-        if (state == null) {
-            state = new State();
-            this.ackStates.put(key, state);
-        }
+        State state = this.ackStates.computeIfAbsent(key, k -> new State());
         LOGGER.debug("Created state <{}> for channel <{}>", state, channel);
         return state;
     }
@@ -192,11 +203,10 @@ public final class Acknowledgements implements Runnable, LifeCycle {
     public void initializeContext(String authToken, String channel) {
         LOGGER.debug("Initializing context for channel <{}>", channel);
         String key = authToken + channel;
-        if (!this.ackStates.containsKey(key)) {
+        this.ackStates.computeIfAbsent(key, k -> {
             LOGGER.debug("Adding new state to channel <{}>", channel);
-            State state = new State();
-            this.ackStates.put(key, state);
-        }
+            return new State();
+        });
     }
 
     /*
@@ -218,7 +228,17 @@ public final class Acknowledgements implements Runnable, LifeCycle {
         }
 
         int currentAckValue;
-        synchronized (state) {
+        if (!state.lock.tryLock()) {
+            final AckAllocationContentionEvent contentionEvent = new AckAllocationContentionEvent(channel);
+            contentionEvent.begin();
+            state.lock.lock();
+            contentionEvent.end();
+            if (contentionEvent.shouldCommit()) {
+                contentionEvent.setOutstandingAcks(state.getAckMap().size());
+                contentionEvent.commit();
+            }
+        }
+        try {
             currentAckValue = state.getCurrentAckValue();
             Ack ackToCompare = state.getAckToCompare();
             ackToCompare.setId(currentAckValue);
@@ -240,6 +260,9 @@ public final class Acknowledgements implements Runnable, LifeCycle {
             }
             state.setCurrentAckValue(currentAckValue);
         }
+        finally {
+            state.lock.unlock();
+        }
         return true;
     }
 
@@ -254,7 +277,8 @@ public final class Acknowledgements implements Runnable, LifeCycle {
         if (state == null) {
             throw new IllegalStateException("An Ack cannot be acknowledge before it is added to the Ack list.");
         }
-        synchronized (state) {
+        state.lock.lock();
+        try {
             Map<Integer, Ack> ackMap = state.getAckMap();
             Ack ack = ackMap.get(ackId);
             if (ack == null) {
@@ -263,6 +287,9 @@ public final class Acknowledgements implements Runnable, LifeCycle {
             ack.acknowledge();
             return true;
         }
+        finally {
+            state.lock.unlock();
+        }
     }
 
     /**
@@ -278,10 +305,14 @@ public final class Acknowledgements implements Runnable, LifeCycle {
         if (state == null) {
             throw new InternalServerErrorException("No State for key " + key);
         }
-        synchronized (state) {
+        state.lock.lock();
+        try {
             state.ackMap.put(ack.getId(), ack);
             return true;
         }
+        finally {
+            state.lock.unlock();
+        }
     }
 
     /**
@@ -293,7 +324,8 @@ public final class Acknowledgements implements Runnable, LifeCycle {
         if (state == null) {
             throw new InternalServerErrorException("No State for key " + key);
         }
-        synchronized (state) {
+        state.lock.lock();
+        try {
             Map<Integer, Ack> ackMap = state.getAckMap();
             Ack ack = ackMap.get(ackId);
             if (ack == null) {
@@ -302,6 +334,9 @@ public final class Acknowledgements implements Runnable, LifeCycle {
             ack.acknowledge();
             return true;
         }
+        finally {
+            state.lock.unlock();
+        }
     }
 
     /**
@@ -338,7 +373,8 @@ public final class Acknowledgements implements Runnable, LifeCycle {
             if (state == null) {
                 return null;
             }
-            synchronized (state) {
+            state.lock.lock();
+            try {
                 Map<Integer, Ack> ackMap = state.getAckMap();
                 for (int i = 0; i < requestedAckIds.length; i++) {
                     int ackId = requestedAckIds[i];
@@ -352,6 +388,9 @@ public final class Acknowledgements implements Runnable, LifeCycle {
                     }
                 }
             }
+            finally {
+                state.lock.unlock();
+            }
         }
         jsonNode = this.objectMapper.convertValue(ackStatuses, JsonNode.class);
         return jsonNode;
@@ -385,10 +424,14 @@ public final class Acknowledgements implements Runnable, LifeCycle {
         if (state == null) {
             throw new InternalServerErrorException("No State for key " + key);
         }
-        synchronized (state) {
+        state.lock.lock();
+        try {
             state.getAckMap().remove(ack.getId());
             return true;
         }
+        finally {
+            state.lock.unlock();
+        }
     }
 
     public void run() {
@@ -402,14 +445,18 @@ public final class Acknowledgements implements Runnable, LifeCycle {
                 break;
             }
 
-            for (String key : this.ackStates.keySet()) {
-                State state = this.ackStates.get(key);
-
-                synchronized (state) {
+            final CleanerSweepEvent sweepEvent = new CleanerSweepEvent("acknowledgements");
+            sweepEvent.begin();
+            long scanned = 0;
+            long removed = 0;
+            for (State state : this.ackStates.values()) {
+                state.lock.lock();
+                try {
                     Map<Integer, Ack> ackMap = state.getAckMap();
                     Iterator<Ack> iterator = ackMap.values().iterator();
                     while (iterator.hasNext()) {
                         Ack ack = iterator.next();
+                        scanned++;
                         long thresholdInLong = ack.getLastUsedTimestamp() + this.configuration.maxAckAge();
 
                         /**
@@ -418,9 +465,19 @@ public final class Acknowledgements implements Runnable, LifeCycle {
                         long now = System.currentTimeMillis();
                         if (now >= thresholdInLong) {
                             iterator.remove();
+                            removed++;
                         }
                     }
                 }
+                finally {
+                    state.lock.unlock();
+                }
+            }
+            sweepEvent.end();
+            if (sweepEvent.shouldCommit()) {
+                sweepEvent.setScanned(scanned);
+                sweepEvent.setRemoved(removed);
+                sweepEvent.commit();
             }
         }
     }
@@ -437,9 +494,13 @@ public final class Acknowledgements implements Runnable, LifeCycle {
         if (state == null) {
             throw new InternalServerErrorException("No State for key " + key);
         }
-        synchronized (state) {
+        state.lock.lock();
+        try {
             return state.getAckMap().size();
         }
+        finally {
+            state.lock.unlock();
+        }
     }
 
     /**
@@ -454,9 +515,13 @@ public final class Acknowledgements implements Runnable, LifeCycle {
         if (state == null) {
             throw new InternalServerErrorException("No State for key " + key);
         }
-        synchronized (state) {
+        state.lock.lock();
+        try {
             return state.getAckMap();
         }
+        finally {
+            state.lock.unlock();
+        }
     }
 
     /**
@@ -469,8 +534,122 @@ public final class Acknowledgements implements Runnable, LifeCycle {
      */
     public int getCurrentAckValue(String authToken, String channel) {
         State state = this.getOrCreateState(authToken, channel);
-        synchronized (state) {
+        state.lock.lock();
+        try {
             return state.getCurrentAckValue();
         }
+        finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the Ack states of all channels into a snapshot. The Acks of a channel are copied under its lock and
+     * written after it is released, so requests do not wait for the snapshot.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeSnapshot(final SnapshotWriter out) throws IOException {
+        final List<Map.Entry<String, State>> states = new ArrayList<>(this.ackStates.entrySet());
+        out.writeInt(states.size());
+        for (final Map.Entry<String, State> entry : states) {
+            final State state = entry.getValue();
+            final int currentAckValue;
+            final List<Ack> acks = new ArrayList<>();
+            state.lock.lock();
+            try {
+                currentAckValue = state.getCurrentAckValue();
+                for (final Ack ack : state.getAckMap().values()) {
+                    acks.add(new Ack(ack.getId(), ack.isAcknowledged(), ack.getLastUsedTimestamp()));
+                }
+            }
+            finally {
+                state.lock.unlock();
+            }
+            out.writeString(entry.getKey());
+            out.writeInt(currentAckValue);
+            out.writeInt(acks.size());
+            for (final Ack ack : acks) {
+                out.writeInt(ack.getId());
+                out.writeBoolean(ack.isAcknowledged());
+                out.writeLong(ack.getLastUsedTimestamp());
+            }
+        }
+    }
+
+    /**
+     * Reads the Ack states of a snapshot, to be restored once the whole snapshot is read. Acks older than max.ack.age
+     * are left out, and Acks that already exist are kept as they are.
+     *
+     * @param in
+     * @return the Ack states read, restoring them returns the number of Acks restored
+     * @throws IOException
+     */
+    public SnapshotRestore readSnapshot(final SnapshotReader in) throws IOException {
+        final long now = System.currentTimeMillis();
+        final Map<String, Integer> currentAckValues = new HashMap<>();
+        final Map<String, List<Ack>> acks = new HashMap<>();
+        final int stateCount = in.readCount();
+        for (int i = 0; i < stateCount; i++) {
+            final String key = in.readString();
+            currentAckValues.put(key, in.readInt());
+            final int ackCount = in.readCount();
+            final List<Ack> read = new ArrayList<>(Math.min(ackCount, 1024));
+            for (int j = 0; j < ackCount; j++) {
+                final Ack ack = new Ack(in.readInt(), in.readBoolean(), in.readLong());
+                if (now < ack.getLastUsedTimestamp() + this.configuration.maxAckAge()) {
+                    read.add(ack);
+                }
+            }
+            acks.put(key, read);
+        }
+        return () -> {
+            long restored = 0;
+            for (final Map.Entry<String, Integer> currentAckValue : currentAckValues.entrySet()) {
+                final State state = this.ackStates.computeIfAbsent(currentAckValue.getKey(), k -> new State());
+                state.lock.lock();
+                try {
+                    state.setCurrentAckValue(currentAckValue.getValue());
+                    for (final Ack ack : acks.get(currentAckValue.getKey())) {
+                        if (state.getAckMap().putIfAbsent(ack.getId(), ack) == null) {
+                            restored++;
+                        }
+                    }
+                }
+                finally {
+                    state.lock.unlock();
+                }
+            }
+            return restored;
+        };
+    }
+
+    /**
+     * Returns the number of channels that have an Ack state.
+     *
+     * @return
+     */
+    public int getChannelCount() {
+        return this.ackStates.size();
+    }
+
+    /**
+     * Returns the number of Acks over all channels that have not yet been polled or cleaned up.
+     *
+     * @return
+     */
+    public long getOutstandingAckCount() {
+        long outstanding = 0;
+        for (State state : this.ackStates.values()) {
+            state.lock.lock();
+            try {
+                outstanding += state.getAckMap().size();
+            }
+            finally {
+                state.lock.unlock();
+            }
+        }
+        return outstanding;
     }
 }
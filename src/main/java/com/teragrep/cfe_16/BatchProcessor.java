@@ -0,0 +1,237 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.bo.HECRecord;
+import com.teragrep.cfe_16.bo.HeaderInfo;
+import com.teragrep.cfe_16.bo.RequestContext;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.event.time.HECTime;
+import com.teragrep.cfe_16.event.time.HECTimeDeferred;
+import com.teragrep.cfe_16.event.time.HECTimeStub;
+import com.teragrep.cfe_16.exceptionhandling.InternalServerErrorException;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+ * Parses and encodes batches, splitting large ones over a bounded pool of
+ * batch.parallel.threads workers.
+ *
+ * A payload of at least twice batch.parallel.length is split between events
+ * into parts of about batch.parallel.length and the parts are parsed in
+ * parallel. An event without a time of its own takes the time of the event
+ * before it, which for the first event of a part is in the previous part, so
+ * the first event of each part falls back to a deferred time that is resolved
+ * in order once all parts are parsed. Records of at least batch.parallel.events
+ * are encoded in slices in parallel. The records and messages are returned in
+ * payload order.
+ *
+ * Smaller batches are processed on the calling thread as before.
+ *
+ */
+@Component
+public class BatchProcessor implements LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchProcessor.class);
+
+    private final Configuration configuration;
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public BatchProcessor(final Configuration configuration) {
+        this(
+                configuration,
+                new ForkJoinPool(
+                        configuration.batchParallelThreads() > 0 ? configuration
+                                .batchParallelThreads() : Runtime.getRuntime().availableProcessors(),
+                        pool -> {
+                            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                                    .newThread(pool);
+                            thread.setName("Batch worker " + thread.getPoolIndex());
+                            return thread;
+                        },
+                        null,
+                        false
+                )
+        );
+    }
+
+    private BatchProcessor(final Configuration configuration, final ForkJoinPool pool) {
+        this.configuration = configuration;
+        this.pool = pool;
+    }
+
+    @Override
+    @PostConstruct
+    public void start() {
+        LOGGER.info("Batch processor has <{}> workers", this.pool.getParallelism());
+    }
+
+    @Override
+    public void stop() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Parses the payload into records, see {@link HECBatch#toHECRecordList()}.
+     *
+     * @param context      request the payload was received in
+     * @param eventPayload
+     * @return records in payload order
+     */
+    public List<HECRecord> toHECRecordList(final RequestContext context, final EventPayload eventPayload)
+            throws IOException {
+        final String authToken = context.authenticationToken();
+        final String channel = context.channel();
+        final HeaderInfo headerInfo = context.headerInfo();
+        final int length = this.configuration.batchParallelLength();
+        final List<EventPayload> parts;
+        if (length > 0 && eventPayload.length() / 2 >= length) {
+            parts = eventPayload.split(length);
+        }
+        else {
+            parts = List.of(eventPayload);
+        }
+        if (parts.size() == 1) {
+            return new HECBatch(authToken, channel, eventPayload, headerInfo).toHECRecordList();
+        }
+
+        final List<HECTimeDeferred> fallbackTimes = new ArrayList<>(parts.size());
+        final List<Callable<List<HECRecord>>> tasks = new ArrayList<>(parts.size());
+        for (final EventPayload part : parts) {
+            final HECTimeDeferred fallbackTime = new HECTimeDeferred();
+            fallbackTimes.add(fallbackTime);
+            tasks.add(() -> new HECBatch(authToken, channel, part, headerInfo, fallbackTime).toHECRecordList());
+        }
+        final List<List<HECRecord>> parsed = invokeAll(tasks);
+
+        // fix-up pass, the first event of a part falls back to the last event of the parts before it
+        final List<HECRecord> records = new ArrayList<>();
+        HECTime previousTime = new HECTimeStub();
+        for (int i = 0; i < parsed.size(); i++) {
+            fallbackTimes.get(i).resolve(previousTime);
+            final List<HECRecord> part = parsed.get(i);
+            if (!part.isEmpty()) {
+                previousTime = part.get(part.size() - 1).time();
+            }
+            records.addAll(part);
+        }
+        return records;
+    }
+
+    /**
+     * Encodes the records into syslog messages, see {@link SyslogBatch#asSyslogMessages()}.
+     *
+     * @param context records without a time get the receive time of the request
+     * @param records
+     * @return messages in record order
+     */
+    public List<SyslogMessage> asSyslogMessages(final RequestContext context, final List<HECRecord> records) {
+        final long receivedEpochMillis = context.receivedEpochMillis();
+        final int events = this.configuration.batchParallelEvents();
+        if (events <= 0 || records.size() < events) {
+            return new SyslogBatch(records, receivedEpochMillis).asSyslogMessages();
+        }
+        final int slices = Math.min(this.pool.getParallelism(), records.size());
+        final int sliceSize = (records.size() + slices - 1) / slices;
+        final List<Callable<List<SyslogMessage>>> tasks = new ArrayList<>(slices);
+        for (int from = 0; from < records.size(); from += sliceSize) {
+            final List<HECRecord> slice = records.subList(from, Math.min(from + sliceSize, records.size()));
+            tasks.add(() -> new SyslogBatch(slice, receivedEpochMillis).asSyslogMessages());
+        }
+        final List<SyslogMessage> messages = new ArrayList<>(records.size());
+        try {
+            for (final List<SyslogMessage> encoded : invokeAll(tasks)) {
+                messages.addAll(encoded);
+            }
+        }
+        catch (final IOException e) {
+            // encoding does no I/O
+            throw new IllegalStateException(e);
+        }
+        return messages;
+    }
+
+    private <T> List<T> invokeAll(final List<Callable<T>> tasks) throws IOException {
+        final List<Future<T>> futures = this.pool.invokeAll(tasks);
+        final List<T> results = new ArrayList<>(futures.size());
+        for (final Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InternalServerErrorException("Interrupted while processing a batch", e);
+            }
+            catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return results;
+    }
+}
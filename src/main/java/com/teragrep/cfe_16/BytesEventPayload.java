@@ -0,0 +1,265 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.teragrep.cfe_16.event.BytesEventMessage;
+import com.teragrep.cfe_16.event.EventMessage;
+import com.teragrep.cfe_16.event.EventMessageStub;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Payload held as UTF-8 bytes, parsed without decoding it into a String first.
+ */
+public final class BytesEventPayload implements EventPayload {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    public BytesEventPayload(final byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public BytesEventPayload(final byte[] bytes, final int offset, final int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public JsonParser asJsonParser(final ObjectMapper objectMapper) {
+        return objectMapper.createParser(this.bytes, this.offset, this.length);
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public long byteLength() {
+        return this.length;
+    }
+
+    @Override
+    public List<EventPayload> split(final int length) {
+        final List<EventPayload> parts = new ArrayList<>();
+        final int end = this.offset + this.length;
+        int i = this.offset;
+        while (i < end && this.bytes[i] >= 0 && Character.isWhitespace(this.bytes[i])) {
+            i++;
+        }
+        if (i == end || this.bytes[i] != '{') {
+            return List.of(this);
+        }
+        int partStart = this.offset;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        for (; i < end; i++) {
+            // bytes of multibyte UTF-8 characters are all negative, so they never match the ASCII brackets
+            final byte b = this.bytes[i];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                }
+                else if (b == '\\') {
+                    escaped = true;
+                }
+                else if (b == '"') {
+                    inString = false;
+                }
+            }
+            else if (b == '"') {
+                inString = true;
+            }
+            else if (b == '{' || b == '[') {
+                if (b == '{' && depth == 0 && i - partStart >= length) {
+                    parts.add(new BytesEventPayload(this.bytes, partStart, i - partStart));
+                    partStart = i;
+                }
+                depth++;
+            }
+            else if (b == '}' || b == ']') {
+                depth--;
+                if (depth < 0) {
+                    return List.of(this);
+                }
+            }
+        }
+        if (parts.isEmpty()) {
+            return List.of(this);
+        }
+        parts.add(new BytesEventPayload(this.bytes, partStart, end - partStart));
+        return parts;
+    }
+
+    /**
+     * Slices the value out of the payload when it has no escapes, so its bytes are the message as they are. The UTF-8
+     * parser decodes a string only when asked for it, so such a value is never decoded. Values with escapes, control
+     * characters or invalid UTF-8 are left to the parser, which unescapes them or fails as before.
+     */
+    @Override
+    public EventMessage rawEventMessage(final JsonParser jsonParser) {
+        final long tokenOffset = jsonParser.currentTokenLocation().getByteOffset();
+        if (!isUtf8() || tokenOffset < 0 || tokenOffset >= this.length) {
+            return new EventMessageStub();
+        }
+        final int start = this.offset + (int) tokenOffset;
+        if (this.bytes[start] != '"') {
+            return new EventMessageStub();
+        }
+        final int end = this.offset + this.length;
+        int i = start + 1;
+        while (i < end) {
+            final byte b = this.bytes[i];
+            if (b == '"') {
+                break;
+            }
+            if (b == '\\' || (b >= 0 && b < 0x20)) {
+                return new EventMessageStub();
+            }
+            final int sequence = b >= 0 ? 1 : utf8SequenceLength(i, end);
+            if (sequence < 0) {
+                return new EventMessageStub();
+            }
+            i += sequence;
+        }
+        if (i >= end || i == start + 1) {
+            // unterminated values fail in the parser and empty ones are rejected by the event checks
+            return new EventMessageStub();
+        }
+        return new BytesEventMessage(this.bytes, start + 1, i - start - 1);
+    }
+
+    /**
+     * JSON in UTF-16 or UTF-32 has zero bytes among its first four bytes, or starts with their byte order mark.
+     */
+    private boolean isUtf8() {
+        final int end = Math.min(this.offset + 4, this.offset + this.length);
+        for (int i = this.offset; i < end; i++) {
+            if (this.bytes[i] == 0) {
+                return false;
+            }
+        }
+        return this.length == 0 || (this.bytes[this.offset] & 0xFF) < 0xFE;
+    }
+
+    /**
+     * Length of the well formed UTF-8 sequence starting with a non-ASCII byte, as in RFC 3629 table 3.
+     *
+     * @return the length, or -1 if the sequence is malformed
+     */
+    private int utf8SequenceLength(final int start, final int end) {
+        final int lead = this.bytes[start] & 0xFF;
+        final int length;
+        int min = 0x80;
+        int max = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            length = 2;
+        }
+        else if (lead >= 0xE0 && lead <= 0xEF) {
+            length = 3;
+            if (lead == 0xE0) {
+                min = 0xA0;
+            }
+            else if (lead == 0xED) {
+                // surrogates
+                max = 0x9F;
+            }
+        }
+        else if (lead >= 0xF0 && lead <= 0xF4) {
+            length = 4;
+            if (lead == 0xF0) {
+                min = 0x90;
+            }
+            else if (lead == 0xF4) {
+                max = 0x8F;
+            }
+        }
+        else {
+            return -1;
+        }
+        if (start + length > end) {
+            return -1;
+        }
+        for (int i = 1; i < length; i++) {
+            final int continuation = this.bytes[start + i] & 0xFF;
+            if (continuation < min || continuation > max) {
+                return -1;
+            }
+            min = 0x80;
+            max = 0xBF;
+        }
+        return length;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final BytesEventPayload that = (BytesEventPayload) o;
+        return Arrays
+                .equals(
+                        this.bytes, this.offset, this.offset + this.length, that.bytes, that.offset,
+                        that.offset + that.length
+                );
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = this.offset; i < this.offset + this.length; i++) {
+            result = 31 * result + this.bytes[i];
+        }
+        return result;
+    }
+}
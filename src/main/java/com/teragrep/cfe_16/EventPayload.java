@@ -0,0 +1,93 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.teragrep.cfe_16.event.EventMessage;
+import java.util.List;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Body of an event request, read by {@link HECBatch} with a parser over the representation it was received in.
+ */
+public interface EventPayload {
+
+    /**
+     * @param objectMapper mapper to create the parser with
+     * @return parser positioned before the first token of the payload
+     */
+    public abstract JsonParser asJsonParser(ObjectMapper objectMapper);
+
+    /**
+     * @return length of the payload in the units it was received in, characters or bytes
+     */
+    public abstract int length();
+
+    /**
+     * @return size of the payload in bytes, as received or, for a payload received as characters, encoded in UTF-8
+     */
+    public abstract long byteLength();
+
+    /**
+     * Splits the payload between top level JSON objects into parts of at least the given length, so that the parts can
+     * be parsed independently. Every part but the first starts with an object. A payload that does not start with an
+     * object, or has unbalanced brackets, is returned as the only part.
+     *
+     * @param length minimum length of a part
+     * @return the parts in payload order
+     */
+    public abstract List<EventPayload> split(int length);
+
+    /**
+     * Reads the string value the parser is at as an event message without decoding it, when the representation of the
+     * payload allows it. The parser must have been created with {@link #asJsonParser(ObjectMapper)} and not have read
+     * the value yet.
+     *
+     * @param jsonParser parser at a VALUE_STRING token
+     * @return the message, or a stub if the value has to be read from the parser
+     */
+    public abstract EventMessage rawEventMessage(JsonParser jsonParser);
+}
@@ -0,0 +1,203 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes an application/x-www-form-urlencoded event request straight from the bytes of its body. HEC clients send the
+ * JSON payload as the name of a parameter with no value, optionally next to a channel parameter, for example
+ * {@code channel=CHANNEL_11111&%7B%22event%22%3A%22Hello%22%7D}. Only the payload is percent-decoded, into a single
+ * byte array that the JSON parser reads, so no parameter map or intermediate Strings are built. Like
+ * {@link MultiValueMapRequest} the parameters are separated by '&amp;', surrounding whitespace and empty parameters are
+ * ignored and the name ends at the first '='. The payload is expected in UTF-8.
+ */
+public final class FormUrlencodedRequest {
+
+    private static final byte[] CHANNEL = "channel".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] body;
+
+    public FormUrlencodedRequest(final byte[] body) {
+        this.body = body;
+    }
+
+    /**
+     * @return the decoded payload
+     * @throws IllegalStateException if the body has more than one parameter besides the channel, or malformed percent
+     *                               encoding
+     */
+    public EventPayload asEventPayload() throws IllegalStateException {
+        int payloadStart = -1;
+        int payloadEnd = -1;
+        int start = 0;
+        while (start <= this.body.length) {
+            final int end = indexOf((byte) '&', start, this.body.length);
+            final int pairStart = trimStart(start, end);
+            final int pairEnd = trimEnd(pairStart, end);
+            if (pairStart < pairEnd) {
+                final int nameEnd = indexOf((byte) '=', pairStart, pairEnd);
+                if (!isChannel(pairStart, nameEnd)) {
+                    if (payloadStart >= 0) {
+                        throw new IllegalStateException(
+                                "application/x-www-form-urlencoded request contains more parameters than expected"
+                        );
+                    }
+                    payloadStart = pairStart;
+                    payloadEnd = nameEnd;
+                }
+            }
+            start = end + 1;
+        }
+        if (payloadStart < 0) {
+            throw new IllegalStateException(
+                    "application/x-www-form-urlencoded request contains more parameters than expected"
+            );
+        }
+        final byte[] decoded = new byte[payloadEnd - payloadStart];
+        final int length = decode(payloadStart, payloadEnd, decoded);
+        return new BytesEventPayload(decoded, 0, length);
+    }
+
+    /**
+     * @return the decoded value of the first channel parameter, or null if there is none
+     * @throws IllegalStateException if the value has malformed percent encoding
+     */
+    public String channel() throws IllegalStateException {
+        String channel = null;
+        int start = 0;
+        while (channel == null && start <= this.body.length) {
+            final int end = indexOf((byte) '&', start, this.body.length);
+            final int pairStart = trimStart(start, end);
+            final int pairEnd = trimEnd(pairStart, end);
+            final int nameEnd = indexOf((byte) '=', pairStart, pairEnd);
+            if (pairStart < pairEnd && isChannel(pairStart, nameEnd)) {
+                final int valueStart = Math.min(nameEnd + 1, pairEnd);
+                final byte[] decoded = new byte[pairEnd - valueStart];
+                channel = new String(decoded, 0, decode(valueStart, pairEnd, decoded), StandardCharsets.UTF_8);
+            }
+            start = end + 1;
+        }
+        return channel;
+    }
+
+    private int indexOf(final byte b, final int from, final int to) {
+        int i = from;
+        while (i < to && this.body[i] != b) {
+            i++;
+        }
+        return i;
+    }
+
+    private int trimStart(final int from, final int to) {
+        int i = from;
+        while (i < to && this.body[i] <= ' ' && this.body[i] >= 0) {
+            i++;
+        }
+        return i;
+    }
+
+    private int trimEnd(final int from, final int to) {
+        int i = to;
+        while (i > from && this.body[i - 1] <= ' ' && this.body[i - 1] >= 0) {
+            i--;
+        }
+        return i;
+    }
+
+    private boolean isChannel(final int from, final int to) {
+        return Arrays.equals(this.body, from, to, CHANNEL, 0, CHANNEL.length);
+    }
+
+    /**
+     * Percent-decodes body[from, to) into target.
+     *
+     * @return number of bytes written
+     */
+    private int decode(final int from, final int to, final byte[] target) {
+        int written = 0;
+        int i = from;
+        while (i < to) {
+            final byte b = this.body[i];
+            if (b == '+') {
+                target[written++] = ' ';
+                i++;
+            }
+            else if (b == '%') {
+                if (i + 2 >= to) {
+                    throw new IllegalStateException("Malformed percent encoding at index " + i);
+                }
+                final int high = Character.digit(this.body[i + 1], 16);
+                final int low = Character.digit(this.body[i + 2], 16);
+                if (high < 0 || low < 0) {
+                    throw new IllegalStateException("Malformed percent encoding at index " + i);
+                }
+                target[written++] = (byte) ((high << 4) + low);
+                i += 3;
+            }
+            else {
+                target[written++] = b;
+                i++;
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final FormUrlencodedRequest that = (FormUrlencodedRequest) o;
+        return Arrays.equals(this.body, that.body);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.body);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.config.ConfigurationReloader;
+import com.teragrep.cfe_16.idempotency.IdempotencyCache;
+import com.teragrep.cfe_16.output.ShardedOutput;
+import com.teragrep.cfe_16.ratelimit.RateLimiter;
+import com.teragrep.cfe_16.sharedstate.SharedState;
+import com.teragrep.cfe_16.snapshot.StateSnapshots;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/*
+ * Coordinates the shutdown of the LifeCycle components. Runs in the last
+ * SmartLifecycle phase, so it stops before the web server:
+ *
+ * 1. Stops reloading the configuration, so that no reload replaces the output
+ *    shards or other state while they drain and stop. Stops accepting events.
+ *    New sends are answered as busy and the health check reports draining,
+ *    while ack polls are still served.
+ * 2. Waits for the in-flight sends until shutdown.drain.timeout. A send returns
+ *    only after its batch is delivered and its ack is set, so this flushes the
+ *    output queues and completes the outstanding acks.
+ * 3. Stops the batch workers and the output shards, which closes the output
+ *    connections, and then the cleaners of the other components. The shared
+ *    state and the state snapshots are stopped after the acks, so the acks of
+ *    the drained sends are written to the store and to the last snapshot.
+ *
+ */
+@Component
+public class GracefulShutdown implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GracefulShutdown.class);
+
+    private final Configuration configuration;
+    private final ConfigurationReloader configurationReloader;
+    private final ShardedOutput output;
+    private final Acknowledgements acknowledgements;
+    private final SessionManager sessionManager;
+    private final SharedState sharedState;
+    private final StateSnapshots stateSnapshots;
+    private final RateLimiter rateLimiter;
+    private final IdempotencyCache idempotencyCache;
+    private final TokenRegistry tokenRegistry;
+    private final BatchProcessor batchProcessor;
+    private final AtomicInteger inFlightRequests;
+    private final Counter drainedRequests;
+    private final Counter abandonedRequests;
+    private volatile boolean draining;
+    private volatile boolean running;
+
+    @Autowired
+    public GracefulShutdown(
+            final Configuration configuration,
+            final ConfigurationReloader configurationReloader,
+            final BatchProcessor batchProcessor,
+            final ShardedOutput output,
+            final Acknowledgements acknowledgements,
+            final SessionManager sessionManager,
+            final SharedState sharedState,
+            final StateSnapshots stateSnapshots,
+            final RateLimiter rateLimiter,
+            final IdempotencyCache idempotencyCache,
+            final TokenRegistry tokenRegistry,
+            final MeterRegistry meterRegistry
+    ) {
+        this.configuration = configuration;
+        this.configurationReloader = configurationReloader;
+        this.batchProcessor = batchProcessor;
+        this.output = output;
+        this.acknowledgements = acknowledgements;
+        this.sessionManager = sessionManager;
+        this.sharedState = sharedState;
+        this.stateSnapshots = stateSnapshots;
+        this.rateLimiter = rateLimiter;
+        this.idempotencyCache = idempotencyCache;
+        this.tokenRegistry = tokenRegistry;
+        this.inFlightRequests = new AtomicInteger();
+        this.drainedRequests = Counter
+                .builder("cfe_16.shutdown.drained")
+                .description("In-flight requests completed while draining on shutdown")
+                .register(meterRegistry);
+        this.abandonedRequests = Counter
+                .builder("cfe_16.shutdown.abandoned")
+                .description("In-flight requests still running when the drain deadline passed")
+                .register(meterRegistry);
+        Gauge
+                .builder("cfe_16.shutdown.draining", this, shutdown -> shutdown.isDraining() ? 1 : 0)
+                .description("1 while the server drains for shutdown")
+                .register(meterRegistry);
+        this.draining = false;
+        this.running = false;
+    }
+
+    /**
+     * Registers a send request. Returns false when draining, in which case the request must be rejected and
+     * {@link #exit()} not called.
+     *
+     * @return
+     */
+    public boolean enter() {
+        this.inFlightRequests.incrementAndGet();
+        if (this.draining) {
+            this.inFlightRequests.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unregisters a send request that was admitted with {@link #enter()}.
+     */
+    public void exit() {
+        this.inFlightRequests.decrementAndGet();
+    }
+
+    public boolean isDraining() {
+        return this.draining;
+    }
+
+    @Override
+    public void start() {
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.configurationReloader.stop();
+        this.draining = true;
+        final long drainStart = System.nanoTime();
+        final long deadline = drainStart + TimeUnit.MILLISECONDS.toNanos(this.configuration.shutdownDrainTimeout());
+        final int inFlightAtStart = this.inFlightRequests.get();
+        LOGGER.info("Draining <{}> in-flight requests", inFlightAtStart);
+
+        boolean drained = false;
+        try {
+            while (this.inFlightRequests.get() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            drained = this.output.drain(deadline) && this.inFlightRequests.get() == 0;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        final int abandoned = Math.max(0, this.inFlightRequests.get());
+        this.drainedRequests.increment(Math.max(0, inFlightAtStart - abandoned));
+        this.abandonedRequests.increment(abandoned);
+        final long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStart);
+        if (drained) {
+            LOGGER.info("Drained <{}> requests in <{}> ms", inFlightAtStart, tookMillis);
+        }
+        else {
+            LOGGER
+                    .warn(
+                            "Drain deadline passed after <{}> ms, drained <{}> requests, abandoned <{}>", tookMillis,
+                            Math.max(0, inFlightAtStart - abandoned), abandoned
+                    );
+        }
+
+        this.batchProcessor.stop();
+        this.output.stop();
+        this.acknowledgements.stop();
+        this.sessionManager.stop();
+        this.sharedState.stop();
+        this.stateSnapshots.stop();
+        this.rateLimiter.stop();
+        this.idempotencyCache.stop();
+        this.tokenRegistry.stop();
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+}
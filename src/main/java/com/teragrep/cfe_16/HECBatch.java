@@ -49,16 +49,19 @@ import tools.jackson.core.JsonParser;
 import tools.jackson.core.JsonToken;
 import tools.jackson.core.exc.StreamReadException;
 import tools.jackson.databind.JsonNode;
-import tools.jackson.databind.MappingIterator;
 import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ObjectNode;
 import com.teragrep.cfe_16.bo.HECRecord;
 import com.teragrep.cfe_16.bo.HECRecordImpl;
-import com.teragrep.cfe_16.bo.HECRecordStub;
 import com.teragrep.cfe_16.bo.HeaderInfo;
+import com.teragrep.cfe_16.event.EventMessage;
+import com.teragrep.cfe_16.event.EventMessageStub;
 import com.teragrep.cfe_16.event.JsonEvent;
 import com.teragrep.cfe_16.event.JsonEventImpl;
+import com.teragrep.cfe_16.event.time.HECTime;
 import com.teragrep.cfe_16.event.time.HECTimeImpl;
 import com.teragrep.cfe_16.event.time.HECTimeImplWithFallback;
+import com.teragrep.cfe_16.event.time.HECTimeStub;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -68,8 +71,9 @@ public final class HECBatch {
 
     private final String authToken;
     private final String channel;
-    private final String allEventInJSON;
+    private final EventPayload eventPayload;
     private final HeaderInfo headerInfo;
+    private final HECTime fallbackTime;
     private final ObjectMapper objectMapper;
 
     public HECBatch(
@@ -78,20 +82,46 @@ public final class HECBatch {
             final String allEventInJSON,
             final HeaderInfo headerInfo
     ) {
-        this(authToken, channel, allEventInJSON, headerInfo, new ObjectMapper());
+        this(authToken, channel, new StringEventPayload(allEventInJSON), headerInfo);
+    }
+
+    public HECBatch(
+            final String authToken,
+            final String channel,
+            final EventPayload eventPayload,
+            final HeaderInfo headerInfo
+    ) {
+        this(authToken, channel, eventPayload, headerInfo, new HECTimeStub());
+    }
+
+    /**
+     * Batch that continues a preceding batch, such as a part of a split batch.
+     *
+     * @param fallbackTime time of the event preceding the first event of this batch
+     */
+    public HECBatch(
+            final String authToken,
+            final String channel,
+            final EventPayload eventPayload,
+            final HeaderInfo headerInfo,
+            final HECTime fallbackTime
+    ) {
+        this(authToken, channel, eventPayload, headerInfo, fallbackTime, new ObjectMapper());
     }
 
     private HECBatch(
             final String authToken,
             final String channel,
-            final String allEventInJSON,
+            final EventPayload eventPayload,
             final HeaderInfo headerInfo,
+            final HECTime fallbackTime,
             final ObjectMapper objectMapper
     ) {
         this.authToken = authToken;
         this.channel = channel;
-        this.allEventInJSON = allEventInJSON;
+        this.eventPayload = eventPayload;
         this.headerInfo = headerInfo;
+        this.fallbackTime = fallbackTime;
         this.objectMapper = objectMapper;
     }
 
@@ -100,39 +130,40 @@ public final class HECBatch {
      */
     public List<HECRecord> toHECRecordList() throws IOException, StreamReadException {
         final List<HECRecord> returnedList;
-        // Init the HECRecord as a Stub
-        HECRecord previousEvent = new HECRecordStub();
+        // Time of the event preceding the first one, a stub unless this batch continues another
+        HECTime previousTime = this.fallbackTime;
 
         /*
          * There can be multiple events in one request. Here they are handled one by
          * one. The event is converted into HECRecord object and then to HECRecordImpl.
          * Metadata is assigned to the HECRecordImpl.
-         * After the event is handled, it is assigned as a value to previousEvent
+         * After the event is handled, its time is assigned as a value to previousTime
          * variable.
          */
-        try (final JsonParser jsonParser = objectMapper.createParser(this.allEventInJSON)) {
+        try (final JsonParser jsonParser = this.eventPayload.asJsonParser(objectMapper)) {
             if (jsonParser.nextToken() != JsonToken.START_OBJECT) {
                 returnedList = new ArrayList<>();
             }
             else {
-                final MappingIterator<JsonNode> mappingIterator = objectMapper.readValues(jsonParser, JsonNode.class);
                 final List<HECRecord> syslogMessages = new ArrayList<>();
                 HECRecord eventData;
 
-                while (mappingIterator.hasNext()) {
-                    // mappingIterator.next() will throw a StreamReadException if JSON is malformed
-                    final JsonEvent jsonEvent = new JsonEventImpl(mappingIterator.next());
+                // the parser throws a StreamReadException if JSON is malformed
+                for (JsonToken token = jsonParser.currentToken(); token != null; token = jsonParser.nextToken()) {
+                    final JsonEvent jsonEvent = jsonEvent(jsonParser);
 
                     eventData = new HECRecordImpl(
                             this.channel,
                             jsonEvent.asEventMessage(),
                             this.authToken,
                             0,
-                            new HECTimeImplWithFallback(new HECTimeImpl(jsonEvent), previousEvent.time()),
+                            new HECTimeImplWithFallback(new HECTimeImpl(jsonEvent), previousTime),
+                            jsonEvent.index(),
+                            jsonEvent.sourceType(),
                             this.headerInfo
                     );
                     // Set the previous event if the "current" event was parsed without an exception
-                    previousEvent = eventData;
+                    previousTime = eventData.time();
 
                     syslogMessages.add(eventData);
                 }
@@ -141,4 +172,35 @@ public final class HECBatch {
         }
         return returnedList;
     }
+
+    /**
+     * Reads the top level value the parser is at. The event field of an object is read from the payload without
+     * decoding it when it is a plain string, the other fields are read into a tree.
+     */
+    private JsonEvent jsonEvent(final JsonParser jsonParser) {
+        if (jsonParser.currentToken() != JsonToken.START_OBJECT) {
+            return new JsonEventImpl(jsonParser.readValueAsTree());
+        }
+        final ObjectNode objectNode = this.objectMapper.createObjectNode();
+        EventMessage rawEventMessage = new EventMessageStub();
+        while (jsonParser.nextToken() == JsonToken.PROPERTY_NAME) {
+            final String name = jsonParser.currentName();
+            final JsonToken value = jsonParser.nextToken();
+            EventMessage raw = new EventMessageStub();
+            if ("event".equals(name) && value == JsonToken.VALUE_STRING) {
+                raw = this.eventPayload.rawEventMessage(jsonParser);
+            }
+            if (raw.isStub()) {
+                objectNode.set(name, jsonParser.<JsonNode>readValueAsTree());
+            }
+            else {
+                // a later duplicate of the field replaces an earlier one, as in the tree
+                objectNode.remove(name);
+            }
+            if ("event".equals(name)) {
+                rawEventMessage = raw;
+            }
+        }
+        return new JsonEventImpl(objectNode, rawEventMessage);
+    }
 }
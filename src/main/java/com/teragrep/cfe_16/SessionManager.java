@@ -47,20 +47,28 @@ package com.teragrep.cfe_16;
 
 import com.teragrep.cfe_16.bo.Session;
 import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.jfr.CleanerSweepEvent;
+import com.teragrep.cfe_16.snapshot.SnapshotReader;
+import com.teragrep.cfe_16.snapshot.SnapshotRestore;
+import com.teragrep.cfe_16.snapshot.SnapshotWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
  * Manager that handles creating sessions and getting already existing sessions.
  * Sessions are indexed by the authentication token.
  *
+ * This class is thread safe.
+ *
  */
 @Component
 public class SessionManager implements Runnable, LifeCycle {
@@ -81,7 +89,7 @@ public class SessionManager implements Runnable, LifeCycle {
     @Autowired
     public SessionManager(final Configuration configuration) {
         this.configuration = configuration;
-        this.sessions = new HashMap<>();
+        this.sessions = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -106,17 +114,18 @@ public class SessionManager implements Runnable, LifeCycle {
             catch (InterruptedException e) {
                 break;
             }
-            synchronized (this) {
-                Iterator<Map.Entry<String, Session>> iterator = this.sessions.entrySet().iterator();
-                while (iterator.hasNext()) {
-                    Map.Entry<String, Session> entry = iterator.next();
-                    long now = System.currentTimeMillis();
-                    long thresholdInLong = entry.getValue().getLastTouchedTimestamp()
-                            + this.configuration.maxSessionAge();
-                    if (now >= thresholdInLong) {
-                        iterator.remove();
-                    }
-                }
+            final CleanerSweepEvent sweepEvent = new CleanerSweepEvent("sessions");
+            sweepEvent.begin();
+            final int scanned = this.sessions.size();
+            final long now = System.currentTimeMillis();
+            this.sessions
+                    .values()
+                    .removeIf(session -> now >= session.getLastTouchedTimestamp() + this.configuration.maxSessionAge());
+            sweepEvent.end();
+            if (sweepEvent.shouldCommit()) {
+                sweepEvent.setScanned(scanned);
+                sweepEvent.setRemoved(Math.max(0, scanned - this.sessions.size()));
+                sweepEvent.commit();
             }
         }
     }
@@ -126,10 +135,7 @@ public class SessionManager implements Runnable, LifeCycle {
      * there is no session for given authentication token
      */
     public Session getSession(String authenticationToken) {
-        synchronized (this) {
-            Session session = this.sessions.get(authenticationToken);
-            return session;
-        }
+        return this.sessions.get(authenticationToken);
     }
 
     /**
@@ -141,22 +147,13 @@ public class SessionManager implements Runnable, LifeCycle {
     public Session getOrCreateSession(String authenticationToken) {
         LOGGER.debug("Getting or creating session");
         LOGGER.trace("Getting or creating session for authenticationToken: {}", authenticationToken);
-        synchronized (this) {
-            Session session = this.sessions.get(authenticationToken);
-            if (session == null) {
-                session = new Session(null, authenticationToken);
-                this.sessions.put(authenticationToken, session);
-            }
-            return session;
-        }
+        return this.sessions.computeIfAbsent(authenticationToken, token -> new Session(null, token));
     }
 
     public void removeSession(String authenticationToken) {
         LOGGER.debug("Removing session");
         LOGGER.trace("Removing session for authenticationToken: {}", authenticationToken);
-        synchronized (this) {
-            this.sessions.remove(authenticationToken);
-        }
+        this.sessions.remove(authenticationToken);
     }
 
     /*
@@ -165,10 +162,72 @@ public class SessionManager implements Runnable, LifeCycle {
     public Session createSession(String authenticationToken) {
         LOGGER.debug("Creating new session");
         LOGGER.trace("Creating new session for authenticationToken: {}", authenticationToken);
-        synchronized (this) {
-            Session session = new Session(authenticationToken);
-            this.sessions.put(authenticationToken, session);
-            return session;
+        final Session session = new Session(authenticationToken);
+        this.sessions.put(authenticationToken, session);
+        return session;
+    }
+
+    /**
+     * Writes the sessions into a snapshot.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeSnapshot(final SnapshotWriter out) throws IOException {
+        final List<Session> sessions = new ArrayList<>(this.sessions.values());
+        out.writeInt(sessions.size());
+        for (final Session session : sessions) {
+            final List<String> channels = new ArrayList<>(session.getChannels());
+            out.writeString(session.getAuthenticationToken());
+            out.writeLong(session.getLastTouchedTimestamp());
+            out.writeInt(channels.size());
+            for (final String channel : channels) {
+                out.writeString(channel);
+            }
+        }
+    }
+
+    /**
+     * Reads the sessions of a snapshot that have not expired, to be restored once the whole snapshot is read. Sessions
+     * that already exist are kept as they are.
+     *
+     * @param in
+     * @return the sessions read, restoring them returns their number
+     * @throws IOException
+     */
+    public SnapshotRestore readSnapshot(final SnapshotReader in) throws IOException {
+        final long now = System.currentTimeMillis();
+        final List<Session> read = new ArrayList<>();
+        final int sessionCount = in.readCount();
+        for (int i = 0; i < sessionCount; i++) {
+            final String authenticationToken = in.readString();
+            final long lastTouchedTimestamp = in.readLong();
+            final int channelCount = in.readCount();
+            final List<String> channels = new ArrayList<>(Math.min(channelCount, 1024));
+            for (int j = 0; j < channelCount; j++) {
+                channels.add(in.readString());
+            }
+            if (now < lastTouchedTimestamp + this.configuration.maxSessionAge()) {
+                read.add(new Session(authenticationToken, channels, lastTouchedTimestamp));
+            }
         }
+        return () -> {
+            long restored = 0;
+            for (final Session session : read) {
+                if (this.sessions.putIfAbsent(session.getAuthenticationToken(), session) == null) {
+                    restored++;
+                }
+            }
+            return restored;
+        };
+    }
+
+    /**
+     * Returns the number of currently active sessions.
+     *
+     * @return
+     */
+    public int getSessionCount() {
+        return this.sessions.size();
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.teragrep.cfe_16.event.EventMessage;
+import com.teragrep.cfe_16.event.EventMessageStub;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import tools.jackson.core.JsonParser;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Payload received as a String.
+ */
+public final class StringEventPayload implements EventPayload {
+
+    private final String eventInJson;
+
+    public StringEventPayload(final String eventInJson) {
+        this.eventInJson = eventInJson;
+    }
+
+    @Override
+    public JsonParser asJsonParser(final ObjectMapper objectMapper) {
+        return objectMapper.createParser(this.eventInJson);
+    }
+
+    @Override
+    public int length() {
+        return this.eventInJson.length();
+    }
+
+    @Override
+    public long byteLength() {
+        long bytes = 0;
+        for (int i = 0; i < this.eventInJson.length(); i++) {
+            final char c = this.eventInJson.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            }
+            else if (c < 0x800) {
+                bytes += 2;
+            }
+            else if (
+                Character.isHighSurrogate(c) && i + 1 < this.eventInJson.length()
+                        && Character.isLowSurrogate(this.eventInJson.charAt(i + 1))
+            ) {
+                // supplementary characters take two chars and four bytes
+                bytes += 4;
+                i++;
+            }
+            else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public List<EventPayload> split(final int length) {
+        final List<EventPayload> parts = new ArrayList<>();
+        int i = 0;
+        while (i < this.eventInJson.length() && Character.isWhitespace(this.eventInJson.charAt(i))) {
+            i++;
+        }
+        if (i == this.eventInJson.length() || this.eventInJson.charAt(i) != '{') {
+            return List.of(this);
+        }
+        int partStart = 0;
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        for (; i < this.eventInJson.length(); i++) {
+            final char c = this.eventInJson.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                }
+                else if (c == '\\') {
+                    escaped = true;
+                }
+                else if (c == '"') {
+                    inString = false;
+                }
+            }
+            else if (c == '"') {
+                inString = true;
+            }
+            else if (c == '{' || c == '[') {
+                if (c == '{' && depth == 0 && i - partStart >= length) {
+                    parts.add(new StringEventPayload(this.eventInJson.substring(partStart, i)));
+                    partStart = i;
+                }
+                depth++;
+            }
+            else if (c == '}' || c == ']') {
+                depth--;
+                if (depth < 0) {
+                    return List.of(this);
+                }
+            }
+        }
+        if (parts.isEmpty()) {
+            return List.of(this);
+        }
+        parts.add(new StringEventPayload(this.eventInJson.substring(partStart)));
+        return parts;
+    }
+
+    /**
+     * The characters are decoded already, so the value is read from the parser.
+     */
+    @Override
+    public EventMessage rawEventMessage(final JsonParser jsonParser) {
+        return new EventMessageStub();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final StringEventPayload that = (StringEventPayload) o;
+        return Objects.equals(this.eventInJson, that.eventInJson);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.eventInJson);
+    }
+}
@@ -50,19 +50,29 @@ import com.teragrep.cfe_16.bo.HECRecord;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Encodes records into syslog messages. Records without a time of their own get the receive time of the batch, so the
+ * clock is read once per batch instead of once per record.
+ */
 public final class SyslogBatch {
 
     private final List<HECRecord> eventData;
+    private final long receivedEpochMillis;
 
     public SyslogBatch(final List<HECRecord> eventData) {
+        this(eventData, System.currentTimeMillis());
+    }
+
+    public SyslogBatch(final List<HECRecord> eventData, final long receivedEpochMillis) {
         this.eventData = eventData;
+        this.receivedEpochMillis = receivedEpochMillis;
     }
 
     public List<SyslogMessage> asSyslogMessages() {
-        final List<SyslogMessage> syslogMessages = new ArrayList<>();
+        final List<SyslogMessage> syslogMessages = new ArrayList<>(this.eventData.size());
 
         for (final HECRecord HECRecord : this.eventData) {
-            syslogMessages.add(HECRecord.toSyslogMessage());
+            syslogMessages.add(HECRecord.toSyslogMessage(this.receivedEpochMillis));
         }
 
         return syslogMessages;
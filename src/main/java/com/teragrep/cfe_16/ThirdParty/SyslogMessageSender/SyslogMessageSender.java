@@ -22,6 +22,7 @@ import com.cloudbees.syslog.util.IoUtils;
 
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -30,6 +31,7 @@ import java.math.BigInteger;
 import java.net.*;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -42,6 +44,7 @@ import java.util.logging.Level;
 public class SyslogMessageSender extends AbstractSyslogMessageSender implements Closeable  {
     public final static int SETTING_SOCKET_CONNECT_TIMEOUT_IN_MILLIS_DEFAULT_VALUE = 500;
     public final static int SETTING_MAX_RETRY = 2;
+    public final static int SETTING_OUTPUT_BUFFER_SIZE_IN_BYTES = 65536;
 
     /**
      * {@link java.net.InetAddress InetAddress} of the remote Syslog Server.
@@ -59,6 +62,11 @@ public class SyslogMessageSender extends AbstractSyslogMessageSender implements
     protected int syslogServerPort = DEFAULT_SYSLOG_PORT;
 
     private Socket socket;
+    /**
+     * Buffer over the socket, shared by {@link #writer} and {@link #sendFrames(List)} and flushed by both before they
+     * return.
+     */
+    private OutputStream outputStream;
     private Writer writer;
     private int socketConnectTimeoutInMillis = SETTING_SOCKET_CONNECT_TIMEOUT_IN_MILLIS_DEFAULT_VALUE;
     private boolean ssl;
@@ -115,7 +123,77 @@ public class SyslogMessageSender extends AbstractSyslogMessageSender implements
         }
     }
 
-    private synchronized void ensureSyslogServerConnection() throws IOException {
+    /**
+     * Sends encoded messages with the octet counting framing described in "3.4.1.  Octet Counting" of RFC 6587, as
+     * the length of the message and a space before it. The messages are buffered and flushed to the socket once, so a
+     * batch is written in as few TCP segments as the buffer allows. If the connection fails, it is reopened and the
+     * whole batch is sent again, so the server may receive messages of a failed attempt twice.
+     * <p>
+     * Not synchronized, so that a virtual thread blocked on the socket does not pin its carrier. The caller must not
+     * call it, {@link #connect()} or {@link #close()} concurrently.
+     *
+     * @param frames messages encoded as UTF-8
+     * @throws IOException if the last of {@link #getMaxRetryCount()} retries fails
+     */
+    public void sendFrames(List<byte[]> frames) throws IOException {
+        sendCounter.addAndGet(frames.size());
+        long nanosBefore = System.nanoTime();
+
+        try {
+            Exception lastException = null;
+            for (int i = 0; i <= maxRetryCount; i++) {
+                try {
+                    ensureSyslogServerConnection();
+                    for (byte[] frame : frames) {
+                        outputStream.write(Integer.toString(frame.length).getBytes(UTF_8));
+                        outputStream.write(' ');
+                        outputStream.write(frame);
+                    }
+                    outputStream.flush();
+                    return;
+                } catch (IOException e) {
+                    lastException = e;
+                    IoUtils.closeQuietly(socket, writer);
+                    trySendErrorCounter.incrementAndGet();
+                } catch (RuntimeException e) {
+                    lastException = e;
+                    IoUtils.closeQuietly(socket, writer);
+                    trySendErrorCounter.incrementAndGet();
+                }
+            }
+            if (lastException != null) {
+                sendErrorCounter.incrementAndGet();
+                if (lastException instanceof IOException) {
+                    throw (IOException) lastException;
+                } else if (lastException instanceof RuntimeException) {
+                    throw (RuntimeException) lastException;
+                }
+            }
+        } finally {
+            sendDurationInNanosCounter.addAndGet(System.nanoTime() - nanosBefore);
+        }
+    }
+
+    /**
+     * Opens the connection to the Syslog server unless it is open already. Not synchronized, like
+     * {@link #sendFrames(List)}.
+     *
+     * @throws IOException if the server can not be connected to
+     */
+    public void connect() throws IOException {
+        try {
+            ensureSyslogServerConnection();
+        } catch (IOException | RuntimeException e) {
+            IoUtils.closeQuietly(socket, writer);
+            throw e;
+        }
+    }
+
+    /**
+     * Not synchronized, {@link #sendMessage(SyslogMessage)} holds the monitor and the callers of
+     * {@link #sendFrames(List)} serialize their calls.
+     */
+    private void ensureSyslogServerConnection() throws IOException {
         InetAddress inetAddress = syslogServerHostnameReference.get();
         if (socket != null && !Objects.equals(socket.getInetAddress(), inetAddress)) {
             logger.info("InetAddress of the Syslog Server have changed, create a new connection. " +
@@ -137,6 +215,7 @@ public class SyslogMessageSender extends AbstractSyslogMessageSender implements
         }
         if (!socketIsValid) {
             writer = null;
+            outputStream = null;
             try {
                 if (ssl) {
                     if (sslContext == null) {
@@ -148,6 +227,13 @@ public class SyslogMessageSender extends AbstractSyslogMessageSender implements
                     socket = SocketFactory.getDefault().createSocket();
                 }
                 socket.setKeepAlive(true);
+                if (socket instanceof SSLSocket) {
+                    // verify that the certificate of the server is issued to the host connected to
+                    SSLSocket sslSocket = (SSLSocket) socket;
+                    SSLParameters sslParameters = sslSocket.getSSLParameters();
+                    sslParameters.setEndpointIdentificationAlgorithm("HTTPS");
+                    sslSocket.setSSLParameters(sslParameters);
+                }
                 socket.connect(
                         new InetSocketAddress(inetAddress, syslogServerPort),
                         socketConnectTimeoutInMillis);
@@ -182,7 +268,8 @@ public class SyslogMessageSender extends AbstractSyslogMessageSender implements
             }
         }
         if (writer == null) {
-            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), UTF_8));
+            outputStream = new BufferedOutputStream(socket.getOutputStream(), SETTING_OUTPUT_BUFFER_SIZE_IN_BYTES);
+            writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
         }
     }
 
@@ -277,8 +364,13 @@ public class SyslogMessageSender extends AbstractSyslogMessageSender implements
                 '}';
     }
 
+    /**
+     * Not synchronized, like {@link #sendFrames(List)}.
+     */
     @Override
     public void close() throws IOException {
-        this.socket.close();
+        if (this.socket != null) {
+            this.socket.close();
+        }
     }
 }
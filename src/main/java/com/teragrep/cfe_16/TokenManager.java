@@ -45,11 +45,17 @@
  */
 package com.teragrep.cfe_16;
 
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.AuthenticationTokenMissingException;
+import com.teragrep.cfe_16.exceptionhandling.InvalidTokenException;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /*
  * Manager that handles the authentication token 
@@ -58,7 +64,27 @@ import java.util.Base64;
 @Component
 public class TokenManager {
 
+    /**
+     * Upper bound for cached Authorization headers, the cache is emptied when it is reached.
+     */
+    private static final int MAX_RESOLVED_HEADERS = 10000;
+
+    private final TokenRegistry tokenRegistry;
+
+    /**
+     * Maps Authorization header value => authentication token. Only headers that resolved to a known token are cached,
+     * so that unknown headers can not fill the cache.
+     */
+    private final Map<String, String> resolvedHeaders;
+
     public TokenManager() {
+        this(new TokenRegistry(new Configuration()));
+    }
+
+    @Autowired
+    public TokenManager(final TokenRegistry tokenRegistry) {
+        this.tokenRegistry = tokenRegistry;
+        this.resolvedHeaders = new ConcurrentHashMap<>();
     }
 
     /*
@@ -78,6 +104,52 @@ public class TokenManager {
         return (authHeader == null || authHeader.isEmpty());
     }
 
+    /**
+     * Returns the authentication token of the request. The token is taken either directly from the Authorization header
+     * or from the password of Basic authentication. Resolved headers are cached so repeated identical headers are not
+     * decoded again. The token is checked against the {@link TokenRegistry} on every call so that removing a token from
+     * the registry takes effect immediately.
+     *
+     * @param request
+     * @return authentication token known to the registry
+     * @throws AuthenticationTokenMissingException if there is no Authorization header
+     * @throws InvalidTokenException               if the header can not be decoded or the token is not known
+     */
+    public String authenticatedToken(final HttpServletRequest request) {
+        final String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || authHeader.isEmpty()) {
+            throw new AuthenticationTokenMissingException("Authentication token must be provided");
+        }
+
+        final String cachedToken = this.resolvedHeaders.get(authHeader);
+        final String authToken;
+        if (cachedToken != null) {
+            authToken = cachedToken;
+        }
+        else if (isTokenInBasic(authHeader)) {
+            try {
+                authToken = getTokenFromBasic(authHeader);
+            }
+            catch (final IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new InvalidTokenException("Malformed Basic authentication header", e);
+            }
+        }
+        else {
+            authToken = authHeader;
+        }
+
+        if (!this.tokenRegistry.isKnown(authToken)) {
+            throw new InvalidTokenException("Authentication token is not known");
+        }
+        if (cachedToken == null) {
+            if (this.resolvedHeaders.size() >= MAX_RESOLVED_HEADERS) {
+                this.resolvedHeaders.clear();
+            }
+            this.resolvedHeaders.put(authHeader, authToken);
+        }
+        return authToken;
+    }
+
     /*
      * Checks if the authentication token is given in basic authentication. Returns
      * true if the token is in basic and false if not. Authorization header is given
@@ -88,7 +160,7 @@ public class TokenManager {
 
         boolean isInBasic = false;
 
-        if (authHeader != null && authHeader.toLowerCase().startsWith("basic")) {
+        if (authHeader != null && authHeader.regionMatches(true, 0, "basic", 0, "basic".length())) {
             isInBasic = true;
         }
 
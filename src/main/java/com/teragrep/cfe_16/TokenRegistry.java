@@ -0,0 +1,292 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.config.ConfigurationChangedEvent;
+import com.teragrep.cfe_16.config.ConfigurationSnapshot;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import com.teragrep.cfe_16.ratelimit.TokenLimits;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/*
+ * Registry of the authentication tokens that are allowed to send events.
+ *
+ * Tokens are read from the file configured with token.registry.file, one token
+ * per line as token[,name[,eventsPerSecond[,bytesPerSecond[,weight]]]]. The
+ * name is used in metrics and logs instead of the token. Missing limits are
+ * taken from rate.limit.events.per.second and rate.limit.bytes.per.second, zero
+ * meaning unlimited. The output weight defaults to 1. Empty lines and lines starting with # are ignored. The file is
+ * checked for changes every token.registry.reload.interval milliseconds and
+ * reloaded when its modification time changes. A failed reload keeps the
+ * previously loaded tokens.
+ *
+ * When no file is configured every token is accepted with the default limits.
+ * The defaults and the file may be changed while running, see
+ * ConfigurationReloader.
+ *
+ */
+@Component
+public class TokenRegistry implements Runnable, LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRegistry.class);
+
+    private final Configuration configuration;
+
+    /**
+     * Maps currently known tokens => their limits, replaced as a whole on reload.
+     */
+    private volatile Map<String, TokenLimits> tokens;
+
+    /**
+     * Limits of tokens accepted without a registry file.
+     */
+    private volatile TokenLimits defaultLimits;
+
+    private volatile long lastModified;
+
+    /**
+     * Reloads the token file when it changes.
+     */
+    private Thread reloaderThread;
+
+    @Autowired
+    public TokenRegistry(final Configuration configuration) {
+        this.configuration = configuration;
+        this.tokens = Map.of();
+        this.defaultLimits = defaultLimits(configuration.snapshot());
+        this.lastModified = Long.MIN_VALUE;
+    }
+
+    @Override
+    @PostConstruct
+    public void start() {
+        if (!isConfigured()) {
+            LOGGER.warn("token.registry.file is not configured, all authentication tokens are accepted");
+            return;
+        }
+        try {
+            reload();
+        }
+        catch (final UncheckedIOException | IllegalArgumentException e) {
+            throw new IllegalStateException(
+                    "Could not read token registry file <" + this.configuration.tokenRegistryFile() + ">",
+                    e
+            );
+        }
+        this.reloaderThread = new Thread(this, "Token registry reloader");
+        this.reloaderThread.setDaemon(true);
+        this.reloaderThread.start();
+    }
+
+    /**
+     * Applies changed default limits and registry file. The file is read again so that tokens without limits of their
+     * own get the new defaults.
+     *
+     * @param event
+     */
+    @EventListener
+    public synchronized void onConfigurationChanged(final ConfigurationChangedEvent event) {
+        final TokenLimits limits = defaultLimits(event.current());
+        final boolean fileChanged = !Objects
+                .equals(event.previous().tokenRegistryFile(), event.current().tokenRegistryFile());
+        if (limits.equals(this.defaultLimits) && !fileChanged) {
+            return;
+        }
+        this.defaultLimits = limits;
+        if (fileChanged) {
+            this.tokens = Map.of();
+        }
+        if (!isConfigured()) {
+            return;
+        }
+        this.lastModified = Long.MIN_VALUE;
+        try {
+            reload();
+        }
+        catch (final UncheckedIOException | IllegalArgumentException e) {
+            LOGGER.warn("Could not read token registry file <{}>", this.configuration.tokenRegistryFile(), e);
+        }
+        if (this.reloaderThread == null) {
+            this.reloaderThread = new Thread(this, "Token registry reloader");
+            this.reloaderThread.setDaemon(true);
+            this.reloaderThread.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (this.reloaderThread != null) {
+            this.reloaderThread.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(this.configuration.tokenRegistryReloadInterval());
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+            try {
+                reload();
+            }
+            catch (final UncheckedIOException | IllegalArgumentException e) {
+                LOGGER
+                        .warn(
+                                "Could not reload token registry file <{}>, keeping <{}> previously loaded tokens",
+                                this.configuration.tokenRegistryFile(), this.tokens.size(), e
+                        );
+            }
+        }
+    }
+
+    /**
+     * Returns true if the token is allowed to send events. Every token is allowed when no registry file is configured.
+     *
+     * @param authenticationToken
+     * @return
+     */
+    public boolean isKnown(final String authenticationToken) {
+        return !isConfigured() || this.tokens.containsKey(authenticationToken);
+    }
+
+    /**
+     * Returns the rate limits of a known token.
+     *
+     * @param authenticationToken
+     * @return
+     */
+    public TokenLimits limitsOf(final String authenticationToken) {
+        return this.tokens.getOrDefault(authenticationToken, this.defaultLimits);
+    }
+
+    /**
+     * Returns the number of tokens currently loaded.
+     *
+     * @return
+     */
+    public int getTokenCount() {
+        return this.tokens.size();
+    }
+
+    /**
+     * Reads the token file if its modification time has changed since the previous read.
+     *
+     * @throws UncheckedIOException     if the file can not be read
+     * @throws IllegalArgumentException if a line has malformed limits
+     */
+    synchronized void reload() {
+        final Path path = Paths.get(this.configuration.tokenRegistryFile());
+        try {
+            final long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified == this.lastModified) {
+                return;
+            }
+            final List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            final Map<String, TokenLimits> loaded = new HashMap<>();
+            for (final String line : lines) {
+                final String trimmed = line.trim();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                    final String[] fields = trimmed.split(",", -1);
+                    final String name = fields.length > 1 && !fields[1].isBlank() ? fields[1].trim() : "unnamed";
+                    final TokenLimits limits = new TokenLimits(
+                            name,
+                            limit(fields, 2, this.defaultLimits.eventsPerSecond()),
+                            limit(fields, 3, this.defaultLimits.bytesPerSecond()),
+                            limit(fields, 4, 1)
+                    );
+                    if (limits.weight() < 1) {
+                        throw new IllegalArgumentException("Weight of <" + name + "> must be at least 1");
+                    }
+                    loaded.put(fields[0].trim(), limits);
+                }
+            }
+            this.tokens = Map.copyOf(loaded);
+            this.lastModified = modified;
+            LOGGER.info("Loaded <{}> tokens from <{}>", loaded.size(), path);
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long limit(final String[] fields, final int index, final long defaultLimit) {
+        final long limit;
+        if (fields.length > index && !fields[index].isBlank()) {
+            limit = Long.parseLong(fields[index].trim());
+        }
+        else {
+            limit = defaultLimit;
+        }
+        return limit;
+    }
+
+    private static TokenLimits defaultLimits(final ConfigurationSnapshot snapshot) {
+        return new TokenLimits("default", snapshot.rateLimitEventsPerSecond(), snapshot.rateLimitBytesPerSecond());
+    }
+
+    private boolean isConfigured() {
+        final String file = this.configuration.tokenRegistryFile();
+        return file != null && !file.isEmpty();
+    }
+}
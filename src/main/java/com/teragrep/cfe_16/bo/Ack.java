@@ -61,9 +61,13 @@ public class Ack {
     }
 
     public Ack(int id, boolean acknowledged) {
+        this(id, acknowledged, System.currentTimeMillis());
+    }
+
+    public Ack(int id, boolean acknowledged, long lastUsedTimestampInMilliseconds) {
         this.id = id;
         this.acknowledged = acknowledged;
-        this.lastUsedTimestampInMilliseconds = System.currentTimeMillis();
+        this.lastUsedTimestampInMilliseconds = lastUsedTimestampInMilliseconds;
     }
 
     public int getId() {
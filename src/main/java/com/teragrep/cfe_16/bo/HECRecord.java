@@ -62,6 +62,16 @@ public interface HECRecord extends Stubable {
 
     HECTime time();
 
+    /**
+     * Index the event was sent to, null if not given. Used for routing only.
+     */
+    String index();
+
+    /**
+     * Sourcetype of the event, null if not given. Used for routing only.
+     */
+    String sourceType();
+
     SyslogMessage toSyslogMessage();
 
     SyslogMessage toSyslogMessage(final long defaultValue);
@@ -64,6 +64,8 @@ public final class HECRecordImpl implements HECRecord {
     private final String authenticationToken;
     private final Integer ackID;
     private final HECTime hecTime;
+    private final String index;
+    private final String sourceType;
     private final String hostName;
     private final Severity severity;
     private final Facility facility;
@@ -80,15 +82,19 @@ public final class HECRecordImpl implements HECRecord {
             final Facility facility,
             final HeaderInfo headerInfo
     ) {
-        this.channel = channel;
-        this.eventMessage = eventMessage;
-        this.authenticationToken = authenticationToken;
-        this.ackID = ackID;
-        this.hecTime = hecTime;
-        this.hostName = hostName;
-        this.severity = severity;
-        this.facility = facility;
-        this.headerInfo = headerInfo;
+        this(
+                channel,
+                eventMessage,
+                authenticationToken,
+                ackID,
+                hecTime,
+                null,
+                null,
+                hostName,
+                severity,
+                facility,
+                headerInfo
+        );
     }
 
     public HECRecordImpl(
@@ -98,6 +104,19 @@ public final class HECRecordImpl implements HECRecord {
             final Integer ackID,
             final HECTime hecTime,
             final HeaderInfo headerInfo
+    ) {
+        this(channel, eventMessage, authenticationToken, ackID, hecTime, null, null, headerInfo);
+    }
+
+    public HECRecordImpl(
+            final String channel,
+            final EventMessage eventMessage,
+            final String authenticationToken,
+            final Integer ackID,
+            final HECTime hecTime,
+            final String index,
+            final String sourceType,
+            final HeaderInfo headerInfo
     ) {
         this(
                 channel,
@@ -105,6 +124,8 @@ public final class HECRecordImpl implements HECRecord {
                 authenticationToken,
                 ackID,
                 hecTime,
+                index,
+                sourceType,
                 "cfe-16",
                 Severity.INFORMATIONAL,
                 Facility.USER,
@@ -112,6 +133,32 @@ public final class HECRecordImpl implements HECRecord {
         );
     }
 
+    private HECRecordImpl(
+            final String channel,
+            final EventMessage eventMessage,
+            final String authenticationToken,
+            final Integer ackID,
+            final HECTime hecTime,
+            final String index,
+            final String sourceType,
+            final String hostName,
+            final Severity severity,
+            final Facility facility,
+            final HeaderInfo headerInfo
+    ) {
+        this.channel = channel;
+        this.eventMessage = eventMessage;
+        this.authenticationToken = authenticationToken;
+        this.ackID = ackID;
+        this.hecTime = hecTime;
+        this.index = index;
+        this.sourceType = sourceType;
+        this.hostName = hostName;
+        this.severity = severity;
+        this.facility = facility;
+        this.headerInfo = headerInfo;
+    }
+
     @Override
     public EventMessage event() {
         return this.eventMessage;
@@ -133,45 +180,18 @@ public final class HECRecordImpl implements HECRecord {
     }
 
     @Override
-    public SyslogMessage toSyslogMessage() {
-        final long currentEpochMillis = Instant.now().toEpochMilli();
-        final SDElement structuredMetadata = structuredDataParams(currentEpochMillis);
-
-        final SyslogMessage syslogMessage;
-        if (this.time().isParsed()) {
-
-            /*
-             * Creates a Syslogmessage with a time stamp
-             */
-            LOGGER.debug("Creating new syslog message with timestamp");
-            syslogMessage = new SyslogMessage()
-                    .withTimestamp(this.time().instant(currentEpochMillis))
-                    .withSeverity(this.severity)
-                    .withAppName("capsulated")
-                    .withHostname(this.hostName)
-                    .withFacility(this.facility)
-                    .withSDElement(structuredMetadata)
-                    .withSDElement(this.headerInfo.asSDElement())
-                    .withMsg(this.event().asString());
+    public String index() {
+        return this.index;
+    }
 
-        }
-        else {
-            /*
-             * Creates a Syslogmessage without timestamp, because the time is already given
-             * in the request.
-             */
-            LOGGER.debug("Creating new syslog message without timestamp");
-            syslogMessage = new SyslogMessage()
-                    .withSeverity(this.severity)
-                    .withAppName("capsulated")
-                    .withHostname(this.hostName)
-                    .withFacility(this.facility)
-                    .withSDElement(structuredMetadata)
-                    .withSDElement(this.headerInfo.asSDElement())
-                    .withMsg(this.event().asString());
-        }
+    @Override
+    public String sourceType() {
+        return this.sourceType;
+    }
 
-        return syslogMessage;
+    @Override
+    public SyslogMessage toSyslogMessage() {
+        return toSyslogMessage(Instant.now().toEpochMilli());
     }
 
     @Override
@@ -185,15 +205,16 @@ public final class HECRecordImpl implements HECRecord {
              * Creates a Syslogmessage with a time stamp
              */
             LOGGER.debug("Creating new syslog message with timestamp");
-            syslogMessage = new SyslogMessage()
+            syslogMessage = this
+                    .event()
+                    .asSyslogMessage()
                     .withTimestamp(this.time().instant(defaultValue))
                     .withSeverity(this.severity)
                     .withAppName("capsulated")
                     .withHostname(this.hostName)
                     .withFacility(this.facility)
                     .withSDElement(structuredMetadata)
-                    .withSDElement(this.headerInfo.asSDElement())
-                    .withMsg(this.event().asString());
+                    .withSDElement(this.headerInfo.asSDElement());
 
         }
         else {
@@ -202,14 +223,15 @@ public final class HECRecordImpl implements HECRecord {
              * in the request.
              */
             LOGGER.debug("Creating new syslog message without timestamp");
-            syslogMessage = new SyslogMessage()
+            syslogMessage = this
+                    .event()
+                    .asSyslogMessage()
                     .withSeverity(this.severity)
                     .withAppName("capsulated")
                     .withHostname(this.hostName)
                     .withFacility(this.facility)
                     .withSDElement(structuredMetadata)
-                    .withSDElement(this.headerInfo.asSDElement())
-                    .withMsg(this.event().asString());
+                    .withSDElement(this.headerInfo.asSDElement());
         }
 
         return syslogMessage;
@@ -276,15 +298,15 @@ public final class HECRecordImpl implements HECRecord {
 
         final HECRecordImpl hecRecord = (HECRecordImpl) o;
         return Objects.equals(channel, hecRecord.channel) && Objects.equals(eventMessage, hecRecord.eventMessage)
-                && Objects.equals(authenticationToken, hecRecord.authenticationToken) && Objects.equals(ackID, hecRecord.ackID) && Objects.equals(hecTime, hecRecord.hecTime) && Objects.equals(hostName, hecRecord.hostName) && severity == hecRecord.severity && facility == hecRecord.facility && Objects.equals(headerInfo, hecRecord.headerInfo);
+                && Objects.equals(authenticationToken, hecRecord.authenticationToken) && Objects.equals(ackID, hecRecord.ackID) && Objects.equals(hecTime, hecRecord.hecTime) && Objects.equals(index, hecRecord.index) && Objects.equals(sourceType, hecRecord.sourceType) && Objects.equals(hostName, hecRecord.hostName) && severity == hecRecord.severity && facility == hecRecord.facility && Objects.equals(headerInfo, hecRecord.headerInfo);
     }
 
     @Override
     public int hashCode() {
         return Objects
                 .hash(
-                        channel, eventMessage, authenticationToken, ackID, hecTime, hostName, severity, facility,
-                        headerInfo
+                        channel, eventMessage, authenticationToken, ackID, hecTime, index, sourceType, hostName,
+                        severity, facility, headerInfo
                 );
     }
 }
@@ -88,6 +88,16 @@ public final class HECRecordStub implements HECRecord {
         return new HECTimeStub();
     }
 
+    @Override
+    public String index() {
+        throw new UnsupportedOperationException("HECRecordStub does not support this");
+    }
+
+    @Override
+    public String sourceType() {
+        throw new UnsupportedOperationException("HECRecordStub does not support this");
+    }
+
     @Override
     public SyslogMessage toSyslogMessage() {
         throw new UnsupportedOperationException("HECRecordStub does not support this");
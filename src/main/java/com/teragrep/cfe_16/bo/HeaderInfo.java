@@ -51,77 +51,89 @@ import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Forwarding headers of a request, read once when the request is received. Holds no reference to the request, so it can
+ * be used after the request has completed and from other threads.
+ */
 public final class HeaderInfo {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HeaderInfo.class);
     private final static XForwardedForStub xForwardedForStub = new XForwardedForStub();
     private final static XForwardedHostStub xForwardedHostStub = new XForwardedHostStub();
     private final static XForwardedProtoStub xForwardedProtoStub = new XForwardedProtoStub();
-    private final HttpServletRequest httpServletRequest;
+    private final XForwardedFor xForwardedFor;
+    private final XForwardedHost xForwardedHost;
+    private final XForwardedProto xForwardedProto;
 
     public HeaderInfo(final HttpServletRequest httpServletRequest) {
-        this.httpServletRequest = httpServletRequest;
+        this(
+                xForwardedFor(httpServletRequest.getHeader("X-Forwarded-For")),
+                xForwardedHost(httpServletRequest.getHeader("X-Forwarded-Host")),
+                xForwardedProto(httpServletRequest.getHeader("X-Forwarded-Proto"))
+        );
+    }
+
+    public HeaderInfo(
+            final XForwardedFor xForwardedFor,
+            final XForwardedHost xForwardedHost,
+            final XForwardedProto xForwardedProto
+    ) {
+        this.xForwardedFor = xForwardedFor;
+        this.xForwardedHost = xForwardedHost;
+        this.xForwardedProto = xForwardedProto;
     }
 
     public SDElement asSDElement() {
         LOGGER.debug("Setting Structured Data headers");
         final SDElement headerSDE = new SDElement("cfe_16-origin@48577");
 
-        final XForwardedFor xForwardedFor = this.xForwardedFor();
-        final XForwardedHost xForwardedHost = this.xForwardedHost();
-        final XForwardedProto xForwardedProto = this.xForwardedProto();
-
-        if (!xForwardedFor.isStub()) {
+        if (!this.xForwardedFor.isStub()) {
             LOGGER.debug("Adding X-Forwarded-For header to headerSDE");
-            headerSDE.addSDParam("X-Forwarded-For", xForwardedFor.value());
+            headerSDE.addSDParam("X-Forwarded-For", this.xForwardedFor.value());
         }
-        if (!xForwardedHost.isStub()) {
+        if (!this.xForwardedHost.isStub()) {
             LOGGER.debug("Adding X-Forwarder-Host to headerSDE");
-            headerSDE.addSDParam("X-Forwarded-Host", xForwardedHost.value());
+            headerSDE.addSDParam("X-Forwarded-Host", this.xForwardedHost.value());
         }
-        if (!xForwardedProto.isStub()) {
+        if (!this.xForwardedProto.isStub()) {
             LOGGER.debug("Adding X-Forwarded-Proto to headerSDE");
-            headerSDE.addSDParam("X-Forwarded-Proto", xForwardedProto.value());
+            headerSDE.addSDParam("X-Forwarded-Proto", this.xForwardedProto.value());
         }
 
         return headerSDE;
     }
 
-    private XForwardedFor xForwardedFor() {
+    private static XForwardedFor xForwardedFor(final String value) {
         final XForwardedFor xForwardedFor;
-        LOGGER.debug("Setting X-Forwarded-For");
-        if (httpServletRequest.getHeader("X-Forwarded-For") == null) {
+        if (value == null) {
             xForwardedFor = xForwardedForStub;
         }
         else {
-            xForwardedFor = new XForwardedForImpl(httpServletRequest.getHeader("X-Forwarded-For"));
+            xForwardedFor = new XForwardedForImpl(value);
         }
         LOGGER.trace("Setting X-Forwarded-For to value <[{}]>", xForwardedFor);
-
         return xForwardedFor;
     }
 
-    private XForwardedHost xForwardedHost() {
+    private static XForwardedHost xForwardedHost(final String value) {
         final XForwardedHost xForwardedHost;
-        LOGGER.debug("Setting X-Forwarded-Host");
-        if (httpServletRequest.getHeader("X-Forwarded-Host") == null) {
+        if (value == null) {
             xForwardedHost = xForwardedHostStub;
         }
         else {
-            xForwardedHost = new XForwardedHostImpl(httpServletRequest.getHeader("X-Forwarded-Host"));
+            xForwardedHost = new XForwardedHostImpl(value);
         }
         LOGGER.trace("Setting X-Forwarded-Host to value <[{}]>", xForwardedHost);
         return xForwardedHost;
     }
 
-    private XForwardedProto xForwardedProto() {
+    private static XForwardedProto xForwardedProto(final String value) {
         final XForwardedProto xForwardedProto;
-        LOGGER.debug("Setting X-Forwarded-Proto");
-        if (httpServletRequest.getHeader("X-Forwarded-Proto") == null) {
+        if (value == null) {
             xForwardedProto = xForwardedProtoStub;
         }
         else {
-            xForwardedProto = new XForwardedProtoImpl(httpServletRequest.getHeader("X-Forwarded-Proto"));
+            xForwardedProto = new XForwardedProtoImpl(value);
         }
         LOGGER.trace("Setting X-Forwarded-Proto to value <[{}]>", xForwardedProto);
         return xForwardedProto;
@@ -134,16 +146,18 @@ public final class HeaderInfo {
         }
 
         final HeaderInfo that = (HeaderInfo) o;
-        return Objects.equals(httpServletRequest, that.httpServletRequest);
+        return Objects.equals(xForwardedFor, that.xForwardedFor) && Objects.equals(xForwardedHost, that.xForwardedHost)
+                && Objects.equals(xForwardedProto, that.xForwardedProto);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(httpServletRequest);
+        return Objects.hash(xForwardedFor, xForwardedHost, xForwardedProto);
     }
 
     @Override
     public String toString() {
-        return "HeaderInfo{" + "httpServletRequest=" + httpServletRequest + '}';
+        return "HeaderInfo{" + "xForwardedFor=" + xForwardedFor + ", xForwardedHost=" + xForwardedHost
+                + ", xForwardedProto=" + xForwardedProto + '}';
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.bo;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Objects;
+
+/**
+ * What the encoding of a request needs to know about the request, captured once when it is received: the resolved token
+ * and channel, the receive time and the forwarding headers. Immutable and without a reference to the request, so it can
+ * be handed to the batch workers.
+ */
+public final class RequestContext {
+
+    private final String authenticationToken;
+    private final String channel;
+    private final long receivedEpochMillis;
+    private final HeaderInfo headerInfo;
+
+    public RequestContext(final HttpServletRequest request, final String authenticationToken, final String channel) {
+        this(authenticationToken, channel, System.currentTimeMillis(), new HeaderInfo(request));
+    }
+
+    public RequestContext(
+            final String authenticationToken,
+            final String channel,
+            final long receivedEpochMillis,
+            final HeaderInfo headerInfo
+    ) {
+        this.authenticationToken = authenticationToken;
+        this.channel = channel;
+        this.receivedEpochMillis = receivedEpochMillis;
+        this.headerInfo = headerInfo;
+    }
+
+    public String authenticationToken() {
+        return this.authenticationToken;
+    }
+
+    public String channel() {
+        return this.channel;
+    }
+
+    /**
+     * Time of the events that have none of their own.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long receivedEpochMillis() {
+        return this.receivedEpochMillis;
+    }
+
+    public HeaderInfo headerInfo() {
+        return this.headerInfo;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RequestContext that = (RequestContext) o;
+        return this.receivedEpochMillis == that.receivedEpochMillis && Objects
+                .equals(this.authenticationToken, that.authenticationToken)
+                && Objects.equals(this.channel, that.channel) && Objects.equals(this.headerInfo, that.headerInfo);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.authenticationToken, this.channel, this.receivedEpochMillis, this.headerInfo);
+    }
+
+    @Override
+    public String toString() {
+        // the token is left out, it is a secret
+        return "RequestContext{" + "channel=" + this.channel + ", receivedEpochMillis=" + this.receivedEpochMillis
+                + ", headerInfo=" + this.headerInfo + '}';
+    }
+}
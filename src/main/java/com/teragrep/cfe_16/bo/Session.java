@@ -45,14 +45,16 @@
  */
 package com.teragrep.cfe_16.bo;
 
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A Session keeps track of channels that are contained inside one Session. This class is not thread-safe.
+ * A Session keeps track of channels that are contained inside one Session. Channels and the last touched timestamp are
+ * safe to access concurrently.
  */
 public class Session {
 
@@ -68,12 +70,12 @@ public class Session {
      */
     private String authenticationToken;
 
-    private long lastTouchedTimestamp;
+    private volatile long lastTouchedTimestamp;
 
     @SuppressWarnings("unchecked")
     public Session(String channel, String authenticationToken) {
         LOGGER.info("Creating new session with channel <{}>", channel);
-        this.channels = Collections.synchronizedSet(new HashSet<String>());
+        this.channels = ConcurrentHashMap.newKeySet();
         if (channel != null) {
             LOGGER.info("Adding channel <[{}]>", channel);
             this.channels.add(channel);
@@ -86,6 +88,16 @@ public class Session {
         this(null, authenticationToken);
     }
 
+    /**
+     * Session restored from a snapshot.
+     */
+    public Session(String authenticationToken, Collection<String> channels, long lastTouchedTimestamp) {
+        this.channels = ConcurrentHashMap.newKeySet();
+        this.channels.addAll(channels);
+        this.authenticationToken = authenticationToken;
+        this.lastTouchedTimestamp = lastTouchedTimestamp;
+    }
+
     public String getAuthenticationToken() {
         return authenticationToken;
     }
@@ -94,6 +106,13 @@ public class Session {
         return this.channels.add(channel);
     }
 
+    /**
+     * Unmodifiable view of the channels of this Session.
+     */
+    public Set<String> getChannels() {
+        return Collections.unmodifiableSet(this.channels);
+    }
+
     public boolean doesChannelExist(String channel) {
         return this.channels.contains(channel);
     }
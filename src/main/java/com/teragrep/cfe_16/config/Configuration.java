@@ -45,93 +45,419 @@
  */
 package com.teragrep.cfe_16.config;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 
 /**
- * A Spring-utilizing class for getting configuration data.
+ * A Spring-utilizing class for getting configuration data. The values are held in a {@link ConfigurationSnapshot} that
+ * {@link ConfigurationReloader} replaces when the configuration file changes, so the accessors always return the
+ * current value and callers should not cache them.
  */
 
 @org.springframework.context.annotation.Configuration
 public class Configuration {
 
-    @Value("${syslog.server.host}")
-    private String syslogHost;
+    private volatile ConfigurationSnapshot snapshot;
 
-    @Value("${syslog.server.port}")
-    private int syslogPort;
-
-    @Value("${max.ack.value}")
-    private int maxAckValue;
-
-    @Value("${max.ack.age}")
-    private int maxAckAge;
-
-    @Value("${max.session.age}")
-    private int maxSessionAge;
-
-    @Value("${max.channels}")
-    private int maxChannels;
+    public Configuration() {
+        this(new ConfigurationSnapshot());
+    }
 
-    @Value("${max.ack.value}")
-    private long pollTime;
+    @Autowired
+    public Configuration(final Environment environment) {
+        this(new ConfigurationSnapshot(environment));
+    }
 
-    @Value("${server.print.times}")
-    private boolean printTimes;
+    public Configuration(final ConfigurationSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
 
-    public Configuration() {
+    public ConfigurationSnapshot snapshot() {
+        return this.snapshot;
+    }
 
+    /**
+     * Replaces the current values, returning the previous ones.
+     */
+    public synchronized ConfigurationSnapshot apply(final ConfigurationSnapshot snapshot) {
+        final ConfigurationSnapshot previous = this.snapshot;
+        this.snapshot = snapshot;
+        return previous;
     }
 
-    @Bean
     public String syslogHost() {
-        return this.syslogHost;
+        return this.snapshot.syslogHost();
     }
 
-    @Bean
     public int syslogPort() {
-        return this.syslogPort;
+        return this.snapshot.syslogPort();
+    }
+
+    /**
+     * Protocol of the default destination, relp, tcp or tls. Routed destinations name their own.
+     */
+    public String syslogProtocol() {
+        return this.snapshot.syslogProtocol();
     }
 
-    @Bean
     public int maxAckValue() {
-        return this.maxAckValue;
+        return this.snapshot.maxAckValue();
     }
 
-    public void setMaxAckValue(int maxAckValue) {
-        this.maxAckValue = maxAckValue;
+    public synchronized void setMaxAckValue(int maxAckValue) {
+        this.snapshot = this.snapshot.withMaxAckValue(maxAckValue);
     }
 
-    @Bean
     public int maxAckAge() {
-        return this.maxAckAge;
+        return this.snapshot.maxAckAge();
     }
 
-    @Bean
     public int maxChannels() {
-        return this.maxChannels;
+        return this.snapshot.maxChannels();
     }
 
-    @Bean
     public long pollTime() {
-        return this.pollTime;
+        return this.snapshot.pollTime();
     }
 
-    @Bean
+    /**
+     * Request timings are published as metrics on the actuator prometheus endpoint, this value is kept so that existing
+     * configuration files keep working.
+     */
     public boolean printTimes() {
-        return this.printTimes;
+        return this.snapshot.printTimes();
     }
 
-    @Bean
     public int maxSessionAge() {
-        return this.maxSessionAge;
+        return this.snapshot.maxSessionAge();
+    }
+
+    /**
+     * Milliseconds between checks of the configuration file for changes, zero disables reloading.
+     */
+    public long configPollTime() {
+        return this.snapshot.configPollTime();
+    }
+
+    /**
+     * Path of the file listing the accepted authentication tokens, empty when every token is accepted.
+     */
+    public String tokenRegistryFile() {
+        return this.snapshot.tokenRegistryFile();
+    }
+
+    public synchronized void setTokenRegistryFile(String tokenRegistryFile) {
+        this.snapshot = this.snapshot.withTokenRegistryFile(tokenRegistryFile);
+    }
+
+    public long tokenRegistryReloadInterval() {
+        return this.snapshot.tokenRegistryReloadInterval();
+    }
+
+    /**
+     * Default events per second of a token, zero for unlimited.
+     */
+    public long rateLimitEventsPerSecond() {
+        return this.snapshot.rateLimitEventsPerSecond();
+    }
+
+    /**
+     * Default payload characters per second of a token, zero for unlimited.
+     */
+    public long rateLimitBytesPerSecond() {
+        return this.snapshot.rateLimitBytesPerSecond();
+    }
+
+    /**
+     * Messages a token of weight 1 may send on its turn in the fair queue.
+     */
+    public long outputFairQuantum() {
+        return this.snapshot.outputFairQuantum();
+    }
+
+    public synchronized void setOutputFairQuantum(long outputFairQuantum) {
+        this.snapshot = this.snapshot.withOutputFairQuantum(outputFairQuantum);
+    }
+
+    /**
+     * Number of output shards, each with a RELP connection of its own.
+     */
+    public int outputShards() {
+        return this.snapshot.outputShards();
+    }
+
+    public synchronized void setOutputShards(int outputShards) {
+        this.snapshot = this.snapshot.withOutputShards(outputShards);
+    }
+
+    /**
+     * File of the routes to other syslog destinations, empty when everything goes to the syslog server.
+     */
+    public String outputRoutesFile() {
+        return this.snapshot.outputRoutesFile();
+    }
+
+    public synchronized void setOutputRoutesFile(String outputRoutesFile) {
+        this.snapshot = this.snapshot.withOutputRoutesFile(outputRoutesFile);
+    }
+
+    /**
+     * Maximum length in bytes of one syslog record sent to a destination, longer ones are split. Zero disables.
+     */
+    public int outputMaxRecordBytes() {
+        return this.snapshot.outputMaxRecordBytes();
+    }
+
+    public synchronized void setOutputMaxRecordBytes(int outputMaxRecordBytes) {
+        this.snapshot = this.snapshot.withOutputMaxRecordBytes(outputMaxRecordBytes);
+    }
+
+    /**
+     * Bytes after which the file of a file destination is rotated, zero or less for no limit.
+     */
+    public long outputFileMaxBytes() {
+        return this.snapshot.outputFileMaxBytes();
+    }
+
+    public synchronized void setOutputFileMaxBytes(long outputFileMaxBytes) {
+        this.snapshot = this.snapshot.withOutputFileMaxBytes(outputFileMaxBytes);
+    }
+
+    /**
+     * Milliseconds after which the file of a file destination is rotated on the next write, zero or less for no limit.
+     */
+    public long outputFileMaxAge() {
+        return this.snapshot.outputFileMaxAge();
+    }
+
+    public synchronized void setOutputFileMaxAge(long outputFileMaxAge) {
+        this.snapshot = this.snapshot.withOutputFileMaxAge(outputFileMaxAge);
+    }
+
+    /**
+     * When the file of a file destination is forced to storage: none, batch or interval.
+     */
+    public String outputFileFsync() {
+        return this.snapshot.outputFileFsync();
+    }
+
+    public synchronized void setOutputFileFsync(String outputFileFsync) {
+        this.snapshot = this.snapshot.withOutputFileFsync(outputFileFsync);
+    }
+
+    /**
+     * Milliseconds between forcing the files of file destinations to storage with the interval policy.
+     */
+    public long outputFileFsyncInterval() {
+        return this.snapshot.outputFileFsyncInterval();
+    }
+
+    public synchronized void setOutputFileFsyncInterval(long outputFileFsyncInterval) {
+        this.snapshot = this.snapshot.withOutputFileFsyncInterval(outputFileFsyncInterval);
+    }
+
+    /**
+     * JDBC URL of the store of ack and session state shared between nodes, empty to keep the state in this node only.
+     * Read at startup.
+     */
+    public String sharedStateJdbcUrl() {
+        return this.snapshot.sharedStateJdbcUrl();
+    }
+
+    public String sharedStateJdbcUser() {
+        return this.snapshot.sharedStateJdbcUser();
+    }
+
+    public String sharedStateJdbcPassword() {
+        return this.snapshot.sharedStateJdbcPassword();
+    }
+
+    /**
+     * Milliseconds between writing the shared state changes of this node to the store.
+     */
+    public long sharedStateFlushInterval() {
+        return this.snapshot.sharedStateFlushInterval();
+    }
+
+    /**
+     * Milliseconds a channel read from the shared state store is trusted without reading it again.
+     */
+    public long sharedStateReadTtl() {
+        return this.snapshot.sharedStateReadTtl();
+    }
+
+    public synchronized void setSharedStateReadTtl(long sharedStateReadTtl) {
+        this.snapshot = this.snapshot.withSharedStateReadTtl(sharedStateReadTtl);
+    }
+
+    /**
+     * Number of ack ids a node takes for a channel from the shared state store at a time.
+     */
+    public int sharedStateAckBlock() {
+        return this.snapshot.sharedStateAckBlock();
+    }
+
+    public synchronized void setSharedStateAckBlock(int sharedStateAckBlock) {
+        this.snapshot = this.snapshot.withSharedStateAckBlock(sharedStateAckBlock);
+    }
+
+    /**
+     * Milliseconds to wait for a shared state store connection and for each statement, after which a request fails as
+     * busy. Read at startup.
+     */
+    public long sharedStateJdbcTimeout() {
+        return this.snapshot.sharedStateJdbcTimeout();
+    }
+
+    /**
+     * Maximum number of connections to the shared state store. Read at startup.
+     */
+    public int sharedStateJdbcPoolSize() {
+        return this.snapshot.sharedStateJdbcPoolSize();
+    }
+
+    /**
+     * File the ack and session state is saved to and restored from on startup, empty to not save it. Read at startup.
+     */
+    public String stateSnapshotFile() {
+        return this.snapshot.stateSnapshotFile();
+    }
+
+    /**
+     * Milliseconds between saves of the ack and session state.
+     */
+    public long stateSnapshotInterval() {
+        return this.snapshot.stateSnapshotInterval();
+    }
+
+    public synchronized void setStateSnapshotInterval(long stateSnapshotInterval) {
+        this.snapshot = this.snapshot.withStateSnapshotInterval(stateSnapshotInterval);
+    }
+
+    /**
+     * Streams an HTTP/2 connection accepts at a time. Read at startup.
+     */
+    public long http2MaxConcurrentStreams() {
+        return this.snapshot.http2MaxConcurrentStreams();
+    }
+
+    /**
+     * Streams of an HTTP/2 connection executed at a time, each holding a request thread until its batch is delivered.
+     * Read at startup.
+     */
+    public int http2MaxConcurrentStreamExecution() {
+        return this.snapshot.http2MaxConcurrentStreamExecution();
+    }
+
+    /**
+     * Milliseconds to wait for in-flight requests and queued batches on shutdown.
+     */
+    public long shutdownDrainTimeout() {
+        return this.snapshot.shutdownDrainTimeout();
+    }
+
+    public synchronized void setShutdownDrainTimeout(long shutdownDrainTimeout) {
+        this.snapshot = this.snapshot.withShutdownDrainTimeout(shutdownDrainTimeout);
+    }
+
+    /**
+     * Payload length from which a batch is split for parsing on the batch workers, zero disables.
+     */
+    public int batchParallelLength() {
+        return this.snapshot.batchParallelLength();
+    }
+
+    public synchronized void setBatchParallelLength(int batchParallelLength) {
+        this.snapshot = this.snapshot.withBatchParallelLength(batchParallelLength);
+    }
+
+    /**
+     * Number of records from which a batch is encoded on the batch workers, zero disables.
+     */
+    public int batchParallelEvents() {
+        return this.snapshot.batchParallelEvents();
+    }
+
+    public synchronized void setBatchParallelEvents(int batchParallelEvents) {
+        this.snapshot = this.snapshot.withBatchParallelEvents(batchParallelEvents);
+    }
+
+    /**
+     * Number of batch worker threads, zero for one per processor. Read at startup only.
+     */
+    public int batchParallelThreads() {
+        return this.snapshot.batchParallelThreads();
+    }
+
+    /**
+     * Milliseconds an idempotency key is remembered per token, zero disables deduplication.
+     */
+    public long idempotencyWindow() {
+        return this.snapshot.idempotencyWindow();
+    }
+
+    public synchronized void setIdempotencyWindow(long idempotencyWindow) {
+        this.snapshot = this.snapshot.withIdempotencyWindow(idempotencyWindow);
+    }
+
+    /**
+     * Maximum number of idempotency keys remembered per token, the oldest is forgotten first.
+     */
+    public int idempotencyMaxKeys() {
+        return this.snapshot.idempotencyMaxKeys();
+    }
+
+    public synchronized void setIdempotencyMaxKeys(int idempotencyMaxKeys) {
+        this.snapshot = this.snapshot.withIdempotencyMaxKeys(idempotencyMaxKeys);
+    }
+
+    /**
+     * Milliseconds the oldest undelivered output batch may wait before the node reports unhealthy, zero disables.
+     */
+    public long healthMaxQueueAge() {
+        return this.snapshot.healthMaxQueueAge();
+    }
+
+    public synchronized void setHealthMaxQueueAge(long healthMaxQueueAge) {
+        this.snapshot = this.snapshot.withHealthMaxQueueAge(healthMaxQueueAge);
+    }
+
+    /**
+     * UTF-8 bytes of queued output messages from which the node reports unhealthy, zero disables.
+     */
+    public long healthMaxQueuedBytes() {
+        return this.snapshot.healthMaxQueuedBytes();
+    }
+
+    public synchronized void setHealthMaxQueuedBytes(long healthMaxQueuedBytes) {
+        this.snapshot = this.snapshot.withHealthMaxQueuedBytes(healthMaxQueuedBytes);
+    }
+
+    /**
+     * Outstanding acks from which the node reports unhealthy, zero disables.
+     */
+    public long healthMaxOutstandingAcks() {
+        return this.snapshot.healthMaxOutstandingAcks();
+    }
+
+    public synchronized void setHealthMaxOutstandingAcks(long healthMaxOutstandingAcks) {
+        this.snapshot = this.snapshot.withHealthMaxOutstandingAcks(healthMaxOutstandingAcks);
+    }
+
+    /**
+     * Error log lines written per second at most, the rest are counted as suppressed. Zero disables the limit.
+     */
+    public long errorLogPerSecond() {
+        return this.snapshot.errorLogPerSecond();
+    }
+
+    public synchronized void setErrorLogPerSecond(long errorLogPerSecond) {
+        this.snapshot = this.snapshot.withErrorLogPerSecond(errorLogPerSecond);
     }
 
     @Override
     public String toString() {
-        return "Configuration{" + "syslogHost=" + syslogHost + ", syslogPort=" + syslogPort + ", maxAckValue="
-                + maxAckValue + ", maxAckAge=" + maxAckAge + ", maxSessionAge=" + maxSessionAge + ", maxChannels="
-                + maxChannels + ", pollTime=" + pollTime + ", printTimes=" + printTimes + '}';
+        return this.snapshot.toString();
     }
 
 }
@@ -0,0 +1,284 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.config;
+
+import com.teragrep.cfe_16.LifeCycle;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.PropertySourcesPropertyResolver;
+import org.springframework.stereotype.Component;
+
+/*
+ * Reloads the configuration file while the server is running.
+ *
+ * The file configured with config.file, or else the last file of
+ * spring.config.location, is checked for changes every config.poll.time
+ * milliseconds. When its modification time changes its properties take the
+ * place the file had in the environment at startup, so system properties and
+ * the command line still take precedence and a key removed from the file falls
+ * back to its default. The result replaces the values of Configuration as a
+ * whole and a ConfigurationChangedEvent is published for the components that
+ * hold state derived from them. A file that can not be read or has invalid
+ * values is logged and the previous values are kept. A missing file is logged
+ * once and applied when it appears.
+ *
+ * A config.poll.time of zero disables reloading. Stopping interrupts a reload
+ * in progress and waits for it to return, so that no change is published
+ * once the reloader is stopped.
+ */
+@Component
+public class ConfigurationReloader implements Runnable, LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationReloader.class);
+
+    private static final String DEFAULT_FILE = "config/application.properties";
+
+    private final Configuration configuration;
+    private final ConfigurableEnvironment environment;
+    private final ApplicationEventPublisher publisher;
+    private final Path file;
+
+    private long lastModified;
+
+    private Thread reloaderThread;
+
+    @Autowired
+    public ConfigurationReloader(
+            final Configuration configuration,
+            final ConfigurableEnvironment environment,
+            final ApplicationEventPublisher publisher,
+            @Value("${config.file:}") final String file,
+            @Value("${spring.config.location:}") final String locations
+    ) {
+        this(configuration, environment, publisher, file.isEmpty() ? locatedFile(locations) : file);
+    }
+
+    public ConfigurationReloader(
+            final Configuration configuration,
+            final ConfigurableEnvironment environment,
+            final ApplicationEventPublisher publisher,
+            final String file
+    ) {
+        this.configuration = configuration;
+        this.environment = environment;
+        this.publisher = publisher;
+        this.file = Paths.get(file);
+        this.lastModified = Long.MIN_VALUE;
+    }
+
+    @Override
+    @PostConstruct
+    public void start() {
+        if (this.configuration.configPollTime() <= 0) {
+            LOGGER.info("config.poll.time is not positive, configuration is not reloaded");
+            return;
+        }
+        this.lastModified = modifiedTime();
+        if (this.lastModified == Long.MIN_VALUE) {
+            LOGGER
+                    .warn(
+                            "Configuration file <{}> does not exist, it is applied when it appears",
+                            this.file.toAbsolutePath()
+                    );
+        }
+        else {
+            LOGGER.info("Watching configuration file <{}> for changes", this.file.toAbsolutePath());
+        }
+        this.reloaderThread = new Thread(this, "Configuration reloader");
+        this.reloaderThread.setDaemon(true);
+        this.reloaderThread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (this.reloaderThread != null) {
+            this.reloaderThread.interrupt();
+            try {
+                this.reloaderThread.join(Math.max(1, this.configuration.shutdownDrainTimeout()));
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(Math.max(1, this.configuration.configPollTime()));
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+            try {
+                reload();
+            }
+            catch (final RuntimeException e) {
+                LOGGER.warn("Could not reload configuration file <{}>, keeping previous values", this.file, e);
+            }
+        }
+    }
+
+    /**
+     * Applies the configuration file if its modification time has changed since the previous read.
+     *
+     * @return true if new values were applied
+     * @throws UncheckedIOException  if the file can not be read
+     * @throws IllegalStateException if a required value is missing
+     * @throws RuntimeException      if a value can not be converted
+     */
+    synchronized boolean reload() {
+        final long modified = modifiedTime();
+        if (modified == this.lastModified) {
+            return false;
+        }
+        if (modified == Long.MIN_VALUE) {
+            LOGGER
+                    .warn(
+                            "Configuration file <{}> was removed, keeping previous values until it appears",
+                            this.file.toAbsolutePath()
+                    );
+            this.lastModified = modified;
+            return false;
+        }
+        final ConfigurationSnapshot current = read();
+        this.lastModified = modified;
+        final ConfigurationSnapshot previous = this.configuration.apply(current);
+        if (previous.equals(current)) {
+            return false;
+        }
+        LOGGER.info("Reloaded configuration from <{}>: <{}>", this.file, current);
+        this.publisher.publishEvent(new ConfigurationChangedEvent(this, previous, current));
+        return true;
+    }
+
+    /**
+     * The file that spring.config.location loads last and so takes precedence, or config/application.properties if it
+     * names no file. A location ending with a slash is a directory holding application.properties, classpath locations
+     * can not change and are skipped.
+     *
+     * @param locations value of spring.config.location, empty if not set
+     * @return path of the configuration file
+     */
+    static String locatedFile(final String locations) {
+        String located = DEFAULT_FILE;
+        for (final String entry : locations.split(",")) {
+            String location = entry.trim();
+            if (location.startsWith("optional:")) {
+                location = location.substring("optional:".length());
+            }
+            if (location.startsWith("file:")) {
+                location = location.substring("file:".length());
+                if (location.startsWith("//")) {
+                    location = location.substring("//".length());
+                }
+            }
+            else if (location.isEmpty() || location.contains(":")) {
+                continue;
+            }
+            if (location.endsWith("/")) {
+                location = location + "application.properties";
+            }
+            located = location;
+        }
+        return located;
+    }
+
+    private ConfigurationSnapshot read() {
+        final Properties properties = new Properties();
+        try (final InputStream in = Files.newInputStream(this.file)) {
+            properties.load(in);
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final MutablePropertySources sources = new MutablePropertySources(this.environment.getPropertySources());
+        final PropertiesPropertySource reloaded = new PropertiesPropertySource("reloaded:" + this.file, properties);
+        final String location = this.file.toString();
+        final Optional<String> loaded = sources
+                .stream()
+                .map(PropertySource::getName)
+                .filter(name -> name.contains(location))
+                .findFirst();
+        if (loaded.isPresent()) {
+            sources.replace(loaded.get(), reloaded);
+        }
+        else {
+            sources.addLast(reloaded);
+        }
+        return new ConfigurationSnapshot(new PropertySourcesPropertyResolver(sources));
+    }
+
+    private long modifiedTime() {
+        try {
+            return Files.getLastModifiedTime(this.file).toMillis();
+        }
+        catch (final NoSuchFileException e) {
+            return Long.MIN_VALUE;
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,587 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.config;
+
+import java.util.Objects;
+import org.springframework.core.env.PropertyResolver;
+
+/**
+ * Immutable set of configuration values. {@link Configuration} publishes a snapshot through a volatile field and
+ * replaces it as a whole on reload, so a reader sees either all old or all new values.
+ */
+public final class ConfigurationSnapshot {
+
+    private String syslogHost;
+    private int syslogPort;
+    private String syslogProtocol;
+    private int maxAckValue;
+    private int maxAckAge;
+    private int maxSessionAge;
+    private int maxChannels;
+    private long pollTime;
+    private boolean printTimes;
+    private long configPollTime;
+    private String tokenRegistryFile;
+    private long tokenRegistryReloadInterval;
+    private long rateLimitEventsPerSecond;
+    private long rateLimitBytesPerSecond;
+    private long outputFairQuantum;
+    private int outputShards;
+    private String outputRoutesFile;
+    private int outputMaxRecordBytes;
+    private long outputFileMaxBytes;
+    private long outputFileMaxAge;
+    private String outputFileFsync;
+    private long outputFileFsyncInterval;
+    private long shutdownDrainTimeout;
+    private int batchParallelLength;
+    private int batchParallelEvents;
+    private int batchParallelThreads;
+    private long idempotencyWindow;
+    private int idempotencyMaxKeys;
+    private long healthMaxQueueAge;
+    private long healthMaxQueuedBytes;
+    private long healthMaxOutstandingAcks;
+    private long errorLogPerSecond;
+    private String sharedStateJdbcUrl;
+    private String sharedStateJdbcUser;
+    private String sharedStateJdbcPassword;
+    private long sharedStateFlushInterval;
+    private long sharedStateReadTtl;
+    private int sharedStateAckBlock;
+    private long sharedStateJdbcTimeout;
+    private int sharedStateJdbcPoolSize;
+    private String stateSnapshotFile;
+    private long stateSnapshotInterval;
+    private long http2MaxConcurrentStreams;
+    private int http2MaxConcurrentStreamExecution;
+
+    /**
+     * Snapshot with every value unset, used when the configuration is not managed by Spring.
+     */
+    public ConfigurationSnapshot() {
+    }
+
+    public ConfigurationSnapshot(final PropertyResolver resolver) {
+        this.syslogHost = resolver.getRequiredProperty("syslog.server.host");
+        this.syslogPort = resolver.getRequiredProperty("syslog.server.port", Integer.class);
+        this.syslogProtocol = resolver.getProperty("syslog.server.protocol", "relp");
+        this.maxAckValue = resolver.getRequiredProperty("max.ack.value", Integer.class);
+        this.maxAckAge = resolver.getRequiredProperty("max.ack.age", Integer.class);
+        this.maxSessionAge = resolver.getRequiredProperty("max.session.age", Integer.class);
+        this.maxChannels = resolver.getRequiredProperty("max.channels", Integer.class);
+        this.pollTime = resolver.getRequiredProperty("poll.time", Long.class);
+        this.printTimes = resolver.getRequiredProperty("server.print.times", Boolean.class);
+        this.configPollTime = resolver.getProperty("config.poll.time", Long.class, 5000L);
+        this.tokenRegistryFile = resolver.getProperty("token.registry.file", "");
+        this.tokenRegistryReloadInterval = resolver.getProperty("token.registry.reload.interval", Long.class, 10000L);
+        this.rateLimitEventsPerSecond = resolver.getProperty("rate.limit.events.per.second", Long.class, 0L);
+        this.rateLimitBytesPerSecond = resolver.getProperty("rate.limit.bytes.per.second", Long.class, 0L);
+        this.outputFairQuantum = resolver.getProperty("output.fair.quantum", Long.class, 1000L);
+        this.outputShards = resolver.getProperty("output.shards", Integer.class, 1);
+        this.outputRoutesFile = resolver.getProperty("output.routes.file", "");
+        this.outputMaxRecordBytes = resolver.getProperty("output.max.record.bytes", Integer.class, 0);
+        this.outputFileMaxBytes = resolver.getProperty("output.file.max.bytes", Long.class, 104857600L);
+        this.outputFileMaxAge = resolver.getProperty("output.file.max.age", Long.class, 3600000L);
+        this.outputFileFsync = resolver.getProperty("output.file.fsync", "batch");
+        this.outputFileFsyncInterval = resolver.getProperty("output.file.fsync.interval", Long.class, 1000L);
+        this.shutdownDrainTimeout = resolver.getProperty("shutdown.drain.timeout", Long.class, 30000L);
+        this.batchParallelLength = resolver.getProperty("batch.parallel.length", Integer.class, 1048576);
+        this.batchParallelEvents = resolver.getProperty("batch.parallel.events", Integer.class, 10000);
+        this.batchParallelThreads = resolver.getProperty("batch.parallel.threads", Integer.class, 0);
+        this.idempotencyWindow = resolver.getProperty("idempotency.window", Long.class, 300000L);
+        this.idempotencyMaxKeys = resolver.getProperty("idempotency.max.keys", Integer.class, 10000);
+        this.healthMaxQueueAge = resolver.getProperty("health.max.queue.age", Long.class, 10000L);
+        this.healthMaxQueuedBytes = resolver.getProperty("health.max.queued.bytes", Long.class, 0L);
+        this.healthMaxOutstandingAcks = resolver.getProperty("health.max.outstanding.acks", Long.class, 0L);
+        this.errorLogPerSecond = resolver.getProperty("error.log.per.second", Long.class, 10L);
+        this.sharedStateJdbcUrl = resolver.getProperty("shared.state.jdbc.url", "");
+        this.sharedStateJdbcUser = resolver.getProperty("shared.state.jdbc.user", "");
+        this.sharedStateJdbcPassword = resolver.getProperty("shared.state.jdbc.password", "");
+        this.sharedStateFlushInterval = resolver.getProperty("shared.state.flush.interval", Long.class, 100L);
+        this.sharedStateReadTtl = resolver.getProperty("shared.state.read.ttl", Long.class, 1000L);
+        this.sharedStateAckBlock = resolver.getProperty("shared.state.ack.block", Integer.class, 100);
+        this.sharedStateJdbcTimeout = resolver.getProperty("shared.state.jdbc.timeout", Long.class, 1000L);
+        this.sharedStateJdbcPoolSize = resolver.getProperty("shared.state.jdbc.pool.size", Integer.class, 4);
+        this.stateSnapshotFile = resolver.getProperty("state.snapshot.file", "");
+        this.stateSnapshotInterval = resolver.getProperty("state.snapshot.interval", Long.class, 5000L);
+        this.http2MaxConcurrentStreams = resolver.getProperty("http2.max.concurrent.streams", Long.class, 200L);
+        this.http2MaxConcurrentStreamExecution = resolver
+                .getProperty("http2.max.concurrent.stream.execution", Integer.class, 200);
+    }
+
+    private ConfigurationSnapshot(final ConfigurationSnapshot other) {
+        this.syslogHost = other.syslogHost;
+        this.syslogPort = other.syslogPort;
+        this.syslogProtocol = other.syslogProtocol;
+        this.maxAckValue = other.maxAckValue;
+        this.maxAckAge = other.maxAckAge;
+        this.maxSessionAge = other.maxSessionAge;
+        this.maxChannels = other.maxChannels;
+        this.pollTime = other.pollTime;
+        this.printTimes = other.printTimes;
+        this.configPollTime = other.configPollTime;
+        this.tokenRegistryFile = other.tokenRegistryFile;
+        this.tokenRegistryReloadInterval = other.tokenRegistryReloadInterval;
+        this.rateLimitEventsPerSecond = other.rateLimitEventsPerSecond;
+        this.rateLimitBytesPerSecond = other.rateLimitBytesPerSecond;
+        this.outputFairQuantum = other.outputFairQuantum;
+        this.outputShards = other.outputShards;
+        this.outputRoutesFile = other.outputRoutesFile;
+        this.outputMaxRecordBytes = other.outputMaxRecordBytes;
+        this.outputFileMaxBytes = other.outputFileMaxBytes;
+        this.outputFileMaxAge = other.outputFileMaxAge;
+        this.outputFileFsync = other.outputFileFsync;
+        this.outputFileFsyncInterval = other.outputFileFsyncInterval;
+        this.shutdownDrainTimeout = other.shutdownDrainTimeout;
+        this.batchParallelLength = other.batchParallelLength;
+        this.batchParallelEvents = other.batchParallelEvents;
+        this.batchParallelThreads = other.batchParallelThreads;
+        this.idempotencyWindow = other.idempotencyWindow;
+        this.idempotencyMaxKeys = other.idempotencyMaxKeys;
+        this.healthMaxQueueAge = other.healthMaxQueueAge;
+        this.healthMaxQueuedBytes = other.healthMaxQueuedBytes;
+        this.healthMaxOutstandingAcks = other.healthMaxOutstandingAcks;
+        this.errorLogPerSecond = other.errorLogPerSecond;
+        this.sharedStateJdbcUrl = other.sharedStateJdbcUrl;
+        this.sharedStateJdbcUser = other.sharedStateJdbcUser;
+        this.sharedStateJdbcPassword = other.sharedStateJdbcPassword;
+        this.sharedStateFlushInterval = other.sharedStateFlushInterval;
+        this.sharedStateReadTtl = other.sharedStateReadTtl;
+        this.sharedStateAckBlock = other.sharedStateAckBlock;
+        this.sharedStateJdbcTimeout = other.sharedStateJdbcTimeout;
+        this.sharedStateJdbcPoolSize = other.sharedStateJdbcPoolSize;
+        this.stateSnapshotFile = other.stateSnapshotFile;
+        this.stateSnapshotInterval = other.stateSnapshotInterval;
+        this.http2MaxConcurrentStreams = other.http2MaxConcurrentStreams;
+        this.http2MaxConcurrentStreamExecution = other.http2MaxConcurrentStreamExecution;
+    }
+
+    ConfigurationSnapshot withMaxAckValue(final int maxAckValue) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.maxAckValue = maxAckValue;
+        return copy;
+    }
+
+    ConfigurationSnapshot withTokenRegistryFile(final String tokenRegistryFile) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.tokenRegistryFile = tokenRegistryFile;
+        return copy;
+    }
+
+    ConfigurationSnapshot withOutputFairQuantum(final long outputFairQuantum) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.outputFairQuantum = outputFairQuantum;
+        return copy;
+    }
+
+    ConfigurationSnapshot withOutputShards(final int outputShards) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.outputShards = outputShards;
+        return copy;
+    }
+
+    ConfigurationSnapshot withOutputRoutesFile(final String outputRoutesFile) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.outputRoutesFile = outputRoutesFile;
+        return copy;
+    }
+
+    ConfigurationSnapshot withOutputMaxRecordBytes(final int outputMaxRecordBytes) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.outputMaxRecordBytes = outputMaxRecordBytes;
+        return copy;
+    }
+
+    ConfigurationSnapshot withOutputFileMaxBytes(final long outputFileMaxBytes) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.outputFileMaxBytes = outputFileMaxBytes;
+        return copy;
+    }
+
+    ConfigurationSnapshot withOutputFileMaxAge(final long outputFileMaxAge) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.outputFileMaxAge = outputFileMaxAge;
+        return copy;
+    }
+
+    ConfigurationSnapshot withOutputFileFsync(final String outputFileFsync) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.outputFileFsync = outputFileFsync;
+        return copy;
+    }
+
+    ConfigurationSnapshot withOutputFileFsyncInterval(final long outputFileFsyncInterval) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.outputFileFsyncInterval = outputFileFsyncInterval;
+        return copy;
+    }
+
+    ConfigurationSnapshot withShutdownDrainTimeout(final long shutdownDrainTimeout) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.shutdownDrainTimeout = shutdownDrainTimeout;
+        return copy;
+    }
+
+    ConfigurationSnapshot withBatchParallelLength(final int batchParallelLength) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.batchParallelLength = batchParallelLength;
+        return copy;
+    }
+
+    ConfigurationSnapshot withBatchParallelEvents(final int batchParallelEvents) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.batchParallelEvents = batchParallelEvents;
+        return copy;
+    }
+
+    ConfigurationSnapshot withIdempotencyWindow(final long idempotencyWindow) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.idempotencyWindow = idempotencyWindow;
+        return copy;
+    }
+
+    ConfigurationSnapshot withIdempotencyMaxKeys(final int idempotencyMaxKeys) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.idempotencyMaxKeys = idempotencyMaxKeys;
+        return copy;
+    }
+
+    ConfigurationSnapshot withHealthMaxQueueAge(final long healthMaxQueueAge) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.healthMaxQueueAge = healthMaxQueueAge;
+        return copy;
+    }
+
+    ConfigurationSnapshot withHealthMaxQueuedBytes(final long healthMaxQueuedBytes) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.healthMaxQueuedBytes = healthMaxQueuedBytes;
+        return copy;
+    }
+
+    ConfigurationSnapshot withHealthMaxOutstandingAcks(final long healthMaxOutstandingAcks) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.healthMaxOutstandingAcks = healthMaxOutstandingAcks;
+        return copy;
+    }
+
+    ConfigurationSnapshot withErrorLogPerSecond(final long errorLogPerSecond) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.errorLogPerSecond = errorLogPerSecond;
+        return copy;
+    }
+
+    ConfigurationSnapshot withSharedStateReadTtl(final long sharedStateReadTtl) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.sharedStateReadTtl = sharedStateReadTtl;
+        return copy;
+    }
+
+    ConfigurationSnapshot withSharedStateAckBlock(final int sharedStateAckBlock) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.sharedStateAckBlock = sharedStateAckBlock;
+        return copy;
+    }
+
+    ConfigurationSnapshot withStateSnapshotInterval(final long stateSnapshotInterval) {
+        final ConfigurationSnapshot copy = new ConfigurationSnapshot(this);
+        copy.stateSnapshotInterval = stateSnapshotInterval;
+        return copy;
+    }
+
+    public String syslogHost() {
+        return this.syslogHost;
+    }
+
+    public int syslogPort() {
+        return this.syslogPort;
+    }
+
+    public String syslogProtocol() {
+        return this.syslogProtocol;
+    }
+
+    public int maxAckValue() {
+        return this.maxAckValue;
+    }
+
+    public int maxAckAge() {
+        return this.maxAckAge;
+    }
+
+    public int maxSessionAge() {
+        return this.maxSessionAge;
+    }
+
+    public int maxChannels() {
+        return this.maxChannels;
+    }
+
+    public long pollTime() {
+        return this.pollTime;
+    }
+
+    public boolean printTimes() {
+        return this.printTimes;
+    }
+
+    public long configPollTime() {
+        return this.configPollTime;
+    }
+
+    public String tokenRegistryFile() {
+        return this.tokenRegistryFile;
+    }
+
+    public long tokenRegistryReloadInterval() {
+        return this.tokenRegistryReloadInterval;
+    }
+
+    public long rateLimitEventsPerSecond() {
+        return this.rateLimitEventsPerSecond;
+    }
+
+    public long rateLimitBytesPerSecond() {
+        return this.rateLimitBytesPerSecond;
+    }
+
+    public long outputFairQuantum() {
+        return this.outputFairQuantum;
+    }
+
+    public int outputShards() {
+        return this.outputShards;
+    }
+
+    public String outputRoutesFile() {
+        return this.outputRoutesFile;
+    }
+
+    public int outputMaxRecordBytes() {
+        return this.outputMaxRecordBytes;
+    }
+
+    public long outputFileMaxBytes() {
+        return this.outputFileMaxBytes;
+    }
+
+    public long outputFileMaxAge() {
+        return this.outputFileMaxAge;
+    }
+
+    public String outputFileFsync() {
+        return this.outputFileFsync;
+    }
+
+    public long outputFileFsyncInterval() {
+        return this.outputFileFsyncInterval;
+    }
+
+    public long shutdownDrainTimeout() {
+        return this.shutdownDrainTimeout;
+    }
+
+    public int batchParallelLength() {
+        return this.batchParallelLength;
+    }
+
+    public int batchParallelEvents() {
+        return this.batchParallelEvents;
+    }
+
+    public int batchParallelThreads() {
+        return this.batchParallelThreads;
+    }
+
+    public long idempotencyWindow() {
+        return this.idempotencyWindow;
+    }
+
+    public int idempotencyMaxKeys() {
+        return this.idempotencyMaxKeys;
+    }
+
+    public long healthMaxQueueAge() {
+        return this.healthMaxQueueAge;
+    }
+
+    public long healthMaxQueuedBytes() {
+        return this.healthMaxQueuedBytes;
+    }
+
+    public long healthMaxOutstandingAcks() {
+        return this.healthMaxOutstandingAcks;
+    }
+
+    public long errorLogPerSecond() {
+        return this.errorLogPerSecond;
+    }
+
+    public String sharedStateJdbcUrl() {
+        return this.sharedStateJdbcUrl;
+    }
+
+    public String sharedStateJdbcUser() {
+        return this.sharedStateJdbcUser;
+    }
+
+    public String sharedStateJdbcPassword() {
+        return this.sharedStateJdbcPassword;
+    }
+
+    public long sharedStateFlushInterval() {
+        return this.sharedStateFlushInterval;
+    }
+
+    public long sharedStateReadTtl() {
+        return this.sharedStateReadTtl;
+    }
+
+    public int sharedStateAckBlock() {
+        return this.sharedStateAckBlock;
+    }
+
+    public long sharedStateJdbcTimeout() {
+        return this.sharedStateJdbcTimeout;
+    }
+
+    public int sharedStateJdbcPoolSize() {
+        return this.sharedStateJdbcPoolSize;
+    }
+
+    public String stateSnapshotFile() {
+        return this.stateSnapshotFile;
+    }
+
+    public long stateSnapshotInterval() {
+        return this.stateSnapshotInterval;
+    }
+
+    public long http2MaxConcurrentStreams() {
+        return this.http2MaxConcurrentStreams;
+    }
+
+    public int http2MaxConcurrentStreamExecution() {
+        return this.http2MaxConcurrentStreamExecution;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ConfigurationSnapshot that = (ConfigurationSnapshot) o;
+        return this.syslogPort == that.syslogPort && Objects
+                .equals(this.syslogHost, that.syslogHost) && this.maxAckValue == that.maxAckValue && Objects
+                        .equals(this.syslogProtocol, that.syslogProtocol)
+                && this.maxAckAge == that.maxAckAge && this.maxSessionAge == that.maxSessionAge
+                && this.maxChannels == that.maxChannels && this.pollTime == that.pollTime
+                && this.printTimes == that.printTimes && this.configPollTime == that.configPollTime
+                && this.tokenRegistryReloadInterval == that.tokenRegistryReloadInterval && Objects
+                        .equals(this.tokenRegistryFile, that.tokenRegistryFile)
+                && this.rateLimitEventsPerSecond == that.rateLimitEventsPerSecond
+                && this.rateLimitBytesPerSecond == that.rateLimitBytesPerSecond
+                && this.outputFairQuantum == that.outputFairQuantum && this.outputShards == that.outputShards && Objects
+                        .equals(this.outputRoutesFile, that.outputRoutesFile)
+                && this.outputMaxRecordBytes == that.outputMaxRecordBytes
+                && this.shutdownDrainTimeout == that.shutdownDrainTimeout
+                && this.batchParallelLength == that.batchParallelLength
+                && this.batchParallelEvents == that.batchParallelEvents
+                && this.batchParallelThreads == that.batchParallelThreads
+                && this.idempotencyWindow == that.idempotencyWindow
+                && this.idempotencyMaxKeys == that.idempotencyMaxKeys
+                && this.healthMaxQueueAge == that.healthMaxQueueAge
+                && this.healthMaxQueuedBytes == that.healthMaxQueuedBytes
+                && this.healthMaxOutstandingAcks == that.healthMaxOutstandingAcks
+                && this.errorLogPerSecond == that.errorLogPerSecond
+                && this.outputFileMaxBytes == that.outputFileMaxBytes && this.outputFileMaxAge == that.outputFileMaxAge
+                && this.outputFileFsyncInterval == that.outputFileFsyncInterval && Objects
+                        .equals(this.outputFileFsync, that.outputFileFsync)
+                && this.sharedStateFlushInterval == that.sharedStateFlushInterval && Objects
+                        .equals(this.sharedStateJdbcUrl, that.sharedStateJdbcUrl)
+                && this.sharedStateReadTtl == that.sharedStateReadTtl && Objects
+                        .equals(this.sharedStateJdbcUser, that.sharedStateJdbcUser)
+                && this.sharedStateAckBlock == that.sharedStateAckBlock && Objects
+                        .equals(this.sharedStateJdbcPassword, that.sharedStateJdbcPassword)
+                && this.sharedStateJdbcTimeout == that.sharedStateJdbcTimeout
+                && this.sharedStateJdbcPoolSize == that.sharedStateJdbcPoolSize
+                && this.stateSnapshotInterval == that.stateSnapshotInterval
+                && this.http2MaxConcurrentStreams == that.http2MaxConcurrentStreams
+                && this.http2MaxConcurrentStreamExecution == that.http2MaxConcurrentStreamExecution
+                && Objects.equals(this.stateSnapshotFile, that.stateSnapshotFile);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects
+                .hash(
+                        this.syslogHost, this.syslogPort, this.maxAckValue, this.maxAckAge, this.maxSessionAge,
+                        this.maxChannels, this.pollTime, this.printTimes, this.configPollTime, this.tokenRegistryFile,
+                        this.tokenRegistryReloadInterval, this.rateLimitEventsPerSecond, this.rateLimitBytesPerSecond,
+                        this.outputFairQuantum, this.outputShards, this.shutdownDrainTimeout, this.batchParallelLength,
+                        this.batchParallelEvents, this.batchParallelThreads, this.idempotencyWindow,
+                        this.idempotencyMaxKeys, this.outputRoutesFile, this.outputMaxRecordBytes,
+                        this.healthMaxQueueAge, this.healthMaxQueuedBytes, this.healthMaxOutstandingAcks,
+                        this.errorLogPerSecond, this.syslogProtocol, this.outputFileMaxBytes, this.outputFileMaxAge,
+                        this.outputFileFsync, this.outputFileFsyncInterval, this.sharedStateJdbcUrl,
+                        this.sharedStateJdbcUser, this.sharedStateJdbcPassword, this.sharedStateFlushInterval,
+                        this.sharedStateReadTtl, this.sharedStateAckBlock, this.sharedStateJdbcTimeout,
+                        this.sharedStateJdbcPoolSize, this.stateSnapshotFile, this.stateSnapshotInterval,
+                        this.http2MaxConcurrentStreams, this.http2MaxConcurrentStreamExecution
+                );
+    }
+
+    @Override
+    public String toString() {
+        return "Configuration{" + "syslogHost=" + this.syslogHost + ", syslogPort=" + this.syslogPort + ", maxAckValue="
+                + this.maxAckValue + ", maxAckAge=" + this.maxAckAge + ", maxSessionAge=" + this.maxSessionAge
+                + ", maxChannels=" + this.maxChannels + ", pollTime=" + this.pollTime + ", printTimes="
+                + this.printTimes + '}';
+    }
+}
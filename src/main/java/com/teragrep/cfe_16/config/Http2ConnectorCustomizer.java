@@ -0,0 +1,103 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.config;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.tomcat.TomcatConnectorCustomizer;
+import org.springframework.stereotype.Component;
+
+/*
+ * Tunes HTTP/2 on the embedded Tomcat connector. With server.http2.enabled
+ * the connector accepts h2c, both as an upgrade from HTTP/1.1 and with prior
+ * knowledge, and h2 over TLS through ALPN when server.ssl is configured.
+ *
+ * A forwarder can then multiplex its concurrent posts as streams over one
+ * connection. Tomcat executes only 20 streams of a connection at a time by
+ * default, and a send holds its stream until the batch is acknowledged by the
+ * syslog server, so the limits are raised to http2.max.concurrent.streams and
+ * http2.max.concurrent.stream.execution. Both are read at startup, the
+ * connector is not reconfigured on a configuration reload.
+ *
+ */
+@Component
+public class Http2ConnectorCustomizer implements TomcatConnectorCustomizer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Http2ConnectorCustomizer.class);
+
+    private final long maxConcurrentStreams;
+    private final int maxConcurrentStreamExecution;
+
+    @Autowired
+    public Http2ConnectorCustomizer(final Configuration configuration) {
+        this(configuration.http2MaxConcurrentStreams(), configuration.http2MaxConcurrentStreamExecution());
+    }
+
+    public Http2ConnectorCustomizer(final long maxConcurrentStreams, final int maxConcurrentStreamExecution) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.maxConcurrentStreamExecution = maxConcurrentStreamExecution;
+    }
+
+    @Override
+    public void customize(final Connector connector) {
+        for (final UpgradeProtocol upgradeProtocol : connector.findUpgradeProtocols()) {
+            if (upgradeProtocol instanceof Http2Protocol) {
+                final Http2Protocol http2Protocol = (Http2Protocol) upgradeProtocol;
+                http2Protocol.setMaxConcurrentStreams(this.maxConcurrentStreams);
+                http2Protocol.setMaxConcurrentStreamExecution(this.maxConcurrentStreamExecution);
+                LOGGER
+                        .info(
+                                "HTTP/2 enabled with <{}> concurrent streams and <{}> executing streams per connection",
+                                this.maxConcurrentStreams, this.maxConcurrentStreamExecution
+                        );
+            }
+        }
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.connection;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.output.OutputConnection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local rolling file of one output shard of a destination, for sites without a syslog server and for benchmarks. Each
+ * batch is appended to destination-shard.log in the directory with octet-counted framing, so the files can be replayed
+ * to a syslog server as they are. The file is renamed to destination-shard-epochmillis.log and a new one started when a
+ * batch would make it longer than {@link Configuration#outputFileMaxBytes()} or when it is older than
+ * {@link Configuration#outputFileMaxAge()}.
+ * <p>
+ * A batch is delivered when it is written and, with the batch fsync policy, forced to storage. With the interval policy
+ * the file is forced every {@link Configuration#outputFileFsyncInterval()} milliseconds instead, and the batches
+ * written in between are delivered together by that force. With none it is left to the operating system and a batch is
+ * delivered once written. A batch that fails is truncated away and written again after the file is reopened, until the
+ * connection is closed or the writing thread interrupted, which fails the batch. Batches waiting for a force fail if
+ * the force fails or the file is closed without one.
+ */
+public final class FileConnection implements OutputConnection, Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileConnection.class);
+    public static final String FSYNC_NONE = "none";
+    public static final String FSYNC_BATCH = "batch";
+    public static final String FSYNC_INTERVAL = "interval";
+    private final Path directory;
+    private final String destination;
+    private final int shard;
+    private final Configuration configuration;
+    /**
+     * Guards the channel.
+     */
+    private final ReentrantLock lock;
+    /**
+     * Current file, null until opened and after a failure.
+     */
+    private FileChannel channel;
+    /**
+     * {@link System#nanoTime()} the current file was opened at.
+     */
+    private long openedNanos;
+    /**
+     * Deliveries of the batches written under the interval policy and not yet forced to storage, in write order.
+     */
+    private final ArrayDeque<CompletableFuture<Void>> unsynced;
+    private volatile boolean connected;
+    /**
+     * Set by close before it takes the lock, so that an open or a write retrying in the meantime gives up.
+     */
+    private volatile boolean closed;
+    private Thread syncerThread;
+    private final Timer writeTimer;
+    private final Timer syncTimer;
+    private final Counter rotationCounter;
+    private final Counter retryCounter;
+    private final Counter fragmentedCounter;
+    private final Counter rejectedCounter;
+
+    public FileConnection(
+            final Path directory,
+            final String destination,
+            final int shard,
+            final Configuration configuration,
+            final MeterRegistry meterRegistry
+    ) {
+        this.directory = directory;
+        this.destination = destination;
+        this.shard = shard;
+        this.configuration = configuration;
+        this.lock = new ReentrantLock();
+        this.unsynced = new ArrayDeque<>();
+        this.connected = false;
+        this.closed = false;
+        this.writeTimer = Timer
+                .builder("cfe_16.file.write")
+                .description("Latency of writing a single batch to the output file, forcing it included")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.syncTimer = Timer
+                .builder("cfe_16.file.sync")
+                .description("Latency of forcing the output file to storage")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rotationCounter = Counter
+                .builder("cfe_16.file.rotations")
+                .description("Output files rotated by size or age")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.retryCounter = Counter
+                .builder("cfe_16.file.retries")
+                .description("Batches that failed to be written to the output file and were written again")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.fragmentedCounter = Counter
+                .builder("cfe_16.file.fragmented")
+                .description("Syslog messages split into fragments to fit the maximum record length")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.rejectedCounter = Counter
+                .builder("cfe_16.file.rejected")
+                .description("Syslog messages that failed their batch as they could not be split to fit")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens the current file, retrying until it can be, and starts forcing it on the interval policy.
+     *
+     * @throws IllegalStateException if the connection is closed or the thread interrupted before the file is opened
+     */
+    @Override
+    public void autoConnect() {
+        this.lock.lock();
+        try {
+            boolean notOpened = true;
+            while (notOpened) {
+                checkClosed();
+                try {
+                    open();
+                    notOpened = false;
+                }
+                catch (final IOException e) {
+                    LOGGER.warn("Failed to open output file: ", e);
+                    sleep();
+                }
+            }
+            startSyncer();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return this.connected;
+    }
+
+    /**
+     * Stops an open or a write in progress from retrying, and once it has given up forces the current file to storage
+     * unless the policy is none and no batch waits for a force, and closes it.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.lock.lock();
+        try {
+            if (this.syncerThread != null) {
+                this.syncerThread.interrupt();
+            }
+            if (this.channel != null) {
+                if (!FSYNC_NONE.equals(fsync()) || !this.unsynced.isEmpty()) {
+                    sync();
+                }
+                this.channel.close();
+            }
+        }
+        catch (final IOException e) {
+            LOGGER.warn("Failed to close output file: ", e);
+        }
+        finally {
+            failUnsynced(new IllegalStateException("Output file <" + current() + "> closed before it was forced"));
+            this.channel = null;
+            this.connected = false;
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the current file to storage every fsync interval while batches written under the interval policy wait for
+     * it, even if the policy has changed since.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(Math.max(1, this.configuration.outputFileFsyncInterval()));
+            }
+            catch (final InterruptedException e) {
+                break;
+            }
+            this.lock.lock();
+            try {
+                if (!this.unsynced.isEmpty() && this.channel != null) {
+                    sync();
+                }
+            }
+            catch (final IOException e) {
+                LOGGER.warn("Failed to force output file to storage: ", e);
+                // the waiting batches have failed, later ones go to a reopened file
+                closeQuietly();
+            }
+            finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes the messages, and with the batch policy forces them to storage, before returning.
+     *
+     * @return completed once the messages are delivered, which with the interval policy is the next force
+     */
+    @Override
+    public CompletionStage<Void> sendMessages(final List<SyslogMessage> syslogMessages) {
+        final int maxRecordBytes = this.configuration.outputMaxRecordBytes();
+        final List<ByteBuffer> buffers = new ArrayList<>(syslogMessages.size() * 2);
+        long bytes = 0;
+        for (final SyslogMessage syslogMessage : syslogMessages) {
+            final SyslogFrames syslogFrames = new SyslogFrames(syslogMessage, maxRecordBytes);
+            try {
+                for (final byte[] frame : syslogFrames.asList()) {
+                    final byte[] length = (frame.length + " ").getBytes(StandardCharsets.US_ASCII);
+                    buffers.add(ByteBuffer.wrap(length));
+                    buffers.add(ByteBuffer.wrap(frame));
+                    bytes += length.length + frame.length;
+                }
+                if (syslogFrames.isSplit()) {
+                    this.fragmentedCounter.increment();
+                }
+            }
+            catch (final IllegalArgumentException e) {
+                this.rejectedCounter.increment();
+                // nothing of the batch is sent, so that its request fails without an ack
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        if (bytes == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return doWrite(buffers.toArray(new ByteBuffer[0]), bytes);
+    }
+
+    private CompletionStage<Void> doWrite(final ByteBuffer[] buffers, final long bytes) {
+        this.lock.lock();
+        try {
+            final CompletableFuture<Void> delivered = new CompletableFuture<>();
+            long start = -1;
+            boolean notWritten = true;
+            while (notWritten) {
+                checkClosed();
+                final long writeStart = System.nanoTime();
+                try {
+                    if (this.channel == null) {
+                        open();
+                        if (start >= 0 && this.channel.size() > start) {
+                            // drop what a failed attempt left of the batch
+                            this.channel.truncate(start);
+                        }
+                    }
+                    if (isDue(bytes)) {
+                        rotate();
+                    }
+                    start = this.channel.position();
+                    long written = 0;
+                    while (written < bytes) {
+                        written += this.channel.write(buffers);
+                    }
+                    final String fsync = fsync();
+                    if (FSYNC_INTERVAL.equals(fsync)) {
+                        // group commit, the next force covers this batch
+                        this.unsynced.add(delivered);
+                        startSyncer();
+                    }
+                    else {
+                        if (FSYNC_BATCH.equals(fsync)) {
+                            sync();
+                        }
+                        delivered.complete(null);
+                    }
+                    notWritten = false;
+                }
+                catch (final IOException e) {
+                    LOGGER.warn("Failed to write batch to output file: ", e);
+                    this.retryCounter.increment();
+                    closeQuietly();
+                    for (final ByteBuffer buffer : buffers) {
+                        buffer.rewind();
+                    }
+                }
+                finally {
+                    this.writeTimer.record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS);
+                }
+                if (notWritten) {
+                    sleep();
+                }
+            }
+            return delivered;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Not thread safe, needs the lock to be held.
+     */
+    private void startSyncer() {
+        if (this.syncerThread == null) {
+            this.syncerThread = new Thread(this, "Output file syncer " + this.destination + " " + this.shard);
+            this.syncerThread.setDaemon(true);
+            this.syncerThread.start();
+        }
+    }
+
+    /**
+     * Not thread safe, needs the lock to be held.
+     */
+    private void open() throws IOException {
+        Files.createDirectories(this.directory);
+        this.channel = FileChannel.open(current(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.position(this.channel.size());
+        this.openedNanos = System.nanoTime();
+        this.connected = true;
+    }
+
+    /**
+     * Not thread safe, needs the lock to be held.
+     *
+     * @return true if the current file is not empty and is too old or would grow too long with the bytes
+     */
+    private boolean isDue(final long bytes) throws IOException {
+        final long size = this.channel.position();
+        if (size == 0) {
+            return false;
+        }
+        final long maxBytes = this.configuration.outputFileMaxBytes();
+        final long maxAge = this.configuration.outputFileMaxAge();
+        return maxBytes > 0 && size + bytes > maxBytes
+                || maxAge > 0 && System.nanoTime() - this.openedNanos >= TimeUnit.MILLISECONDS.toNanos(maxAge);
+    }
+
+    /**
+     * Not thread safe, needs the lock to be held.
+     */
+    private void rotate() throws IOException {
+        sync();
+        this.channel.close();
+        this.channel = null;
+        long millis = System.currentTimeMillis();
+        Path rotated = rotated(millis);
+        while (Files.exists(rotated)) {
+            millis++;
+            rotated = rotated(millis);
+        }
+        Files.move(current(), rotated, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.debug("Rotated output file to <{}>", rotated);
+        this.rotationCounter.increment();
+        open();
+    }
+
+    /**
+     * Forces the current file to storage and delivers the batches that waited for it, or fails them if the force fails.
+     * Not thread safe, needs the lock to be held.
+     */
+    private void sync() throws IOException {
+        final long syncStart = System.nanoTime();
+        try {
+            this.channel.force(false);
+        }
+        catch (final IOException e) {
+            failUnsynced(e);
+            throw e;
+        }
+        this.syncTimer.record(System.nanoTime() - syncStart, TimeUnit.NANOSECONDS);
+        CompletableFuture<Void> delivered;
+        while ((delivered = this.unsynced.poll()) != null) {
+            delivered.complete(null);
+        }
+    }
+
+    /**
+     * Not thread safe, needs the lock to be held.
+     */
+    private void failUnsynced(final Throwable cause) {
+        CompletableFuture<Void> delivered;
+        while ((delivered = this.unsynced.poll()) != null) {
+            delivered.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Not thread safe, needs the lock to be held.
+     */
+    private void closeQuietly() {
+        this.connected = false;
+        failUnsynced(new IllegalStateException("Output file <" + current() + "> failed before it was forced"));
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            }
+            catch (final IOException e) {
+                LOGGER.debug("Failed to close output file: ", e);
+            }
+            this.channel = null;
+        }
+    }
+
+    private Path current() {
+        return this.directory.resolve(this.destination + "-" + this.shard + ".log");
+    }
+
+    private Path rotated(final long millis) {
+        return this.directory.resolve(this.destination + "-" + this.shard + "-" + millis + ".log");
+    }
+
+    /**
+     * @return fsync policy of the configuration, batch unless it is none or interval
+     */
+    private String fsync() {
+        final String fsync = this.configuration.outputFileFsync();
+        final String policy;
+        if (FSYNC_NONE.equalsIgnoreCase(fsync)) {
+            policy = FSYNC_NONE;
+        }
+        else if (FSYNC_INTERVAL.equalsIgnoreCase(fsync)) {
+            policy = FSYNC_INTERVAL;
+        }
+        else {
+            policy = FSYNC_BATCH;
+        }
+        return policy;
+    }
+
+    /**
+     * @throws IllegalStateException if the connection is closed
+     */
+    private void checkClosed() {
+        if (this.closed) {
+            throw new IllegalStateException("Output file <" + current() + "> closed");
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if interrupted, with the interrupt status kept
+     */
+    private static void sleep() {
+        try {
+            final int reopenInterval = 500;
+            LOGGER.debug("Sleeping for <[{}]> before reopening", reopenInterval);
+            Thread.sleep(reopenInterval);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying output file", e);
+        }
+    }
+}
@@ -46,31 +46,115 @@
 package com.teragrep.cfe_16.connection;
 
 import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.jfr.RelpCommitEvent;
+import com.teragrep.cfe_16.jfr.RelpReconnectEvent;
+import com.teragrep.cfe_16.output.Destination;
+import com.teragrep.cfe_16.output.OutputConnection;
 import com.teragrep.rlp_01.RelpBatch;
-import jakarta.annotation.PostConstruct;
-import java.io.Closeable;
-import java.nio.charset.StandardCharsets;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.stereotype.Component;
+import java.util.concurrent.locks.ReentrantLock;
 
-@Component
-public final class RelpConnection implements Closeable {
+/**
+ * RELP connection of one output shard of a destination. Batches are retried until the server acknowledges them,
+ * reconnecting in between, or until the connection is closed or the sending thread interrupted, which fails the batch.
+ * Messages longer than {@link Configuration#outputMaxRecordBytes()} are split into fragments, as the server would never
+ * acknowledge them, and a message that can not be split fails its batch before anything of it is sent.
+ */
+public final class RelpConnection implements OutputConnection {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RelpConnection.class);
     private final com.teragrep.rlp_01.RelpConnection connection;
     private final String hostname;
     private final int port;
+    private final String destination;
+    private final int shard;
+    private final Configuration configuration;
+    /**
+     * Guards the underlying connection.
+     */
+    private final ReentrantLock lock;
+    /**
+     * True from a successful connect until the connection is torn down.
+     */
+    private volatile boolean connected;
+    /**
+     * Set by close before it takes the lock, so that a connect or a send retrying in the meantime gives up.
+     */
+    private volatile boolean closed;
+    private final Timer commitTimer;
+    private final Counter retryCounter;
+    private final Counter reconnectCounter;
+    private final Counter fragmentedCounter;
+    private final Counter rejectedCounter;
+
+    public RelpConnection(
+            final String syslogHost,
+            final int syslogPort,
+            final int shard,
+            final MeterRegistry meterRegistry
+    ) {
+        this(syslogHost, syslogPort, Destination.DEFAULT_NAME, shard, new Configuration(), meterRegistry);
+    }
 
-    // Unfortunately Spring requires an additional annotation here, since the Configuration class has multiple methods that return a String
-    public RelpConnection(@Qualifier("syslogHost") final String syslogHost, final int syslogPort) {
+    public RelpConnection(
+            final String syslogHost,
+            final int syslogPort,
+            final String destination,
+            final int shard,
+            final Configuration configuration,
+            final MeterRegistry meterRegistry
+    ) {
         this.hostname = syslogHost;
         this.port = syslogPort;
+        this.destination = destination;
+        this.shard = shard;
+        this.configuration = configuration;
+        this.lock = new ReentrantLock();
+        this.connected = false;
+        this.closed = false;
+        this.commitTimer = Timer
+                .builder("cfe_16.relp.commit")
+                .description("Latency of a single RELP batch commit")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.retryCounter = Counter
+                .builder("cfe_16.relp.retries")
+                .description("RELP batches that failed verification and were retried")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.reconnectCounter = Counter
+                .builder("cfe_16.relp.reconnects")
+                .description("Reconnects to the RELP server")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.fragmentedCounter = Counter
+                .builder("cfe_16.relp.fragmented")
+                .description("Syslog messages split into fragments to fit the maximum record length")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.rejectedCounter = Counter
+                .builder("cfe_16.relp.rejected")
+                .description("Syslog messages that failed their batch as they could not be split to fit")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
         this.connection = new com.teragrep.rlp_01.RelpConnection();
         //settings for timeouts, if they are 0 that we skip them
         //default are 0
@@ -79,14 +163,32 @@ public final class RelpConnection implements Closeable {
         this.connection.setWriteTimeout(5000);
     }
 
-    @PostConstruct
-    synchronized private void autoConnect() {
-        this.connect();
+    @Override
+    public void autoConnect() {
+        this.lock.lock();
+        try {
+            this.connect();
+        }
+        finally {
+            this.lock.unlock();
+        }
     }
 
-    synchronized private void connect() {
+    /**
+     * Not thread safe, needs the lock to be held.
+     *
+     * @throws IllegalStateException if the connection is closed or the thread interrupted before it connects
+     */
+    private void connect() {
+        final RelpReconnectEvent reconnectEvent = new RelpReconnectEvent(this.hostname, this.port);
+        reconnectEvent.begin();
+        int attempts = 0;
         boolean notConnected = true;
         while (notConnected) {
+            if (this.closed) {
+                throw new IllegalStateException("RELP connection to <" + this.hostname + ":" + this.port + "> closed");
+            }
+            attempts++;
             boolean connected = false;
             try {
                 LOGGER.debug("Connecting to RELP server");
@@ -105,18 +207,32 @@ public final class RelpConnection implements Closeable {
                     Thread.sleep(reconnectInterval);
                 }
                 catch (InterruptedException e) {
-                    LOGGER.warn("Sleep interrupted: ", e);
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while connecting to RELP server", e);
                 }
             }
         }
+        this.connected = true;
+        reconnectEvent.end();
+        if (reconnectEvent.shouldCommit()) {
+            reconnectEvent.setAttempts(attempts);
+            reconnectEvent.commit();
+        }
     }
 
-    synchronized private void tearDown() {
+    /**
+     * Not thread safe, needs the lock to be held.
+     */
+    private void tearDown() {
         LOGGER.debug("Tearing down connection");
+        this.connected = false;
         this.connection.tearDown();
     }
 
-    synchronized private void disconnect() {
+    /**
+     * Not thread safe, needs the lock to be held.
+     */
+    private void disconnect() {
         try {
             LOGGER.debug("Disconnecting from RELP server");
             this.connection.disconnect();
@@ -130,45 +246,104 @@ public final class RelpConnection implements Closeable {
     }
 
     @Override
-    synchronized public void close() {
-        this.disconnect();
+    public boolean isConnected() {
+        return this.connected;
     }
 
-    synchronized public void sendMessages(List<SyslogMessage> syslogMessages) {
+    /**
+     * Stops a connect or a send in progress from retrying and disconnects once it has given up.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.lock.lock();
+        try {
+            this.disconnect();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> sendMessages(List<SyslogMessage> syslogMessages) {
+        final int maxRecordBytes = this.configuration.outputMaxRecordBytes();
         final RelpBatch relpBatch = new RelpBatch();
+        int frames = 0;
+        long bytes = 0;
         for (SyslogMessage syslogMessage : syslogMessages) {
-            relpBatch.insert(syslogMessage.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8));
+            final SyslogFrames syslogFrames = new SyslogFrames(syslogMessage, maxRecordBytes);
+            try {
+                for (final byte[] frame : syslogFrames.asList()) {
+                    frames++;
+                    bytes += frame.length;
+                    relpBatch.insert(frame);
+                }
+                if (syslogFrames.isSplit()) {
+                    this.fragmentedCounter.increment();
+                }
+            }
+            catch (final IllegalArgumentException e) {
+                this.rejectedCounter.increment();
+                // nothing of the batch is sent, so that its request fails without an ack
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        if (frames > 0) {
+            doSend(relpBatch, frames, bytes);
         }
-        doSend(relpBatch);
+        // acknowledged by the server
+        return CompletableFuture.completedFuture(null);
     }
 
-    synchronized public void sendMessage(SyslogMessage syslogMessage) {
-        final RelpBatch relpBatch = new RelpBatch();
-        relpBatch.insert(syslogMessage.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8));
-        doSend(relpBatch);
+    public void sendMessage(SyslogMessage syslogMessage) {
+        sendMessages(List.of(syslogMessage));
     }
 
-    synchronized private void doSend(RelpBatch relpBatch) {
-        boolean notSent = true;
+    private void doSend(final RelpBatch relpBatch, final int eventCount, final long bytes) {
+        this.lock.lock();
+        try {
+            boolean notSent = true;
+            int attempt = 0;
 
-        while (notSent) {
-            try {
-                LOGGER.debug("Committing a RELP batch");
-                this.connection.commit(relpBatch);
-            }
-            catch (IllegalStateException | IOException | TimeoutException e) {
-                LOGGER.warn("Failed to commit batch: ", e);
-            }
+            while (notSent) {
+                attempt++;
+                final RelpCommitEvent commitEvent = new RelpCommitEvent(eventCount, bytes, attempt);
+                commitEvent.begin();
+                final long commitStart = System.nanoTime();
+                try {
+                    LOGGER.debug("Committing a RELP batch");
+                    this.connection.commit(relpBatch);
+                }
+                catch (IllegalStateException | IOException | TimeoutException e) {
+                    LOGGER.warn("Failed to commit batch: ", e);
+                }
+                finally {
+                    this.commitTimer.record(System.nanoTime() - commitStart, TimeUnit.NANOSECONDS);
+                    commitEvent.end();
+                }
 
-            if (!relpBatch.verifyTransactionAll()) {
-                LOGGER.debug("Failed to verify all transactions, retrying them");
-                relpBatch.retryAllFailed();
-                this.tearDown();
-                this.connect();
-            }
-            else {
-                notSent = false;
+                final boolean verified = relpBatch.verifyTransactionAll();
+                if (commitEvent.shouldCommit()) {
+                    commitEvent.setVerified(verified);
+                    commitEvent.commit();
+                }
+
+                if (!verified) {
+                    LOGGER.debug("Failed to verify all transactions, retrying them");
+                    this.retryCounter.increment();
+                    relpBatch.retryAllFailed();
+                    this.tearDown();
+                    this.reconnectCounter.increment();
+                    this.connect();
+                }
+                else {
+                    notSent = false;
+                }
             }
         }
+        finally {
+            this.lock.unlock();
+        }
     }
 }
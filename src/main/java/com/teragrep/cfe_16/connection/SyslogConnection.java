@@ -0,0 +1,280 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.connection;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.ThirdParty.SyslogMessageSender.SyslogMessageSender;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.output.OutputConnection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Plain syslog connection over TCP or TLS of one output shard of a destination. A batch is written with octet-counted
+ * framing and flushed once, and it is delivered when the flush returns as the server does not acknowledge it. A batch
+ * that fails is sent again after reconnecting, so the server may get messages of the failed attempt twice, until the
+ * connection is closed or the sending thread interrupted, which fails the batch. Messages longer than
+ * {@link Configuration#outputMaxRecordBytes()} are split into fragments like on a {@link RelpConnection}.
+ */
+public final class SyslogConnection implements OutputConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyslogConnection.class);
+    private final SyslogMessageSender sender;
+    private final String hostname;
+    private final int port;
+    private final String destination;
+    private final int shard;
+    private final Configuration configuration;
+    /**
+     * Guards the sender.
+     */
+    private final ReentrantLock lock;
+    /**
+     * True from a successful connect or send until a send fails or the connection is closed.
+     */
+    private volatile boolean connected;
+    /**
+     * Set by close before it takes the lock, so that a connect or a send retrying in the meantime gives up.
+     */
+    private volatile boolean closed;
+    private final Timer sendTimer;
+    private final Counter retryCounter;
+    private final Counter fragmentedCounter;
+    private final Counter rejectedCounter;
+
+    public SyslogConnection(
+            final String syslogHost,
+            final int syslogPort,
+            final boolean tls,
+            final String destination,
+            final int shard,
+            final Configuration configuration,
+            final MeterRegistry meterRegistry
+    ) {
+        this.hostname = syslogHost;
+        this.port = syslogPort;
+        this.destination = destination;
+        this.shard = shard;
+        this.configuration = configuration;
+        this.lock = new ReentrantLock();
+        this.connected = false;
+        this.closed = false;
+        this.sendTimer = Timer
+                .builder("cfe_16.syslog.send")
+                .description("Latency of writing and flushing a single syslog batch")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.retryCounter = Counter
+                .builder("cfe_16.syslog.retries")
+                .description("Syslog batches that failed to be written and were sent again")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.fragmentedCounter = Counter
+                .builder("cfe_16.syslog.fragmented")
+                .description("Syslog messages split into fragments to fit the maximum record length")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.rejectedCounter = Counter
+                .builder("cfe_16.syslog.rejected")
+                .description("Syslog messages that failed their batch as they could not be split to fit")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .register(meterRegistry);
+        this.sender = new SyslogMessageSender();
+        this.sender.setSyslogServerHostname(syslogHost);
+        this.sender.setSyslogServerPort(syslogPort);
+        this.sender.setSsl(tls);
+        this.sender.setSocketConnectTimeoutInMillis(10000);
+        // failed batches are retried here, after the connection is reopened
+        this.sender.setMaxRetryCount(0);
+    }
+
+    /**
+     * @throws IllegalStateException if the connection is closed or the thread interrupted before it connects
+     */
+    @Override
+    public void autoConnect() {
+        this.lock.lock();
+        try {
+            boolean notConnected = true;
+            while (notConnected) {
+                checkClosed();
+                try {
+                    LOGGER.debug("Connecting to syslog server <{}:{}>", this.hostname, this.port);
+                    this.sender.connect();
+                    notConnected = false;
+                }
+                catch (final IOException | RuntimeException e) {
+                    LOGGER.warn("Failed to connect to syslog server: ", e);
+                    sleep();
+                }
+            }
+            this.connected = true;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return this.connected;
+    }
+
+    /**
+     * Stops a connect or a send in progress from retrying and disconnects once it has given up.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.lock.lock();
+        try {
+            LOGGER.debug("Disconnecting from syslog server");
+            this.connected = false;
+            this.sender.close();
+        }
+        catch (final IOException e) {
+            LOGGER.warn("Failed to disconnect from syslog server: ", e);
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletionStage<Void> sendMessages(final List<SyslogMessage> syslogMessages) {
+        final int maxRecordBytes = this.configuration.outputMaxRecordBytes();
+        final List<byte[]> frames = new ArrayList<>(syslogMessages.size());
+        for (final SyslogMessage syslogMessage : syslogMessages) {
+            final SyslogFrames syslogFrames = new SyslogFrames(syslogMessage, maxRecordBytes);
+            try {
+                frames.addAll(syslogFrames.asList());
+                if (syslogFrames.isSplit()) {
+                    this.fragmentedCounter.increment();
+                }
+            }
+            catch (final IllegalArgumentException e) {
+                this.rejectedCounter.increment();
+                // nothing of the batch is sent, so that its request fails without an ack
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        if (!frames.isEmpty()) {
+            doSend(frames);
+        }
+        // written to the socket, syslog has no acknowledgements
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void doSend(final List<byte[]> frames) {
+        this.lock.lock();
+        try {
+            boolean notSent = true;
+            while (notSent) {
+                checkClosed();
+                final long sendStart = System.nanoTime();
+                try {
+                    LOGGER.debug("Sending a syslog batch of <{}> frames", frames.size());
+                    this.sender.sendFrames(frames);
+                    this.connected = true;
+                    notSent = false;
+                }
+                catch (final IOException | RuntimeException e) {
+                    LOGGER.warn("Failed to send batch: ", e);
+                    this.connected = false;
+                    this.retryCounter.increment();
+                }
+                finally {
+                    this.sendTimer.record(System.nanoTime() - sendStart, TimeUnit.NANOSECONDS);
+                }
+                if (notSent) {
+                    sleep();
+                }
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the connection is closed
+     */
+    private void checkClosed() {
+        if (this.closed) {
+            throw new IllegalStateException("Syslog connection to <" + this.hostname + ":" + this.port + "> closed");
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if interrupted, with the interrupt status kept
+     */
+    private static void sleep() {
+        try {
+            final int reconnectInterval = 500;
+            LOGGER.debug("Sleeping for <[{}]> before reconnecting", reconnectInterval);
+            Thread.sleep(reconnectInterval);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying syslog server", e);
+        }
+    }
+}
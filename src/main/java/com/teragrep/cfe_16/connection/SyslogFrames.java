@@ -0,0 +1,214 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.connection;
+
+import com.cloudbees.syslog.SDElement;
+import com.cloudbees.syslog.SDParam;
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.event.BytesSyslogMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RFC 5424 frames of one syslog message, none longer than the given number of bytes. A message that does not fit is
+ * split into fragments of its MSG, each carrying the zero based fragment index, the fragment count and a group ID
+ * shared by the fragments in the {@value #FRAGMENT_SD_ID} SD element. Only the length of the already encoded message is
+ * checked, so messages that fit are not scanned again.
+ */
+public final class SyslogFrames {
+
+    public static final String FRAGMENT_SD_ID = "CFE-16-fragment@48577";
+    /**
+     * Widest index and count, used to reserve room for the fragment SD element before the count is known.
+     */
+    private static final String WIDEST = String.valueOf(Integer.MAX_VALUE);
+    /**
+     * A fragment must hold at least one code point, which is up to four bytes in UTF-8.
+     */
+    private static final int MIN_ROOM = 4;
+    private final SyslogMessage syslogMessage;
+    private final byte[] encoded;
+    private final int maxBytes;
+
+    public SyslogFrames(final SyslogMessage syslogMessage, final int maxBytes) {
+        this(syslogMessage, encoded(syslogMessage), maxBytes);
+    }
+
+    /**
+     * @param encoded  the message as a UTF-8 encoded RFC 5424 frame
+     * @param maxBytes maximum length of a frame, zero or less for no maximum
+     */
+    public SyslogFrames(final SyslogMessage syslogMessage, final byte[] encoded, final int maxBytes) {
+        this.syslogMessage = syslogMessage;
+        this.encoded = encoded;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * A message with a byte MSG is encoded without decoding the MSG.
+     */
+    private static byte[] encoded(final SyslogMessage syslogMessage) {
+        final byte[] encoded;
+        if (syslogMessage instanceof BytesSyslogMessage) {
+            encoded = ((BytesSyslogMessage) syslogMessage).toRfc5424Bytes();
+        }
+        else {
+            encoded = syslogMessage.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    /**
+     * @return the frames in order
+     * @throws IllegalArgumentException if the headers and structured data alone leave no room for a fragment
+     */
+    public List<byte[]> asList() {
+        final List<byte[]> frames;
+        if (this.maxBytes <= 0 || this.encoded.length <= this.maxBytes) {
+            frames = List.of(this.encoded);
+        }
+        else {
+            frames = fragments();
+        }
+        return frames;
+    }
+
+    public boolean isSplit() {
+        return this.maxBytes > 0 && this.encoded.length > this.maxBytes;
+    }
+
+    private List<byte[]> fragments() {
+        final String groupId = groupId();
+        final int overhead = fragment("", groupId, WIDEST, WIDEST).length;
+        final int room = this.maxBytes - overhead;
+        if (room < MIN_ROOM) {
+            throw new IllegalArgumentException(
+                    "Syslog message of <" + this.encoded.length + "> bytes can not be split into frames of <"
+                            + this.maxBytes + "> bytes, its headers take <" + overhead + "> bytes"
+            );
+        }
+        final String msg = this.syslogMessage.getMsg() == null ? "" : this.syslogMessage.getMsg().toString();
+        final List<String> parts = parts(msg, room);
+        final String count = String.valueOf(parts.size());
+        final List<byte[]> fragments = new ArrayList<>(parts.size());
+        for (int index = 0; index < parts.size(); index++) {
+            fragments.add(fragment(parts.get(index), groupId, String.valueOf(index), count));
+        }
+        return fragments;
+    }
+
+    /**
+     * Version 4 UUID from {@link ThreadLocalRandom} instead of the shared SecureRandom of {@link UUID#randomUUID()}, as
+     * it only needs to tell the fragments of one message from those of another.
+     */
+    private String groupId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        final long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    /**
+     * Cuts the MSG between code points into parts of at most the given number of UTF-8 bytes.
+     */
+    private List<String> parts(final String msg, final int room) {
+        final List<String> parts = new ArrayList<>();
+        int start = 0;
+        int bytes = 0;
+        int offset = 0;
+        while (offset < msg.length()) {
+            final int codePoint = msg.codePointAt(offset);
+            final int length = utf8Length(codePoint);
+            if (bytes + length > room) {
+                parts.add(msg.substring(start, offset));
+                start = offset;
+                bytes = 0;
+            }
+            bytes += length;
+            offset += Character.charCount(codePoint);
+        }
+        parts.add(msg.substring(start));
+        return parts;
+    }
+
+    private int utf8Length(final int codePoint) {
+        final int length;
+        if (codePoint < 0x80) {
+            length = 1;
+        }
+        else if (codePoint < 0x800) {
+            length = 2;
+        }
+        else if (codePoint < 0x10000) {
+            length = 3;
+        }
+        else {
+            length = 4;
+        }
+        return length;
+    }
+
+    private byte[] fragment(final String msg, final String groupId, final String index, final String count) {
+        final SyslogMessage fragment = new SyslogMessage()
+                .withFacility(this.syslogMessage.getFacility())
+                .withSeverity(this.syslogMessage.getSeverity())
+                .withTimestamp(this.syslogMessage.getTimestamp())
+                .withHostname(this.syslogMessage.getHostname())
+                .withAppName(this.syslogMessage.getAppName())
+                .withProcId(this.syslogMessage.getProcId())
+                .withMsgId(this.syslogMessage.getMsgId())
+                .withMsg(msg);
+        fragment.setSDElements(new LinkedHashSet<>(this.syslogMessage.getSDElements()));
+        final SDParam indexParam = new SDParam("index", index);
+        final SDParam countParam = new SDParam("count", count);
+        fragment.withSDElement(new SDElement(FRAGMENT_SD_ID, indexParam, countParam, new SDParam("group", groupId)));
+        return fragment.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8);
+    }
+}
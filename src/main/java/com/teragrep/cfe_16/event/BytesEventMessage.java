@@ -0,0 +1,111 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.event;
+
+import com.cloudbees.syslog.SyslogMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Event message held as UTF-8 bytes in the payload it was received in, so that it is written to the output without
+ * being decoded into a String. The bytes must be valid UTF-8 and are not copied.
+ */
+public final class BytesEventMessage implements EventMessage {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    public BytesEventMessage(final byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public BytesEventMessage(final byte[] bytes, final int offset, final int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Decodes the message, only needed when the message is not written as it is.
+     */
+    @Override
+    public String asString() {
+        return new String(this.bytes, this.offset, this.length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public SyslogMessage asSyslogMessage() {
+        return new BytesSyslogMessage(this.bytes, this.offset, this.length);
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final BytesEventMessage that = (BytesEventMessage) o;
+        return Arrays
+                .equals(
+                        this.bytes, this.offset, this.offset + this.length, that.bytes, that.offset,
+                        that.offset + that.length
+                );
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = this.offset; i < this.offset + this.length; i++) {
+            result = 31 * result + this.bytes[i];
+        }
+        return result;
+    }
+}
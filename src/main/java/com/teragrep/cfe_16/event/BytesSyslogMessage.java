@@ -0,0 +1,121 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.event;
+
+import com.cloudbees.syslog.SyslogMessage;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Syslog message whose MSG is UTF-8 bytes. {@link #toRfc5424Bytes()} encodes the headers and copies the MSG after them
+ * without decoding it. The String based methods of {@link SyslogMessage} decode the MSG and are left for the rare uses
+ * that need it, such as splitting a message into fragments.
+ */
+public final class BytesSyslogMessage extends SyslogMessage {
+
+    private final byte[] msg;
+    private final int msgOffset;
+    private final int msgLength;
+
+    public BytesSyslogMessage(final byte[] msg, final int msgOffset, final int msgLength) {
+        super();
+        this.msg = msg;
+        this.msgOffset = msgOffset;
+        this.msgLength = msgLength;
+    }
+
+    /**
+     * @return the message as an RFC 5424 frame in UTF-8
+     */
+    public byte[] toRfc5424Bytes() {
+        final byte[] headers = headers().getBytes(StandardCharsets.UTF_8);
+        final byte[] frame = new byte[headers.length + 1 + this.msgLength];
+        System.arraycopy(headers, 0, frame, 0, headers.length);
+        frame[headers.length] = SP;
+        System.arraycopy(this.msg, this.msgOffset, frame, headers.length + 1, this.msgLength);
+        return frame;
+    }
+
+    /**
+     * @return length of the MSG in bytes
+     */
+    public int msgLength() {
+        return this.msgLength;
+    }
+
+    @Override
+    public CharArrayWriter getMsg() {
+        final CharArrayWriter writer = new CharArrayWriter(this.msgLength);
+        writer.append(new String(this.msg, this.msgOffset, this.msgLength, StandardCharsets.UTF_8));
+        return writer;
+    }
+
+    @Override
+    public void toRfc5424SyslogMessage(final Writer out) throws IOException {
+        super.toRfc5424SyslogMessage(out);
+        out.write(SP);
+        out.write(new String(this.msg, this.msgOffset, this.msgLength, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Headers and structured data, the MSG field of the superclass is never set.
+     */
+    private String headers() {
+        final StringWriter writer = new StringWriter(128);
+        try {
+            super.toRfc5424SyslogMessage(writer);
+        }
+        catch (final IOException e) {
+            // a StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+}
@@ -45,6 +45,7 @@
  */
 package com.teragrep.cfe_16.event;
 
+import com.cloudbees.syslog.SyslogMessage;
 import com.teragrep.cfe_16.Stubable;
 
 /**
@@ -54,4 +55,9 @@ import com.teragrep.cfe_16.Stubable;
 public interface EventMessage extends Stubable {
 
     String asString();
+
+    /**
+     * @return a syslog message with this as its MSG and no other fields set
+     */
+    SyslogMessage asSyslogMessage();
 }
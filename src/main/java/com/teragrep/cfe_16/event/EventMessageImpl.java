@@ -45,6 +45,7 @@
  */
 package com.teragrep.cfe_16.event;
 
+import com.cloudbees.syslog.SyslogMessage;
 import java.util.Objects;
 
 public final class EventMessageImpl implements EventMessage {
@@ -60,6 +61,11 @@ public final class EventMessageImpl implements EventMessage {
         return this.eventAsString;
     }
 
+    @Override
+    public SyslogMessage asSyslogMessage() {
+        return new SyslogMessage().withMsg(this.eventAsString);
+    }
+
     @Override
     public boolean isStub() {
         return false;
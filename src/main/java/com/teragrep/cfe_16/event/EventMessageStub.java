@@ -45,6 +45,7 @@
  */
 package com.teragrep.cfe_16.event;
 
+import com.cloudbees.syslog.SyslogMessage;
 import java.util.Objects;
 
 public final class EventMessageStub implements EventMessage {
@@ -64,6 +65,11 @@ public final class EventMessageStub implements EventMessage {
         throw new UnsupportedOperationException("EventMessageStub does not support this");
     }
 
+    @Override
+    public SyslogMessage asSyslogMessage() {
+        throw new UnsupportedOperationException("EventMessageStub does not support this");
+    }
+
     @Override
     public boolean isStub() {
         return isStub;
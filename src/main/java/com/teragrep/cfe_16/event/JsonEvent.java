@@ -57,4 +57,14 @@ public interface JsonEvent {
     JsonNode asTimeJsonNode() throws EventFieldException;
 
     boolean hasTime();
+
+    /**
+     * Returns the index field of the event, null if the event has none.
+     */
+    String index();
+
+    /**
+     * Returns the sourcetype field of the event, null if the event has none.
+     */
+    String sourceType();
 }
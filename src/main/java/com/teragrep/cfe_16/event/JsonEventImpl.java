@@ -52,16 +52,30 @@ import java.util.Objects;
 public final class JsonEventImpl implements JsonEvent {
 
     private final JsonNode jsonNode;
+    private final EventMessage rawEventMessage;
 
     public JsonEventImpl(final JsonNode jsonNode) {
+        this(jsonNode, new EventMessageStub());
+    }
+
+    /**
+     * @param jsonNode        the event without its event field when the raw message is given
+     * @param rawEventMessage the event field read from the payload without decoding it, or a stub
+     */
+    public JsonEventImpl(final JsonNode jsonNode, final EventMessage rawEventMessage) {
         this.jsonNode = jsonNode;
+        this.rawEventMessage = rawEventMessage;
     }
 
     @Override
     public EventMessage asEventMessage() throws EventFieldException {
         final EventMessage eventMessage;
+        // Event field was a non-empty string read as it is from the payload
+        if (!this.rawEventMessage.isStub()) {
+            eventMessage = this.rawEventMessage;
+        }
         // Event field completely missing
-        if (!this.asPayloadJsonNode().has("event")) {
+        else if (!this.asPayloadJsonNode().has("event")) {
             throw new EventFieldException("Event field is missing");
         }
         // Event field contains subfield "message"
@@ -117,6 +131,28 @@ public final class JsonEventImpl implements JsonEvent {
         return this.jsonNode.has("time");
     }
 
+    @Override
+    public String index() {
+        return textField("index");
+    }
+
+    @Override
+    public String sourceType() {
+        return textField("sourcetype");
+    }
+
+    private String textField(final String name) {
+        final JsonNode field = this.jsonNode.get(name);
+        final String value;
+        if (field != null && field.isTextual()) {
+            value = field.asText();
+        }
+        else {
+            value = null;
+        }
+        return value;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (o == null || getClass() != o.getClass()) {
@@ -124,11 +160,11 @@ public final class JsonEventImpl implements JsonEvent {
         }
 
         final JsonEventImpl that = (JsonEventImpl) o;
-        return Objects.equals(jsonNode, that.jsonNode);
+        return Objects.equals(jsonNode, that.jsonNode) && Objects.equals(rawEventMessage, that.rawEventMessage);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(jsonNode);
+        return Objects.hash(jsonNode, rawEventMessage);
     }
 }
@@ -0,0 +1,95 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.event.time;
+
+/**
+ * Time of the event preceding the first event of a part of a split batch. The parts are parsed in parallel, so the
+ * preceding event is known only when the previous part is done and is given with {@link #resolve(HECTime)} before any
+ * time is read.
+ */
+public final class HECTimeDeferred implements HECTime {
+
+    private volatile HECTime time;
+
+    public HECTimeDeferred() {
+        this.time = null;
+    }
+
+    /**
+     * @param time time of the preceding event, a stub if there is none
+     */
+    public void resolve(final HECTime time) {
+        this.time = time;
+    }
+
+    @Override
+    public long instant(final long defaultValue) {
+        return resolved().instant(defaultValue);
+    }
+
+    @Override
+    public boolean isParsed() {
+        return resolved().isParsed();
+    }
+
+    @Override
+    public String source() {
+        return resolved().source();
+    }
+
+    @Override
+    public boolean isStub() {
+        return resolved().isStub();
+    }
+
+    private HECTime resolved() {
+        final HECTime resolved = this.time;
+        if (resolved == null) {
+            throw new IllegalStateException("Time of the preceding event has not been resolved");
+        }
+        return resolved;
+    }
+}
@@ -45,8 +45,9 @@
  */
 package com.teragrep.cfe_16.exceptionhandling;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.teragrep.cfe_16.response.ErrorLog;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -55,7 +56,12 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 @ControllerAdvice
 public class HECExceptionHandler {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(HECExceptionHandler.class);
+    private final ErrorLog errorLog;
+
+    @Autowired
+    public HECExceptionHandler(final ErrorLog errorLog) {
+        this.errorLog = errorLog;
+    }
 
     @ExceptionHandler
     public ResponseEntity<HECErrorResponse> handleException(AuthenticationTokenMissingException exc) {
@@ -81,6 +87,14 @@ public class HECExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.FORBIDDEN);
     }
 
+    @ExceptionHandler
+    public ResponseEntity<HECErrorResponse> handleException(InvalidTokenException exc) {
+
+        HECErrorResponse error = new HECErrorResponse("Invalid token", 4, 0);
+
+        return new ResponseEntity<>(error, HttpStatus.FORBIDDEN);
+    }
+
     @ExceptionHandler
     public ResponseEntity<HECErrorResponse> handleException(ChannelNotProvidedException exc) {
 
@@ -111,9 +125,13 @@ public class HECExceptionHandler {
     }
 
     @ExceptionHandler
-    public ResponseEntity<HECErrorResponse> handleException(InternalServerErrorException e) {
+    public ResponseEntity<HECErrorResponse> handleException(
+            final InternalServerErrorException e,
+            final HttpServletRequest request
+    ) {
 
-        LOGGER.warn("Internal server error: ", e);
+        // a failing output fails every request, so these share the rate of the other errors
+        this.errorLog.log(request, e);
         HECErrorResponse error = new HECErrorResponse("Internal server error ", 8, 0);
 
         return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -0,0 +1,112 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.health;
+
+import com.teragrep.cfe_16.response.Response;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * Answer of the health endpoint in the HEC format, with the pipeline values it was decided on.
+ */
+public final class HealthResponse implements Response {
+
+    private final HttpStatus status;
+    private final String text;
+    private final int code;
+    private final Map<String, Long> details;
+
+    public HealthResponse(final HttpStatus status, final String text, final int code) {
+        this(status, text, code, Map.of());
+    }
+
+    public HealthResponse(final HttpStatus status, final String text, final int code, final Map<String, Long> details) {
+        this.status = status;
+        this.text = text;
+        this.code = code;
+        this.details = details;
+    }
+
+    public boolean isHealthy() {
+        return this.status.is2xxSuccessful();
+    }
+
+    @Override
+    public ResponseEntity<JsonNode> asJsonNodeResponseEntity() {
+        final ObjectNode jsonNode = new ObjectMapper().createObjectNode().put("text", this.text).put("code", this.code);
+        for (final Map.Entry<String, Long> detail : this.details.entrySet()) {
+            jsonNode.put(detail.getKey(), detail.getValue());
+        }
+        return ResponseEntity.status(this.status).contentType(MediaType.APPLICATION_JSON).body(jsonNode);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final HealthResponse that = (HealthResponse) o;
+        return this.code == that.code && this.status == that.status && Objects.equals(this.text, that.text)
+                && Objects.equals(this.details, that.details);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.status, this.text, this.code, this.details);
+    }
+
+    @Override
+    public String toString() {
+        return "HealthResponse{" + "status=" + this.status + ", text=" + this.text + ", code=" + this.code
+                + ", details=" + this.details + '}';
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.health;
+
+import com.teragrep.cfe_16.Acknowledgements;
+import com.teragrep.cfe_16.GracefulShutdown;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.output.OutputState;
+import com.teragrep.cfe_16.output.ShardedOutput;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/*
+ * Decides whether the node should take more traffic, from the state of the
+ * pipeline at the time of the health check. The node is unhealthy while it
+ * drains for shutdown, while an output connection is down, or when a threshold
+ * of the output backlog or the outstanding acks is crossed, so that a load
+ * balancer polling the health endpoint moves traffic away before the latency
+ * of the node grows.
+ *
+ * The state is sampled only when asked for, the request path does not pay for it.
+ *
+ */
+@Component
+public final class PipelineHealth {
+
+    /**
+     * HEC codes of the health endpoint.
+     */
+    private static final int HEALTHY = 17;
+    private static final int UNHEALTHY = 18;
+
+    private final Configuration configuration;
+    private final GracefulShutdown gracefulShutdown;
+    private final ShardedOutput output;
+    private final Acknowledgements acknowledgements;
+
+    @Autowired
+    public PipelineHealth(
+            final Configuration configuration,
+            final GracefulShutdown gracefulShutdown,
+            final ShardedOutput output,
+            final Acknowledgements acknowledgements
+    ) {
+        this.configuration = configuration;
+        this.gracefulShutdown = gracefulShutdown;
+        this.output = output;
+        this.acknowledgements = acknowledgements;
+    }
+
+    public HealthResponse health() {
+        final OutputState state = this.output.state();
+        final long oldestQueuedMillis = TimeUnit.NANOSECONDS.toMillis(state.oldestQueuedNanos());
+        final long outstandingAcks = this.acknowledgements.getOutstandingAckCount();
+        final Map<String, Long> details = new LinkedHashMap<>();
+        details.put("output_connections", (long) state.connections());
+        details.put("output_disconnected", (long) state.disconnected());
+        details.put("queued_batches", state.queuedBatches());
+        details.put("queued_messages", state.queuedMessages());
+        details.put("queued_bytes", state.queuedBytes());
+        details.put("oldest_queued_ms", oldestQueuedMillis);
+        details.put("outstanding_acks", outstandingAcks);
+
+        final long maxQueueAge = this.configuration.healthMaxQueueAge();
+        final long maxQueuedBytes = this.configuration.healthMaxQueuedBytes();
+        final long maxOutstandingAcks = this.configuration.healthMaxOutstandingAcks();
+        final HealthResponse health;
+        if (this.gracefulShutdown.isDraining()) {
+            health = unhealthy("HEC is draining for shutdown", details);
+        }
+        else if (state.disconnected() > 0) {
+            health = unhealthy("HEC is unhealthy, output connections are down", details);
+        }
+        else if (maxQueueAge > 0 && oldestQueuedMillis > maxQueueAge) {
+            health = unhealthy("HEC is unhealthy, output is behind", details);
+        }
+        else if (maxQueuedBytes > 0 && state.queuedBytes() > maxQueuedBytes) {
+            health = unhealthy("HEC is unhealthy, queues are full", details);
+        }
+        else if (maxOutstandingAcks > 0 && outstandingAcks > maxOutstandingAcks) {
+            health = unhealthy("HEC is unhealthy, too many acks are outstanding", details);
+        }
+        else {
+            health = new HealthResponse(HttpStatus.OK, "HEC is healthy", HEALTHY, details);
+        }
+        return health;
+    }
+
+    private HealthResponse unhealthy(final String text, final Map<String, Long> details) {
+        return new HealthResponse(HttpStatus.SERVICE_UNAVAILABLE, text, UNHEALTHY, details);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.idempotency;
+
+import com.teragrep.cfe_16.LifeCycle;
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.response.Response;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+ * Deduplicates retried sends that carry the same idempotency key. The first
+ * request with a key is sent and its response, including the ack ID, is
+ * remembered for idempotency.window milliseconds. Repeats of the key within the
+ * window get the remembered response without being sent again. A repeat that
+ * arrives while the first request is still in flight waits for its response.
+ * A first request that fails or is answered with other than a 2xx status, such
+ * as a malformed body, is forgotten so that the client can retry it.
+ *
+ * Keys are remembered per authentication token as 64-bit hashes, at most
+ * idempotency.max.keys of them, and are dropped by the cleaner once expired.
+ *
+ */
+@Component
+public class IdempotencyCache implements Runnable, LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyCache.class);
+
+    private final Configuration configuration;
+    private final TokenRegistry tokenRegistry;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Maps auth token string => remembered keys.
+     */
+    private final Map<String, TokenKeys> tokens;
+
+    /**
+     * Cleans up expired keys.
+     */
+    private Thread cleanerThread;
+
+    @Autowired
+    public IdempotencyCache(
+            final Configuration configuration,
+            final TokenRegistry tokenRegistry,
+            final MeterRegistry meterRegistry
+    ) {
+        this.configuration = configuration;
+        this.tokenRegistry = tokenRegistry;
+        this.meterRegistry = meterRegistry;
+        this.tokens = new ConcurrentHashMap<>();
+        Gauge
+                .builder("cfe_16.idempotency.keys", this, IdempotencyCache::size)
+                .description("Idempotency keys remembered over all tokens")
+                .register(meterRegistry);
+    }
+
+    @Override
+    @PostConstruct
+    public void start() {
+        this.cleanerThread = new Thread(this, "Idempotency key cleaner");
+        this.cleanerThread.setDaemon(true);
+        this.cleanerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        this.cleanerThread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(this.configuration.pollTime());
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+            final long now = System.nanoTime();
+            this.tokens.values().removeIf(keys -> keys.retireIfExpired(now));
+        }
+    }
+
+    /**
+     * Sends a request once per idempotency key of the token.
+     *
+     * @param authenticationToken
+     * @param idempotencyKey      key given by the client, null if none
+     * @param send                sends the request and returns its response
+     * @return response of the first request with the key
+     */
+    public Response respond(
+            final String authenticationToken,
+            final String idempotencyKey,
+            final Supplier<Response> send
+    ) {
+        final long window = this.configuration.idempotencyWindow();
+        if (idempotencyKey == null || idempotencyKey.isEmpty() || window <= 0) {
+            return send.get();
+        }
+        final long key = hash(idempotencyKey);
+        final long now = System.nanoTime();
+        final long windowNanos = TimeUnit.MILLISECONDS.toNanos(window);
+        final int maxKeys = this.configuration.idempotencyMaxKeys();
+        final CompletableFuture<Response> pending = new CompletableFuture<>();
+        TokenKeys keys;
+        TokenKeys.Remembered remembered;
+        do {
+            keys = this.tokens.computeIfAbsent(authenticationToken, token -> new TokenKeys());
+            remembered = keys.rememberIfAbsent(key, now, windowNanos, maxKeys, pending);
+            if (remembered == null) {
+                // retired by the cleaner in between
+                this.tokens.remove(authenticationToken, keys);
+            }
+        }
+        while (remembered == null);
+
+        if (remembered.response() != pending) {
+            final String name = this.tokenRegistry.limitsOf(authenticationToken).name();
+            LOGGER.debug("Replaying response of a repeated idempotency key of <{}>", name);
+            Counter
+                    .builder("cfe_16.idempotency.replayed")
+                    .description("Requests answered with the remembered response of their idempotency key")
+                    .tag("name", name)
+                    .register(this.meterRegistry)
+                    .increment();
+            return replay(remembered);
+        }
+
+        try {
+            final Response response = send.get();
+            if (!response.asJsonNodeResponseEntity().getStatusCode().is2xxSuccessful()) {
+                keys.forget(remembered);
+            }
+            pending.complete(response);
+            return response;
+        }
+        catch (final RuntimeException | Error e) {
+            keys.forget(remembered);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Response replay(final TokenKeys.Remembered remembered) {
+        try {
+            return remembered.response().join();
+        }
+        catch (final CompletionException e) {
+            // the first request failed, answer the repeats waiting for it the same way
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private double size() {
+        long size = 0;
+        for (final TokenKeys keys : this.tokens.values()) {
+            size += keys.size();
+        }
+        return size;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the key, only the hash is kept in memory.
+     */
+    static long hash(final String idempotencyKey) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < idempotencyKey.length(); i++) {
+            hash ^= idempotencyKey.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.idempotency;
+
+import com.teragrep.cfe_16.response.Response;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Idempotency keys of one authentication token. Keys are kept as 64-bit hashes in insertion order, which is also the
+ * order they expire in since every key lives for the same window. Every key in the map is also in the order, so
+ * bounding the order bounds the responses held.
+ */
+final class TokenKeys {
+
+    private final Map<Long, Remembered> responses;
+    private final ArrayDeque<Remembered> order;
+    private boolean retired;
+    /**
+     * Guards the fields of these keys.
+     */
+    private final Lock lock;
+
+    TokenKeys() {
+        this.responses = new HashMap<>();
+        this.order = new ArrayDeque<>();
+        this.retired = false;
+        this.lock = new ReentrantLock();
+    }
+
+    /**
+     * Returns the remembered response of the key, or remembers a new pending one. Returns null if the keys were retired
+     * by the cleaner, in which case the caller must look the keys up again.
+     *
+     * @param key     hash of the idempotency key
+     * @param now     current {@link System#nanoTime()}
+     * @param window  nanoseconds the key is remembered
+     * @param maxKeys maximum number of remembered keys, the oldest is forgotten first
+     * @param pending response to remember if the key is new
+     * @return remembered or pending response
+     */
+    Remembered rememberIfAbsent(
+            final long key,
+            final long now,
+            final long window,
+            final int maxKeys,
+            final CompletableFuture<Response> pending
+    ) {
+        this.lock.lock();
+        try {
+            if (this.retired) {
+                return null;
+            }
+            expire(now);
+            final Remembered existing = this.responses.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            while (this.order.size() >= Math.max(1, maxKeys)) {
+                drop(this.order.poll());
+            }
+            final Remembered remembered = new Remembered(key, now + window, pending);
+            this.responses.put(key, remembered);
+            this.order.add(remembered);
+            return remembered;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets a pending response that failed so that the client can retry with the same key. The response is usually
+     * among the newest, so it is looked up from the end of the order.
+     */
+    void forget(final Remembered remembered) {
+        this.lock.lock();
+        try {
+            if (this.order.removeLastOccurrence(remembered)) {
+                drop(remembered);
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets expired keys and retires these keys if none are left.
+     *
+     * @param now current {@link System#nanoTime()}
+     * @return true if the keys were retired and must not be used anymore
+     */
+    boolean retireIfExpired(final long now) {
+        this.lock.lock();
+        try {
+            expire(now);
+            if (this.order.isEmpty()) {
+                this.retired = true;
+            }
+            return this.retired;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    int size() {
+        this.lock.lock();
+        try {
+            return this.order.size();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void expire(final long now) {
+        while (!this.order.isEmpty() && this.order.peek().expiresAt() - now <= 0) {
+            drop(this.order.poll());
+        }
+    }
+
+    /**
+     * Removes the response of a key that was already taken out of the order.
+     */
+    private void drop(final Remembered remembered) {
+        this.responses.remove(remembered.key(), remembered);
+    }
+
+    /**
+     * Response of an idempotency key, pending until the first request with the key completes.
+     */
+    static final class Remembered {
+
+        private final long key;
+        private final long expiresAt;
+        private final CompletableFuture<Response> response;
+
+        Remembered(final long key, final long expiresAt, final CompletableFuture<Response> response) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+            this.response = response;
+        }
+
+        long key() {
+            return this.key;
+        }
+
+        long expiresAt() {
+            return this.expiresAt;
+        }
+
+        CompletableFuture<Response> response() {
+            return this.response;
+        }
+    }
+}
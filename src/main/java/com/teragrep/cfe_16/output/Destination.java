@@ -0,0 +1,148 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Syslog server that events are sent to over a set of output shards.
+ */
+public final class Destination {
+
+    /**
+     * Name of the destination configured with syslog.server.host and syslog.server.port, used by events without a
+     * route.
+     */
+    public static final String DEFAULT_NAME = "default";
+
+    /**
+     * Reliable Event Logging Protocol, each batch is acknowledged by the server.
+     */
+    public static final String RELP = "relp";
+
+    /**
+     * Octet-counted syslog over TCP as in RFC 6587, a batch is delivered once it is written to the socket.
+     */
+    public static final String TCP = "tcp";
+
+    /**
+     * Octet-counted syslog over TLS as in RFC 5425.
+     */
+    public static final String TLS = "tls";
+
+    /**
+     * Octet-counted syslog records in local rolling files, the host is the directory of the files and the port is not
+     * used.
+     */
+    public static final String FILE = "file";
+
+    private final String name;
+    private final String protocol;
+    private final String host;
+    private final int port;
+    private final int shards;
+
+    public Destination(final String name, final String host, final int port, final int shards) {
+        this(name, RELP, host, port, shards);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the protocol is not one of {@link #RELP}, {@link #TCP}, {@link #TLS} or
+     *                                  {@link #FILE}
+     */
+    public Destination(final String name, final String protocol, final String host, final int port, final int shards) {
+        final String lowerCase = protocol.toLowerCase(Locale.ROOT);
+        if (!RELP.equals(lowerCase) && !TCP.equals(lowerCase) && !TLS.equals(lowerCase) && !FILE.equals(lowerCase)) {
+            throw new IllegalArgumentException("Unknown output protocol <" + protocol + "> of <" + name + ">");
+        }
+        this.name = name;
+        this.protocol = lowerCase;
+        this.host = host;
+        this.port = port;
+        this.shards = Math.max(1, shards);
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public String protocol() {
+        return this.protocol;
+    }
+
+    public String host() {
+        return this.host;
+    }
+
+    public int port() {
+        return this.port;
+    }
+
+    public int shards() {
+        return this.shards;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Destination that = (Destination) o;
+        return this.port == that.port && this.shards == that.shards && Objects.equals(this.name, that.name)
+                && Objects.equals(this.protocol, that.protocol) && Objects.equals(this.host, that.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.name, this.protocol, this.host, this.port, this.shards);
+    }
+
+    @Override
+    public String toString() {
+        return this.name + "=" + this.protocol + "://" + this.host + ":" + this.port + "/" + this.shards;
+    }
+}
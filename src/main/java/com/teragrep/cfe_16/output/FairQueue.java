@@ -0,0 +1,479 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.LifeCycle;
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.config.Configuration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Output stage between the service and the OutputSink of one shard. Every
+ * authentication token has a queue of its own and a single dispatcher thread
+ * serves the queues with weighted deficit round robin. On its turn a token may send
+ * batches worth its weight times output.fair.quantum messages, and unused
+ * allowance is carried over while the token has batches waiting. A token
+ * posting huge batches therefore gets its share of the sink but can not hold
+ * back tokens posting small ones, which only wait for the batch in progress.
+ *
+ * Request threads block in send until their batch is delivered, so the
+ * number of queued batches is bounded by the number of request threads. A
+ * sink that delivers writes in groups completes batches after the dispatcher
+ * has moved on, so they are settled from the sink's thread.
+ *
+ */
+public class FairQueue implements Runnable, LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FairQueue.class);
+
+    private final OutputSink outputSink;
+    private final TokenRegistry tokenRegistry;
+    private final Configuration configuration;
+    private final String destination;
+    private final int shard;
+    private final Timer waitTimer;
+
+    /**
+     * Guards flows, activeFlows, queuedBatches, queuedMessages, queuedLength and stopped.
+     */
+    private final ReentrantLock lock;
+    private final Condition batchQueued;
+
+    /**
+     * Maps auth token string => flow, only tokens with queued batches are present.
+     */
+    private final Map<String, Flow> flows;
+
+    /**
+     * Round robin order of the flows.
+     */
+    private final ArrayDeque<Flow> activeFlows;
+
+    private int queuedBatches;
+    private long queuedMessages;
+    private long queuedLength;
+
+    /**
+     * Set by seal and stop, batches are no longer accepted.
+     */
+    private boolean stopped;
+
+    /**
+     * True while the dispatcher has a batch taken from the queues and not yet sent.
+     */
+    private volatile boolean sending;
+
+    /**
+     * {@link OutputBatch#enqueuedNanos()} of the batch being sent, valid while sending.
+     */
+    private volatile long sendingEnqueuedNanos;
+
+    /**
+     * Batch last taken by the dispatcher until it is delivered or has failed, null after. The sink completes batches in
+     * the order it was given them, so earlier batches are settled when this one is.
+     */
+    private final AtomicReference<OutputBatch> sendingBatch;
+
+    /**
+     * Batches taken by the dispatcher that are not yet delivered or failed.
+     */
+    private final AtomicInteger unsettled;
+
+    /**
+     * Delivers batches to the sink.
+     */
+    private Thread dispatcherThread;
+
+    public FairQueue(
+            final OutputSink outputSink,
+            final TokenRegistry tokenRegistry,
+            final Configuration configuration,
+            final int shard,
+            final MeterRegistry meterRegistry
+    ) {
+        this(outputSink, tokenRegistry, configuration, Destination.DEFAULT_NAME, shard, meterRegistry);
+    }
+
+    public FairQueue(
+            final OutputSink outputSink,
+            final TokenRegistry tokenRegistry,
+            final Configuration configuration,
+            final String destination,
+            final int shard,
+            final MeterRegistry meterRegistry
+    ) {
+        this.outputSink = outputSink;
+        this.tokenRegistry = tokenRegistry;
+        this.configuration = configuration;
+        this.destination = destination;
+        this.shard = shard;
+        this.waitTimer = Timer
+                .builder("cfe_16.output.wait")
+                .description("Time a batch waits in the fair queue before it is sent")
+                .tag("destination", destination)
+                .tag("shard", String.valueOf(shard))
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lock = new ReentrantLock();
+        this.batchQueued = this.lock.newCondition();
+        this.flows = new HashMap<>();
+        this.activeFlows = new ArrayDeque<>();
+        this.queuedBatches = 0;
+        this.queuedMessages = 0;
+        this.queuedLength = 0;
+        this.sending = false;
+        this.sendingBatch = new AtomicReference<>();
+        this.unsettled = new AtomicInteger();
+        this.stopped = false;
+    }
+
+    @Override
+    public void start() {
+        this.dispatcherThread = new Thread(this, "Output dispatcher " + this.destination + " " + this.shard);
+        this.dispatcherThread.setDaemon(true);
+        this.dispatcherThread.start();
+    }
+
+    /**
+     * Stops taking new batches, the dispatcher keeps delivering the queued ones.
+     */
+    public void seal() {
+        this.lock.lock();
+        try {
+            this.stopped = true;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void stop() {
+        seal();
+        if (this.dispatcherThread != null) {
+            this.dispatcherThread.interrupt();
+        }
+        else {
+            // never started, no dispatcher fails the queued batches on its way out
+            failQueued();
+        }
+    }
+
+    /**
+     * Queues the messages of a request and waits until they are delivered.
+     *
+     * @param authenticationToken token the messages were sent with
+     * @param syslogMessages      messages of the request
+     * @throws IllegalStateException if the queue has been sealed or stopped, the messages were not queued
+     */
+    public void send(final String authenticationToken, final List<SyslogMessage> syslogMessages) {
+        queue(authenticationToken, syslogMessages).await();
+    }
+
+    /**
+     * Queues the messages of a request without waiting for them to be delivered.
+     *
+     * @param authenticationToken token the messages were sent with
+     * @param syslogMessages      messages of the request
+     * @return batch to wait on with {@link OutputBatch#await()}
+     * @throws IllegalStateException if the queue has been sealed or stopped, the messages were not queued
+     */
+    public OutputBatch queue(final String authenticationToken, final List<SyslogMessage> syslogMessages) {
+        final OutputBatch batch = new OutputBatch(syslogMessages);
+        this.lock.lock();
+        try {
+            if (this.stopped) {
+                throw new IllegalStateException("Output dispatcher stopped");
+            }
+            Flow flow = this.flows.get(authenticationToken);
+            if (flow == null) {
+                flow = new Flow(authenticationToken, this.tokenRegistry.limitsOf(authenticationToken).weight());
+                this.flows.put(authenticationToken, flow);
+                this.activeFlows.addLast(flow);
+            }
+            flow.batches.addLast(batch);
+            this.queuedBatches++;
+            this.queuedMessages += batch.syslogMessages().size();
+            this.queuedLength += batch.length();
+            this.batchQueued.signal();
+        }
+        finally {
+            this.lock.unlock();
+        }
+        return batch;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            final OutputBatch batch;
+            try {
+                batch = next();
+            }
+            catch (final InterruptedException e) {
+                break;
+            }
+            this.waitTimer.record(System.nanoTime() - batch.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            try {
+                this.outputSink
+                        .sendMessages(batch.syslogMessages())
+                        .whenComplete((ignored, failure) -> settle(batch, failure));
+            }
+            catch (final RuntimeException e) {
+                settle(batch, e);
+            }
+            finally {
+                this.sending = false;
+            }
+        }
+        failQueued();
+    }
+
+    /**
+     * Completes or fails a batch taken by the dispatcher.
+     */
+    private void settle(final OutputBatch batch, final Throwable failure) {
+        if (failure == null) {
+            batch.complete();
+        }
+        else if (failure instanceof IllegalArgumentException) {
+            // rejected messages are reported with the request, through the rate limited error log
+            batch.fail(failure);
+        }
+        else {
+            LOGGER.warn("Failed to send a batch of <{}> messages", batch.syslogMessages().size(), failure);
+            batch.fail(failure);
+        }
+        this.sendingBatch.compareAndSet(batch, null);
+        this.unsettled.decrementAndGet();
+    }
+
+    /**
+     * Takes the next batch in deficit round robin order, waiting for one if none are queued.
+     */
+    private OutputBatch next() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            while (true) {
+                while (this.activeFlows.isEmpty()) {
+                    this.batchQueued.await();
+                }
+                final Flow flow = this.activeFlows.peekFirst();
+                if (!flow.hasTurn) {
+                    flow.deficit += flow.weight * Math.max(1, this.configuration.outputFairQuantum());
+                    flow.hasTurn = true;
+                }
+                final OutputBatch head = flow.batches.peekFirst();
+                if (head.cost() <= flow.deficit) {
+                    flow.batches.pollFirst();
+                    flow.deficit -= head.cost();
+                    this.sendingEnqueuedNanos = head.enqueuedNanos();
+                    this.sendingBatch.set(head);
+                    this.unsettled.incrementAndGet();
+                    this.sending = true;
+                    this.queuedBatches--;
+                    this.queuedMessages -= head.syslogMessages().size();
+                    this.queuedLength -= head.length();
+                    if (flow.batches.isEmpty()) {
+                        // an idle flow keeps no allowance, it starts over when it queues again
+                        this.activeFlows.pollFirst();
+                        this.flows.remove(flow.authenticationToken);
+                    }
+                    return head;
+                }
+                // allowance used up, the rest waits for the next round
+                flow.hasTurn = false;
+                this.activeFlows.addLast(this.activeFlows.pollFirst());
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every queued batch has been delivered or the deadline passes. Batches queued while waiting are
+     * included.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} to give up at
+     * @return true if nothing is queued or waiting for delivery
+     */
+    public boolean drain(final long deadlineNanos) throws InterruptedException {
+        while (getQueuedBatches() > 0 || this.unsettled.get() > 0) {
+            if (System.nanoTime() >= deadlineNanos) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the batch that a batch of the token queued now would be delivered after: the last queued batch of the
+     * token, or the batch last taken by the dispatcher while it is not delivered if the token has none queued.
+     *
+     * @param authenticationToken token of the batch
+     * @return the batch, or null if nothing is queued or waiting for delivery
+     */
+    public OutputBatch lastBatchOf(final String authenticationToken) {
+        this.lock.lock();
+        try {
+            final Flow flow = this.flows.get(authenticationToken);
+            return flow == null ? this.sendingBatch.get() : flow.batches.peekLast();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void failQueued() {
+        this.lock.lock();
+        try {
+            final IllegalStateException stopped = new IllegalStateException("Output dispatcher stopped");
+            for (final Flow flow : this.activeFlows) {
+                for (final OutputBatch batch : flow.batches) {
+                    batch.fail(stopped);
+                }
+            }
+            this.activeFlows.clear();
+            this.flows.clear();
+            this.queuedBatches = 0;
+            this.queuedMessages = 0;
+            this.queuedLength = 0;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of batches waiting to be sent.
+     *
+     * @return
+     */
+    public int getQueuedBatches() {
+        this.lock.lock();
+        try {
+            return this.queuedBatches;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns what is waiting in the queue and for how long. The batch being sent counts for the age only, as its
+     * messages are in the sink already.
+     *
+     * @return
+     */
+    public OutputState state() {
+        final long now = System.nanoTime();
+        this.lock.lock();
+        try {
+            long oldest = now;
+            for (final Flow flow : this.activeFlows) {
+                // batches of a flow are in arrival order, so only the first can be the oldest
+                oldest = Math.min(oldest, flow.batches.peekFirst().enqueuedNanos());
+            }
+            if (this.sending) {
+                oldest = Math.min(oldest, this.sendingEnqueuedNanos);
+            }
+            return new OutputState(0, 0, this.queuedBatches, this.queuedMessages, this.queuedLength, now - oldest);
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of tokens that have batches waiting.
+     *
+     * @return
+     */
+    public int getFlowCount() {
+        this.lock.lock();
+        try {
+            return this.activeFlows.size();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Queued batches of one token. Guarded by the lock of the queue.
+     */
+    private static final class Flow {
+
+        private final String authenticationToken;
+        private final long weight;
+        private final ArrayDeque<OutputBatch> batches;
+        private long deficit;
+        private boolean hasTurn;
+
+        private Flow(final String authenticationToken, final long weight) {
+            this.authenticationToken = authenticationToken;
+            this.weight = weight;
+            this.batches = new ArrayDeque<>();
+            this.deficit = 0;
+            this.hasTurn = false;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.event.BytesSyslogMessage;
+import com.teragrep.cfe_16.exceptionhandling.InternalServerErrorException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Messages of one request waiting in the {@link FairQueue}. The request thread waits on the batch until the dispatcher
+ * has delivered it.
+ */
+public final class OutputBatch {
+
+    private final List<SyslogMessage> syslogMessages;
+    private final long length;
+    private final long enqueuedNanos;
+    private final CompletableFuture<Void> delivered;
+
+    public OutputBatch(final List<SyslogMessage> syslogMessages) {
+        this(syslogMessages, lengthOf(syslogMessages), System.nanoTime(), new CompletableFuture<>());
+    }
+
+    private OutputBatch(
+            final List<SyslogMessage> syslogMessages,
+            final long length,
+            final long enqueuedNanos,
+            final CompletableFuture<Void> delivered
+    ) {
+        this.syslogMessages = syslogMessages;
+        this.length = length;
+        this.enqueuedNanos = enqueuedNanos;
+        this.delivered = delivered;
+    }
+
+    public List<SyslogMessage> syslogMessages() {
+        return this.syslogMessages;
+    }
+
+    /**
+     * Cost of the batch in deficit round robin, the number of messages. An empty batch still costs one so that it is
+     * scheduled like any other.
+     *
+     * @return
+     */
+    public long cost() {
+        return Math.max(1, this.syslogMessages.size());
+    }
+
+    /**
+     * Bytes of the MSG parts of the messages in UTF-8, read from the byte buffers of byte messages and counted from the
+     * characters of others.
+     *
+     * @return
+     */
+    public long length() {
+        return this.length;
+    }
+
+    public long enqueuedNanos() {
+        return this.enqueuedNanos;
+    }
+
+    public void complete() {
+        this.delivered.complete(null);
+    }
+
+    public void fail(final Throwable cause) {
+        this.delivered.completeExceptionally(cause);
+    }
+
+    /**
+     * Waits until the batch is delivered.
+     *
+     * @throws IllegalArgumentException     if the output rejected the messages, which would fail again if retried
+     * @throws InternalServerErrorException if the delivery failed otherwise or the wait was interrupted
+     */
+    public void await() {
+        try {
+            this.delivered.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Interrupted while waiting for the output", e);
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw new IllegalArgumentException(
+                        "Output rejected the batch: " + e.getCause().getMessage(),
+                        e.getCause()
+                );
+            }
+            throw new InternalServerErrorException("Output failed", e.getCause());
+        }
+    }
+
+    /**
+     * Waits until the batch is delivered or has failed, without telling which.
+     *
+     * @throws InternalServerErrorException if the wait was interrupted
+     */
+    public void awaitSettled() {
+        try {
+            this.delivered.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Interrupted while waiting for the output", e);
+        }
+        catch (final ExecutionException e) {
+            // a failed batch is settled as well
+        }
+    }
+
+    private static long lengthOf(final List<SyslogMessage> syslogMessages) {
+        long length = 0;
+        for (final SyslogMessage syslogMessage : syslogMessages) {
+            if (syslogMessage instanceof BytesSyslogMessage) {
+                // counted without decoding the message
+                length += ((BytesSyslogMessage) syslogMessage).msgLength();
+            }
+            else if (syslogMessage.getMsg() != null) {
+                length += utf8Length(syslogMessage.getMsg().toCharArray());
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Bytes of the characters encoded in UTF-8, counted without encoding them.
+     */
+    private static long utf8Length(final char[] chars) {
+        long bytes = 0;
+        for (int i = 0; i < chars.length; i++) {
+            final char c = chars[i];
+            if (c < 0x80) {
+                bytes++;
+            }
+            else if (c < 0x800) {
+                bytes += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < chars.length && Character.isLowSurrogate(chars[i + 1])) {
+                // supplementary characters take two chars and four bytes
+                bytes += 4;
+                i++;
+            }
+            else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
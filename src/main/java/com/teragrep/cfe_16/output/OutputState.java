@@ -0,0 +1,156 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import java.util.Objects;
+
+/**
+ * Point in time state of output shards: how many output connections are down and how much is waiting to be sent.
+ */
+public final class OutputState {
+
+    private final int connections;
+    private final int disconnected;
+    private final long queuedBatches;
+    private final long queuedMessages;
+    private final long queuedBytes;
+    private final long oldestQueuedNanos;
+
+    /**
+     * State of no shards.
+     */
+    public OutputState() {
+        this(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param queuedBytes       bytes of the MSG parts of the queued messages in UTF-8
+     * @param oldestQueuedNanos time the oldest batch not yet delivered has waited, including the batch being sent
+     */
+    public OutputState(
+            final int connections,
+            final int disconnected,
+            final long queuedBatches,
+            final long queuedMessages,
+            final long queuedBytes,
+            final long oldestQueuedNanos
+    ) {
+        this.connections = connections;
+        this.disconnected = disconnected;
+        this.queuedBatches = queuedBatches;
+        this.queuedMessages = queuedMessages;
+        this.queuedBytes = queuedBytes;
+        this.oldestQueuedNanos = oldestQueuedNanos;
+    }
+
+    /**
+     * @return state of both, with the older of the oldest batches
+     */
+    public OutputState plus(final OutputState other) {
+        return new OutputState(
+                this.connections + other.connections,
+                this.disconnected + other.disconnected,
+                this.queuedBatches + other.queuedBatches,
+                this.queuedMessages + other.queuedMessages,
+                this.queuedBytes + other.queuedBytes,
+                Math.max(this.oldestQueuedNanos, other.oldestQueuedNanos)
+        );
+    }
+
+    public int connections() {
+        return this.connections;
+    }
+
+    public int disconnected() {
+        return this.disconnected;
+    }
+
+    public long queuedBatches() {
+        return this.queuedBatches;
+    }
+
+    public long queuedMessages() {
+        return this.queuedMessages;
+    }
+
+    public long queuedBytes() {
+        return this.queuedBytes;
+    }
+
+    public long oldestQueuedNanos() {
+        return this.oldestQueuedNanos;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final OutputState that = (OutputState) o;
+        return this.connections == that.connections && this.disconnected == that.disconnected
+                && this.queuedBatches == that.queuedBatches && this.queuedMessages == that.queuedMessages
+                && this.queuedBytes == that.queuedBytes && this.oldestQueuedNanos == that.oldestQueuedNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects
+                .hash(
+                        this.connections, this.disconnected, this.queuedBatches, this.queuedMessages, this.queuedBytes,
+                        this.oldestQueuedNanos
+                );
+    }
+
+    @Override
+    public String toString() {
+        return "OutputState{" + "connections=" + this.connections + ", disconnected=" + this.disconnected
+                + ", queuedBatches=" + this.queuedBatches + ", queuedMessages=" + this.queuedMessages + ", queuedBytes="
+                + this.queuedBytes + ", oldestQueuedNanos=" + this.oldestQueuedNanos + '}';
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File of event routes, one rule per line as name,host,port[,shards[,token[,index[,sourcetype]]]]. Token is the name of
+ * the token in the token registry. A missing or empty token, index or sourcetype, or *, matches any value. Lines of the
+ * same name are rules of one destination and must repeat its host, port and shards. The host may be prefixed with the
+ * output protocol of the destination as tcp://host, tls://host or file:///directory, relp is used without one. Empty
+ * lines and lines starting with # are ignored.
+ */
+public final class RoutesFile {
+
+    private final Path path;
+
+    public RoutesFile(final Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Reads and compiles the routes.
+     *
+     * @return
+     * @throws UncheckedIOException     if the file can not be read
+     * @throws IllegalArgumentException if a line is malformed or contradicts another one
+     */
+    public RoutingTable routingTable() {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(this.path, StandardCharsets.UTF_8);
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final List<Destination> destinations = new ArrayList<>();
+        final Map<String, Integer> destinationIndexes = new HashMap<>();
+        final Map<String, Map<String, Map<String, Integer>>> rules = new HashMap<>();
+        for (final String line : lines) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            final String[] fields = trimmed.split(",", -1);
+            if (fields.length < 3 || fields[0].isBlank() || fields[1].isBlank()) {
+                throw new IllegalArgumentException("Route <" + trimmed + "> must have a name, host and port");
+            }
+            final String name = fields[0].trim();
+            if (Destination.DEFAULT_NAME.equals(name)) {
+                throw new IllegalArgumentException("Route name <" + name + "> is reserved");
+            }
+            final String address = fields[1].trim();
+            final int scheme = address.indexOf("://");
+            if (scheme >= 0 && address.length() == scheme + 3) {
+                throw new IllegalArgumentException("Route <" + trimmed + "> must have a host");
+            }
+            final Destination destination = new Destination(
+                    name,
+                    scheme < 0 ? Destination.RELP : address.substring(0, scheme),
+                    scheme < 0 ? address : address.substring(scheme + 3),
+                    Integer.parseInt(fields[2].trim()),
+                    fields.length > 3 && !fields[3].isBlank() ? Integer.parseInt(fields[3].trim()) : 1
+            );
+            Integer destinationIndex = destinationIndexes.get(name);
+            if (destinationIndex == null) {
+                destinationIndex = destinations.size();
+                destinations.add(destination);
+                destinationIndexes.put(name, destinationIndex);
+            }
+            else if (!destinations.get(destinationIndex).equals(destination)) {
+                throw new IllegalArgumentException("Route <" + name + "> has conflicting destinations");
+            }
+            final Integer previous = rules
+                    .computeIfAbsent(field(fields, 4), token -> new HashMap<>())
+                    .computeIfAbsent(field(fields, 5), index -> new HashMap<>())
+                    .putIfAbsent(field(fields, 6), destinationIndex);
+            if (previous != null && !previous.equals(destinationIndex)) {
+                throw new IllegalArgumentException(
+                        "Rule <" + trimmed + "> is already routed to <" + destinations.get(previous).name() + ">"
+                );
+            }
+        }
+        return new RoutingTable(List.copyOf(destinations), frozen(rules));
+    }
+
+    private static String field(final String[] fields, final int index) {
+        final String field;
+        if (fields.length > index && !fields[index].isBlank()) {
+            field = fields[index].trim();
+        }
+        else {
+            field = RoutingTable.ANY;
+        }
+        return field;
+    }
+
+    private static Map<String, Map<String, Map<String, Integer>>> frozen(
+            final Map<String, Map<String, Map<String, Integer>>> rules
+    ) {
+        final Map<String, Map<String, Map<String, Integer>>> frozen = new HashMap<>();
+        for (final Map.Entry<String, Map<String, Map<String, Integer>>> token : rules.entrySet()) {
+            final Map<String, Map<String, Integer>> indexes = new HashMap<>();
+            for (final Map.Entry<String, Map<String, Integer>> index : token.getValue().entrySet()) {
+                indexes.put(index.getKey(), Map.copyOf(index.getValue()));
+            }
+            frozen.put(token.getKey(), Map.copyOf(indexes));
+        }
+        return Map.copyOf(frozen);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Routes of events to destinations other than the default one, compiled into nested hash maps keyed by token name,
+ * index and sourcetype, where {@link #ANY} matches any value. The most specific rule wins, the token being the most
+ * significant field and the sourcetype the least. Events that match no rule go to the default destination.
+ */
+public final class RoutingTable {
+
+    /**
+     * Rule field that matches any value, including a missing one.
+     */
+    public static final String ANY = "*";
+
+    private final List<Destination> destinations;
+
+    /**
+     * Maps token name => index => sourcetype => index of the destination.
+     */
+    private final Map<String, Map<String, Map<String, Integer>>> rules;
+
+    /**
+     * Table without routes.
+     */
+    public RoutingTable() {
+        this(List.of(), Map.of());
+    }
+
+    public RoutingTable(
+            final List<Destination> destinations,
+            final Map<String, Map<String, Map<String, Integer>>> rules
+    ) {
+        this.destinations = destinations;
+        this.rules = rules;
+    }
+
+    /**
+     * Destinations that rules route to, indexed by {@link TokenRoutes#destinationOf(String, String)}.
+     *
+     * @return
+     */
+    public List<Destination> destinations() {
+        return this.destinations;
+    }
+
+    public boolean isEmpty() {
+        return this.rules.isEmpty();
+    }
+
+    /**
+     * Returns the rules that apply to a token, resolved once per request.
+     *
+     * @param tokenName name of the token in the token registry
+     * @return
+     */
+    public TokenRoutes routesOf(final String tokenName) {
+        return new TokenRoutes(this.rules.get(tokenName), this.rules.get(ANY));
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RoutingTable that = (RoutingTable) o;
+        return Objects.equals(this.destinations, that.destinations) && Objects.equals(this.rules, that.rules);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.destinations, this.rules);
+    }
+
+    /**
+     * Rules of one token, the rules naming the token before the ones for any token.
+     */
+    public static final class TokenRoutes {
+
+        private final Map<String, Map<String, Integer>> tokenRules;
+        private final Map<String, Map<String, Integer>> anyTokenRules;
+
+        private TokenRoutes(
+                final Map<String, Map<String, Integer>> tokenRules,
+                final Map<String, Map<String, Integer>> anyTokenRules
+        ) {
+            this.tokenRules = tokenRules;
+            this.anyTokenRules = anyTokenRules;
+        }
+
+        /**
+         * Returns the destination of an event.
+         *
+         * @param index      index of the event, null if none
+         * @param sourceType sourcetype of the event, null if none
+         * @return index of the destination in {@link RoutingTable#destinations()}, -1 for the default destination
+         */
+        public int destinationOf(final String index, final String sourceType) {
+            int destination = destinationOf(this.tokenRules, index, sourceType);
+            if (destination < 0) {
+                destination = destinationOf(this.anyTokenRules, index, sourceType);
+            }
+            return destination;
+        }
+
+        private static int destinationOf(
+                final Map<String, Map<String, Integer>> rules,
+                final String index,
+                final String sourceType
+        ) {
+            if (rules == null) {
+                return -1;
+            }
+            int destination = -1;
+            if (index != null) {
+                destination = destinationOf(rules.get(index), sourceType);
+            }
+            if (destination < 0) {
+                destination = destinationOf(rules.get(ANY), sourceType);
+            }
+            return destination;
+        }
+
+        private static int destinationOf(final Map<String, Integer> rules, final String sourceType) {
+            if (rules == null) {
+                return -1;
+            }
+            Integer destination = null;
+            if (sourceType != null) {
+                destination = rules.get(sourceType);
+            }
+            if (destination == null) {
+                destination = rules.get(ANY);
+            }
+            return destination != null ? destination : -1;
+        }
+    }
+}
@@ -0,0 +1,725 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.LifeCycle;
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.bo.HECRecord;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.config.ConfigurationChangedEvent;
+import com.teragrep.cfe_16.config.ConfigurationSnapshot;
+import com.teragrep.cfe_16.connection.FileConnection;
+import com.teragrep.cfe_16.connection.RelpConnection;
+import com.teragrep.cfe_16.connection.SyslogConnection;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/*
+ * Output engine of independent shards. Each shard has a connection and a
+ * FairQueue with a dispatcher thread of its own. Batches are assigned to a
+ * shard by the hash of their token and channel, so all batches of a channel go
+ * through the same dispatcher in the order they were queued while different
+ * channels are sent in parallel.
+ *
+ * Events go to the default destination of syslog.server.host and
+ * syslog.server.port over output.shards shards, unless output.routes.file
+ * routes them by token name, index and sourcetype to another destination,
+ * which has shards of its own. Each destination is sent to over RELP, over
+ * plain syslog on TCP or TLS or written to local rolling files,
+ * syslog.server.protocol of the default one and the scheme of the host of a
+ * routed one. The routes of a token are looked up once per
+ * request and the events of a request without routes are not looked at. A
+ * request routed to several destinations is acknowledged when all of them
+ * have its events.
+ *
+ * When a destination or the routes are changed by a configuration reload a
+ * new set of shards is started and takes new batches at once while its
+ * connections are opened in the background, so an unreachable destination
+ * does not hold up the reload. The previous set is sealed, it takes no new
+ * batches but delivers what it has queued until shutdown.drain.timeout and is
+ * then stopped, which fails the batches it has left. A request waits for the
+ * batches of its token and channel on the previous set to settle before it
+ * queues on the new set, so the order of a channel is kept over the switch.
+ * Configuration changes are ignored once the output is stopped.
+ *
+ */
+@Component
+public class ShardedOutput implements LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedOutput.class);
+
+    private final Configuration configuration;
+    private final TokenRegistry tokenRegistry;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Shards of all destinations taking new batches, replaced as a whole on reconfiguration.
+     */
+    private volatile Destinations destinations;
+
+    /**
+     * Destination and shard index pairs that have gauges registered.
+     */
+    private final Set<String> gauges;
+
+    /**
+     * Set by stop, after which configuration changes start no new shards.
+     */
+    private volatile boolean stopped;
+
+    @Autowired
+    public ShardedOutput(
+            final Configuration configuration,
+            final TokenRegistry tokenRegistry,
+            final MeterRegistry meterRegistry
+    ) {
+        this.configuration = configuration;
+        this.tokenRegistry = tokenRegistry;
+        this.meterRegistry = meterRegistry;
+        this.gauges = new HashSet<>();
+        this.stopped = false;
+        final ConfigurationSnapshot snapshot = configuration.snapshot();
+        try {
+            this.destinations = destinations(defaultDestination(snapshot), routingTable(snapshot));
+        }
+        catch (final UncheckedIOException | IllegalArgumentException e) {
+            throw new IllegalStateException(
+                    "Could not configure output of <" + snapshot.syslogProtocol() + "> or routes file <"
+                            + snapshot.outputRoutesFile() + ">",
+                    e
+            );
+        }
+    }
+
+    @Override
+    @PostConstruct
+    public void start() {
+        LOGGER.info("Starting output shards <{}>", this.destinations);
+        this.destinations.start();
+    }
+
+    /**
+     * Replaces the shards if the default destination or the routes have changed. The routes file is read again on every
+     * configuration change. The previous shards get shutdown.drain.timeout to deliver their queued batches, and are
+     * then stopped, which fails what is left and makes their connections give up retrying. Nothing is replaced once the
+     * output is stopped.
+     *
+     * @param event
+     */
+    @EventListener
+    public synchronized void onConfigurationChanged(final ConfigurationChangedEvent event) {
+        if (this.stopped) {
+            LOGGER.debug("Output is stopped, ignoring the configuration change");
+            return;
+        }
+        final ConfigurationSnapshot current = event.current();
+        final Destinations replaced = this.destinations;
+        RoutingTable routingTable;
+        try {
+            routingTable = routingTable(current);
+        }
+        catch (final UncheckedIOException | IllegalArgumentException e) {
+            LOGGER
+                    .warn(
+                            "Could not read output routes file <{}>, keeping the previous routes",
+                            current.outputRoutesFile(), e
+                    );
+            routingTable = replaced.routingTable;
+        }
+        Destination defaultDestination;
+        try {
+            defaultDestination = defaultDestination(current);
+        }
+        catch (final IllegalArgumentException e) {
+            LOGGER.warn("Could not configure the default destination, keeping the previous one", e);
+            defaultDestination = replaced.defaultDestination();
+        }
+        if (defaultDestination.equals(replaced.defaultDestination()) && routingTable.equals(replaced.routingTable)) {
+            return;
+        }
+        final Destinations replacement = destinations(defaultDestination, routingTable);
+        LOGGER.info("Replacing output shards <{}> with <{}>", replaced, replacement);
+        replacement.previous = replaced;
+        replacement.startConnecting();
+        // sealed before the switch, so a request seeing the replacement sees all batches queued on the previous set
+        replaced.seal(replacement);
+        this.destinations = replacement;
+        if (this.stopped) {
+            // stopped while the replacement was built, stop may have closed only the replaced shards
+            replacement.stop();
+            return;
+        }
+        final long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(Math.max(0, current.shutdownDrainTimeout()));
+        try {
+            if (!replaced.drain(deadline)) {
+                LOGGER.warn("Previous output shards did not drain in time, failing <{}> batches", replaced.queued());
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            replaced.stop();
+            replacement.previous = null;
+        }
+    }
+
+    /**
+     * Waits until all shards have delivered their queued batches or the deadline passes.
+     *
+     * @param deadlineNanos {@link System#nanoTime()} to give up at
+     * @return true if all shards are empty
+     */
+    public boolean drain(final long deadlineNanos) throws InterruptedException {
+        return this.destinations.drain(deadlineNanos);
+    }
+
+    /**
+     * Stops the dispatchers, failing batches still queued, and closes the connections. Called by
+     * {@link com.teragrep.cfe_16.GracefulShutdown} after draining.
+     */
+    @Override
+    public void stop() {
+        this.stopped = true;
+        this.destinations.stop();
+    }
+
+    /**
+     * Sends the messages of a request to the shards of their destinations and waits until they are delivered.
+     *
+     * @param authenticationToken token the messages were sent with
+     * @param channel             channel the messages were sent to
+     * @param records             records of the request, the message at the same index is encoded from the record
+     * @param syslogMessages      messages of the request
+     */
+    public void send(
+            final String authenticationToken,
+            final String channel,
+            final List<HECRecord> records,
+            final List<SyslogMessage> syslogMessages
+    ) {
+        final String tokenName = this.tokenRegistry.limitsOf(authenticationToken).name();
+        final List<OutputBatch> batches = new ArrayList<>();
+        Destinations current = this.destinations;
+        Map<Shards, Part> parts = current.parts(tokenName, records, syslogMessages);
+        while (!parts.isEmpty()) {
+            current.awaitPrevious(authenticationToken, channel);
+            final Part unqueued = new Part();
+            for (final Map.Entry<Shards, Part> part : parts.entrySet()) {
+                try {
+                    batches.add(part.getKey().queue(authenticationToken, channel, part.getValue().syslogMessages));
+                }
+                catch (final IllegalStateException e) {
+                    // sealed by a reconfiguration before the batch was queued, retry on the replacement
+                    if (current.successor == null) {
+                        throw e;
+                    }
+                    unqueued.addAll(part.getValue());
+                }
+            }
+            if (unqueued.syslogMessages.isEmpty()) {
+                parts = Map.of();
+            }
+            else {
+                current = current.successor;
+                parts = current.parts(tokenName, unqueued.records, unqueued.syslogMessages);
+            }
+        }
+        for (final OutputBatch batch : batches) {
+            batch.await();
+        }
+    }
+
+    /**
+     * Returns the shard of a channel in the default destination.
+     *
+     * @param authenticationToken
+     * @param channel
+     * @return
+     */
+    public int shardOf(final String authenticationToken, final String channel) {
+        return this.destinations.shards.get(0).shardOf(authenticationToken, channel);
+    }
+
+    /**
+     * Returns the number of batches waiting over all shards.
+     *
+     * @return
+     */
+    public int getQueuedBatches() {
+        return this.destinations.queued();
+    }
+
+    /**
+     * Returns the connectivity and the queues of the shards of all destinations taking new batches.
+     *
+     * @return
+     */
+    public OutputState state() {
+        return this.destinations.state();
+    }
+
+    private RoutingTable routingTable(final ConfigurationSnapshot snapshot) {
+        final String file = snapshot.outputRoutesFile();
+        final RoutingTable routingTable;
+        if (file == null || file.isEmpty()) {
+            routingTable = new RoutingTable();
+        }
+        else {
+            routingTable = new RoutesFile(Paths.get(file)).routingTable();
+        }
+        return routingTable;
+    }
+
+    private static Destination defaultDestination(final ConfigurationSnapshot snapshot) {
+        // a snapshot not read from the environment has no protocol
+        return new Destination(
+                Destination.DEFAULT_NAME,
+                snapshot.syslogProtocol() == null ? Destination.RELP : snapshot.syslogProtocol(),
+                snapshot.syslogHost(),
+                snapshot.syslogPort(),
+                snapshot.outputShards()
+        );
+    }
+
+    private Destinations destinations(final Destination defaultDestination, final RoutingTable routingTable) {
+        final List<Shards> shards = new ArrayList<>();
+        shards.add(shards(defaultDestination));
+        for (final Destination destination : routingTable.destinations()) {
+            shards.add(shards(destination));
+        }
+        return new Destinations(routingTable, List.copyOf(shards));
+    }
+
+    private Shards shards(final Destination destination) {
+        final List<OutputConnection> connections = new ArrayList<>(destination.shards());
+        final List<FairQueue> queues = new ArrayList<>(destination.shards());
+        for (int shard = 0; shard < destination.shards(); shard++) {
+            final OutputConnection connection;
+            if (Destination.RELP.equals(destination.protocol())) {
+                connection = new RelpConnection(
+                        destination.host(),
+                        destination.port(),
+                        destination.name(),
+                        shard,
+                        this.configuration,
+                        this.meterRegistry
+                );
+            }
+            else if (Destination.FILE.equals(destination.protocol())) {
+                connection = new FileConnection(
+                        Paths.get(destination.host()),
+                        destination.name(),
+                        shard,
+                        this.configuration,
+                        this.meterRegistry
+                );
+            }
+            else {
+                connection = new SyslogConnection(
+                        destination.host(),
+                        destination.port(),
+                        Destination.TLS.equals(destination.protocol()),
+                        destination.name(),
+                        shard,
+                        this.configuration,
+                        this.meterRegistry
+                );
+            }
+            connections.add(connection);
+            queues
+                    .add(
+                            new FairQueue(
+                                    connection,
+                                    this.tokenRegistry,
+                                    this.configuration,
+                                    destination.name(),
+                                    shard,
+                                    this.meterRegistry
+                            )
+                    );
+            // gauges follow the current shards, so they are registered once per destination and shard index
+            if (this.gauges.add(destination.name() + "/" + shard)) {
+                final String name = destination.name();
+                final int index = shard;
+                Gauge
+                        .builder("cfe_16.output.queue.depth", this, output -> output.destinations.queued(name, index))
+                        .description("Batches waiting in the fair queue")
+                        .tag("destination", name)
+                        .tag("shard", String.valueOf(index))
+                        .register(this.meterRegistry);
+                Gauge
+                        .builder("cfe_16.output.flows", this, output -> output.destinations.flows(name, index))
+                        .description("Tokens with batches waiting in the fair queue")
+                        .tag("destination", name)
+                        .tag("shard", String.valueOf(index))
+                        .register(this.meterRegistry);
+            }
+        }
+        return new Shards(destination, List.copyOf(connections), List.copyOf(queues));
+    }
+
+    /**
+     * Shards of the default destination followed by the shards of the routed destinations, in the order of
+     * {@link RoutingTable#destinations()}.
+     */
+    private static final class Destinations {
+
+        private final RoutingTable routingTable;
+        private final List<Shards> shards;
+
+        /**
+         * Set replaced by these shards until it is stopped.
+         */
+        private volatile Destinations previous;
+
+        /**
+         * Set replacing these shards, set before they are sealed.
+         */
+        private volatile Destinations successor;
+
+        private Destinations(final RoutingTable routingTable, final List<Shards> shards) {
+            this.routingTable = routingTable;
+            this.shards = shards;
+            this.previous = null;
+            this.successor = null;
+        }
+
+        /**
+         * Waits until the batches of the token and channel on the previous set have been delivered or failed, so that a
+         * batch queued on these shards does not overtake them.
+         */
+        private void awaitPrevious(final String authenticationToken, final String channel) {
+            final Destinations previous = this.previous;
+            if (previous != null) {
+                for (final Shards shards : previous.shards) {
+                    final OutputBatch last = shards.lastBatchOf(authenticationToken, channel);
+                    if (last != null) {
+                        last.awaitSettled();
+                    }
+                }
+            }
+        }
+
+        private void seal(final Destinations successor) {
+            this.successor = successor;
+            for (final Shards shards : this.shards) {
+                shards.seal();
+            }
+        }
+
+        private Destination defaultDestination() {
+            return this.shards.get(0).destination;
+        }
+
+        /**
+         * Splits the messages of a request by destination, keeping their order.
+         */
+        private Map<Shards, Part> parts(
+                final String tokenName,
+                final List<HECRecord> records,
+                final List<SyslogMessage> syslogMessages
+        ) {
+            final Map<Shards, Part> parts = new LinkedHashMap<>();
+            if (this.routingTable.isEmpty()) {
+                parts.put(this.shards.get(0), new Part(records, syslogMessages));
+                return parts;
+            }
+            final RoutingTable.TokenRoutes routes = this.routingTable.routesOf(tokenName);
+            for (int i = 0; i < syslogMessages.size(); i++) {
+                final HECRecord record = records.get(i);
+                // the default destination is at -1 in the routing table and first in the shards
+                final int destination = routes.destinationOf(record.index(), record.sourceType()) + 1;
+                parts
+                        .computeIfAbsent(this.shards.get(destination), shards -> new Part())
+                        .add(record, syslogMessages.get(i));
+            }
+            if (parts.isEmpty()) {
+                // an empty batch is still queued on the default destination, like any other
+                parts.put(this.shards.get(0), new Part(records, syslogMessages));
+            }
+            return parts;
+        }
+
+        private void start() {
+            for (final Shards shards : this.shards) {
+                shards.start();
+            }
+        }
+
+        private void startConnecting() {
+            for (final Shards shards : this.shards) {
+                shards.startConnecting();
+            }
+        }
+
+        /**
+         * Drains the previous set as well while it is being replaced.
+         */
+        private boolean drain(final long deadlineNanos) throws InterruptedException {
+            final Destinations previous = this.previous;
+            boolean drained = previous == null || previous.drain(deadlineNanos);
+            for (final Shards shards : this.shards) {
+                drained &= shards.drain(deadlineNanos);
+            }
+            return drained;
+        }
+
+        /**
+         * Stops the previous set as well while it is being replaced.
+         */
+        private void stop() {
+            final Destinations previous = this.previous;
+            if (previous != null) {
+                previous.stop();
+            }
+            for (final Shards shards : this.shards) {
+                shards.stop();
+            }
+        }
+
+        private int queued() {
+            int queued = 0;
+            for (final Shards shards : this.shards) {
+                queued += shards.queued();
+            }
+            return queued;
+        }
+
+        private OutputState state() {
+            OutputState state = new OutputState();
+            for (final Shards shards : this.shards) {
+                state = state.plus(shards.state());
+            }
+            return state;
+        }
+
+        private int queued(final String destination, final int shard) {
+            for (final Shards shards : this.shards) {
+                if (shards.destination.name().equals(destination)) {
+                    return shards.queued(shard);
+                }
+            }
+            return 0;
+        }
+
+        private int flows(final String destination, final int shard) {
+            for (final Shards shards : this.shards) {
+                if (shards.destination.name().equals(destination)) {
+                    return shards.flows(shard);
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            final List<Destination> destinations = new ArrayList<>(this.shards.size());
+            for (final Shards shards : this.shards) {
+                destinations.add(shards.destination);
+            }
+            return destinations.toString();
+        }
+    }
+
+    /**
+     * Shards of one destination, the connection and the queue of a shard are at the same index.
+     */
+    private static final class Shards {
+
+        private final Destination destination;
+        private final List<OutputConnection> connections;
+        private final List<FairQueue> queues;
+
+        private Shards(
+                final Destination destination,
+                final List<OutputConnection> connections,
+                final List<FairQueue> queues
+        ) {
+            this.destination = destination;
+            this.connections = connections;
+            this.queues = queues;
+        }
+
+        private void start() {
+            for (int shard = 0; shard < this.queues.size(); shard++) {
+                this.connections.get(shard).autoConnect();
+                this.queues.get(shard).start();
+            }
+        }
+
+        /**
+         * Starts the dispatchers at once and connects on threads of their own. A dispatcher sending before its
+         * connection is up waits for the connect.
+         */
+        private void startConnecting() {
+            for (int shard = 0; shard < this.queues.size(); shard++) {
+                final OutputConnection connection = this.connections.get(shard);
+                final Thread connector = new Thread(() -> {
+                    try {
+                        connection.autoConnect();
+                    }
+                    catch (final IllegalStateException e) {
+                        LOGGER.debug("Output connection closed before it connected", e);
+                    }
+                }, "Output connector " + this.destination.name() + " " + shard);
+                connector.setDaemon(true);
+                connector.start();
+                this.queues.get(shard).start();
+            }
+        }
+
+        private OutputBatch queue(
+                final String authenticationToken,
+                final String channel,
+                final List<SyslogMessage> syslogMessages
+        ) {
+            return this.queues.get(shardOf(authenticationToken, channel)).queue(authenticationToken, syslogMessages);
+        }
+
+        private boolean drain(final long deadlineNanos) throws InterruptedException {
+            boolean drained = true;
+            for (final FairQueue queue : this.queues) {
+                drained &= queue.drain(deadlineNanos);
+            }
+            return drained;
+        }
+
+        private void seal() {
+            for (final FairQueue queue : this.queues) {
+                queue.seal();
+            }
+        }
+
+        private OutputBatch lastBatchOf(final String authenticationToken, final String channel) {
+            return this.queues.get(shardOf(authenticationToken, channel)).lastBatchOf(authenticationToken);
+        }
+
+        private void stop() {
+            for (final FairQueue queue : this.queues) {
+                queue.stop();
+            }
+            for (final OutputConnection connection : this.connections) {
+                connection.close();
+            }
+        }
+
+        private int shardOf(final String authenticationToken, final String channel) {
+            return Math.floorMod(Objects.hash(authenticationToken, channel), this.queues.size());
+        }
+
+        private int queued() {
+            int queued = 0;
+            for (final FairQueue queue : this.queues) {
+                queued += queue.getQueuedBatches();
+            }
+            return queued;
+        }
+
+        private OutputState state() {
+            OutputState state = new OutputState();
+            for (int shard = 0; shard < this.queues.size(); shard++) {
+                final int disconnected = this.connections.get(shard).isConnected() ? 0 : 1;
+                state = state.plus(new OutputState(1, disconnected, 0, 0, 0, 0)).plus(this.queues.get(shard).state());
+            }
+            return state;
+        }
+
+        private int queued(final int shard) {
+            return shard < this.queues.size() ? this.queues.get(shard).getQueuedBatches() : 0;
+        }
+
+        private int flows(final int shard) {
+            return shard < this.queues.size() ? this.queues.get(shard).getFlowCount() : 0;
+        }
+    }
+
+    /**
+     * Records of a request going to one destination with their messages.
+     */
+    private static final class Part {
+
+        private final List<HECRecord> records;
+        private final List<SyslogMessage> syslogMessages;
+
+        private Part() {
+            this(new ArrayList<>(), new ArrayList<>());
+        }
+
+        private Part(final List<HECRecord> records, final List<SyslogMessage> syslogMessages) {
+            this.records = records;
+            this.syslogMessages = syslogMessages;
+        }
+
+        private void add(final HECRecord record, final SyslogMessage syslogMessage) {
+            this.records.add(record);
+            this.syslogMessages.add(syslogMessage);
+        }
+
+        private void addAll(final Part part) {
+            this.records.addAll(part.records);
+            this.syslogMessages.addAll(part.syslogMessages);
+        }
+    }
+}
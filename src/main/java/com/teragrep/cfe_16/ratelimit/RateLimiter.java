@@ -0,0 +1,176 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.ratelimit;
+
+import com.teragrep.cfe_16.LifeCycle;
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.ServerIsBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+ * Limits events and bytes per second of each authentication token. Limits come
+ * from the TokenRegistry. Tokens without limits do not touch any shared state.
+ *
+ * Rates are indexed by the authentication token like sessions and are dropped
+ * by the cleaner once their buckets have refilled.
+ *
+ */
+@Component
+public class RateLimiter implements Runnable, LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimiter.class);
+
+    private final TokenRegistry tokenRegistry;
+    private final Configuration configuration;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Maps auth token string => rate.
+     */
+    private final Map<String, TokenRate> rates;
+
+    /**
+     * Cleans up idle rates.
+     */
+    private Thread cleanerThread;
+
+    @Autowired
+    public RateLimiter(
+            final TokenRegistry tokenRegistry,
+            final Configuration configuration,
+            final MeterRegistry meterRegistry
+    ) {
+        this.tokenRegistry = tokenRegistry;
+        this.configuration = configuration;
+        this.meterRegistry = meterRegistry;
+        this.rates = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    @PostConstruct
+    public void start() {
+        this.cleanerThread = new Thread(this, "Rate limit cleaner");
+        this.cleanerThread.setDaemon(true);
+        this.cleanerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (this.cleanerThread == null) {
+            return;
+        }
+        this.cleanerThread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(this.configuration.pollTime());
+            }
+            catch (InterruptedException e) {
+                break;
+            }
+            final long now = System.nanoTime();
+            this.rates.values().removeIf(rate -> rate.isIdle(now));
+        }
+    }
+
+    /**
+     * Admits a request of the token before its body is parsed.
+     *
+     * @param authenticationToken
+     * @param bytes               payload size in bytes
+     * @throws ServerIsBusyException if the token is over its limit
+     */
+    public void admit(final String authenticationToken, final long bytes) {
+        final TokenLimits limits = this.tokenRegistry.limitsOf(authenticationToken);
+        if (limits.isUnlimited()) {
+            return;
+        }
+        if (!rate(authenticationToken, limits).admit(bytes, System.nanoTime())) {
+            LOGGER.debug("Rate limit of <{}> exceeded", limits.name());
+            // rejections are expected under overload, skip the stack trace to keep them cheap
+            throw new ServerIsBusyException("Rate limit of " + limits.name() + " exceeded", null, false, false);
+        }
+    }
+
+    /**
+     * Charges the events of an admitted request to the token.
+     *
+     * @param authenticationToken
+     * @param events              number of events in the request
+     */
+    public void charge(final String authenticationToken, final long events) {
+        final TokenLimits limits = this.tokenRegistry.limitsOf(authenticationToken);
+        if (limits.isUnlimited()) {
+            return;
+        }
+        rate(authenticationToken, limits).charge(events, System.nanoTime());
+    }
+
+    private TokenRate rate(final String authenticationToken, final TokenLimits limits) {
+        final TokenRate rate = this.rates.get(authenticationToken);
+        if (rate != null && rate.limits().equals(limits)) {
+            return rate;
+        }
+        // limits changed on registry reload or the rate is new
+        return this.rates.compute(authenticationToken, (token, current) -> {
+            if (current != null && current.limits().equals(limits)) {
+                return current;
+            }
+            return new TokenRate(limits, this.meterRegistry);
+        });
+    }
+}
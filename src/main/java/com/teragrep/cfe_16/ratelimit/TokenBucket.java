@@ -0,0 +1,138 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Instead of a token count the bucket keeps the theoretical time at which it would be full
+ * again, so taking tokens is a single compare-and-set and refilling needs no background work. The bucket holds one
+ * second worth of tokens.
+ * <p>
+ * A bucket that is full admits any amount, so a single batch larger than the per second limit is not rejected forever.
+ * The bucket then goes into debt and rejects until the debt is paid back.
+ */
+public final class TokenBucket {
+
+    private static final long BURST_NANOS = 1_000_000_000L;
+
+    private final long perSecond;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(final long perSecond) {
+        this(perSecond, new AtomicLong(Long.MIN_VALUE));
+    }
+
+    private TokenBucket(final long perSecond, final AtomicLong fullAt) {
+        if (perSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket rate must be positive, got <" + perSecond + ">");
+        }
+        this.perSecond = perSecond;
+        this.fullAt = fullAt;
+    }
+
+    /**
+     * Takes the amount of tokens if the bucket has them or is full.
+     *
+     * @param amount tokens to take
+     * @param now    current {@link System#nanoTime()}
+     * @return true if the tokens were taken
+     */
+    public boolean tryTake(final long amount, final long now) {
+        final long cost = costNanos(amount);
+        while (true) {
+            final long current = this.fullAt.get();
+            final long start = Math.max(current, now);
+            if (current > now && start + cost - now > BURST_NANOS) {
+                return false;
+            }
+            if (this.fullAt.compareAndSet(current, start + cost)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes the amount of tokens regardless of what is left, used for charging usage that is known only afterwards.
+     *
+     * @param amount tokens to take
+     * @param now    current {@link System#nanoTime()}
+     */
+    public void take(final long amount, final long now) {
+        final long cost = costNanos(amount);
+        this.fullAt.getAndUpdate(current -> Math.max(current, now) + cost);
+    }
+
+    /**
+     * Returns true if the bucket is not in debt beyond its burst, meaning at least one token would be admitted.
+     *
+     * @param now current {@link System#nanoTime()}
+     * @return
+     */
+    public boolean hasTokens(final long now) {
+        final long current = this.fullAt.get();
+        return current <= now || current - now < BURST_NANOS;
+    }
+
+    /**
+     * Returns true if the bucket has refilled completely, in which case it behaves like a new bucket.
+     *
+     * @param now current {@link System#nanoTime()}
+     * @return
+     */
+    public boolean isFull(final long now) {
+        return this.fullAt.get() <= now;
+    }
+
+    public long perSecond() {
+        return this.perSecond;
+    }
+
+    private long costNanos(final long amount) {
+        // amount is bounded by request size, so the multiplication does not overflow
+        return amount * BURST_NANOS / this.perSecond;
+    }
+}
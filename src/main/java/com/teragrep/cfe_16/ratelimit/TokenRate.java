@@ -0,0 +1,139 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Event and byte buckets of one authentication token together with the meters of its name.
+ */
+public final class TokenRate {
+
+    private final TokenLimits limits;
+    private final TokenBucket eventBucket;
+    private final TokenBucket byteBucket;
+    private final Counter admittedEvents;
+    private final Counter admittedBytes;
+    private final Counter rejectedByEvents;
+    private final Counter rejectedByBytes;
+
+    public TokenRate(final TokenLimits limits, final MeterRegistry meterRegistry) {
+        this.limits = limits;
+        this.eventBucket = new TokenBucket(Math.max(1, limits.eventsPerSecond()));
+        this.byteBucket = new TokenBucket(Math.max(1, limits.bytesPerSecond()));
+        this.admittedEvents = Counter
+                .builder("cfe_16.ratelimit.admitted.events")
+                .description("Events admitted by the per token rate limit")
+                .tag("name", limits.name())
+                .register(meterRegistry);
+        this.admittedBytes = Counter
+                .builder("cfe_16.ratelimit.admitted.bytes")
+                .description("Payload bytes admitted by the per token rate limit")
+                .tag("name", limits.name())
+                .register(meterRegistry);
+        this.rejectedByEvents = Counter
+                .builder("cfe_16.ratelimit.rejected")
+                .description("Requests rejected by the per token rate limit")
+                .tag("name", limits.name())
+                .tag("limit", "events")
+                .register(meterRegistry);
+        this.rejectedByBytes = Counter
+                .builder("cfe_16.ratelimit.rejected")
+                .description("Requests rejected by the per token rate limit")
+                .tag("name", limits.name())
+                .tag("limit", "bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits a request of the given size. The event count is not known before the body is parsed, so only a bucket that
+     * is already in debt rejects here and the events are charged afterwards with {@link #charge(long, long)}.
+     *
+     * @param bytes payload size
+     * @param now   current {@link System#nanoTime()}
+     * @return true if the request is admitted
+     */
+    public boolean admit(final long bytes, final long now) {
+        if (this.limits.eventsPerSecond() > 0 && !this.eventBucket.hasTokens(now)) {
+            this.rejectedByEvents.increment();
+            return false;
+        }
+        if (this.limits.bytesPerSecond() > 0 && !this.byteBucket.tryTake(bytes, now)) {
+            this.rejectedByBytes.increment();
+            return false;
+        }
+        this.admittedBytes.increment(bytes);
+        return true;
+    }
+
+    /**
+     * Charges the events of an admitted request.
+     *
+     * @param events number of events parsed from the request
+     * @param now    current {@link System#nanoTime()}
+     */
+    public void charge(final long events, final long now) {
+        if (this.limits.eventsPerSecond() > 0) {
+            this.eventBucket.take(events, now);
+        }
+        this.admittedEvents.increment(events);
+    }
+
+    /**
+     * Returns true if both buckets have refilled, meaning that dropping this rate loses no state.
+     *
+     * @param now current {@link System#nanoTime()}
+     * @return
+     */
+    public boolean isIdle(final long now) {
+        return this.eventBucket.isFull(now) && this.byteBucket.isFull(now);
+    }
+
+    public TokenLimits limits() {
+        return this.limits;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.response;
+
+import com.teragrep.cfe_16.bo.HeaderInfo;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.ratelimit.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+
+/*
+ * Answers requests that failed with an error response carrying a
+ * correlation id, and writes the error to the technical log. Errors answered
+ * with a response of their own, like internal server errors, are logged
+ * through it as well so that they share the rate.
+ *
+ * A client sending a stream of malformed batches must not slow down the
+ * others, so the error path is kept cheap:
+ *
+ * - Correlation ids are random UUIDs drawn from ThreadLocalRandom instead of
+ *   the shared SecureRandom of UUID.randomUUID(). They only need to be unique
+ *   enough to find a log line, not unpredictable.
+ * - At most error.log.per.second errors are logged per second. The rest are
+ *   counted, and the count is logged with the next logged error. The log
+ *   context is built only for errors that are logged.
+ * - Errors caused by the client, like malformed JSON or form bodies, are
+ *   logged at WARN without the stack trace. Others keep the stack trace at ERROR.
+ *
+ */
+@Component
+public final class ErrorLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ErrorLog.class);
+
+    private final Configuration configuration;
+    private final Counter clientErrors;
+    private final Counter serverErrors;
+    private final Counter suppressedCounter;
+    private final AtomicLong suppressed;
+
+    /**
+     * Limits the logged errors, replaced when error.log.per.second changes.
+     */
+    private volatile TokenBucket bucket;
+
+    @Autowired
+    public ErrorLog(final Configuration configuration, final MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        this.clientErrors = Counter
+                .builder("cfe_16.errors")
+                .description("Requests answered with an error response")
+                .tag("kind", "client")
+                .register(meterRegistry);
+        this.serverErrors = Counter
+                .builder("cfe_16.errors")
+                .description("Requests answered with an error response")
+                .tag("kind", "server")
+                .register(meterRegistry);
+        this.suppressedCounter = Counter
+                .builder("cfe_16.errors.suppressed")
+                .description("Errors not logged as error.log.per.second was used up")
+                .register(meterRegistry);
+        this.suppressed = new AtomicLong();
+        this.bucket = null;
+    }
+
+    /**
+     * Logs the error of a request, unless over the rate, and returns the response to answer the request with.
+     *
+     * @param request   request that failed, read only if the error is logged
+     * @param throwable cause of the failure
+     * @return response with the correlation id of the error
+     */
+    public ExceptionJsonResponse report(final HttpServletRequest request, final Throwable throwable) {
+        return new ExceptionJsonResponse(log(request, throwable));
+    }
+
+    /**
+     * Logs the error of a request that is answered with a response of its own, unless over the rate.
+     *
+     * @param request   request that failed, read only if the error is logged
+     * @param throwable cause of the failure
+     * @return correlation id of the error
+     */
+    public UUID log(final HttpServletRequest request, final Throwable throwable) {
+        final UUID uuid = correlationId();
+        final boolean clientError = isClientError(throwable);
+        if (clientError) {
+            this.clientErrors.increment();
+        }
+        else {
+            this.serverErrors.increment();
+        }
+        if (permits()) {
+            final long suppressedSince = this.suppressed.getAndSet(0);
+            if (suppressedSince > 0) {
+                LOGGER.warn("Suppressed <{}> error log lines over error.log.per.second", suppressedSince);
+            }
+            final ExceptionEventContext context = new ExceptionEventContext(
+                    new HeaderInfo(request),
+                    request.getHeader("user-agent"),
+                    request.getRequestURI(),
+                    request.getRemoteHost()
+            );
+            final ExceptionEvent event = new ExceptionEvent(context, uuid, throwable);
+            if (clientError) {
+                event.logClientError();
+            }
+            else {
+                event.logException();
+            }
+        }
+        else {
+            this.suppressed.incrementAndGet();
+            this.suppressedCounter.increment();
+        }
+        return uuid;
+    }
+
+    /**
+     * Version 4 UUID from {@link ThreadLocalRandom}, which is neither contended nor blocking.
+     */
+    private UUID correlationId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        final long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    private boolean isClientError(final Throwable throwable) {
+        return throwable instanceof JacksonException || throwable instanceof IllegalStateException
+                || throwable instanceof IllegalArgumentException;
+    }
+
+    private boolean permits() {
+        final long perSecond = this.configuration.errorLogPerSecond();
+        if (perSecond <= 0) {
+            return true;
+        }
+        TokenBucket current = this.bucket;
+        if (current == null || current.perSecond() != perSecond) {
+            // a race here only resets the limit once
+            current = new TokenBucket(perSecond);
+            this.bucket = current;
+        }
+        return current.tryTake(1, System.nanoTime());
+    }
+}
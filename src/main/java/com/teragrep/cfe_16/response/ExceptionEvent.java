@@ -75,6 +75,17 @@ public final class ExceptionEvent {
                 );
     }
 
+    /**
+     * Logs an error caused by the client, such as a malformed body, without the stack trace.
+     */
+    public void logClientError() {
+        LOGGER
+                .warn(
+                        "Rejected request <[{}]> correlation id <{}>: {}", exceptionEventContext, uuid,
+                        String.valueOf(throwable)
+                );
+    }
+
     public UUID uuid() {
         return uuid;
     }
@@ -49,15 +49,23 @@ import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
 import tools.jackson.databind.node.ObjectNode;
 import java.util.Objects;
+import java.util.UUID;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 public final class ExceptionJsonResponse implements Response {
 
-    private final ExceptionEvent exceptionEvent;
+    private final UUID uuid;
 
     public ExceptionJsonResponse(final ExceptionEvent exceptionEvent) {
-        this.exceptionEvent = exceptionEvent;
+        this(exceptionEvent.uuid());
+    }
+
+    /**
+     * @param uuid correlation id of the error in the technical log
+     */
+    public ExceptionJsonResponse(final UUID uuid) {
+        this.uuid = uuid;
     }
 
     public ResponseEntity<JsonNode> asJsonNodeResponseEntity() {
@@ -68,7 +76,7 @@ public final class ExceptionJsonResponse implements Response {
                         "message",
                         "An error occurred while processing your Request. See event id in the technical log for details."
                 )
-                .put("id", exceptionEvent.uuid().toString());
+                .put("id", uuid.toString());
 
         return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(jsonNode);
     }
@@ -80,11 +88,11 @@ public final class ExceptionJsonResponse implements Response {
         }
 
         final ExceptionJsonResponse that = (ExceptionJsonResponse) o;
-        return Objects.equals(exceptionEvent, that.exceptionEvent);
+        return Objects.equals(uuid, that.uuid);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(exceptionEvent);
+        return Objects.hashCode(uuid);
     }
 }
@@ -45,17 +45,16 @@
  */
 package com.teragrep.cfe_16.rest;
 
+import com.teragrep.cfe_16.BytesEventPayload;
+import com.teragrep.cfe_16.FormUrlencodedRequest;
 import com.teragrep.cfe_16.MultiValueMapRequest;
-import com.teragrep.cfe_16.bo.HeaderInfo;
-import com.teragrep.cfe_16.response.ExceptionEvent;
-import com.teragrep.cfe_16.response.ExceptionEventContext;
-import com.teragrep.cfe_16.response.ExceptionJsonResponse;
+import com.teragrep.cfe_16.response.ErrorLog;
 import com.teragrep.cfe_16.response.JsonResponse;
-import java.util.UUID;
+import java.io.IOException;
+import java.io.InputStream;
 import tools.jackson.core.JacksonException;
 import tools.jackson.databind.JsonNode;
 import tools.jackson.databind.ObjectMapper;
-import com.teragrep.cfe_16.config.Configuration;
 import com.teragrep.cfe_16.response.Response;
 import com.teragrep.cfe_16.service.HECService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -75,9 +74,8 @@ public class HECRestController {
     private final ObjectMapper objectMapper = new ObjectMapper();
     @Autowired
     private HECService service;
-
     @Autowired
-    private Configuration configuration;
+    private ErrorLog errorLog;
 
     @RequestMapping(
             value = "services/collector",
@@ -85,39 +83,15 @@ public class HECRestController {
             consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<JsonNode> sendEvents(
-            final HttpServletRequest request,
-            @RequestBody final MultiValueMap<String, String> body,
-            @RequestParam(required = false) final String channel
-    ) {
+    public ResponseEntity<JsonNode> sendEvents(final HttpServletRequest request) throws IOException {
         ResponseEntity<JsonNode> responseEntity;
+        final FormUrlencodedRequest form = formOf(request);
         try {
-            final MultiValueMapRequest eventInJson = new MultiValueMapRequest(body);
-            final long t1 = System.nanoTime();
-            final Response response = service.sendEvents(request, channel, eventInJson.asCleanedJsonString());
-            final long t2 = System.nanoTime();
-            final long dt = t2 - t1;
-            final double us = (double) dt / 1000.0;
-            if (this.configuration.printTimes()) {
-                LOGGER.info("sendEvents took <{}> nanoseconds, that is <{}> microseconds", dt, us);
-            }
+            final Response response = service.sendEvents(request, channelOf(request, form), form.asEventPayload());
             responseEntity = response.asJsonNodeResponseEntity();
         }
         catch (final IllegalStateException illegalStateException) {
-            final HeaderInfo headerInfo = new HeaderInfo(request);
-            final ExceptionEventContext exceptionEventContext = new ExceptionEventContext(
-                    headerInfo,
-                    request.getHeader("user-agent"),
-                    request.getRequestURI(),
-                    request.getRemoteHost()
-            );
-            final ExceptionEvent event = new ExceptionEvent(
-                    exceptionEventContext,
-                    UUID.randomUUID(),
-                    illegalStateException
-            );
-            event.logException();
-            final Response response = new ExceptionJsonResponse(event);
+            final Response response = errorLog.report(request, illegalStateException);
             responseEntity = response.asJsonNodeResponseEntity();
         }
 
@@ -132,20 +106,31 @@ public class HECRestController {
     )
     public ResponseEntity<JsonNode> sendEvents(
             HttpServletRequest request,
-            @RequestBody String eventInJson,
+            @RequestBody byte[] eventInJson,
             @RequestParam(required = false) String channel
     ) {
-        long t1 = System.nanoTime();
-        final Response response = service.sendEvents(request, channel, eventInJson);
-        long t2 = System.nanoTime();
-        long dt = t2 - t1;
-        double us = (double) dt / 1000.0;
-        if (this.configuration.printTimes()) {
-            LOGGER.info("sendEvents took <{}> nanoseconds, that is <{}> microseconds", dt, us);
-        }
+        final Response response = service.sendEvents(request, channel, new BytesEventPayload(eventInJson));
         return response.asJsonNodeResponseEntity();
     }
 
+    /**
+     * Reads the body of a form-encoded event request. The body must be read before any request parameter is asked for,
+     * otherwise the servlet container parses all of it into its parameter map.
+     */
+    private FormUrlencodedRequest formOf(final HttpServletRequest request) throws IOException {
+        try (final InputStream in = request.getInputStream()) {
+            return new FormUrlencodedRequest(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Channel from the query string, or from the body when the query string has none.
+     */
+    private String channelOf(final HttpServletRequest request, final FormUrlencodedRequest form) {
+        final String channel = request.getParameter("channel");
+        return channel != null ? channel : form.channel();
+    }
+
     // @LogAnnotation(type = LogType.METRIC_DURATION)
     @RequestMapping(
             value = "services/collector/ack",
@@ -160,14 +145,7 @@ public class HECRestController {
             @RequestParam(required = false) String channel
     ) {
 
-        long t1 = System.nanoTime();
         final Response response = service.getAcks(request, channel, requestedAcksInJson);
-        long t2 = System.nanoTime();
-        long dt = t2 - t1;
-        double us = (double) dt / 1000.0;
-        if (this.configuration.printTimes()) {
-            LOGGER.info("getAcks took <{}> nanoseconds, that is <{}> microseconds", dt, us);
-        }
         return response.asJsonNodeResponseEntity();
     }
 
@@ -191,27 +169,11 @@ public class HECRestController {
             final JsonNode requestedAcksInJson = objectMapper
                     .readValue(multiValueMapRequest.asCleanedJsonString(), JsonNode.class);
 
-            final long t1 = System.nanoTime();
             final Response response = service.getAcks(request, channel, requestedAcksInJson);
-            final long t2 = System.nanoTime();
-            final long dt = t2 - t1;
-            final double us = (double) dt / 1000.0;
-            if (this.configuration.printTimes()) {
-                LOGGER.info("getAcks took <{}> nanoseconds, that is <{}> microseconds", dt, us);
-            }
             responseEntity = new JsonResponse(response.toString()).asJsonNodeResponseEntity();
         }
         catch (final IllegalStateException | JacksonException exception) {
-            final HeaderInfo headerInfo = new HeaderInfo(request);
-            final ExceptionEventContext exceptionEventContext = new ExceptionEventContext(
-                    headerInfo,
-                    request.getHeader("user-agent"),
-                    request.getRequestURI(),
-                    request.getRemoteHost()
-            );
-            final ExceptionEvent event = new ExceptionEvent(exceptionEventContext, UUID.randomUUID(), exception);
-            event.logException();
-            final Response response = new ExceptionJsonResponse(event);
+            final Response response = errorLog.report(request, exception);
             responseEntity = response.asJsonNodeResponseEntity();
         }
 
@@ -223,21 +185,10 @@ public class HECRestController {
             method = RequestMethod.POST,
             consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE
     )
-    public ResponseEntity<JsonNode> sendEventsWithFormatOption(
-            final HttpServletRequest request,
-            @RequestBody final MultiValueMap<String, String> body,
-            @RequestParam(required = false) final String channel
-    ) {
-        final MultiValueMapRequest multiValueMapRequest = new MultiValueMapRequest(body);
+    public ResponseEntity<JsonNode> sendEventsWithFormatOption(final HttpServletRequest request) throws IOException {
+        final FormUrlencodedRequest form = formOf(request);
 
-        long t1 = System.nanoTime();
-        final Response response = service.sendEvents(request, channel, multiValueMapRequest.asCleanedJsonString());
-        long t2 = System.nanoTime();
-        long dt = t2 - t1;
-        double us = (double) dt / 1000.0;
-        if (this.configuration.printTimes()) {
-            LOGGER.info("sendEvents took <{}> nanoseconds, that is <{}> microseconds", dt, us);
-        }
+        final Response response = service.sendEvents(request, channelOf(request, form), form.asEventPayload());
         return response.asJsonNodeResponseEntity();
     }
 
@@ -248,20 +199,13 @@ public class HECRestController {
     )
     public ResponseEntity<JsonNode> sendEventsWithFormatOption(
             HttpServletRequest request,
-            @RequestBody String eventInJson,
+            @RequestBody byte[] eventInJson,
             @RequestParam(required = false) String channel
     ) {
         // FIXME: Fix implementation to known standards
         // This endpoint works identically to services/collector but introduces a format
         // option for future scalability.
-        long t1 = System.nanoTime();
-        final Response response = service.sendEvents(request, channel, eventInJson);
-        long t2 = System.nanoTime();
-        long dt = t2 - t1;
-        double us = (double) dt / 1000.0;
-        if (this.configuration.printTimes()) {
-            LOGGER.info("sendEvents took <{}> nanoseconds, that is <{}> microseconds", dt, us);
-        }
+        final Response response = service.sendEvents(request, channel, new BytesEventPayload(eventInJson));
         return response.asJsonNodeResponseEntity();
     }
 
@@ -269,35 +213,26 @@ public class HECRestController {
     @PostMapping("services/collector/event/1.0")
     public ResponseEntity<JsonNode> sendEventsWithProtocolVersion(
             HttpServletRequest request,
-            @RequestBody String eventInJson,
+            @RequestBody byte[] eventInJson,
             @RequestParam(required = false) String channel
     ) {
         // FIXME: Fix implementation to known standards
         // This endpoint works identically to services/collector/event but introduces a
         // protocol version for future scalability
-        long t1 = System.nanoTime();
-        final Response response = service.sendEvents(request, channel, eventInJson);
-        long t2 = System.nanoTime();
-        long dt = t2 - t1;
-        double us = (double) dt / 1000.0;
-        if (this.configuration.printTimes()) {
-            LOGGER.info("sendEvents took <{}¦ nanoseconds, that is <{}> microseconds", dt, us);
-        }
+        final Response response = service.sendEvents(request, channel, new BytesEventPayload(eventInJson));
         return response.asJsonNodeResponseEntity();
     }
 
     // @LogAnnotation(type = LogType.METRIC_DURATION)
     @GetMapping("services/collector/health")
-    public ResponseEntity<String> getHealth(HttpServletRequest request) {
-        // FIXME: Fix implementation to known standards
-        return service.healthCheck(request);
+    public ResponseEntity<JsonNode> getHealth(HttpServletRequest request) {
+        return service.healthCheck(request).asJsonNodeResponseEntity();
     }
 
     // @LogAnnotation(type = LogType.METRIC_DURATION)
     @GetMapping("services/collector/health/1.0")
-    public String getHealthWithProtocolVersion() {
-        // TODO: Implement endpoint
-        return null;
+    public ResponseEntity<JsonNode> getHealthWithProtocolVersion(HttpServletRequest request) {
+        return service.healthCheck(request).asJsonNodeResponseEntity();
     }
 
     // @LogAnnotation(type = LogType.METRIC_DURATION)
@@ -45,10 +45,10 @@
  */
 package com.teragrep.cfe_16.service;
 
+import com.teragrep.cfe_16.EventPayload;
 import tools.jackson.databind.JsonNode;
 import com.teragrep.cfe_16.response.Response;
 import jakarta.servlet.http.HttpServletRequest;
-import org.springframework.http.ResponseEntity;
 
 /**
  * An interface that specified the REST back end API.
@@ -65,6 +65,16 @@ public interface HECService {
      */
     public Response sendEvents(HttpServletRequest request, String channel, String eventInJson);
 
+    /**
+     * Returns the JSON object as a response of given HTTP event request with an already decoded payload.
+     *
+     * @param request
+     * @param channel
+     * @param eventPayload
+     * @return
+     */
+    public Response sendEvents(HttpServletRequest request, String channel, EventPayload eventPayload);
+
     /**
      * @param request
      * @param channel
@@ -74,10 +84,10 @@ public interface HECService {
     public Response getAcks(HttpServletRequest request, String channel, JsonNode requestedAcksInJson);
 
     /**
-     * Ping.
+     * Health of the node, unavailable when it should not be sent more events.
      * 
      * @param request
      * @return
      */
-    public ResponseEntity<String> healthCheck(HttpServletRequest request);
+    public Response healthCheck(HttpServletRequest request);
 }
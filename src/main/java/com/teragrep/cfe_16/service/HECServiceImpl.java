@@ -45,36 +45,49 @@
  */
 package com.teragrep.cfe_16.service;
 
-import com.teragrep.cfe_16.connection.RelpConnection;
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.bo.HECRecord;
+import com.teragrep.cfe_16.health.HealthResponse;
+import com.teragrep.cfe_16.health.PipelineHealth;
+import com.teragrep.cfe_16.idempotency.IdempotencyCache;
+import com.teragrep.cfe_16.jfr.HECBatchParseEvent;
+import com.teragrep.cfe_16.jfr.HECRecordEncodeEvent;
+import com.teragrep.cfe_16.output.ShardedOutput;
+import com.teragrep.cfe_16.ratelimit.RateLimiter;
 import com.teragrep.cfe_16.response.AcknowledgementResponse;
+import com.teragrep.cfe_16.sharedstate.SharedState;
 import tools.jackson.core.exc.StreamReadException;
 import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ObjectNode;
 import com.teragrep.cfe_16.*;
 import com.teragrep.cfe_16.bo.Ack;
-import com.teragrep.cfe_16.bo.HeaderInfo;
+import com.teragrep.cfe_16.bo.RequestContext;
 import com.teragrep.cfe_16.bo.Session;
 import com.teragrep.cfe_16.bo.XForwardedForStub;
 import com.teragrep.cfe_16.bo.XForwardedHostStub;
 import com.teragrep.cfe_16.bo.XForwardedProtoStub;
-import com.teragrep.cfe_16.exceptionhandling.AuthenticationTokenMissingException;
 import com.teragrep.cfe_16.exceptionhandling.ChannelNotFoundException;
 import com.teragrep.cfe_16.exceptionhandling.ChannelNotProvidedException;
 import com.teragrep.cfe_16.exceptionhandling.InternalServerErrorException;
+import com.teragrep.cfe_16.exceptionhandling.ServerIsBusyException;
 import com.teragrep.cfe_16.exceptionhandling.SessionNotFoundException;
 import com.teragrep.cfe_16.response.AcknowledgedJsonResponse;
-import com.teragrep.cfe_16.response.ExceptionEvent;
-import com.teragrep.cfe_16.response.ExceptionEventContext;
-import com.teragrep.cfe_16.response.ExceptionJsonResponse;
+import com.teragrep.cfe_16.response.ErrorLog;
 import com.teragrep.cfe_16.response.JsonResponse;
 import com.teragrep.cfe_16.response.Response;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 /**
@@ -84,30 +97,63 @@ import org.springframework.stereotype.Service;
 public final class HECServiceImpl implements HECService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HECServiceImpl.class);
+
+    /**
+     * Header carrying the client chosen key of a send, repeats of the key are answered without sending again.
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final Acknowledgements acknowledgements;
     private final SessionManager sessionManager;
     private final TokenManager tokenManager;
-    private final RelpConnection relpConnection;
+    private final RateLimiter rateLimiter;
+    private final IdempotencyCache idempotencyCache;
+    private final BatchProcessor batchProcessor;
+    private final ShardedOutput output;
+    private final GracefulShutdown gracefulShutdown;
+    private final PipelineHealth pipelineHealth;
+    private final ErrorLog errorLog;
+    private final SharedState sharedState;
 
     private final XForwardedForStub xForwardedForStub;
     private final XForwardedHostStub xForwardedHostStub;
     private final XForwardedProtoStub xForwardedProtoStub;
 
+    private final Timer parseTimer;
+    private final DistributionSummary batchEventsSummary;
+    private final Timer encodeTimer;
+
     @Autowired
     public HECServiceImpl(
             final Acknowledgements acknowledgements,
             final SessionManager sessionManager,
             final TokenManager tokenManager,
-            final RelpConnection relpConnection
+            final RateLimiter rateLimiter,
+            final IdempotencyCache idempotencyCache,
+            final BatchProcessor batchProcessor,
+            final ShardedOutput output,
+            final GracefulShutdown gracefulShutdown,
+            final PipelineHealth pipelineHealth,
+            final ErrorLog errorLog,
+            final SharedState sharedState,
+            final MeterRegistry meterRegistry
     ) {
         this(
                 acknowledgements,
                 sessionManager,
                 tokenManager,
-                relpConnection,
+                rateLimiter,
+                idempotencyCache,
+                batchProcessor,
+                output,
+                gracefulShutdown,
+                pipelineHealth,
+                errorLog,
+                sharedState,
                 new XForwardedForStub(),
                 new XForwardedHostStub(),
-                new XForwardedProtoStub()
+                new XForwardedProtoStub(),
+                meterRegistry
         );
     }
 
@@ -115,39 +161,89 @@ public final class HECServiceImpl implements HECService {
             final Acknowledgements acknowledgements,
             final SessionManager sessionManager,
             final TokenManager tokenManager,
-            final RelpConnection relpConnection,
+            final RateLimiter rateLimiter,
+            final IdempotencyCache idempotencyCache,
+            final BatchProcessor batchProcessor,
+            final ShardedOutput output,
+            final GracefulShutdown gracefulShutdown,
+            final PipelineHealth pipelineHealth,
+            final ErrorLog errorLog,
+            final SharedState sharedState,
             final XForwardedForStub xForwardedForStub,
             final XForwardedHostStub xForwardedHostStub,
-            final XForwardedProtoStub xForwardedProtoStub
+            final XForwardedProtoStub xForwardedProtoStub,
+            final MeterRegistry meterRegistry
     ) {
         this.acknowledgements = acknowledgements;
         this.sessionManager = sessionManager;
         this.tokenManager = tokenManager;
-        this.relpConnection = relpConnection;
+        this.rateLimiter = rateLimiter;
+        this.idempotencyCache = idempotencyCache;
+        this.batchProcessor = batchProcessor;
+        this.output = output;
+        this.gracefulShutdown = gracefulShutdown;
+        this.pipelineHealth = pipelineHealth;
+        this.errorLog = errorLog;
+        this.sharedState = sharedState;
         this.xForwardedForStub = xForwardedForStub;
         this.xForwardedHostStub = xForwardedHostStub;
         this.xForwardedProtoStub = xForwardedProtoStub;
+        this.parseTimer = Timer
+                .builder("cfe_16.batch.parse")
+                .description("Time spent parsing a HEC batch into records")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchEventsSummary = DistributionSummary
+                .builder("cfe_16.batch.events")
+                .description("Events in a single HEC batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.encodeTimer = Timer
+                .builder("cfe_16.batch.encode")
+                .description("Time spent encoding HEC records of a batch into syslog messages")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
     public Response sendEvents(HttpServletRequest request, String channel, String eventInJson) {
-        LOGGER.debug("Sending events to channel <{}>", channel);
-        if (this.tokenManager.tokenIsMissing(request)) {
-            throw new AuthenticationTokenMissingException("Authentication token must be provided");
-        }
-
-        String authHeader = request.getHeader("Authorization");
-        LOGGER.debug("Creating new Header Info");
+        return sendEvents(request, channel, new StringEventPayload(eventInJson));
+    }
 
-        String authToken;
-        if (tokenManager.isTokenInBasic(authHeader)) {
-            LOGGER.debug("Token was provided via Basic");
-            authToken = this.tokenManager.getTokenFromBasic(authHeader);
+    @Override
+    public Response sendEvents(HttpServletRequest request, String channel, EventPayload eventPayload) {
+        if (!this.gracefulShutdown.enter()) {
+            throw new ServerIsBusyException("Draining for shutdown", null, false, false);
         }
-        else {
-            LOGGER.debug("Token was provided via header");
-            authToken = authHeader;
+        try {
+            return acceptEvents(request, channel, eventPayload);
         }
+        finally {
+            this.gracefulShutdown.exit();
+        }
+    }
+
+    private Response acceptEvents(HttpServletRequest request, String channel, EventPayload eventPayload) {
+        LOGGER.debug("Sending events to channel <{}>", channel);
+        // unknown tokens are rejected before any session or ack state is allocated
+        final String authToken = this.tokenManager.authenticatedToken(request);
+        // repeats of a key are answered before they count against the rate limit
+        final String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        return this.idempotencyCache
+                .respond(
+                        authToken, idempotencyKey,
+                        () -> acceptAuthenticatedEvents(request, authToken, channel, eventPayload)
+                );
+    }
+
+    private Response acceptAuthenticatedEvents(
+            HttpServletRequest request,
+            String authToken,
+            String channel,
+            EventPayload eventPayload
+    ) {
+        // over limit requests are rejected before the body is parsed
+        this.rateLimiter.admit(authToken, eventPayload.byteLength());
 
         // if there is no channel, we'll use the default channel
         if (channel == null) {
@@ -155,16 +251,27 @@ public final class HECServiceImpl implements HECService {
             LOGGER.debug("Channel was not provided, using <{}>", channel);
         }
 
+        // read from the request only here, the batch workers get the captured context
+        final RequestContext context = new RequestContext(request, authToken, channel);
+
         Session session = this.sessionManager.getOrCreateSession(authToken);
 
         // if the channel is not in the session, let's add the channel into it
         if (!session.doesChannelExist(channel)) {
             LOGGER.debug("Adding channel <{}>", channel);
             session.addChannel(channel);
+            if (this.sharedState.isEnabled()) {
+                this.sharedState.addChannel(authToken, channel);
+            }
+        }
+        else if (this.sharedState.isEnabled()) {
+            this.sharedState.touchChannel(authToken, channel);
         }
 
         acknowledgements.initializeContext(authToken, channel);
-        final int ackId = acknowledgements.getCurrentAckValue(authToken, channel);
+        // with shared state the ids come from blocks taken from the store, so that nodes do not reuse them
+        final int ackId = this.sharedState.isEnabled() ? this.sharedState
+                .nextAckId(authToken, channel) : acknowledgements.getCurrentAckValue(authToken, channel);
         final boolean incremented = acknowledgements.incrementAckValue(authToken, channel);
         if (!incremented) {
             throw new InternalServerErrorException("Ack value couldn't be incremented.");
@@ -175,13 +282,34 @@ public final class HECServiceImpl implements HECService {
             throw new InternalServerErrorException("Ack ID " + ackId + " couldn't be added to the Ack set.");
         }
 
-        final HeaderInfo headerInfo = new HeaderInfo(request);
-
         Response responseToReturn;
 
         try {
-            this.relpConnection
-                    .sendMessages(new SyslogBatch(new HECBatch(authToken, channel, eventInJson, headerInfo).toHECRecordList()).asSyslogMessages());
+            final HECBatchParseEvent parseEvent = new HECBatchParseEvent(channel, eventPayload.length());
+            parseEvent.begin();
+            final long parseStart = System.nanoTime();
+            final List<HECRecord> hecRecords = this.batchProcessor.toHECRecordList(context, eventPayload);
+            this.parseTimer.record(System.nanoTime() - parseStart, TimeUnit.NANOSECONDS);
+            parseEvent.end();
+            if (parseEvent.shouldCommit()) {
+                parseEvent.setEventCount(hecRecords.size());
+                parseEvent.commit();
+            }
+            this.batchEventsSummary.record(hecRecords.size());
+            this.rateLimiter.charge(authToken, hecRecords.size());
+
+            final HECRecordEncodeEvent encodeEvent = new HECRecordEncodeEvent(
+                    channel,
+                    eventPayload.length(),
+                    hecRecords.size()
+            );
+            encodeEvent.begin();
+            final long encodeStart = System.nanoTime();
+            final List<SyslogMessage> syslogMessages = this.batchProcessor.asSyslogMessages(context, hecRecords);
+            this.encodeTimer.record(System.nanoTime() - encodeStart, TimeUnit.NANOSECONDS);
+            encodeEvent.commit();
+
+            this.output.send(authToken, channel, hecRecords, syslogMessages);
 
             final boolean shouldAck = !channel.equals(Session.DEFAULT_CHANNEL);
 
@@ -191,6 +319,9 @@ public final class HECServiceImpl implements HECService {
                     throw new InternalServerErrorException("Ack ID " + ackId + " not Acked.");
                 }
                 else {
+                    if (this.sharedState.isEnabled()) {
+                        this.sharedState.acknowledge(authToken, channel, ackId);
+                    }
                     responseToReturn = new AcknowledgedJsonResponse("Success", ackId);
                 }
             }
@@ -198,16 +329,9 @@ public final class HECServiceImpl implements HECService {
                 responseToReturn = new JsonResponse("Success");
             }
         }
-        catch (final StreamReadException | IOException e) {
-            final ExceptionEventContext exceptionEventContext = new ExceptionEventContext(
-                    headerInfo,
-                    request.getHeader("user-agent"),
-                    request.getRequestURI(),
-                    request.getRemoteHost()
-            );
-            final ExceptionEvent event = new ExceptionEvent(exceptionEventContext, UUID.randomUUID(), e);
-            event.logException();
-            responseToReturn = new ExceptionJsonResponse(event);
+        catch (final StreamReadException | IOException | IllegalArgumentException e) {
+            // an event the output rejects is a client error, the request is not acknowledged
+            responseToReturn = this.errorLog.report(request, e);
         }
 
         return responseToReturn;
@@ -223,21 +347,7 @@ public final class HECServiceImpl implements HECService {
 
         // filter out error cases
         // authentication header is required always
-        if (this.tokenManager.tokenIsMissing(request)) {
-            throw new AuthenticationTokenMissingException("Authentication token must be provided");
-        }
-
-        String authHeader = request.getHeader("Authorization");
-
-        String authToken;
-        if (tokenManager.isTokenInBasic(authHeader)) {
-            LOGGER.debug("Token was provided via Basic");
-            authToken = this.tokenManager.getTokenFromBasic(authHeader);
-        }
-        else {
-            LOGGER.debug("Token was provided via header");
-            authToken = authHeader;
-        }
+        final String authToken = this.tokenManager.authenticatedToken(request);
 
         // channel is required
         if (channel == null) {
@@ -246,6 +356,14 @@ public final class HECServiceImpl implements HECService {
 
         // session is also required
         Session session = this.sessionManager.getSession(authToken);
+        if (session == null || !session.doesChannelExist(channel)) {
+            // the events may have been sent to another node
+            if (this.sharedState.isEnabled() && this.sharedState.hasChannel(authToken, channel)) {
+                session = this.sessionManager.getOrCreateSession(authToken);
+                session.addChannel(channel);
+                this.acknowledgements.initializeContext(authToken, channel);
+            }
+        }
         if (session == null) {
             throw new SessionNotFoundException("Session not found for auth token " + authToken);
         }
@@ -256,16 +374,49 @@ public final class HECServiceImpl implements HECService {
         }
         session.touch();
 
-        final JsonNode requestedAckStatuses = this.acknowledgements
+        JsonNode requestedAckStatuses = this.acknowledgements
                 .getRequestedAckStatuses(authToken, channel, requestedAcksInJson);
+        if (this.sharedState.isEnabled() && requestedAckStatuses instanceof ObjectNode) {
+            this.sharedState.touchChannel(authToken, channel);
+            requestedAckStatuses = sharedAckStatuses(authToken, channel, (ObjectNode) requestedAckStatuses);
+        }
         return new AcknowledgementResponse(requestedAckStatuses);
     }
 
+    /**
+     * Sets the acks acknowledged in other nodes, and drops the acknowledged acks from the shared state as they are now
+     * polled.
+     */
+    private JsonNode sharedAckStatuses(
+            final String authToken,
+            final String channel,
+            final ObjectNode requestedAckStatuses
+    ) {
+        final List<Integer> unacknowledged = new ArrayList<>();
+        final List<Integer> acknowledged = new ArrayList<>();
+        for (final Map.Entry<String, JsonNode> ackStatus : requestedAckStatuses.properties()) {
+            final int ackId = Integer.parseInt(ackStatus.getKey());
+            if (ackStatus.getValue().asBoolean()) {
+                acknowledged.add(ackId);
+            }
+            else {
+                unacknowledged.add(ackId);
+            }
+        }
+        for (final int ackId : this.sharedState.acknowledged(authToken, channel, unacknowledged)) {
+            requestedAckStatuses.put(String.valueOf(ackId), true);
+            acknowledged.add(ackId);
+        }
+        this.sharedState.forget(authToken, channel, acknowledged);
+        return requestedAckStatuses;
+    }
+
     @Override
-    public ResponseEntity<String> healthCheck(HttpServletRequest request) {
-        if (this.tokenManager.tokenIsMissing(request)) {
-            return new ResponseEntity<String>("Invalid HEC token", HttpStatus.BAD_REQUEST);
+    public Response healthCheck(HttpServletRequest request) {
+        final HealthResponse health = this.pipelineHealth.health();
+        if (health.isHealthy() && this.tokenManager.tokenIsMissing(request)) {
+            return new HealthResponse(HttpStatus.BAD_REQUEST, "Invalid HEC token", 2);
         }
-        return new ResponseEntity<String>("HEC is available and accepting input", HttpStatus.OK);
+        return health;
     }
 }
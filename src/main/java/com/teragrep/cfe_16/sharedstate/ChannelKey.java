@@ -0,0 +1,91 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.sharedstate;
+
+import java.util.Objects;
+
+/**
+ * Channel of an authentication token, the key of shared session and ack state.
+ */
+public final class ChannelKey {
+
+    private final String authenticationToken;
+    private final String channel;
+
+    public ChannelKey(final String authenticationToken, final String channel) {
+        this.authenticationToken = authenticationToken;
+        this.channel = channel;
+    }
+
+    public String authenticationToken() {
+        return this.authenticationToken;
+    }
+
+    public String channel() {
+        return this.channel;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ChannelKey that = (ChannelKey) o;
+        return Objects.equals(this.authenticationToken, that.authenticationToken)
+                && Objects.equals(this.channel, that.channel);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.authenticationToken, this.channel);
+    }
+
+    @Override
+    public String toString() {
+        // the token is left out so that it does not end up in logs
+        return "ChannelKey{channel=" + this.channel + "}";
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.sharedstate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * State store in a database reached with JDBC, such as H2 or PostgreSQL. The tables are created on the first connection
+ * if they do not exist. Upserts use the standard MERGE statement and are sent as one JDBC batch. Rows are keyed by a
+ * SHA-256 hash of the authentication token, so the database does not hold the tokens.
+ * <p>
+ * Connections are pooled, at most poolSize of them, so that the batched writes of the flusher do not hold up the reads
+ * of the requests. Waiting for a free connection, logging in and each statement are limited to the timeout, after which
+ * the call fails. The login timeout is given to the driver as the loginTimeout connection property, which drivers such
+ * as PostgreSQL's read. A connection that fails is closed and a new one opened on a later call.
+ */
+public final class JdbcStateStore implements StateStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcStateStore.class);
+
+    private static final String CREATE_CHANNELS = "CREATE TABLE IF NOT EXISTS cfe_16_channel ("
+            + "token_hash VARCHAR(64) NOT NULL, channel VARCHAR(512) NOT NULL, next_ack_id INT NOT NULL, "
+            + "touched BIGINT NOT NULL, PRIMARY KEY (token_hash, channel))";
+    private static final String CREATE_ACKS = "CREATE TABLE IF NOT EXISTS cfe_16_ack ("
+            + "token_hash VARCHAR(64) NOT NULL, channel VARCHAR(512) NOT NULL, ack_id INT NOT NULL, "
+            + "touched BIGINT NOT NULL, PRIMARY KEY (token_hash, channel, ack_id))";
+    private static final String MERGE_CHANNEL = "MERGE INTO cfe_16_channel t USING (VALUES ("
+            + "CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(512)), CAST(? AS BIGINT))) s (token_hash, channel, touched) "
+            + "ON t.token_hash = s.token_hash AND t.channel = s.channel "
+            + "WHEN MATCHED THEN UPDATE SET touched = s.touched "
+            + "WHEN NOT MATCHED THEN INSERT (token_hash, channel, next_ack_id, touched) "
+            + "VALUES (s.token_hash, s.channel, 0, s.touched)";
+    private static final String MERGE_ACK = "MERGE INTO cfe_16_ack t USING (VALUES ("
+            + "CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(512)), CAST(? AS INT), CAST(? AS BIGINT))) "
+            + "s (token_hash, channel, ack_id, touched) "
+            + "ON t.token_hash = s.token_hash AND t.channel = s.channel AND t.ack_id = s.ack_id "
+            + "WHEN MATCHED THEN UPDATE SET touched = s.touched "
+            + "WHEN NOT MATCHED THEN INSERT (token_hash, channel, ack_id, touched) "
+            + "VALUES (s.token_hash, s.channel, s.ack_id, s.touched)";
+    private static final String SELECT_CHANNEL = "SELECT 1 FROM cfe_16_channel WHERE token_hash = ? AND channel = ?";
+    private static final String SELECT_NEXT_ACK_ID = "SELECT next_ack_id FROM cfe_16_channel "
+            + "WHERE token_hash = ? AND channel = ? FOR UPDATE";
+    private static final String INSERT_CHANNEL = "INSERT INTO cfe_16_channel "
+            + "(token_hash, channel, next_ack_id, touched) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_NEXT_ACK_ID = "UPDATE cfe_16_channel SET next_ack_id = ? "
+            + "WHERE token_hash = ? AND channel = ?";
+    private static final String SELECT_ACKS = "SELECT ack_id FROM cfe_16_ack WHERE token_hash = ? AND channel = ?";
+    private static final String DELETE_ACK = "DELETE FROM cfe_16_ack "
+            + "WHERE token_hash = ? AND channel = ? AND ack_id = ?";
+    private static final String EXPIRE_CHANNELS = "DELETE FROM cfe_16_channel WHERE touched < ?";
+    private static final String EXPIRE_ACKS = "DELETE FROM cfe_16_ack WHERE touched < ?";
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final long timeout;
+
+    /**
+     * Connections not in use, the most recently used first.
+     */
+    private final ConcurrentLinkedDeque<Connection> idle;
+
+    /**
+     * One permit per connection that may be in use.
+     */
+    private final Semaphore permits;
+
+    private volatile boolean closed;
+
+    public JdbcStateStore(final String url, final String user, final String password) {
+        this(url, user, password, 1000, 4);
+    }
+
+    /**
+     * @param timeout  milliseconds to wait for a connection, to log in and for each statement
+     * @param poolSize maximum number of connections
+     */
+    public JdbcStateStore(
+            final String url,
+            final String user,
+            final String password,
+            final long timeout,
+            final int poolSize
+    ) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.timeout = timeout;
+        this.idle = new ConcurrentLinkedDeque<>();
+        this.permits = new Semaphore(Math.max(1, poolSize));
+        this.closed = false;
+    }
+
+    @Override
+    public void putChannels(final Map<ChannelKey, Long> channels) throws SQLException {
+        call(connection -> {
+            try (final PreparedStatement statement = prepare(connection, MERGE_CHANNEL)) {
+                for (final Map.Entry<ChannelKey, Long> channel : channels.entrySet()) {
+                    statement.setString(1, tokenHash(channel.getKey().authenticationToken()));
+                    statement.setString(2, channel.getKey().channel());
+                    statement.setLong(3, channel.getValue());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean hasChannel(final ChannelKey channelKey) throws SQLException {
+        return call(connection -> {
+            try (final PreparedStatement statement = prepare(connection, SELECT_CHANNEL)) {
+                statement.setString(1, tokenHash(channelKey.authenticationToken()));
+                statement.setString(2, channelKey.channel());
+                try (final ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next();
+                }
+            }
+        });
+    }
+
+    /**
+     * Leases in a transaction of its own, which is run again once if a node added the same channel at the same time, as
+     * the channel is then found and updated.
+     */
+    @Override
+    public int leaseAckIds(final ChannelKey channelKey, final int count, final int maxAckValue) throws SQLException {
+        return call(connection -> {
+            int first;
+            try {
+                first = leaseInTransaction(connection, channelKey, count, maxAckValue);
+            }
+            catch (final SQLException e) {
+                if (!isIntegrityViolation(e)) {
+                    throw e;
+                }
+                LOGGER.debug("Channel was added by another node during the lease, leasing again");
+                first = leaseInTransaction(connection, channelKey, count, maxAckValue);
+            }
+            return first;
+        });
+    }
+
+    private int leaseInTransaction(
+            final Connection connection,
+            final ChannelKey channelKey,
+            final int count,
+            final int maxAckValue
+    ) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            final int first = leaseAckIds(connection, channelKey, count, maxAckValue);
+            connection.commit();
+            return first;
+        }
+        catch (final SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+        finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * SQLSTATE class 23 is an integrity constraint violation, here the duplicate key of a channel inserted twice.
+     */
+    private boolean isIntegrityViolation(final SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    private int leaseAckIds(
+            final Connection connection,
+            final ChannelKey channelKey,
+            final int count,
+            final int maxAckValue
+    ) throws SQLException {
+        Integer next = null;
+        try (final PreparedStatement select = prepare(connection, SELECT_NEXT_ACK_ID)) {
+            select.setString(1, tokenHash(channelKey.authenticationToken()));
+            select.setString(2, channelKey.channel());
+            try (final ResultSet resultSet = select.executeQuery()) {
+                if (resultSet.next()) {
+                    next = resultSet.getInt(1);
+                }
+            }
+        }
+        int first = next == null ? 0 : next;
+        if ((long) first + count - 1 > maxAckValue) {
+            first = 0;
+        }
+        if (next == null) {
+            // a node adding the same channel at the same time fails the insert, and the lease is run again
+            try (final PreparedStatement insert = prepare(connection, INSERT_CHANNEL)) {
+                insert.setString(1, tokenHash(channelKey.authenticationToken()));
+                insert.setString(2, channelKey.channel());
+                insert.setInt(3, first + count);
+                insert.setLong(4, System.currentTimeMillis());
+                insert.executeUpdate();
+            }
+        }
+        else {
+            try (final PreparedStatement update = prepare(connection, UPDATE_NEXT_ACK_ID)) {
+                update.setInt(1, first + count);
+                update.setString(2, tokenHash(channelKey.authenticationToken()));
+                update.setString(3, channelKey.channel());
+                update.executeUpdate();
+            }
+        }
+        return first;
+    }
+
+    @Override
+    public void putAcks(final Map<ChannelAck, Long> acks) throws SQLException {
+        call(connection -> {
+            try (final PreparedStatement statement = prepare(connection, MERGE_ACK)) {
+                for (final Map.Entry<ChannelAck, Long> ack : acks.entrySet()) {
+                    statement.setString(1, tokenHash(ack.getKey().channelKey().authenticationToken()));
+                    statement.setString(2, ack.getKey().channelKey().channel());
+                    statement.setInt(3, ack.getKey().ackId());
+                    statement.setLong(4, ack.getValue());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Set<Integer> acknowledged(final ChannelKey channelKey, final Collection<Integer> ackIds)
+            throws SQLException {
+        final Set<Integer> acknowledged = new HashSet<>();
+        if (ackIds.isEmpty()) {
+            return acknowledged;
+        }
+        return call(connection -> {
+            try (final PreparedStatement statement = prepare(connection, SELECT_ACKS)) {
+                // the acks of a channel are few as they are deleted once polled, so all of them are read
+                statement.setString(1, tokenHash(channelKey.authenticationToken()));
+                statement.setString(2, channelKey.channel());
+                try (final ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        final int ackId = resultSet.getInt(1);
+                        if (ackIds.contains(ackId)) {
+                            acknowledged.add(ackId);
+                        }
+                    }
+                }
+            }
+            return acknowledged;
+        });
+    }
+
+    @Override
+    public void deleteAcks(final Collection<ChannelAck> acks) throws SQLException {
+        call(connection -> {
+            try (final PreparedStatement statement = prepare(connection, DELETE_ACK)) {
+                for (final ChannelAck ack : acks) {
+                    statement.setString(1, tokenHash(ack.channelKey().authenticationToken()));
+                    statement.setString(2, ack.channelKey().channel());
+                    statement.setInt(3, ack.ackId());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void expire(final long channelsUsedBefore, final long acksUsedBefore) throws SQLException {
+        call(connection -> {
+            try (final PreparedStatement channels = prepare(connection, EXPIRE_CHANNELS)) {
+                channels.setLong(1, channelsUsedBefore);
+                channels.executeUpdate();
+            }
+            try (final PreparedStatement acks = prepare(connection, EXPIRE_ACKS)) {
+                acks.setLong(1, acksUsedBefore);
+                acks.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Closes the idle connections, the ones in use are closed when their call ends.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        Connection connection;
+        while ((connection = this.idle.poll()) != null) {
+            discard(connection);
+        }
+    }
+
+    @Override
+    public boolean isStub() {
+        return false;
+    }
+
+    /**
+     * Runs the work with a connection of the pool. A connection the work fails with is closed instead of returned.
+     *
+     * @throws SQLTransientConnectionException if no connection is free within the timeout or the store is closed
+     */
+    private <T> T call(final Work<T> work) throws SQLException {
+        final Connection connection = borrow();
+        boolean failed = true;
+        try {
+            final T result = work.run(connection);
+            failed = false;
+            return result;
+        }
+        finally {
+            if (failed || this.closed) {
+                discard(connection);
+            }
+            else {
+                this.idle.push(connection);
+            }
+            this.permits.release();
+        }
+    }
+
+    private Connection borrow() throws SQLException {
+        try {
+            if (!this.permits.tryAcquire(this.timeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "No shared state store connection free within " + this.timeout + " ms"
+                );
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException(
+                    "Interrupted while waiting for a shared state store connection",
+                    e
+            );
+        }
+        try {
+            if (this.closed) {
+                throw new SQLTransientConnectionException("Shared state store is closed");
+            }
+            final Connection connection = this.idle.poll();
+            return connection != null ? connection : connect();
+        }
+        catch (final SQLException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        LOGGER.debug("Connecting to shared state store");
+        final Properties properties = new Properties();
+        if (this.user != null) {
+            properties.setProperty("user", this.user);
+        }
+        if (this.password != null) {
+            properties.setProperty("password", this.password);
+        }
+        // per connection, DriverManager.setLoginTimeout would change the timeout of every driver in the JVM
+        properties.setProperty("loginTimeout", String.valueOf(seconds()));
+        final Connection connection = DriverManager.getConnection(this.url, properties);
+        try (final Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(seconds());
+            statement.execute(CREATE_CHANNELS);
+            statement.execute(CREATE_ACKS);
+        }
+        catch (final SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private PreparedStatement prepare(final Connection connection, final String sql) throws SQLException {
+        final PreparedStatement statement = connection.prepareStatement(sql);
+        try {
+            statement.setQueryTimeout(seconds());
+        }
+        catch (final SQLException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    /**
+     * JDBC takes timeouts in whole seconds, zero meaning none.
+     */
+    private int seconds() {
+        return (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(this.timeout + 999));
+    }
+
+    private void discard(final Connection connection) {
+        try {
+            connection.close();
+        }
+        catch (final SQLException e) {
+            LOGGER.debug("Failed to close shared state store connection", e);
+        }
+    }
+
+    /**
+     * @return hexadecimal SHA-256 hash of the authentication token
+     */
+    static String tokenHash(final String authenticationToken) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        return HexFormat.of().formatHex(digest.digest(authenticationToken.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Store calls made with a connection.
+     */
+    @FunctionalInterface
+    private interface Work<T> {
+
+        T run(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.sharedstate;
+
+import com.teragrep.cfe_16.LifeCycle;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.ServerIsBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+ * Ack and session state shared between the nodes of a cluster, so that an ack
+ * poll may land on any node. Enabled by shared.state.jdbc.url, without it the
+ * state stays in the SessionManager and Acknowledgements of each node.
+ *
+ * Writes are kept in this node and flushed to the store in batches every
+ * shared.state.flush.interval milliseconds, except the first use of a channel
+ * which is written at once so that a poll right after the send finds it.
+ * Channels read from the store are cached for shared.state.read.ttl
+ * milliseconds. Ack ids are taken from the store in blocks of
+ * shared.state.ack.block ids per channel, so the ids of a channel are unique
+ * across the nodes but not consecutive.
+ *
+ * Only acknowledged acks are stored, and they are deleted once polled.
+ *
+ * Store calls give up after shared.state.jdbc.timeout milliseconds, so that an
+ * unreachable store does not hold the request threads. A send that needs ack
+ * ids or a poll that needs the channel then fails as busy.
+ *
+ */
+@Component
+public class SharedState implements Runnable, LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedState.class);
+
+    private final Configuration configuration;
+    private final StateStore store;
+
+    /**
+     * Channels with the epoch milliseconds they were used at, not yet in the store.
+     */
+    private final Map<ChannelKey, Long> pendingChannels;
+
+    /**
+     * Acknowledged acks with the epoch milliseconds they were acknowledged at, not yet in the store.
+     */
+    private final Map<ChannelAck, Long> pendingAcks;
+
+    /**
+     * Polled acks not yet deleted from the store.
+     */
+    private final Set<ChannelAck> pendingDeletes;
+
+    /**
+     * Channels known to be in the store with the epoch milliseconds they were known at.
+     */
+    private final Map<ChannelKey, Long> knownChannels;
+
+    private final Map<ChannelKey, AckBlock> ackBlocks;
+
+    private final Timer flushTimer;
+    private final Counter storeFailures;
+
+    /**
+     * Flushes the pending writes.
+     */
+    private Thread flusherThread;
+
+    @Autowired
+    public SharedState(final Configuration configuration, final MeterRegistry meterRegistry) {
+        this(configuration, storeOf(configuration), meterRegistry);
+    }
+
+    public SharedState(final Configuration configuration, final StateStore store, final MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        this.store = store;
+        this.pendingChannels = new ConcurrentHashMap<>();
+        this.pendingAcks = new ConcurrentHashMap<>();
+        this.pendingDeletes = ConcurrentHashMap.newKeySet();
+        this.knownChannels = new ConcurrentHashMap<>();
+        this.ackBlocks = new ConcurrentHashMap<>();
+        this.flushTimer = Timer
+                .builder("cfe_16.shared.state.flush")
+                .description("Time spent writing pending shared state changes to the store")
+                .register(meterRegistry);
+        this.storeFailures = Counter
+                .builder("cfe_16.shared.state.failures")
+                .description("Shared state store calls that failed")
+                .register(meterRegistry);
+        Gauge
+                .builder("cfe_16.shared.state.pending", this, SharedState::pendingCount)
+                .description("Shared state changes waiting to be written to the store")
+                .register(meterRegistry);
+    }
+
+    private static StateStore storeOf(final Configuration configuration) {
+        final String url = configuration.sharedStateJdbcUrl();
+        if (url == null || url.isEmpty()) {
+            return new StateStoreStub();
+        }
+        return new JdbcStateStore(
+                url,
+                configuration.sharedStateJdbcUser(),
+                configuration.sharedStateJdbcPassword(),
+                configuration.sharedStateJdbcTimeout(),
+                configuration.sharedStateJdbcPoolSize()
+        );
+    }
+
+    public boolean isEnabled() {
+        return !this.store.isStub();
+    }
+
+    @Override
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        this.flusherThread = new Thread(this, "Shared state flusher");
+        this.flusherThread.setDaemon(true);
+        this.flusherThread.start();
+    }
+
+    @Override
+    public void stop() {
+        if (this.flusherThread == null) {
+            return;
+        }
+        this.flusherThread.interrupt();
+        try {
+            this.flusherThread.join(this.configuration.sharedStateFlushInterval() * 10);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // the acks of the drained sends are written before the store closes
+        flush();
+        this.store.close();
+    }
+
+    @Override
+    public void run() {
+        long lastExpired = System.currentTimeMillis();
+        while (true) {
+            try {
+                Thread.sleep(this.configuration.sharedStateFlushInterval());
+            }
+            catch (final InterruptedException e) {
+                break;
+            }
+            flush();
+            final long now = System.currentTimeMillis();
+            if (now - lastExpired >= this.configuration.pollTime()) {
+                expire(now);
+                lastExpired = now;
+            }
+        }
+    }
+
+    /**
+     * Writes a channel used for the first time in this node to the store at once, so that other nodes can answer its
+     * ack polls. If the store fails, the channel is written with the next flush.
+     */
+    public void addChannel(final String authenticationToken, final String channel) {
+        final ChannelKey channelKey = new ChannelKey(authenticationToken, channel);
+        final long now = System.currentTimeMillis();
+        try {
+            this.store.putChannels(Map.of(channelKey, now));
+            this.knownChannels.put(channelKey, now);
+        }
+        catch (final SQLException e) {
+            this.storeFailures.increment();
+            LOGGER.warn("Failed to add channel <{}> to shared state store: <{}>", channel, e.getMessage());
+            this.pendingChannels.put(channelKey, now);
+        }
+    }
+
+    /**
+     * Marks the channel used, written to the store with the next flush.
+     */
+    public void touchChannel(final String authenticationToken, final String channel) {
+        this.pendingChannels.put(new ChannelKey(authenticationToken, channel), System.currentTimeMillis());
+    }
+
+    /**
+     * Tells if the channel was used in any node and has not expired. Channels found are trusted for
+     * shared.state.read.ttl milliseconds without reading the store again.
+     *
+     * @throws ServerIsBusyException if the store could not be read
+     */
+    public boolean hasChannel(final String authenticationToken, final String channel) {
+        final ChannelKey channelKey = new ChannelKey(authenticationToken, channel);
+        if (this.pendingChannels.containsKey(channelKey)) {
+            return true;
+        }
+        final long now = System.currentTimeMillis();
+        final Long knownAt = this.knownChannels.get(channelKey);
+        if (knownAt != null && now - knownAt < this.configuration.sharedStateReadTtl()) {
+            return true;
+        }
+        try {
+            if (this.store.hasChannel(channelKey)) {
+                this.knownChannels.put(channelKey, now);
+                return true;
+            }
+            this.knownChannels.remove(channelKey);
+            return false;
+        }
+        catch (final SQLException e) {
+            this.storeFailures.increment();
+            LOGGER.warn("Failed to read channel <{}> from shared state store: <{}>", channel, e.getMessage());
+            throw new ServerIsBusyException("Shared state store is not available", null, false, false);
+        }
+    }
+
+    /**
+     * Next ack id of the channel that no other node uses.
+     *
+     * @throws ServerIsBusyException if no ids could be taken from the store
+     */
+    public int nextAckId(final String authenticationToken, final String channel) {
+        final ChannelKey channelKey = new ChannelKey(authenticationToken, channel);
+        final AckBlock ackBlock = this.ackBlocks.computeIfAbsent(channelKey, key -> new AckBlock());
+        ackBlock.lock.lock();
+        try {
+            if (ackBlock.next >= ackBlock.end) {
+                final int maxAckValue = this.configuration.maxAckValue();
+                final int count = Math.max(1, Math.min(this.configuration.sharedStateAckBlock(), maxAckValue + 1));
+                final int first = this.store.leaseAckIds(channelKey, count, maxAckValue);
+                ackBlock.next = first;
+                ackBlock.end = first + count;
+            }
+            return ackBlock.next++;
+        }
+        catch (final SQLException e) {
+            this.storeFailures.increment();
+            LOGGER
+                    .warn(
+                            "Failed to take ack ids of channel <{}> from shared state store: <{}>", channel,
+                            e.getMessage()
+                    );
+            throw new ServerIsBusyException("Shared state store is not available", null, false, false);
+        }
+        finally {
+            ackBlock.lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the ack acknowledged, written to the store with the next flush.
+     */
+    public void acknowledge(final String authenticationToken, final String channel, final int ackId) {
+        this.pendingAcks
+                .put(new ChannelAck(new ChannelKey(authenticationToken, channel), ackId), System.currentTimeMillis());
+    }
+
+    /**
+     * Reads which of the acks were acknowledged in any node.
+     *
+     * @return the acknowledged ids among the given ones, only the ones of this node if the store could not be read
+     */
+    public Set<Integer> acknowledged(
+            final String authenticationToken,
+            final String channel,
+            final Collection<Integer> ackIds
+    ) {
+        final ChannelKey channelKey = new ChannelKey(authenticationToken, channel);
+        final Set<Integer> acknowledged = new HashSet<>();
+        final Set<Integer> unknown = new HashSet<>();
+        for (final Integer ackId : ackIds) {
+            if (this.pendingAcks.containsKey(new ChannelAck(channelKey, ackId))) {
+                acknowledged.add(ackId);
+            }
+            else {
+                unknown.add(ackId);
+            }
+        }
+        try {
+            acknowledged.addAll(this.store.acknowledged(channelKey, unknown));
+        }
+        catch (final SQLException e) {
+            this.storeFailures.increment();
+            // the acks polled from this node are already forgotten locally, so they are answered anyway
+            LOGGER.warn("Failed to read acks of channel <{}> from shared state store: <{}>", channel, e.getMessage());
+        }
+        return acknowledged;
+    }
+
+    /**
+     * Drops polled acks, deleted from the store with the next flush.
+     */
+    public void forget(final String authenticationToken, final String channel, final Collection<Integer> ackIds) {
+        final ChannelKey channelKey = new ChannelKey(authenticationToken, channel);
+        for (final Integer ackId : ackIds) {
+            final ChannelAck channelAck = new ChannelAck(channelKey, ackId);
+            this.pendingAcks.remove(channelAck);
+            this.pendingDeletes.add(channelAck);
+        }
+    }
+
+    /**
+     * Writes the pending changes to the store. Changes that fail are kept and written with the next flush.
+     */
+    void flush() {
+        final long start = System.nanoTime();
+        try {
+            if (!this.pendingChannels.isEmpty()) {
+                final Map<ChannelKey, Long> channels = new HashMap<>(this.pendingChannels);
+                this.store.putChannels(channels);
+                // entries touched again meanwhile stay pending
+                channels.forEach(this.pendingChannels::remove);
+                final long now = System.currentTimeMillis();
+                channels.keySet().forEach(channelKey -> this.knownChannels.put(channelKey, now));
+            }
+            if (!this.pendingAcks.isEmpty()) {
+                final Map<ChannelAck, Long> acks = new HashMap<>(this.pendingAcks);
+                this.store.putAcks(acks);
+                acks.forEach(this.pendingAcks::remove);
+            }
+            if (!this.pendingDeletes.isEmpty()) {
+                final Set<ChannelAck> deletes = new HashSet<>(this.pendingDeletes);
+                this.store.deleteAcks(deletes);
+                this.pendingDeletes.removeAll(deletes);
+            }
+        }
+        catch (final SQLException e) {
+            this.storeFailures.increment();
+            LOGGER.warn("Failed to write to shared state store, retrying later: <{}>", e.getMessage());
+        }
+        finally {
+            this.flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void expire(final long now) {
+        try {
+            this.store.expire(now - this.configuration.maxSessionAge(), now - this.configuration.maxAckAge());
+        }
+        catch (final SQLException e) {
+            this.storeFailures.increment();
+            LOGGER.warn("Failed to expire shared state: <{}>", e.getMessage());
+        }
+        final long ttl = this.configuration.sharedStateReadTtl();
+        this.knownChannels.values().removeIf(knownAt -> now - knownAt >= ttl);
+        this.ackBlocks.keySet().removeIf(channelKey -> !this.knownChannels.containsKey(channelKey));
+    }
+
+    private int pendingCount() {
+        return this.pendingChannels.size() + this.pendingAcks.size() + this.pendingDeletes.size();
+    }
+
+    /**
+     * Ack ids of a channel taken from the store and not yet used.
+     */
+    private static final class AckBlock {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private int next;
+        private int end;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.sharedstate;
+
+import com.teragrep.cfe_16.Stubable;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Store of the channels and the acknowledged acks that all nodes see. Only acknowledged acks are stored, an ack that is
+ * not found is not acknowledged yet.
+ */
+public interface StateStore extends Stubable, AutoCloseable {
+
+    /**
+     * Adds the channels or updates the time they were last used at.
+     *
+     * @param channels channels with the epoch milliseconds they were last used at
+     */
+    public abstract void putChannels(Map<ChannelKey, Long> channels) throws SQLException;
+
+    public abstract boolean hasChannel(ChannelKey channelKey) throws SQLException;
+
+    /**
+     * Takes ack ids of a channel for this node, no other node gets them until the ids wrap around.
+     *
+     * @param count       number of ids to take
+     * @param maxAckValue highest ack id, the ids start again from zero after it
+     * @return first of count consecutive ids
+     */
+    public abstract int leaseAckIds(ChannelKey channelKey, int count, int maxAckValue) throws SQLException;
+
+    /**
+     * Adds acknowledged acks.
+     *
+     * @param acks acks with the epoch milliseconds they were acknowledged at
+     */
+    public abstract void putAcks(Map<ChannelAck, Long> acks) throws SQLException;
+
+    /**
+     * @return the ids among the given ones that are acknowledged
+     */
+    public abstract Set<Integer> acknowledged(ChannelKey channelKey, Collection<Integer> ackIds) throws SQLException;
+
+    public abstract void deleteAcks(Collection<ChannelAck> acks) throws SQLException;
+
+    /**
+     * Removes channels and acks not used since the given epoch milliseconds.
+     */
+    public abstract void expire(long channelsUsedBefore, long acksUsedBefore) throws SQLException;
+
+    @Override
+    public abstract void close();
+}
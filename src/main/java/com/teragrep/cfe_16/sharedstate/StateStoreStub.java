@@ -0,0 +1,101 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.sharedstate;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Store of a node that keeps its state to itself.
+ */
+public final class StateStoreStub implements StateStore {
+
+    @Override
+    public void putChannels(final Map<ChannelKey, Long> channels) {
+        throw new UnsupportedOperationException("StateStoreStub does not support this method");
+    }
+
+    @Override
+    public boolean hasChannel(final ChannelKey channelKey) {
+        throw new UnsupportedOperationException("StateStoreStub does not support this method");
+    }
+
+    @Override
+    public int leaseAckIds(final ChannelKey channelKey, final int count, final int maxAckValue) {
+        throw new UnsupportedOperationException("StateStoreStub does not support this method");
+    }
+
+    @Override
+    public void putAcks(final Map<ChannelAck, Long> acks) {
+        throw new UnsupportedOperationException("StateStoreStub does not support this method");
+    }
+
+    @Override
+    public Set<Integer> acknowledged(final ChannelKey channelKey, final Collection<Integer> ackIds) {
+        throw new UnsupportedOperationException("StateStoreStub does not support this method");
+    }
+
+    @Override
+    public void deleteAcks(final Collection<ChannelAck> acks) {
+        throw new UnsupportedOperationException("StateStoreStub does not support this method");
+    }
+
+    @Override
+    public void expire(final long channelsUsedBefore, final long acksUsedBefore) {
+        throw new UnsupportedOperationException("StateStoreStub does not support this method");
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+
+    @Override
+    public boolean isStub() {
+        return true;
+    }
+}
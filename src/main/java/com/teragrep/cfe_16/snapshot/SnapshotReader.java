@@ -0,0 +1,107 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.snapshot;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the fields written by a {@link SnapshotWriter}.
+ */
+public final class SnapshotReader {
+
+    /**
+     * Longest string accepted, so that a corrupted length fails the read instead of allocating the heap away.
+     */
+    private static final int MAX_STRING_BYTES = 1024 * 1024;
+
+    private final DataInputStream in;
+
+    public SnapshotReader(final InputStream in) {
+        this(new DataInputStream(in));
+    }
+
+    public SnapshotReader(final DataInputStream in) {
+        this.in = in;
+    }
+
+    public int readInt() throws IOException {
+        return this.in.readInt();
+    }
+
+    /**
+     * Reads a count of the entries that follow.
+     *
+     * @throws IOException if the count is negative
+     */
+    public int readCount() throws IOException {
+        final int count = this.in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid count " + count + " in snapshot");
+        }
+        return count;
+    }
+
+    public long readLong() throws IOException {
+        return this.in.readLong();
+    }
+
+    public boolean readBoolean() throws IOException {
+        return this.in.readBoolean();
+    }
+
+    public String readString() throws IOException {
+        final int length = this.in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Invalid string length " + length + " in snapshot");
+        }
+        final byte[] bytes = new byte[length];
+        this.in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.snapshot;
+
+import com.teragrep.cfe_16.Acknowledgements;
+import com.teragrep.cfe_16.LifeCycle;
+import com.teragrep.cfe_16.SessionManager;
+import com.teragrep.cfe_16.config.Configuration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/*
+ * Saves the ack and session state to state.snapshot.file every
+ * state.snapshot.interval milliseconds and on shutdown, and restores it on
+ * startup before requests are served. A restarted node then answers the ack
+ * polls of the sends it acknowledged before the restart, so clients do not
+ * send them again.
+ *
+ * The snapshot is written to a temporary file, forced to storage and renamed
+ * over the previous one, so a crash while writing leaves the previous
+ * snapshot in place. Acks and sessions that expired while the node was down
+ * are not restored.
+ *
+ * The snapshot holds the authentication tokens of the sessions, as they are
+ * needed to restore them. On file systems with POSIX permissions the file is
+ * created readable and writable by its owner only, whatever the umask.
+ *
+ */
+@Component
+public class StateSnapshots implements Runnable, LifeCycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StateSnapshots.class);
+
+    private static final int MAGIC = 0xCFE16A5C;
+    private static final int VERSION = 1;
+
+    private final Configuration configuration;
+    private final Acknowledgements acknowledgements;
+    private final SessionManager sessionManager;
+    private final Timer writeTimer;
+    private final Counter failures;
+
+    /**
+     * Writes the snapshots.
+     */
+    private Thread writerThread;
+
+    @Autowired
+    public StateSnapshots(
+            final Configuration configuration,
+            final Acknowledgements acknowledgements,
+            final SessionManager sessionManager,
+            final MeterRegistry meterRegistry
+    ) {
+        this.configuration = configuration;
+        this.acknowledgements = acknowledgements;
+        this.sessionManager = sessionManager;
+        this.writeTimer = Timer
+                .builder("cfe_16.snapshot.write")
+                .description("Time spent writing a snapshot of the ack and session state")
+                .register(meterRegistry);
+        this.failures = Counter
+                .builder("cfe_16.snapshot.failures")
+                .description("Snapshots of the ack and session state that failed to be written or read")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        final String file = this.configuration.stateSnapshotFile();
+        return file != null && !file.isEmpty();
+    }
+
+    @Override
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        restore();
+        this.writerThread = new Thread(this, "State snapshot writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Stops the periodic snapshots and writes the last one, to be called once the in-flight requests are done.
+     */
+    @Override
+    public void stop() {
+        if (this.writerThread == null) {
+            return;
+        }
+        this.writerThread.interrupt();
+        try {
+            this.writerThread.join();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(Math.max(1, this.configuration.stateSnapshotInterval()));
+            }
+            catch (final InterruptedException e) {
+                break;
+            }
+            write();
+        }
+    }
+
+    /**
+     * Writes a snapshot, failures are logged and counted.
+     */
+    void write() {
+        final Path file = Paths.get(this.configuration.stateSnapshotFile());
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        final long start = System.nanoTime();
+        try {
+            // permissions are only set when the file is created, a leftover of a failed write is replaced
+            Files.deleteIfExists(temporary);
+            final Set<StandardOpenOption> options = Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try (final FileChannel channel = FileChannel.open(temporary, options, ownerOnly(temporary))) {
+                final SnapshotWriter out = new SnapshotWriter(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 65536)
+                );
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                this.sessionManager.writeSnapshot(out);
+                this.acknowledgements.writeSnapshot(out);
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        catch (final IOException e) {
+            this.failures.increment();
+            LOGGER.warn("Failed to write state snapshot <{}>: <{}>", file, e.getMessage());
+        }
+    }
+
+    private static FileAttribute<?>[] ownerOnly(final Path file) {
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[] {
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))
+            };
+        }
+        return new FileAttribute<?>[0];
+    }
+
+    /**
+     * Restores the snapshot if there is one. A snapshot that can not be read, also partly, is logged and the node
+     * starts without state, as it would without a snapshot.
+     */
+    void restore() {
+        final Path file = Paths.get(this.configuration.stateSnapshotFile());
+        final long start = System.nanoTime();
+        try (final InputStream fileIn = new BufferedInputStream(Files.newInputStream(file), 65536)) {
+            final SnapshotReader in = new SnapshotReader(fileIn);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a state snapshot");
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported state snapshot version " + version);
+            }
+            final long takenAt = in.readLong();
+            // nothing is applied before the whole snapshot is read
+            final SnapshotRestore sessionRestore = this.sessionManager.readSnapshot(in);
+            final SnapshotRestore ackRestore = this.acknowledgements.readSnapshot(in);
+            final long sessions = sessionRestore.apply();
+            final long acks = ackRestore.apply();
+            LOGGER
+                    .info(
+                            "Restored <{}> sessions and <{}> acks from a state snapshot taken <{}> ms ago in <{}> ms",
+                            sessions, acks, System.currentTimeMillis() - takenAt,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                    );
+        }
+        catch (final NoSuchFileException e) {
+            LOGGER.info("No state snapshot <{}> to restore", file);
+        }
+        catch (final IOException e) {
+            this.failures.increment();
+            LOGGER.warn("Failed to restore state snapshot <{}>: <{}>", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.bo.HECRecord;
+import com.teragrep.cfe_16.bo.HeaderInfo;
+import com.teragrep.cfe_16.bo.RequestContext;
+import com.teragrep.cfe_16.config.Configuration;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.ObjectMapper;
+
+public final class BatchProcessorTest {
+
+    private static final String authToken1 = "AUTH_TOKEN_12223";
+    private static final String channel1 = "CHANNEL_11111";
+
+    /**
+     * Events with a time on every tenth one, brackets and quotes in strings and nested objects.
+     */
+    private static String payload(final int events) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < events; i++) {
+            builder.append("{\"event\": \"message ").append(i).append(" {\\\"quoted\\\"} [\"");
+            if (i % 10 == 3) {
+                builder.append(", \"time\": ").append(1000 + i);
+            }
+            builder.append(", \"fields\": {\"list\": [1, {\"nested\": \"}\"}]}}\n");
+        }
+        return builder.toString();
+    }
+
+    private static BatchProcessor processor() {
+        final Configuration configuration = new Configuration();
+        configuration.setBatchParallelLength(500);
+        configuration.setBatchParallelEvents(100);
+        return new BatchProcessor(configuration);
+    }
+
+    @Test
+    public void splitsBetweenTopLevelObjects() {
+        final String payload = payload(100);
+        final ObjectMapper objectMapper = new ObjectMapper();
+        for (
+            final EventPayload eventPayload : List
+                    .of(new StringEventPayload(payload), new BytesEventPayload(payload.getBytes(StandardCharsets.UTF_8)))
+        ) {
+            final List<EventPayload> parts = eventPayload.split(500);
+            Assertions.assertTrue(parts.size() > 1);
+            int length = 0;
+            for (final EventPayload part : parts) {
+                try (final JsonParser jsonParser = part.asJsonParser(objectMapper)) {
+                    Assertions.assertEquals(JsonToken.START_OBJECT, jsonParser.nextToken());
+                }
+                length += part.length();
+            }
+            Assertions.assertEquals(eventPayload.length(), length);
+        }
+    }
+
+    @Test
+    public void doesNotSplitWithoutLeadingObject() {
+        final String payload = "\"event\": \"no brackets\"} " + payload(100);
+        Assertions.assertEquals(1, new StringEventPayload(payload).split(500).size());
+        Assertions.assertEquals(1, new BytesEventPayload(payload.getBytes(StandardCharsets.UTF_8)).split(500).size());
+    }
+
+    @Test
+    public void parallelParsingKeepsOrderAndFallbackTimes() throws Exception {
+        final String payload = payload(1000);
+        final HeaderInfo headerInfo = new HeaderInfo(new MockHttpServletRequest());
+        final List<HECRecord> expected = new HECBatch(authToken1, channel1, payload, headerInfo).toHECRecordList();
+        final BatchProcessor processor = processor();
+        try {
+            for (
+                final EventPayload eventPayload : List
+                        .of(new StringEventPayload(payload), new BytesEventPayload(payload.getBytes(StandardCharsets.UTF_8)))
+            ) {
+                final List<HECRecord> records = processor
+                        .toHECRecordList(new RequestContext(authToken1, channel1, 0L, headerInfo), eventPayload);
+                Assertions.assertEquals(expected.size(), records.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    Assertions.assertEquals(expected.get(i).event(), records.get(i).event());
+                    Assertions.assertEquals(expected.get(i).time().instant(-1L), records.get(i).time().instant(-1L));
+                    Assertions.assertEquals(expected.get(i).time().isParsed(), records.get(i).time().isParsed());
+                    Assertions.assertEquals(expected.get(i).time().source(), records.get(i).time().source());
+                }
+            }
+        }
+        finally {
+            processor.stop();
+        }
+    }
+
+    @Test
+    public void parallelEncodingKeepsOrder() throws Exception {
+        final HeaderInfo headerInfo = new HeaderInfo(new MockHttpServletRequest());
+        final List<HECRecord> records = new HECBatch(authToken1, channel1, payload(1000), headerInfo).toHECRecordList();
+        final RequestContext context = new RequestContext(authToken1, channel1, 1234567L, headerInfo);
+        final BatchProcessor processor = processor();
+        try {
+            final List<SyslogMessage> messages = processor.asSyslogMessages(context, records);
+            Assertions.assertEquals(records.size(), messages.size());
+            for (int i = 0; i < records.size(); i++) {
+                Assertions.assertEquals(records.get(i).event().asString(), messages.get(i).getMsg().toString());
+                // records without a time get the receive time of the request
+                Assertions
+                        .assertEquals(records.get(i).toSyslogMessage(1234567L).getSDElements(), messages.get(i).getSDElements());
+            }
+        }
+        finally {
+            processor.stop();
+        }
+    }
+}
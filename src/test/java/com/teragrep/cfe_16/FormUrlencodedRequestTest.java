@@ -0,0 +1,140 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class FormUrlencodedRequestTest {
+
+    private static FormUrlencodedRequest formOf(final String body) {
+        return new FormUrlencodedRequest(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static EventPayload payloadOf(final String json) {
+        return new BytesEventPayload(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("test percent-encoded payload with channel present")
+    void testPercentEncodedPayloadWithChannelPresent() {
+        final FormUrlencodedRequest form = formOf(
+                "channel=CHANNEL_11111&%7B%22sourcetype%22%3A+%22mysourcetype%22%2C+%22event%22%3A+%22Hello%2C+w%C3%B6rld%21%22%7D"
+        );
+
+        Assertions.assertEquals("CHANNEL_11111", form.channel());
+        Assertions
+                .assertEquals(payloadOf("{\"sourcetype\": \"mysourcetype\", \"event\": \"Hello, wörld!\"}"), form.asEventPayload(), "Did not decode payload properly");
+    }
+
+    @Test
+    @DisplayName("test unencoded payload without channel present")
+    void testUnencodedPayloadWithoutChannelPresent() {
+        final FormUrlencodedRequest form = formOf(" {\"sourcetype\": \"mysourcetype\", \"event\": \"Hello\"}= ");
+
+        Assertions.assertNull(form.channel());
+        Assertions
+                .assertEquals(payloadOf("{\"sourcetype\": \"mysourcetype\", \"event\": \"Hello\"}"), form.asEventPayload());
+    }
+
+    @Test
+    @DisplayName("test channel after payload and empty parameters")
+    void testChannelAfterPayloadAndEmptyParameters() {
+        final FormUrlencodedRequest form = formOf("%7B%22event%22%3A1%7D&&channel=CHANNEL%2F1&");
+
+        Assertions.assertEquals("CHANNEL/1", form.channel());
+        Assertions.assertEquals(payloadOf("{\"event\":1}"), form.asEventPayload());
+    }
+
+    @Test
+    @DisplayName("asEventPayload with more than 2 keys")
+    void asEventPayloadWithMoreThan2Keys() {
+        final FormUrlencodedRequest form = formOf("channel=CHANNEL_11111&somethingElse=asdfg&%7B%7D");
+
+        final IllegalStateException illegalStateException = assertThrowsExactly(
+                IllegalStateException.class, form::asEventPayload
+        );
+
+        Assertions
+                .assertEquals(
+                        "application/x-www-form-urlencoded request contains more parameters than expected",
+                        illegalStateException.getMessage()
+                );
+    }
+
+    @Test
+    @DisplayName("asEventPayload without payload")
+    void asEventPayloadWithoutPayload() {
+        assertThrowsExactly(IllegalStateException.class, formOf("channel=CHANNEL_11111")::asEventPayload);
+    }
+
+    @Test
+    @DisplayName("asEventPayload with malformed percent encoding")
+    void asEventPayloadWithMalformedPercentEncoding() {
+        assertThrowsExactly(IllegalStateException.class, formOf("%7B%2")::asEventPayload);
+        assertThrowsExactly(IllegalStateException.class, formOf("%7B%ZZ")::asEventPayload);
+    }
+
+    @Test
+    @DisplayName("test that asEventPayload does not modify the body")
+    void testThatAsEventPayloadDoesNotModifyTheBody() {
+        final FormUrlencodedRequest form = formOf("channel=CHANNEL_11111&%7B%22event%22%3A1%7D");
+
+        Assertions.assertEquals(form.asEventPayload(), form.asEventPayload());
+        Assertions.assertEquals(formOf("channel=CHANNEL_11111&%7B%22event%22%3A1%7D"), form);
+    }
+
+    @Test
+    @DisplayName("equalsVerifier test")
+    void equalsVerifierTest() {
+        EqualsVerifier.forClass(FormUrlencodedRequest.class).verify();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.config.ConfigurationReloader;
+import com.teragrep.cfe_16.idempotency.IdempotencyCache;
+import com.teragrep.cfe_16.output.ShardedOutput;
+import com.teragrep.cfe_16.ratelimit.RateLimiter;
+import com.teragrep.cfe_16.sharedstate.SharedState;
+import com.teragrep.cfe_16.snapshot.StateSnapshots;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+public final class GracefulShutdownTest {
+
+    private GracefulShutdown gracefulShutdown(final Configuration configuration, final SimpleMeterRegistry registry) {
+        final TokenRegistry tokenRegistry = new TokenRegistry(configuration);
+        final Acknowledgements acknowledgements = new Acknowledgements(configuration);
+        acknowledgements.start();
+        final SessionManager sessionManager = new SessionManager(configuration);
+        sessionManager.start();
+        final RateLimiter rateLimiter = new RateLimiter(tokenRegistry, configuration, registry);
+        rateLimiter.start();
+        final IdempotencyCache idempotencyCache = new IdempotencyCache(configuration, tokenRegistry, registry);
+        idempotencyCache.start();
+        // the output is not started, so stopping it has no connections to close
+        return new GracefulShutdown(
+                configuration,
+                new ConfigurationReloader(configuration, new StandardEnvironment(), event -> {
+                }, ""),
+                new BatchProcessor(configuration),
+                new ShardedOutput(configuration, tokenRegistry, registry),
+                acknowledgements,
+                sessionManager,
+                new SharedState(configuration, registry),
+                new StateSnapshots(configuration, acknowledgements, sessionManager, registry),
+                rateLimiter,
+                idempotencyCache,
+                tokenRegistry,
+                registry
+        );
+    }
+
+    @Test
+    public void waitsForInFlightRequestsAndRejectsNewOnes() throws InterruptedException {
+        final Configuration configuration = new Configuration();
+        configuration.setShutdownDrainTimeout(10000);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final GracefulShutdown gracefulShutdown = gracefulShutdown(configuration, registry);
+        gracefulShutdown.start();
+
+        Assertions.assertTrue(gracefulShutdown.enter());
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final Thread stopper = new Thread(() -> {
+            gracefulShutdown.stop();
+            stopped.countDown();
+        });
+        stopper.start();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!gracefulShutdown.isDraining() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertTrue(gracefulShutdown.isDraining());
+        Assertions.assertFalse(gracefulShutdown.enter(), "New requests should be rejected while draining");
+        Assertions.assertFalse(stopped.await(100, TimeUnit.MILLISECONDS), "Stop should wait for the request");
+
+        gracefulShutdown.exit();
+        Assertions.assertTrue(stopped.await(10, TimeUnit.SECONDS));
+        Assertions.assertFalse(gracefulShutdown.isRunning());
+        Assertions.assertEquals(1, registry.get("cfe_16.shutdown.drained").counter().count());
+        Assertions.assertEquals(0, registry.get("cfe_16.shutdown.abandoned").counter().count());
+    }
+
+    @Test
+    public void abandonsRequestsAfterDeadline() {
+        final Configuration configuration = new Configuration();
+        configuration.setShutdownDrainTimeout(50);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final GracefulShutdown gracefulShutdown = gracefulShutdown(configuration, registry);
+        gracefulShutdown.start();
+
+        Assertions.assertTrue(gracefulShutdown.enter());
+        gracefulShutdown.stop();
+
+        Assertions.assertEquals(0, registry.get("cfe_16.shutdown.drained").counter().count());
+        Assertions.assertEquals(1, registry.get("cfe_16.shutdown.abandoned").counter().count());
+    }
+}
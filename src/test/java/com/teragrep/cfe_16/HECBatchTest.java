@@ -50,12 +50,15 @@ import tools.jackson.databind.ObjectMapper;
 import com.teragrep.cfe_16.bo.HECRecord;
 import com.teragrep.cfe_16.bo.HECRecordImpl;
 import com.teragrep.cfe_16.bo.HeaderInfo;
+import com.teragrep.cfe_16.connection.SyslogFrames;
+import com.teragrep.cfe_16.event.BytesEventMessage;
 import com.teragrep.cfe_16.event.EventMessageImpl;
 import com.teragrep.cfe_16.event.JsonEventImpl;
 import com.teragrep.cfe_16.event.time.HECTimeImpl;
 import com.teragrep.cfe_16.event.time.HECTimeImplWithFallback;
 import com.teragrep.cfe_16.event.time.HECTimeStub;
 import com.teragrep.cfe_16.exceptionhandling.EventFieldException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -163,4 +166,55 @@ class HECBatchTest {
 
         Assertions.assertThrows(EventFieldException.class, () -> HECBatch.toHECRecordList().toString());
     }
+
+    @Test
+    public void plainEventStringsOfBytesPayloadAreNotDecodedTest() {
+        final String allEventsInJson = "{\"event\": \"Hello, world!\", \"index\": \"myindex\", \"time\": 123456}"
+                + "{\"event\": \"tab\\tand \\\"quotes\\\"\", \"sourcetype\": \"mysourcetype\"}"
+                + "{\"sourcetype\": \"mysourcetype\", \"event\": \"ä€😀\"}";
+        final HECBatch bytesBatch = new HECBatch(
+                authToken1,
+                channel1,
+                new BytesEventPayload(allEventsInJson.getBytes(StandardCharsets.UTF_8)),
+                new HeaderInfo(new MockHttpServletRequest())
+        );
+        final HECBatch stringBatch = new HECBatch(
+                authToken1,
+                channel1,
+                allEventsInJson,
+                new HeaderInfo(new MockHttpServletRequest())
+        );
+
+        final List<HECRecord> bytesRecords = Assertions.assertDoesNotThrow(bytesBatch::toHECRecordList);
+        final List<HECRecord> stringRecords = Assertions.assertDoesNotThrow(stringBatch::toHECRecordList);
+
+        Assertions.assertEquals(3, bytesRecords.size());
+        Assertions
+                .assertEquals(new BytesEventMessage("Hello, world!".getBytes(StandardCharsets.UTF_8)), bytesRecords.get(0).event());
+        Assertions.assertEquals(new EventMessageImpl("tab\tand \"quotes\""), bytesRecords.get(1).event());
+        Assertions
+                .assertEquals(new BytesEventMessage("ä€😀".getBytes(StandardCharsets.UTF_8)), bytesRecords.get(2).event());
+        Assertions.assertEquals("myindex", bytesRecords.get(0).index());
+        Assertions.assertEquals("mysourcetype", bytesRecords.get(2).sourceType());
+        for (int i = 0; i < bytesRecords.size(); i++) {
+            Assertions.assertEquals(stringRecords.get(i).event().asString(), bytesRecords.get(i).event().asString());
+            Assertions
+                    .assertArrayEquals(new SyslogFrames(stringRecords.get(i).toSyslogMessage(1L), 0).asList().get(0), new SyslogFrames(bytesRecords.get(i).toSyslogMessage(1L), 0).asList().get(0));
+        }
+    }
+
+    @Test
+    public void invalidUtf8InBytesPayloadIsRejectedTest() {
+        final byte[] allEventsInJson = {
+                '{', '"', 'e', 'v', 'e', 'n', 't', '"', ':', '"', 'a', (byte) 0xC3, '"', '}'
+        };
+        final HECBatch HECBatch = new HECBatch(
+                authToken1,
+                channel1,
+                new BytesEventPayload(allEventsInJson),
+                new HeaderInfo(new MockHttpServletRequest())
+        );
+
+        Assertions.assertThrows(StreamReadException.class, () -> HECBatch.toHECRecordList().toString());
+    }
 }
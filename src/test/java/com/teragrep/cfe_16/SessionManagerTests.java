@@ -47,6 +47,12 @@ package com.teragrep.cfe_16;
 
 import com.teragrep.cfe_16.bo.Session;
 import com.teragrep.cfe_16.config.Configuration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -100,4 +106,26 @@ public class SessionManagerTests {
         Assertions.assertTrue(session.removeChannel(Session.DEFAULT_CHANNEL));
         Assertions.assertFalse(session.doesChannelExist(Session.DEFAULT_CHANNEL));
     }
+
+    /*
+     * Concurrent callers asking for the same authentication token must all get
+     * the same Session object.
+     */
+    @Test
+    public void concurrentGetOrCreateSessionReturnsSameSessionTest() {
+        final String authToken = "AUTH_TOKEN_CONCURRENT";
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        final List<Callable<Session>> callables = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            callables.add(() -> sessionManager.getOrCreateSession(authToken));
+        }
+        final List<Future<Session>> futures = Assertions.assertDoesNotThrow(() -> executorService.invokeAll(callables));
+        executorService.shutdown();
+
+        final Session expected = sessionManager.getSession(authToken);
+        Assertions.assertNotNull(expected);
+        for (final Future<Session> future : futures) {
+            Assertions.assertSame(expected, Assertions.assertDoesNotThrow(() -> future.get()));
+        }
+    }
 }
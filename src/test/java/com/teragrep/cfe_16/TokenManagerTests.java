@@ -45,9 +45,18 @@
  */
 package com.teragrep.cfe_16;
 
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.AuthenticationTokenMissingException;
+import com.teragrep.cfe_16.exceptionhandling.InvalidTokenException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Base64;
+import java.util.List;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockHttpServletRequest;
 
 /*
@@ -108,4 +117,57 @@ public class TokenManagerTests {
         Assertions
                 .assertEquals(authToken, manager.getTokenFromBasic(basicAuthHeader), "Method should return the authentication token extracted from the Basic " + "Authentication format");
     }
+
+    /*
+     * Tests TokenManager's authenticatedToken() method which resolves the
+     * authentication token from the header or from basic authentication and
+     * rejects tokens that are not in the registry.
+     */
+    @Test
+    public void authenticatedTokenTest(@TempDir final Path tempDir) throws IOException {
+        final Path file = tempDir.resolve("tokens");
+        Files.write(file, List.of("AUTH_TOKEN_11111"), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        configuration.setTokenRegistryFile(file.toString());
+        final TokenRegistry registry = new TokenRegistry(configuration);
+        registry.start();
+        final TokenManager registryManager = new TokenManager(registry);
+
+        try {
+            final MockHttpServletRequest headerRequest = new MockHttpServletRequest();
+            headerRequest.addHeader("Authorization", "AUTH_TOKEN_11111");
+            Assertions.assertEquals("AUTH_TOKEN_11111", registryManager.authenticatedToken(headerRequest));
+            // second call is served from the header cache
+            Assertions.assertEquals("AUTH_TOKEN_11111", registryManager.authenticatedToken(headerRequest));
+
+            final MockHttpServletRequest basicRequest = new MockHttpServletRequest();
+            basicRequest
+                    .addHeader(
+                            "Authorization",
+                            "Basic " + Base64
+                                    .getEncoder()
+                                    .encodeToString("x:AUTH_TOKEN_11111".getBytes(StandardCharsets.UTF_8))
+                    );
+            Assertions.assertEquals("AUTH_TOKEN_11111", registryManager.authenticatedToken(basicRequest));
+
+            final MockHttpServletRequest unknownRequest = new MockHttpServletRequest();
+            unknownRequest.addHeader("Authorization", "AUTH_TOKEN_22222");
+            Assertions
+                    .assertThrows(InvalidTokenException.class, () -> registryManager.authenticatedToken(unknownRequest));
+
+            final MockHttpServletRequest malformedRequest = new MockHttpServletRequest();
+            malformedRequest.addHeader("Authorization", "Basic not-base64");
+            Assertions
+                    .assertThrows(InvalidTokenException.class, () -> registryManager.authenticatedToken(malformedRequest));
+
+            Assertions
+                    .assertThrows(
+                            AuthenticationTokenMissingException.class,
+                            () -> registryManager.authenticatedToken(new MockHttpServletRequest())
+                    );
+        }
+        finally {
+            registry.stop();
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16;
+
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.ratelimit.TokenLimits;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class TokenRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void acceptsEveryTokenWhenNotConfigured() {
+        final TokenRegistry registry = new TokenRegistry(new Configuration());
+        registry.start();
+        Assertions.assertTrue(registry.isKnown("ANY_TOKEN"));
+        Assertions.assertEquals(0, registry.getTokenCount());
+    }
+
+    @Test
+    public void loadsTokensFromFile() throws IOException {
+        final Path file = tempDir.resolve("tokens");
+        Files.write(file, List.of("# comment", "", "TOKEN_1", "  TOKEN_2  "), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        configuration.setTokenRegistryFile(file.toString());
+        final TokenRegistry registry = new TokenRegistry(configuration);
+        registry.start();
+        try {
+            Assertions.assertTrue(registry.isKnown("TOKEN_1"));
+            Assertions.assertTrue(registry.isKnown("TOKEN_2"));
+            Assertions.assertFalse(registry.isKnown("TOKEN_3"));
+            Assertions.assertFalse(registry.isKnown("# comment"));
+            Assertions.assertEquals(2, registry.getTokenCount());
+        }
+        finally {
+            registry.stop();
+        }
+    }
+
+    @Test
+    public void reloadsChangedFile() throws IOException {
+        final Path file = tempDir.resolve("tokens");
+        Files.write(file, List.of("TOKEN_1"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1000));
+        final Configuration configuration = new Configuration();
+        configuration.setTokenRegistryFile(file.toString());
+        final TokenRegistry registry = new TokenRegistry(configuration);
+        registry.reload();
+        Assertions.assertTrue(registry.isKnown("TOKEN_1"));
+
+        Files.write(file, List.of("TOKEN_2"), StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2000));
+        registry.reload();
+        Assertions.assertFalse(registry.isKnown("TOKEN_1"));
+        Assertions.assertTrue(registry.isKnown("TOKEN_2"));
+    }
+
+    @Test
+    public void failsToStartWithMissingFile() {
+        final Configuration configuration = new Configuration();
+        configuration.setTokenRegistryFile(tempDir.resolve("missing").toString());
+        final TokenRegistry registry = new TokenRegistry(configuration);
+        Assertions.assertThrows(IllegalStateException.class, registry::start);
+    }
+
+    @Test
+    public void loadsLimitsFromFile() throws IOException {
+        final Path file = tempDir.resolve("tokens");
+        Files.write(file, List.of("TOKEN_1,first,100,2000", "TOKEN_2,second", "TOKEN_3"), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        configuration.setTokenRegistryFile(file.toString());
+        final TokenRegistry registry = new TokenRegistry(configuration);
+        registry.reload();
+        Assertions.assertEquals(new TokenLimits("first", 100, 2000), registry.limitsOf("TOKEN_1"));
+        Assertions.assertEquals(new TokenLimits("second", 0, 0), registry.limitsOf("TOKEN_2"));
+        Assertions.assertEquals(new TokenLimits("unnamed", 0, 0), registry.limitsOf("TOKEN_3"));
+        Assertions.assertTrue(registry.limitsOf("TOKEN_2").isUnlimited());
+    }
+
+    @Test
+    public void failsToStartWithMalformedLimits() throws IOException {
+        final Path file = tempDir.resolve("tokens");
+        Files.write(file, List.of("TOKEN_1,first,many"), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        configuration.setTokenRegistryFile(file.toString());
+        final TokenRegistry registry = new TokenRegistry(configuration);
+        Assertions.assertThrows(IllegalStateException.class, registry::start);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.benchmark;
+
+import com.teragrep.cfe_16.Acknowledgements;
+import com.teragrep.cfe_16.bo.Ack;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.InternalServerErrorException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ObjectNode;
+
+/**
+ * The allocate, acknowledge and poll cycle that HECServiceImpl and the ack endpoint do for every request, run by
+ * several threads at once. The shared variant puts all threads on one channel, the private variant gives each thread a
+ * channel of its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(
+        iterations = 3,
+        time = 2
+)
+@Measurement(
+        iterations = 5,
+        time = 2
+)
+@Threads(4)
+public class AcknowledgementsBenchmark {
+
+    private static final String AUTH_TOKEN = "AUTH_TOKEN_11111";
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+
+        private final AtomicInteger channels = new AtomicInteger();
+        private Acknowledgements acknowledgements;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            final Configuration configuration = new Configuration();
+            configuration.setMaxAckValue(1000000);
+            this.acknowledgements = new Acknowledgements(configuration);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private String privateChannel;
+
+        @Setup(Level.Trial)
+        public void setup(final SharedState sharedState) {
+            this.privateChannel = "CHANNEL_" + sharedState.channels.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public void sharedChannel(final SharedState sharedState, final ThreadState threadState, final Blackhole blackhole) {
+        cycle(sharedState.acknowledgements, threadState.objectMapper, "CHANNEL_SHARED", blackhole);
+    }
+
+    @Benchmark
+    public void privateChannel(
+            final SharedState sharedState,
+            final ThreadState threadState,
+            final Blackhole blackhole
+    ) {
+        cycle(sharedState.acknowledgements, threadState.objectMapper, threadState.privateChannel, blackhole);
+    }
+
+    private void cycle(
+            final Acknowledgements acknowledgements,
+            final ObjectMapper objectMapper,
+            final String channel,
+            final Blackhole blackhole
+    ) {
+        acknowledgements.initializeContext(AUTH_TOKEN, channel);
+        final int ackId = acknowledgements.getCurrentAckValue(AUTH_TOKEN, channel);
+        acknowledgements.incrementAckValue(AUTH_TOKEN, channel);
+        acknowledgements.addAck(AUTH_TOKEN, channel, new Ack(ackId, false));
+        try {
+            blackhole.consume(acknowledgements.acknowledge(AUTH_TOKEN, channel, ackId));
+        }
+        catch (final InternalServerErrorException e) {
+            // another thread on the same channel got the same ack id and already polled it
+            blackhole.consume(e);
+        }
+        final ObjectNode poll = objectMapper.createObjectNode();
+        poll.putArray("acks").add(ackId);
+        blackhole.consume(acknowledgements.getRequestedAckStatuses(AUTH_TOKEN, channel, poll));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.benchmark;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.output.FairQueue;
+import com.teragrep.cfe_16.output.OutputSink;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * One producer posting large batches and seven producers posting small batches with tokens of their own share one sink
+ * whose cost grows with the number of messages. The direct variant sends under a lock like the service did before the
+ * fair queue, the fair variant goes through {@link FairQueue}. Compare the sampled percentiles of the light producers
+ * between the two.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(
+        iterations = 3,
+        time = 2
+)
+@Measurement(
+        iterations = 5,
+        time = 2
+)
+public class FairQueueBenchmark {
+
+    @State(Scope.Group)
+    public static class OutputState {
+
+        @Param({
+                "fair", "direct"
+        })
+        private String output;
+
+        private final AtomicInteger producers = new AtomicInteger();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final OutputSink sink = syslogMessages -> {
+            Blackhole.consumeCPU(syslogMessages.size() * 100L);
+            return CompletableFuture.completedFuture(null);
+        };
+        private FairQueue fairQueue;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            final Configuration configuration = new Configuration();
+            configuration.setOutputFairQuantum(1000);
+            this.fairQueue = new FairQueue(
+                    this.sink,
+                    new TokenRegistry(configuration),
+                    configuration,
+                    0,
+                    new SimpleMeterRegistry()
+            );
+            this.fairQueue.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.fairQueue.stop();
+        }
+
+        private void send(final String authenticationToken, final List<SyslogMessage> syslogMessages) {
+            if ("fair".equals(this.output)) {
+                this.fairQueue.send(authenticationToken, syslogMessages);
+            }
+            else {
+                this.lock.lock();
+                try {
+                    this.sink.sendMessages(syslogMessages);
+                }
+                finally {
+                    this.lock.unlock();
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ProducerState {
+
+        private final List<SyslogMessage> heavyBatch = Collections.nCopies(20000, new SyslogMessage());
+        private final List<SyslogMessage> lightBatch = Collections.nCopies(10, new SyslogMessage());
+        private String authenticationToken;
+
+        @Setup(Level.Trial)
+        public void setup(final OutputState outputState) {
+            this.authenticationToken = "AUTH_TOKEN_" + outputState.producers.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void heavy(final OutputState outputState, final ProducerState producerState) {
+        outputState.send(producerState.authenticationToken, producerState.heavyBatch);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public void light(final OutputState outputState, final ProducerState producerState) {
+        outputState.send(producerState.authenticationToken, producerState.lightBatch);
+    }
+}
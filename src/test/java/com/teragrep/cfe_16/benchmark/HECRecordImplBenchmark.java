@@ -0,0 +1,114 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.benchmark;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.bo.HECRecord;
+import com.teragrep.cfe_16.bo.HECRecordImpl;
+import com.teragrep.cfe_16.bo.HeaderInfo;
+import com.teragrep.cfe_16.event.EventMessageImpl;
+import com.teragrep.cfe_16.event.JsonEventImpl;
+import com.teragrep.cfe_16.event.time.HECTimeImpl;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Encoding of a single HEC record into a syslog message and further into RFC 5424.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(
+        iterations = 3,
+        time = 2
+)
+@Measurement(
+        iterations = 5,
+        time = 2
+)
+public class HECRecordImplBenchmark {
+
+    private HECRecord hecRecord;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Forwarded-For", "127.0.0.1");
+        request.addHeader("X-Forwarded-Host", "localhost");
+        request.addHeader("X-Forwarded-Proto", "https");
+        this.hecRecord = new HECRecordImpl(
+                "CHANNEL_11111",
+                new EventMessageImpl("127.0.0.1 - - [19/Oct/2026:12:00:00 +0300] \"GET /index.html HTTP/1.1\" 200"),
+                "AUTH_TOKEN_11111",
+                0,
+                new HECTimeImpl(new JsonEventImpl(new ObjectMapper().createObjectNode().put("time", 1433188255.253))),
+                new HeaderInfo(request)
+        );
+    }
+
+    @Benchmark
+    public SyslogMessage toSyslogMessage() {
+        return this.hecRecord.toSyslogMessage();
+    }
+
+    @Benchmark
+    public String toRfc5424() {
+        return this.hecRecord.toSyslogMessage().toRfc5424SyslogMessage();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.benchmark;
+
+import com.cloudbees.syslog.Facility;
+import com.cloudbees.syslog.SDElement;
+import com.cloudbees.syslog.SDParam;
+import com.cloudbees.syslog.Severity;
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.connection.FileConnection;
+import com.teragrep.cfe_16.connection.RelpConnection;
+import com.teragrep.cfe_16.connection.SyslogConnection;
+import com.teragrep.cfe_16.output.OutputConnection;
+import com.teragrep.cfe_16.server.TestServer;
+import com.teragrep.cfe_16.server.TestServerFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sends batches of syslog messages over loopback to a RELP server and to a plain TCP server that discards what it
+ * reads, the time is per message. RELP waits for the server to acknowledge each batch while TCP returns once the batch
+ * is flushed to the socket, so the difference is the cost of the RELP transaction on this hardware. The file variants
+ * write to local rolling files without forcing them and with forcing each batch to storage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(
+        iterations = 3,
+        time = 2
+)
+@Measurement(
+        iterations = 5,
+        time = 2
+)
+@State(Scope.Benchmark)
+public class OutputProtocolBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int RELP_PORT = 1259;
+
+    @Param({
+            "relp", "tcp", "file", "file-fsync"
+    })
+    private String protocol;
+
+    private final ConcurrentLinkedDeque<byte[]> relpMessages = new ConcurrentLinkedDeque<>();
+    private TestServer relpServer;
+    private ServerSocket tcpServer;
+    private Thread tcpReader;
+    private Path fileDirectory;
+    private OutputConnection connection;
+    private List<SyslogMessage> batch;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if ("relp".equals(this.protocol)) {
+            this.relpServer = new TestServerFactory()
+                    .create(RELP_PORT, this.relpMessages, new AtomicLong(), new AtomicLong());
+            this.relpServer.run();
+            this.connection = new RelpConnection(
+                    "127.0.0.1",
+                    RELP_PORT,
+                    "default",
+                    0,
+                    new Configuration(),
+                    new SimpleMeterRegistry()
+            );
+        }
+        else if (this.protocol.startsWith("file")) {
+            this.fileDirectory = Files.createTempDirectory("cfe_16-benchmark");
+            final Configuration configuration = new Configuration();
+            configuration
+                    .setOutputFileFsync("file".equals(this.protocol) ? FileConnection.FSYNC_NONE : FileConnection.FSYNC_BATCH);
+            this.connection = new FileConnection(
+                    this.fileDirectory,
+                    "default",
+                    0,
+                    configuration,
+                    new SimpleMeterRegistry()
+            );
+        }
+        else {
+            this.tcpServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+            this.tcpReader = new Thread(() -> {
+                try (final Socket socket = this.tcpServer.accept(); final InputStream in = socket.getInputStream()) {
+                    final byte[] buffer = new byte[65536];
+                    while (in.read(buffer) >= 0) {
+                        // discarded
+                    }
+                }
+                catch (final IOException e) {
+                    // closed at tear down
+                }
+            });
+            this.tcpReader.start();
+            this.connection = new SyslogConnection(
+                    "127.0.0.1",
+                    this.tcpServer.getLocalPort(),
+                    false,
+                    "default",
+                    0,
+                    new Configuration(),
+                    new SimpleMeterRegistry()
+            );
+        }
+        this.connection.autoConnect();
+        this.batch = Collections
+                .nCopies(BATCH_SIZE, new SyslogMessage().withFacility(Facility.USER).withSeverity(Severity.INFORMATIONAL).withAppName("capsulated").withHostname("localhost").withTimestamp(1700000000000L).withSDElement(new SDElement("CFE-16-metadata@48577", new SDParam("channel", "CHANNEL_11111"))).withMsg("127.0.0.1 - - [19/Oct/2026:12:00:00 +0300] \"GET /index.html HTTP/1.1\" 200 0"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        this.relpMessages.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        this.connection.close();
+        if (this.relpServer != null) {
+            this.relpServer.close();
+        }
+        if (this.tcpServer != null) {
+            this.tcpServer.close();
+            this.tcpReader.join();
+        }
+        if (this.fileDirectory != null) {
+            try (final Stream<Path> files = Files.walk(this.fileDirectory)) {
+                for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void sendBatch() {
+        this.connection.sendMessages(this.batch);
+    }
+}
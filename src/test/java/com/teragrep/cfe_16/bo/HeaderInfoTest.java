@@ -87,6 +87,23 @@ class HeaderInfoTest {
         Assertions.assertEquals(expectedSDElement, headerInfo.asSDElement());
     }
 
+    @Test
+    @DisplayName("headers are read when constructed")
+    void headersAreReadWhenConstructed() {
+        final MockHttpServletRequest mockHttpServletRequest = new MockHttpServletRequest();
+        mockHttpServletRequest.addHeader("X-Forwarded-For", "forwardedFor");
+        final HeaderInfo headerInfo = new HeaderInfo(mockHttpServletRequest);
+        mockHttpServletRequest.removeHeader("X-Forwarded-For");
+        mockHttpServletRequest.addHeader("X-Forwarded-Host", "forwardedHost");
+
+        final SDElement expectedSDElement = new SDElement("cfe_16-origin@48577");
+        expectedSDElement.addSDParam("X-Forwarded-For", "forwardedFor");
+
+        Assertions.assertEquals(expectedSDElement, headerInfo.asSDElement());
+        Assertions
+                .assertEquals(new HeaderInfo(new XForwardedForImpl("forwardedFor"), new XForwardedHostStub(), new XForwardedProtoStub()), headerInfo);
+    }
+
     @Test
     @DisplayName("EqualsVerifier")
     void equalsVerifier() {
@@ -0,0 +1,219 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+public final class ConfigurationReloaderTest {
+
+    private static final List<String> REQUIRED = List
+            .of(
+                    "syslog.server.host=127.0.0.1", "syslog.server.port=1601", "max.channels=100", "max.ack.value=1000",
+                    "max.ack.age=20000", "max.session.age=30000", "poll.time=30000", "server.print.times=false"
+            );
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void defaultsOptionalValues() throws IOException {
+        final Path file = tempDir.resolve("application.properties");
+        write(file, 1000);
+        final ConfigurationSnapshot snapshot = new ConfigurationSnapshot(environment(file));
+        Assertions.assertEquals(30000, snapshot.pollTime());
+        Assertions.assertEquals(5000, snapshot.configPollTime());
+        Assertions.assertEquals(1000, snapshot.outputFairQuantum());
+        Assertions.assertEquals(1, snapshot.outputShards());
+        Assertions.assertEquals("", snapshot.tokenRegistryFile());
+        Assertions.assertEquals(200, snapshot.http2MaxConcurrentStreams());
+        Assertions.assertEquals(200, snapshot.http2MaxConcurrentStreamExecution());
+    }
+
+    @Test
+    public void appliesChangedFile() throws IOException {
+        final Path file = tempDir.resolve("application.properties");
+        write(file, 1000, "rate.limit.events.per.second=10");
+        final StandardEnvironment environment = environment(file);
+        final Configuration configuration = new Configuration(new ConfigurationSnapshot(environment));
+        final List<ConfigurationChangedEvent> events = new ArrayList<>();
+        final ConfigurationReloader reloader = new ConfigurationReloader(
+                configuration,
+                environment,
+                event -> events.add((ConfigurationChangedEvent) event),
+                file.toString()
+        );
+        Assertions.assertEquals(10, configuration.rateLimitEventsPerSecond());
+
+        write(file, 2000, "rate.limit.events.per.second=20", "output.shards=4");
+        Assertions.assertTrue(reloader.reload());
+        Assertions.assertEquals(20, configuration.rateLimitEventsPerSecond());
+        Assertions.assertEquals(4, configuration.outputShards());
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(10, events.get(0).previous().rateLimitEventsPerSecond());
+        Assertions.assertEquals(configuration.snapshot(), events.get(0).current());
+
+        // an unchanged file is not read again
+        Assertions.assertFalse(reloader.reload());
+        Assertions.assertEquals(1, events.size());
+    }
+
+    @Test
+    public void removedValueFallsBackToDefault() throws IOException {
+        final Path file = tempDir.resolve("application.properties");
+        write(file, 1000, "output.shards=4");
+        final StandardEnvironment environment = environment(file);
+        final Configuration configuration = new Configuration(new ConfigurationSnapshot(environment));
+        final ConfigurationReloader reloader = new ConfigurationReloader(configuration, environment, event -> {
+        }, file.toString());
+        Assertions.assertEquals(4, configuration.outputShards());
+
+        write(file, 2000);
+        Assertions.assertTrue(reloader.reload());
+        Assertions.assertEquals(1, configuration.outputShards());
+    }
+
+    @Test
+    public void keepsPreviousValuesOnInvalidFile() throws IOException {
+        final Path file = tempDir.resolve("application.properties");
+        write(file, 1000);
+        final StandardEnvironment environment = environment(file);
+        final Configuration configuration = new Configuration(new ConfigurationSnapshot(environment));
+        final List<ConfigurationChangedEvent> events = new ArrayList<>();
+        final ConfigurationReloader reloader = new ConfigurationReloader(
+                configuration,
+                environment,
+                event -> events.add((ConfigurationChangedEvent) event),
+                file.toString()
+        );
+        final ConfigurationSnapshot before = configuration.snapshot();
+
+        write(file, 2000, "max.ack.value=many");
+        Assertions.assertThrows(RuntimeException.class, reloader::reload);
+        Assertions.assertEquals(before, configuration.snapshot());
+        Assertions.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void appliesFileThatAppearsLater() throws IOException {
+        final Path file = tempDir.resolve("application.properties");
+        write(file, 1000);
+        final StandardEnvironment environment = environment(file);
+        final Configuration configuration = new Configuration(new ConfigurationSnapshot(environment));
+        final Path later = tempDir.resolve("later.properties");
+        final ConfigurationReloader reloader = new ConfigurationReloader(configuration, environment, event -> {
+        }, later.toString());
+        Assertions.assertFalse(reloader.reload());
+
+        write(later, 2000, "output.shards=4");
+        Assertions.assertTrue(reloader.reload());
+        Assertions.assertEquals(4, configuration.outputShards());
+
+        // removing the file keeps the values it had
+        Files.delete(later);
+        Assertions.assertFalse(reloader.reload());
+        Assertions.assertEquals(4, configuration.outputShards());
+    }
+
+    @Test
+    public void locatesFileOfSpringConfigLocation() {
+        Assertions.assertEquals("config/application.properties", ConfigurationReloader.locatedFile(""));
+        Assertions
+                .assertEquals(
+                        "/opt/teragrep/cfe_16/etc/application.properties",
+                        ConfigurationReloader.locatedFile("file:///opt/teragrep/cfe_16/etc/application.properties")
+                );
+        Assertions
+                .assertEquals(
+                        "src/main/resources/application.properties",
+                        ConfigurationReloader.locatedFile("file:src/main/resources/application.properties")
+                );
+        Assertions
+                .assertEquals(
+                        "/etc/cfe_16/application.properties", ConfigurationReloader
+                                .locatedFile("classpath:/application.properties,optional:file:/etc/cfe_16/")
+                );
+        Assertions
+                .assertEquals(
+                        "config/application.properties",
+                        ConfigurationReloader.locatedFile("classpath:/application.properties")
+                );
+    }
+
+    /**
+     * Environment with the file as its property source, named like Spring Boot names config file sources.
+     */
+    private static StandardEnvironment environment(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (final InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment
+                .getPropertySources()
+                .addLast(new PropertiesPropertySource("Config resource 'file [" + file + "]'", properties));
+        return environment;
+    }
+
+    private static void write(final Path file, final long modified, final String ... extra) throws IOException {
+        final List<String> lines = new ArrayList<>(REQUIRED);
+        lines.addAll(List.of(extra));
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.connection;
+
+import com.cloudbees.syslog.Facility;
+import com.cloudbees.syslog.Severity;
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.config.Configuration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class FileConnectionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SyslogMessage syslogMessage(final String msg) {
+        return new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withAppName("capsulated")
+                .withHostname("localhost")
+                .withTimestamp(1700000000000L)
+                .withMsg(msg);
+    }
+
+    /**
+     * Reads all octet-counted frames of a file.
+     */
+    private List<String> frames(final Path file) throws IOException {
+        final byte[] bytes = Files.readAllBytes(file);
+        final List<String> frames = new ArrayList<>();
+        int position = 0;
+        while (position < bytes.length) {
+            int length = 0;
+            while (bytes[position] != ' ') {
+                length = length * 10 + (bytes[position] - '0');
+                position++;
+            }
+            position++;
+            frames.add(new String(bytes, position, length, StandardCharsets.UTF_8));
+            position += length;
+        }
+        return frames;
+    }
+
+    private List<Path> files() throws IOException {
+        try (final Stream<Path> files = Files.list(this.tempDir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    public void batchesAreAppendedWithOctetCounting() throws IOException {
+        final SyslogMessage first = syslogMessage("first event");
+        final SyslogMessage second = syslogMessage("second event\nwith a line feed");
+        final SyslogMessage third = syslogMessage("kolmas tapahtuma äö");
+        final FileConnection connection = new FileConnection(
+                this.tempDir,
+                "default",
+                0,
+                new Configuration(),
+                new SimpleMeterRegistry()
+        );
+        connection.autoConnect();
+        Assertions.assertTrue(connection.isConnected());
+        connection.sendMessages(List.of(first, second));
+        connection.close();
+        Assertions.assertFalse(connection.isConnected());
+
+        // a reopened file is appended to
+        final FileConnection reopened = new FileConnection(
+                this.tempDir,
+                "default",
+                0,
+                new Configuration(),
+                new SimpleMeterRegistry()
+        );
+        reopened.autoConnect();
+        reopened.sendMessages(List.of(third));
+        reopened.close();
+
+        Assertions.assertEquals(List.of(this.tempDir.resolve("default-0.log")), files());
+        Assertions
+                .assertEquals(
+                        List
+                                .of(
+                                        first.toRfc5424SyslogMessage(), second.toRfc5424SyslogMessage(),
+                                        third.toRfc5424SyslogMessage()
+                                ),
+                        frames(this.tempDir.resolve("default-0.log"))
+                );
+    }
+
+    @Test
+    public void fileIsRotatedBeforeItGrowsTooLong() throws IOException {
+        final SyslogMessage syslogMessage = syslogMessage("event");
+        final int frameLength = ("" + syslogMessage.toRfc5424SyslogMessage().length()).length() + 1
+                + syslogMessage.toRfc5424SyslogMessage().length();
+        final Configuration configuration = new Configuration();
+        configuration.setOutputFileMaxBytes(frameLength * 2L);
+        configuration.setOutputFileFsync(FileConnection.FSYNC_NONE);
+        final FileConnection connection = new FileConnection(
+                this.tempDir,
+                "audit",
+                1,
+                configuration,
+                new SimpleMeterRegistry()
+        );
+        connection.autoConnect();
+        for (int i = 0; i < 5; i++) {
+            connection.sendMessages(List.of(syslogMessage));
+        }
+        connection.close();
+
+        final List<Path> files = files();
+        Assertions.assertEquals(3, files.size());
+        Assertions.assertTrue(files.contains(this.tempDir.resolve("audit-1.log")));
+        int frames = 0;
+        for (final Path file : files) {
+            Assertions.assertTrue(file.getFileName().toString().startsWith("audit-1"));
+            Assertions.assertTrue(Files.size(file) <= frameLength * 2L);
+            frames += frames(file).size();
+        }
+        Assertions.assertEquals(5, frames);
+    }
+
+    @Test
+    public void fileIsRotatedWhenOld() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.setOutputFileMaxAge(1);
+        final FileConnection connection = new FileConnection(
+                this.tempDir,
+                "default",
+                0,
+                configuration,
+                new SimpleMeterRegistry()
+        );
+        connection.autoConnect();
+        connection.sendMessages(List.of(syslogMessage("first")));
+        Thread.sleep(5);
+        connection.sendMessages(List.of(syslogMessage("second")));
+        connection.close();
+
+        Assertions.assertEquals(2, files().size());
+    }
+
+    @Test
+    public void unsplittableMessageFailsItsBatch() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.setOutputMaxRecordBytes(64);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final FileConnection connection = new FileConnection(this.tempDir, "default", 0, configuration, meterRegistry);
+        try {
+            connection.autoConnect();
+            final CompletableFuture<Void> delivered = connection
+                    .sendMessages(List.of(syslogMessage("fits"), syslogMessage("an event longer than the headers allow"))).toCompletableFuture();
+
+            final ExecutionException exception = Assertions
+                    .assertThrows(ExecutionException.class, () -> delivered.get(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(IllegalArgumentException.class, exception.getCause().getClass());
+            Assertions.assertEquals(1, meterRegistry.get("cfe_16.file.rejected").counter().count());
+            // nothing of the batch is written
+            Assertions.assertEquals(0, Files.size(this.tempDir.resolve("default-0.log")));
+        }
+        finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void intervalBatchIsDeliveredByTheNextForce() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.setOutputFileFsync(FileConnection.FSYNC_INTERVAL);
+        configuration.setOutputFileFsyncInterval(60000);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final FileConnection connection = new FileConnection(this.tempDir, "default", 0, configuration, meterRegistry);
+        connection.autoConnect();
+        final CompletableFuture<Void> first = connection
+                .sendMessages(List.of(syslogMessage("first")))
+                .toCompletableFuture();
+        final CompletableFuture<Void> second = connection
+                .sendMessages(List.of(syslogMessage("second")))
+                .toCompletableFuture();
+
+        // written but not forced, so not delivered
+        Assertions.assertEquals(2, frames(this.tempDir.resolve("default-0.log")).size());
+        Assertions.assertFalse(first.isDone());
+        Assertions.assertFalse(second.isDone());
+        Assertions.assertEquals(0, meterRegistry.get("cfe_16.file.sync").timer().count());
+
+        // one force delivers both
+        connection.close();
+        Assertions.assertEquals(1, meterRegistry.get("cfe_16.file.sync").timer().count());
+        Assertions.assertDoesNotThrow(() -> first.get(10, TimeUnit.SECONDS));
+        Assertions.assertDoesNotThrow(() -> second.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void intervalBatchIsDeliveredBySyncer() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.setOutputFileFsync(FileConnection.FSYNC_INTERVAL);
+        configuration.setOutputFileFsyncInterval(50);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final FileConnection connection = new FileConnection(this.tempDir, "default", 0, configuration, meterRegistry);
+        try {
+            connection.autoConnect();
+            connection.sendMessages(List.of(syslogMessage("event"))).toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+            Assertions.assertEquals(1, meterRegistry.get("cfe_16.file.sync").timer().count());
+        }
+        finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void closeStopsWriteRetries() throws Exception {
+        // a file in place of the directory fails every open
+        final Path blocked = Files.createFile(this.tempDir.resolve("blocked"));
+        final FileConnection connection = new FileConnection(
+                blocked,
+                "default",
+                0,
+                new Configuration(),
+                new SimpleMeterRegistry()
+        );
+        final CompletableFuture<Void> writing = CompletableFuture
+                .runAsync(() -> connection.sendMessages(List.of(syslogMessage("event"))));
+        Thread.sleep(200);
+
+        connection.close();
+
+        final ExecutionException exception = Assertions
+                .assertThrows(ExecutionException.class, () -> writing.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(exception.getCause() instanceof IllegalStateException);
+        Assertions.assertFalse(connection.isConnected());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.connection;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class RelpConnectionTest {
+
+    /**
+     * @return a local port nothing listens on
+     */
+    private int closedPort() throws IOException {
+        try (final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    @Test
+    public void closeStopsConnectRetries() throws Exception {
+        final RelpConnection connection = new RelpConnection(
+                InetAddress.getLoopbackAddress().getHostAddress(),
+                closedPort(),
+                0,
+                new SimpleMeterRegistry()
+        );
+        final CompletableFuture<Void> connecting = CompletableFuture.runAsync(connection::autoConnect);
+        Thread.sleep(200);
+
+        connection.close();
+
+        final ExecutionException exception = Assertions
+                .assertThrows(ExecutionException.class, () -> connecting.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(exception.getCause() instanceof IllegalStateException);
+        Assertions.assertFalse(connection.isConnected());
+    }
+
+    @Test
+    public void interruptStopsConnectRetries() throws Exception {
+        final RelpConnection connection = new RelpConnection(
+                InetAddress.getLoopbackAddress().getHostAddress(),
+                closedPort(),
+                0,
+                new SimpleMeterRegistry()
+        );
+        final CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+        final Thread thread = new Thread(() -> {
+            try {
+                connection.autoConnect();
+                interrupted.complete(false);
+            }
+            catch (final IllegalStateException e) {
+                interrupted.complete(Thread.currentThread().isInterrupted());
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+
+        thread.interrupt();
+
+        Assertions.assertTrue(interrupted.get(10, TimeUnit.SECONDS), "interrupt must be kept");
+        connection.close();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.connection;
+
+import com.cloudbees.syslog.Facility;
+import com.cloudbees.syslog.Severity;
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.config.Configuration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class SyslogConnectionTest {
+
+    private SyslogMessage syslogMessage(final String msg) {
+        return new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withAppName("capsulated")
+                .withHostname("localhost")
+                .withTimestamp(1700000000000L)
+                .withMsg(msg);
+    }
+
+    /**
+     * Reads octet-counted frames until the given number of them is read.
+     */
+    private List<String> frames(final InputStream in, final int count) throws IOException {
+        final List<String> frames = new ArrayList<>(count);
+        while (frames.size() < count) {
+            int length = 0;
+            int b;
+            while ((b = in.read()) != ' ') {
+                Assertions.assertTrue(b >= '0' && b <= '9', "frame must start with its length");
+                length = length * 10 + (b - '0');
+            }
+            frames.add(new String(in.readNBytes(length), StandardCharsets.UTF_8));
+        }
+        return frames;
+    }
+
+    @Test
+    public void batchesAreSentWithOctetCounting() throws Exception {
+        try (final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final SyslogConnection connection = new SyslogConnection(
+                    serverSocket.getInetAddress().getHostAddress(),
+                    serverSocket.getLocalPort(),
+                    false,
+                    "default",
+                    0,
+                    new Configuration(),
+                    new SimpleMeterRegistry()
+            );
+            final CompletableFuture<List<String>> received = CompletableFuture.supplyAsync(() -> {
+                try (final Socket socket = serverSocket.accept()) {
+                    return frames(new BufferedInputStream(socket.getInputStream()), 3);
+                }
+                catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            final SyslogMessage first = syslogMessage("first event");
+            final SyslogMessage second = syslogMessage("second event\nwith a line feed");
+            final SyslogMessage third = syslogMessage("kolmas tapahtuma äö");
+            try {
+                connection.autoConnect();
+                Assertions.assertTrue(connection.isConnected());
+                connection.sendMessages(List.of(first, second));
+                connection.sendMessages(List.of(third));
+
+                Assertions
+                        .assertEquals(
+                                List
+                                        .of(
+                                                first.toRfc5424SyslogMessage(), second.toRfc5424SyslogMessage(),
+                                                third.toRfc5424SyslogMessage()
+                                        ),
+                                received.get(10, TimeUnit.SECONDS)
+                        );
+            }
+            finally {
+                connection.close();
+            }
+            Assertions.assertFalse(connection.isConnected());
+        }
+    }
+
+    @Test
+    public void closeStopsConnectRetries() throws Exception {
+        final int port;
+        try (final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = serverSocket.getLocalPort();
+        }
+        final SyslogConnection connection = new SyslogConnection(
+                InetAddress.getLoopbackAddress().getHostAddress(),
+                port,
+                false,
+                "default",
+                0,
+                new Configuration(),
+                new SimpleMeterRegistry()
+        );
+        final CompletableFuture<Void> connecting = CompletableFuture.runAsync(connection::autoConnect);
+        Thread.sleep(200);
+
+        connection.close();
+
+        final ExecutionException exception = Assertions
+                .assertThrows(ExecutionException.class, () -> connecting.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(exception.getCause() instanceof IllegalStateException);
+        Assertions.assertFalse(connection.isConnected());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.connection;
+
+import com.cloudbees.syslog.Facility;
+import com.cloudbees.syslog.SDElement;
+import com.cloudbees.syslog.SDParam;
+import com.cloudbees.syslog.Severity;
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.event.BytesSyslogMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class SyslogFramesTest {
+
+    private static final Pattern FRAGMENT = Pattern
+            .compile(
+                    "\\[CFE-16-fragment@48577 index=\"(\\d+)\" count=\"(\\d+)\" group=\"([^\"]+)\"] (.*)",
+                    Pattern.DOTALL
+            );
+
+    private SyslogMessage syslogMessage(final String msg) {
+        return new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withAppName("capsulated")
+                .withHostname("localhost")
+                .withTimestamp(1700000000000L)
+                .withSDElement(new SDElement("CFE-16-metadata@48577", new SDParam("channel", "CHANNEL_11111")))
+                .withMsg(msg);
+    }
+
+    @Test
+    public void messageThatFitsIsNotSplit() {
+        final SyslogMessage syslogMessage = syslogMessage("short event");
+        final byte[] encoded = syslogMessage.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8);
+        final SyslogFrames syslogFrames = new SyslogFrames(syslogMessage, encoded, encoded.length);
+
+        Assertions.assertFalse(syslogFrames.isSplit());
+        Assertions.assertEquals(List.of(encoded), syslogFrames.asList());
+        Assertions.assertEquals(1, new SyslogFrames(syslogMessage, 0).asList().size());
+    }
+
+    @Test
+    public void oversizedMessageIsSplitIntoSequencedFragments() {
+        final StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            msg.append(i % 5 == 0 ? "ä€😀" : "event");
+        }
+        final SyslogFrames syslogFrames = new SyslogFrames(syslogMessage(msg.toString()), 512);
+        final List<byte[]> frames = syslogFrames.asList();
+
+        Assertions.assertTrue(syslogFrames.isSplit());
+        final StringBuilder joined = new StringBuilder();
+        final Set<String> groups = new HashSet<>();
+        for (int index = 0; index < frames.size(); index++) {
+            Assertions.assertTrue(frames.get(index).length <= 512);
+            final String frame = new String(frames.get(index), StandardCharsets.UTF_8);
+            Assertions.assertTrue(frame.contains("[CFE-16-metadata@48577 channel=\"CHANNEL_11111\"]"));
+            final Matcher matcher = FRAGMENT.matcher(frame);
+            Assertions.assertTrue(matcher.find());
+            Assertions.assertEquals(String.valueOf(index), matcher.group(1));
+            Assertions.assertEquals(String.valueOf(frames.size()), matcher.group(2));
+            groups.add(matcher.group(3));
+            joined.append(matcher.group(4));
+        }
+        Assertions.assertEquals(1, groups.size());
+        Assertions.assertEquals(msg.toString(), joined.toString());
+    }
+
+    @Test
+    public void messageWithoutRoomForFragmentsIsRejected() {
+        final SyslogFrames syslogFrames = new SyslogFrames(syslogMessage("an event longer than the headers allow"), 64);
+
+        Assertions.assertThrows(IllegalArgumentException.class, syslogFrames::asList);
+    }
+
+    @Test
+    public void bytesMessageIsEncodedAsItsStringMessage() {
+        final String msg = "event ä€😀";
+        final byte[] msgBytes = ("x" + msg + "x").getBytes(StandardCharsets.UTF_8);
+        final SyslogMessage bytesMessage = new BytesSyslogMessage(msgBytes, 1, msgBytes.length - 2)
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withAppName("capsulated")
+                .withHostname("localhost")
+                .withTimestamp(1700000000000L)
+                .withSDElement(new SDElement("CFE-16-metadata@48577", new SDParam("channel", "CHANNEL_11111")));
+        final byte[] encoded = syslogMessage(msg).toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8);
+
+        Assertions.assertArrayEquals(encoded, new SyslogFrames(bytesMessage, 0).asList().get(0));
+        Assertions.assertEquals(msg, bytesMessage.getMsg().toString());
+    }
+
+    @Test
+    public void oversizedBytesMessageIsSplitLikeItsStringMessage() {
+        final StringBuilder msg = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            msg.append(i % 5 == 0 ? "ä€😀" : "event");
+        }
+        final byte[] msgBytes = msg.toString().getBytes(StandardCharsets.UTF_8);
+        final SyslogMessage bytesMessage = new BytesSyslogMessage(msgBytes, 0, msgBytes.length)
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withAppName("capsulated")
+                .withHostname("localhost")
+                .withTimestamp(1700000000000L)
+                .withSDElement(new SDElement("CFE-16-metadata@48577", new SDParam("channel", "CHANNEL_11111")));
+        final List<byte[]> frames = new SyslogFrames(bytesMessage, 512).asList();
+        final List<byte[]> stringFrames = new SyslogFrames(syslogMessage(msg.toString()), 512).asList();
+
+        Assertions.assertEquals(stringFrames.size(), frames.size());
+        final StringBuilder joined = new StringBuilder();
+        for (final byte[] frame : frames) {
+            final Matcher matcher = FRAGMENT.matcher(new String(frame, StandardCharsets.UTF_8));
+            Assertions.assertTrue(matcher.find());
+            joined.append(matcher.group(4));
+        }
+        Assertions.assertEquals(msg.toString(), joined.toString());
+    }
+}
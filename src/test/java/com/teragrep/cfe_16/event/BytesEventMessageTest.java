@@ -0,0 +1,110 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.event;
+
+import com.cloudbees.syslog.Facility;
+import com.cloudbees.syslog.Severity;
+import com.cloudbees.syslog.SyslogMessage;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BytesEventMessageTest {
+
+    @Test
+    @DisplayName("isStub() returns false")
+    void isStubReturnsFalse() {
+        final BytesEventMessage event = new BytesEventMessage("event".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertFalse(event::isStub);
+    }
+
+    @Test
+    @DisplayName("asString() decodes the byte range")
+    void asStringDecodesTheByteRange() {
+        final byte[] bytes = "{\"event\":\"ä€😀\"}".getBytes(StandardCharsets.UTF_8);
+        final BytesEventMessage event = new BytesEventMessage(bytes, 10, bytes.length - 12);
+
+        Assertions.assertEquals("ä€😀", event.asString());
+    }
+
+    @Test
+    @DisplayName("asSyslogMessage() encodes the same frame as the String message")
+    void asSyslogMessageEncodesTheSameFrameAsTheStringMessage() {
+        final byte[] bytes = "{\"event\":\"ä€😀\"}".getBytes(StandardCharsets.UTF_8);
+        final SyslogMessage bytesMessage = new BytesEventMessage(bytes, 10, bytes.length - 12)
+                .asSyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withHostname("localhost")
+                .withTimestamp(1700000000000L);
+        final SyslogMessage stringMessage = new EventMessageImpl("ä€😀")
+                .asSyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withHostname("localhost")
+                .withTimestamp(1700000000000L);
+
+        Assertions.assertTrue(bytesMessage instanceof BytesSyslogMessage);
+        Assertions
+                .assertArrayEquals(stringMessage.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8), ((BytesSyslogMessage) bytesMessage).toRfc5424Bytes());
+        Assertions.assertEquals(stringMessage.toRfc5424SyslogMessage(), bytesMessage.toRfc5424SyslogMessage());
+        Assertions.assertEquals("ä€😀", bytesMessage.getMsg().toString());
+    }
+
+    @Test
+    @DisplayName("equals() compares the byte range")
+    void equalsComparesTheByteRange() {
+        final byte[] bytes = "xeventx".getBytes(StandardCharsets.UTF_8);
+        final BytesEventMessage event = new BytesEventMessage(bytes, 1, 5);
+        final BytesEventMessage other = new BytesEventMessage("event".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertEquals(other, event);
+        Assertions.assertEquals(other.hashCode(), event.hashCode());
+        Assertions.assertNotEquals(new BytesEventMessage(bytes, 0, 5), event);
+    }
+}
@@ -72,4 +72,14 @@ public final class JsonEventFake implements JsonEvent {
     public boolean hasTime() {
         return false;
     }
+
+    @Override
+    public String index() {
+        return null;
+    }
+
+    @Override
+    public String sourceType() {
+        return null;
+    }
 }
@@ -0,0 +1,231 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.idempotency;
+
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.ServerIsBusyException;
+import com.teragrep.cfe_16.response.AcknowledgedJsonResponse;
+import com.teragrep.cfe_16.response.ExceptionJsonResponse;
+import com.teragrep.cfe_16.response.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class IdempotencyCacheTest {
+
+    private IdempotencyCache idempotencyCache(final Configuration configuration, final SimpleMeterRegistry registry) {
+        return new IdempotencyCache(configuration, new TokenRegistry(configuration), registry);
+    }
+
+    private Response next(final AtomicInteger sends) {
+        return new AcknowledgedJsonResponse("Success", sends.getAndIncrement());
+    }
+
+    @Test
+    public void repeatedKeyReturnsOriginalResponse() {
+        final Configuration configuration = new Configuration();
+        configuration.setIdempotencyWindow(60000);
+        configuration.setIdempotencyMaxKeys(100);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final IdempotencyCache idempotencyCache = idempotencyCache(configuration, registry);
+        final AtomicInteger sends = new AtomicInteger();
+
+        final Response first = idempotencyCache.respond("TOKEN", "key-1", () -> next(sends));
+        final Response repeated = idempotencyCache.respond("TOKEN", "key-1", () -> next(sends));
+        final Response otherKey = idempotencyCache.respond("TOKEN", "key-2", () -> next(sends));
+        final Response otherToken = idempotencyCache.respond("OTHER_TOKEN", "key-1", () -> next(sends));
+
+        Assertions.assertEquals(new AcknowledgedJsonResponse("Success", 0), first);
+        Assertions.assertSame(first, repeated);
+        Assertions.assertEquals(new AcknowledgedJsonResponse("Success", 1), otherKey);
+        Assertions.assertEquals(new AcknowledgedJsonResponse("Success", 2), otherToken);
+        Assertions.assertEquals(3, sends.get());
+        Assertions.assertEquals(1, registry.get("cfe_16.idempotency.replayed").counter().count());
+        Assertions.assertEquals(3, registry.get("cfe_16.idempotency.keys").gauge().value());
+    }
+
+    @Test
+    public void failedRequestIsForgotten() {
+        final Configuration configuration = new Configuration();
+        configuration.setIdempotencyWindow(60000);
+        configuration.setIdempotencyMaxKeys(100);
+        final IdempotencyCache idempotencyCache = idempotencyCache(configuration, new SimpleMeterRegistry());
+
+        Assertions.assertThrows(ServerIsBusyException.class, () -> idempotencyCache.respond("TOKEN", "key", () -> {
+            throw new ServerIsBusyException("busy", null, false, false);
+        }));
+        final Response retried = idempotencyCache
+                .respond("TOKEN", "key", () -> new AcknowledgedJsonResponse("Success", 1));
+
+        Assertions.assertEquals(new AcknowledgedJsonResponse("Success", 1), retried);
+    }
+
+    @Test
+    public void errorResponseIsForgotten() {
+        final Configuration configuration = new Configuration();
+        configuration.setIdempotencyWindow(60000);
+        configuration.setIdempotencyMaxKeys(100);
+        final IdempotencyCache idempotencyCache = idempotencyCache(configuration, new SimpleMeterRegistry());
+        final Response malformed = new ExceptionJsonResponse(UUID.randomUUID());
+
+        final Response first = idempotencyCache.respond("TOKEN", "key", () -> malformed);
+        final Response retried = idempotencyCache
+                .respond("TOKEN", "key", () -> new AcknowledgedJsonResponse("Success", 1));
+
+        Assertions.assertSame(malformed, first);
+        Assertions.assertEquals(new AcknowledgedJsonResponse("Success", 1), retried);
+    }
+
+    @Test
+    public void failingKeysDoNotAccumulate() {
+        final Configuration configuration = new Configuration();
+        configuration.setIdempotencyWindow(60000);
+        configuration.setIdempotencyMaxKeys(10);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final IdempotencyCache idempotencyCache = idempotencyCache(configuration, registry);
+        final AtomicInteger sends = new AtomicInteger();
+
+        idempotencyCache.respond("TOKEN", "kept", () -> next(sends));
+        for (int i = 0; i < 100; i++) {
+            final String busyKey = "busy-" + i;
+            idempotencyCache.respond("TOKEN", "malformed-" + i, () -> new ExceptionJsonResponse(UUID.randomUUID()));
+            Assertions
+                    .assertThrows(ServerIsBusyException.class, () -> idempotencyCache.respond("TOKEN", busyKey, () -> {
+                        throw new ServerIsBusyException("busy", null, false, false);
+                    }));
+        }
+        final Response replayed = idempotencyCache.respond("TOKEN", "kept", () -> next(sends));
+
+        Assertions.assertEquals(1, registry.get("cfe_16.idempotency.keys").gauge().value());
+        // the failures neither filled the keys nor evicted the successful one
+        Assertions.assertEquals(new AcknowledgedJsonResponse("Success", 0), replayed);
+        Assertions.assertEquals(1, sends.get());
+    }
+
+    @Test
+    public void requestsWithoutKeyOrWindowAreAlwaysSent() {
+        final Configuration configuration = new Configuration();
+        configuration.setIdempotencyMaxKeys(100);
+        final IdempotencyCache idempotencyCache = idempotencyCache(configuration, new SimpleMeterRegistry());
+        final AtomicInteger sends = new AtomicInteger();
+
+        idempotencyCache.respond("TOKEN", "key", () -> next(sends));
+        idempotencyCache.respond("TOKEN", "key", () -> next(sends));
+        configuration.setIdempotencyWindow(60000);
+        idempotencyCache.respond("TOKEN", null, () -> next(sends));
+        idempotencyCache.respond("TOKEN", null, () -> next(sends));
+
+        Assertions.assertEquals(4, sends.get());
+    }
+
+    @Test
+    public void oldestKeyIsForgottenWhenFull() {
+        final Configuration configuration = new Configuration();
+        configuration.setIdempotencyWindow(60000);
+        configuration.setIdempotencyMaxKeys(2);
+        final IdempotencyCache idempotencyCache = idempotencyCache(configuration, new SimpleMeterRegistry());
+        final AtomicInteger sends = new AtomicInteger();
+
+        for (final String key : new String[] {
+                "a", "b", "c", "a"
+        }) {
+            idempotencyCache.respond("TOKEN", key, () -> next(sends));
+        }
+
+        Assertions.assertEquals(4, sends.get());
+    }
+
+    @Test
+    public void repeatWaitsForRequestInFlight() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.setIdempotencyWindow(60000);
+        configuration.setIdempotencyMaxKeys(100);
+        final IdempotencyCache idempotencyCache = idempotencyCache(configuration, new SimpleMeterRegistry());
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger sends = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Response> first = executor.submit(() -> idempotencyCache.respond("TOKEN", "key", () -> {
+                sending.countDown();
+                try {
+                    release.await();
+                }
+                catch (final InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new AcknowledgedJsonResponse("Success", sends.getAndIncrement());
+            }));
+            Assertions.assertTrue(sending.await(10, TimeUnit.SECONDS));
+            final Future<Response> repeated = executor
+                    .submit(() -> idempotencyCache.respond("TOKEN", "key", () -> next(sends)));
+            Assertions.assertThrows(TimeoutException.class, () -> repeated.get(100, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            Assertions.assertEquals(new AcknowledgedJsonResponse("Success", 0), first.get(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(new AcknowledgedJsonResponse("Success", 0), repeated.get(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(1, sends.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void hashIsStable() {
+        Assertions.assertEquals(IdempotencyCache.hash("key"), IdempotencyCache.hash(new String("key")));
+        Assertions.assertNotEquals(IdempotencyCache.hash("key-1"), IdempotencyCache.hash("key-2"));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.it;
+
+import com.teragrep.cfe_16.response.AcknowledgedJsonResponse;
+import com.teragrep.cfe_16.server.TestServer;
+import com.teragrep.cfe_16.server.TestServerFactory;
+import com.teragrep.cfe_16.service.HECService;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = {
+        "syslog.server.host=127.0.0.1",
+        "syslog.server.port=1241",
+        "syslog.server.protocol=RELP",
+        "max.channels=1000000",
+        "max.ack.value=1000000",
+        "max.ack.age=20000",
+        "max.session.age=30000",
+        "poll.time=30000",
+        "spring.devtools.add-properties=false",
+        "server.print.times=true",
+        "output.routes.file=src/test/resources/routes.csv"
+})
+@SpringBootTest
+public class RoutingIT {
+
+    private static final int DEFAULT_PORT = 1241;
+    private static final int AUDIT_PORT = 1242;
+    private static final ConcurrentLinkedDeque<byte[]> defaultMessages = new ConcurrentLinkedDeque<>();
+    private static final ConcurrentLinkedDeque<byte[]> auditMessages = new ConcurrentLinkedDeque<>();
+    private static TestServer defaultServer;
+    private static TestServer auditServer;
+    @Autowired
+    private HECService service;
+
+    @BeforeAll
+    public static void init() {
+        final TestServerFactory serverFactory = new TestServerFactory();
+        defaultServer = Assertions
+                .assertDoesNotThrow(
+                        () -> serverFactory.create(DEFAULT_PORT, defaultMessages, new AtomicLong(), new AtomicLong())
+                );
+        defaultServer.run();
+        auditServer = Assertions
+                .assertDoesNotThrow(
+                        () -> serverFactory.create(AUDIT_PORT, auditMessages, new AtomicLong(), new AtomicLong())
+                );
+        auditServer.run();
+    }
+
+    @AfterAll
+    public static void close() {
+        Assertions.assertDoesNotThrow(() -> defaultServer.close());
+        Assertions.assertDoesNotThrow(() -> auditServer.close());
+    }
+
+    @Test
+    public void routesEventsByIndexAndSourcetype() {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "AUTH_TOKEN_11111");
+        final String eventsInJson = "{\"index\": \"audit\", \"event\": \"audit by index\"}"
+                + "{\"sourcetype\": \"debug\", \"event\": \"debug message\"}"
+                + "{\"sourcetype\": \"audit:trail\", \"event\": \"audit by sourcetype\"}";
+
+        Assertions
+                .assertEquals(new AcknowledgedJsonResponse("Success", 0), service.sendEvents(request, "CHANNEL_11111", eventsInJson));
+
+        Assertions.assertEquals(1, defaultMessages.size(), "Unrouted events should go to the syslog server");
+        Assertions.assertTrue(new String(defaultMessages.getFirst(), StandardCharsets.UTF_8).contains("debug message"));
+        Assertions.assertEquals(2, auditMessages.size(), "Routed events should go to their destination");
+        Assertions.assertTrue(new String(auditMessages.getFirst(), StandardCharsets.UTF_8).contains("audit by index"));
+        Assertions
+                .assertTrue(new String(auditMessages.getLast(), StandardCharsets.UTF_8).contains("audit by sourcetype"));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.jfr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HECBatchParseEventTest {
+
+    @Test
+    void eventIsRecordedWithFieldsTest() {
+        final Path recordingPath = Assertions.assertDoesNotThrow(() -> Files.createTempFile("cfe_16", ".jfr"));
+        try (final Recording recording = new Recording()) {
+            recording.enable(HECBatchParseEvent.class);
+            recording.start();
+
+            final HECBatchParseEvent event = new HECBatchParseEvent("CHANNEL_11111", 123);
+            event.begin();
+            event.end();
+            Assertions.assertTrue(event.shouldCommit());
+            event.setEventCount(2);
+            event.commit();
+
+            recording.stop();
+            Assertions.assertDoesNotThrow(() -> recording.dump(recordingPath));
+        }
+
+        final List<RecordedEvent> events = Assertions
+                .assertDoesNotThrow(() -> RecordingFile.readAllEvents(recordingPath))
+                .stream()
+                .filter(e -> e.getEventType().getName().equals("com.teragrep.cfe_16.HECBatchParse"))
+                .collect(Collectors.toList());
+        Assertions.assertDoesNotThrow(() -> Files.delete(recordingPath));
+
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals("CHANNEL_11111", events.get(0).getString("channel"));
+        Assertions.assertEquals(123L, events.get(0).getLong("payloadCharacters"));
+        Assertions.assertEquals(2, events.get(0).getInt("eventCount"));
+    }
+}
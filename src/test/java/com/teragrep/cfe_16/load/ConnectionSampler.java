@@ -0,0 +1,110 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+
+/**
+ * Samples the number of open connections of an in-process server every 100 milliseconds and keeps the peak, for
+ * comparing how many connections HTTP/1.1 and HTTP/2 clients need for the same load.
+ */
+final class ConnectionSampler implements Runnable {
+
+    private final WebServer webServer;
+    private final AtomicLong peak;
+    private final Thread thread;
+
+    ConnectionSampler(final WebServer webServer) {
+        this.webServer = webServer;
+        this.peak = new AtomicLong();
+        this.thread = new Thread(this, "load-connection-sampler");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        this.thread.start();
+    }
+
+    void stop() {
+        this.thread.interrupt();
+    }
+
+    long peak() {
+        return this.peak.get();
+    }
+
+    long current() {
+        final long current;
+        final ProtocolHandler protocolHandler = ((TomcatWebServer) this.webServer)
+                .getTomcat()
+                .getConnector()
+                .getProtocolHandler();
+        if (protocolHandler instanceof AbstractProtocol) {
+            current = ((AbstractProtocol<?>) protocolHandler).getConnectionCount();
+        }
+        else {
+            current = -1;
+        }
+        return current;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            this.peak.accumulateAndGet(current(), Math::max);
+            try {
+                Thread.sleep(100);
+            }
+            catch (final InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
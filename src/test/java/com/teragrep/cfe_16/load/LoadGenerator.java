@@ -0,0 +1,202 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.load;
+
+import com.teragrep.cfe_16.Cfe16Application;
+import com.teragrep.cfe_16.server.TestServer;
+import com.teragrep.cfe_16.server.TestServerFactory;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Open loop load generator for cfe_16. Replaces the old closed loop TestClient, which sent the next request only after
+ * the previous one completed and therefore could not show queueing delay. Arguments are key=value pairs:
+ * <ul>
+ * <li>url, base url of the server, default http://localhost:8080</li>
+ * <li>token, value of the Authorization header, default AUTH_TOKEN_12223</li>
+ * <li>rate, requests per second, default 100</li>
+ * <li>warmup, seconds of unmeasured load before the measurement, default 10</li>
+ * <li>duration, measured seconds, default 60</li>
+ * <li>mix, weighted request mix, see {@link RequestMix}, default json:ack:1:1</li>
+ * <li>threads, threads completing the responses, default 16</li>
+ * <li>protocol, http1 or h2c. http1 opens a connection per concurrent request, h2c multiplexes the requests over one
+ * connection after upgrading it, default http1</li>
+ * <li>server, external or in-process. in-process starts cfe_16 in this JVM and reports the peak number of server
+ * connections, default external</li>
+ * <li>server.port, port of the in-process server, default 8080</li>
+ * <li>sink.port, starts an in-process RELP sink on this port when positive, default 0</li>
+ * <li>histogram, file the latency percentile distribution is written to, default target/load-latency.hgrm</li>
+ * </ul>
+ */
+public final class LoadGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private LoadGenerator() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final LoadArguments arguments = new LoadArguments(args);
+        final int sinkPort = arguments.intValue("sink.port", 0);
+        final boolean inProcess = "in-process".equals(arguments.value("server", "external"));
+        final int serverPort = arguments.intValue("server.port", 8080);
+
+        TestServer sink = null;
+        final ConcurrentLinkedDeque<byte[]> sunk = new ConcurrentLinkedDeque<>();
+        final AtomicLong sinkOpenCount = new AtomicLong();
+        final AtomicLong sinkCloseCount = new AtomicLong();
+        // the sink only needs to acknowledge, received messages are dropped to keep memory flat on long runs
+        final Thread sinkDrainer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                sunk.clear();
+                try {
+                    Thread.sleep(100);
+                }
+                catch (final InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "load-sink-drainer");
+        sinkDrainer.setDaemon(true);
+        if (sinkPort > 0) {
+            sink = new TestServerFactory().create(sinkPort, sunk, sinkOpenCount, sinkCloseCount);
+            sink.run();
+            sinkDrainer.start();
+            LOGGER.info("Started RELP sink on port <{}>", sinkPort);
+        }
+
+        ConfigurableApplicationContext application = null;
+        if (inProcess) {
+            final String[] applicationArgs = {
+                    "--server.port=" + serverPort,
+                    "--syslog.server.port=" + (sinkPort > 0 ? sinkPort : 601),
+                    "--server.http2.enabled=true"
+            };
+            application = SpringApplication.run(Cfe16Application.class, applicationArgs);
+        }
+
+        ConnectionSampler connections = null;
+        if (application instanceof WebServerApplicationContext) {
+            connections = new ConnectionSampler(((WebServerApplicationContext) application).getWebServer());
+            connections.start();
+        }
+
+        final String protocol = arguments.value("protocol", "http1");
+        final HttpClient.Version version;
+        if ("h2c".equals(protocol)) {
+            version = HttpClient.Version.HTTP_2;
+        }
+        else if ("http1".equals(protocol)) {
+            version = HttpClient.Version.HTTP_1_1;
+        }
+        else {
+            throw new IllegalArgumentException("Unknown protocol <" + protocol + ">, expected http1 or h2c");
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(arguments.intValue("threads", 16));
+        try {
+            final HttpClient client = HttpClient
+                    .newBuilder()
+                    .version(version)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(executor)
+                    .build();
+            final RequestMix mix = new RequestMix(
+                    arguments.value("url", "http://localhost:" + serverPort),
+                    arguments.value("token", "AUTH_TOKEN_12223"),
+                    arguments.value("mix", "json:ack:1:1")
+            );
+            final OpenLoop.Result result = new OpenLoop(
+                    client,
+                    mix,
+                    arguments.doubleValue("rate", 100),
+                    TimeUnit.SECONDS.toNanos(arguments.intValue("warmup", 10)),
+                    TimeUnit.SECONDS.toNanos(arguments.intValue("duration", 60))
+            ).run();
+
+            System.out.println("Protocol: " + protocol);
+            System.out.println(result.summary());
+            if (connections != null) {
+                System.out.println("Peak server connections: " + connections.peak());
+            }
+            System.out.println("Latency from intended start time (ms):");
+            result.latency().outputPercentileDistribution(System.out, 1_000_000d);
+            System.out.println("Service time from actual send (ms):");
+            result.serviceTime().outputPercentileDistribution(System.out, 1_000_000d);
+
+            final String histogramPath = arguments.value("histogram", "target/load-latency.hgrm");
+            try (final PrintStream out = new PrintStream(new FileOutputStream(histogramPath))) {
+                result.latency().outputPercentileDistribution(out, 1_000_000d);
+            }
+            LOGGER.info("Wrote latency distribution to <{}>", histogramPath);
+        }
+        finally {
+            executor.shutdownNow();
+            if (connections != null) {
+                connections.stop();
+            }
+            if (application != null) {
+                application.close();
+            }
+            sinkDrainer.interrupt();
+            if (sink != null) {
+                sink.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.load;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Open loop request schedule. Requests are sent at fixed intended start times regardless of how long the previous
+ * requests take, and latency is measured from the intended start time rather than from the actual send. This way a
+ * stalled server shows up as queueing delay in the latency histogram instead of silently lowering the offered rate
+ * (coordinated omission). The time from the actual send to the response is recorded separately as service time.
+ * Requests still unanswered when the drain deadline passes are recorded with the latency they had reached by then, so
+ * that the slowest requests are not the ones left out.
+ */
+public final class OpenLoop {
+
+    /**
+     * Highest latency the histograms track, longer ones are recorded as this.
+     */
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final HttpClient client;
+    private final RequestMix mix;
+    private final double rate;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final Recorder latency;
+    private final Recorder serviceTime;
+    private final LongAdder responses;
+    private final LongAdder errors;
+    private final AtomicLong inFlight;
+    /**
+     * Intended start times of the measured requests in flight by their sequence number.
+     */
+    private final Map<Long, Long> pending;
+
+    public OpenLoop(
+            final HttpClient client,
+            final RequestMix mix,
+            final double rate,
+            final long warmupNanos,
+            final long durationNanos
+    ) {
+        this(
+                client,
+                mix,
+                rate,
+                warmupNanos,
+                durationNanos,
+                new Recorder(MAX_LATENCY_NANOS, 3),
+                new Recorder(MAX_LATENCY_NANOS, 3),
+                new LongAdder(),
+                new LongAdder(),
+                new AtomicLong(),
+                new ConcurrentHashMap<>()
+        );
+    }
+
+    private OpenLoop(
+            final HttpClient client,
+            final RequestMix mix,
+            final double rate,
+            final long warmupNanos,
+            final long durationNanos,
+            final Recorder latency,
+            final Recorder serviceTime,
+            final LongAdder responses,
+            final LongAdder errors,
+            final AtomicLong inFlight,
+            final Map<Long, Long> pending
+    ) {
+        this.client = client;
+        this.mix = mix;
+        this.rate = rate;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+        this.latency = latency;
+        this.serviceTime = serviceTime;
+        this.responses = responses;
+        this.errors = errors;
+        this.inFlight = inFlight;
+        this.pending = pending;
+    }
+
+    /**
+     * Runs the warmup and the measured period and waits for the outstanding requests to complete.
+     *
+     * @return responses of the measured period, requests scheduled during warmup are not recorded
+     */
+    public Result run() throws InterruptedException {
+        if (this.rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive, got <" + this.rate + ">");
+        }
+        final long start = System.nanoTime();
+        final long measureFrom = start + this.warmupNanos;
+        final long end = measureFrom + this.durationNanos;
+
+        long sent = 0;
+        long intended = start;
+        while (intended < end) {
+            final long now = System.nanoTime();
+            if (now < intended) {
+                LockSupport.parkNanos(intended - now);
+                continue;
+            }
+            send(sent, intended, intended >= measureFrom);
+            sent++;
+            // computed from the start time so that rounding does not accumulate into drift
+            intended = start + (long) (sent * 1_000_000_000d / this.rate);
+        }
+
+        final long drainDeadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (this.inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        long unfinished = 0;
+        for (final Long sequence : this.pending.keySet()) {
+            final Long intendedStart = this.pending.remove(sequence);
+            // null if it completed meanwhile and was recorded already
+            if (intendedStart != null) {
+                this.latency.recordValue(Math.min(drainDeadline - intendedStart, MAX_LATENCY_NANOS));
+                unfinished++;
+            }
+        }
+
+        final Histogram latencyHistogram = this.latency.getIntervalHistogram();
+        final Histogram serviceTimeHistogram = this.serviceTime.getIntervalHistogram();
+        return new Result(
+                latencyHistogram,
+                serviceTimeHistogram,
+                this.responses.sum(),
+                this.errors.sum(),
+                unfinished,
+                this.durationNanos
+        );
+    }
+
+    private void send(final long sequence, final long intendedStart, final boolean measured) {
+        final long sendStart = System.nanoTime();
+        this.inFlight.incrementAndGet();
+        if (measured) {
+            this.pending.put(sequence, intendedStart);
+        }
+        this.client
+                .sendAsync(this.mix.next(), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, throwable) -> {
+                    final long done = System.nanoTime();
+                    // not recorded again if the drain deadline recorded it as unfinished
+                    if (measured && this.pending.remove(sequence) != null) {
+                        this.latency.recordValue(Math.min(done - intendedStart, MAX_LATENCY_NANOS));
+                        this.serviceTime.recordValue(Math.min(done - sendStart, MAX_LATENCY_NANOS));
+                        this.responses.increment();
+                        if (throwable != null || response.statusCode() / 100 != 2) {
+                            this.errors.increment();
+                        }
+                    }
+                    this.inFlight.decrementAndGet();
+                });
+    }
+
+    public static final class Result {
+
+        private final Histogram latency;
+        private final Histogram serviceTime;
+        private final long responses;
+        private final long errors;
+        private final long unfinished;
+        private final long durationNanos;
+
+        private Result(
+                final Histogram latency,
+                final Histogram serviceTime,
+                final long responses,
+                final long errors,
+                final long unfinished,
+                final long durationNanos
+        ) {
+            this.latency = latency;
+            this.serviceTime = serviceTime;
+            this.responses = responses;
+            this.errors = errors;
+            this.unfinished = unfinished;
+            this.durationNanos = durationNanos;
+        }
+
+        public Histogram latency() {
+            return this.latency;
+        }
+
+        public Histogram serviceTime() {
+            return this.serviceTime;
+        }
+
+        public String summary() {
+            final double seconds = this.durationNanos / 1_000_000_000d;
+            return String
+                    .format(
+                            "responses=%d errors=%d unfinished=%d throughput=%.1f/s p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+                            this.responses, this.errors, this.unfinished, this.responses / seconds, this.latency
+                                    .getValueAtPercentile(50) / 1_000_000d,
+                            this.latency.getValueAtPercentile(99) / 1_000_000d, this.latency.getValueAtPercentile(99.9) / 1_000_000d, this.latency.getMaxValue() / 1_000_000d
+                    );
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.load;
+
+import java.net.http.HttpRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted mix of requests. Specification is a comma separated list of format:channel:events:weight entries, for
+ * example json:ack:100:1,form:default:1:3 sends three single event form posts for every 100 event JSON post.
+ */
+public final class RequestMix {
+
+    private final List<HttpRequest> weightedRequests;
+
+    public RequestMix(final String baseUrl, final String authorization, final String specification) {
+        this(weighted(baseUrl, authorization, specification));
+    }
+
+    private RequestMix(final List<HttpRequest> weightedRequests) {
+        this.weightedRequests = weightedRequests;
+    }
+
+    private static List<HttpRequest> weighted(
+            final String baseUrl,
+            final String authorization,
+            final String specification
+    ) {
+        final List<HttpRequest> requests = new ArrayList<>();
+        for (final String entry : specification.split(",")) {
+            final int weightSeparator = entry.lastIndexOf(':');
+            final HttpRequest request = new RequestTemplate(baseUrl, authorization, entry.substring(0, weightSeparator))
+                    .asHttpRequest();
+            final int weight = Integer.parseInt(entry.substring(weightSeparator + 1));
+            for (int i = 0; i < weight; i++) {
+                requests.add(request);
+            }
+        }
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("Request mix <" + specification + "> has no requests");
+        }
+        return requests;
+    }
+
+    public HttpRequest next() {
+        return this.weightedRequests.get(ThreadLocalRandom.current().nextInt(this.weightedRequests.size()));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * One kind of request in the payload mix. Specification format is format:channel:events, where format is json or form,
+ * channel is ack or default and events is the number of events in the batch, for example json:ack:100.
+ */
+public final class RequestTemplate {
+
+    private final String baseUrl;
+    private final String authorization;
+    private final String specification;
+
+    public RequestTemplate(final String baseUrl, final String authorization, final String specification) {
+        this.baseUrl = baseUrl;
+        this.authorization = authorization;
+        this.specification = specification;
+    }
+
+    public HttpRequest asHttpRequest() {
+        final String[] parts = this.specification.split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException(
+                    "Request specification must be format:channel:events, got <" + this.specification + ">"
+            );
+        }
+        final String format = parts[0];
+        final String channel = parts[1];
+        final int events = Integer.parseInt(parts[2]);
+
+        final String path;
+        if ("ack".equals(channel)) {
+            path = "/services/collector?channel=LOAD_" + this.specification.replace(':', '_');
+        }
+        else if ("default".equals(channel)) {
+            path = "/services/collector";
+        }
+        else {
+            throw new IllegalArgumentException("Channel must be ack or default, got <" + channel + ">");
+        }
+
+        final StringBuilder json = new StringBuilder();
+        for (int i = 0; i < events; i++) {
+            json
+                    .append("{\"sourcetype\":\"load\", \"event\": \"load generator event ")
+                    .append(i)
+                    .append(" of ")
+                    .append(events)
+                    .append("\"}");
+        }
+
+        final String contentType;
+        final String body;
+        if ("json".equals(format)) {
+            contentType = "application/json";
+            body = json.toString();
+        }
+        else if ("form".equals(format)) {
+            contentType = "application/x-www-form-urlencoded";
+            body = URLEncoder.encode(json.toString(), StandardCharsets.UTF_8);
+        }
+        else {
+            throw new IllegalArgumentException("Format must be json or form, got <" + format + ">");
+        }
+
+        return HttpRequest
+                .newBuilder(URI.create(this.baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Authorization", this.authorization)
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.config.Configuration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class FairQueueTest {
+
+    @Test
+    public void smallBatchesOvertakeQueuedLargeBatches() throws Exception {
+        final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Integer> sentSizes = new ConcurrentLinkedQueue<>();
+        final OutputSink sink = syslogMessages -> {
+            if (sentSizes.isEmpty()) {
+                firstBatchStarted.countDown();
+                try {
+                    releaseFirstBatch.await();
+                }
+                catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sentSizes.add(syslogMessages.size());
+            return CompletableFuture.completedFuture(null);
+        };
+        final Configuration configuration = new Configuration();
+        final FairQueue fairQueue = new FairQueue(
+                sink,
+                new TokenRegistry(configuration),
+                configuration,
+                0,
+                new SimpleMeterRegistry()
+        );
+        fairQueue.start();
+        final ExecutorService executorService = Executors.newFixedThreadPool(5);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            // occupies the dispatcher so that the rest queue up behind it
+            futures.add(executorService.submit(() -> fairQueue.send("HEAVY_TOKEN", messages(50))));
+            Assertions.assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+            futures.add(executorService.submit(() -> fairQueue.send("HEAVY_TOKEN", messages(100))));
+            futures.add(executorService.submit(() -> fairQueue.send("HEAVY_TOKEN", messages(100))));
+            futures.add(executorService.submit(() -> fairQueue.send("LIGHT_TOKEN", messages(1))));
+            futures.add(executorService.submit(() -> fairQueue.send("LIGHT_TOKEN", messages(1))));
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (fairQueue.getQueuedBatches() < 4 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Assertions.assertEquals(4, fairQueue.getQueuedBatches());
+            Assertions.assertEquals(2, fairQueue.getFlowCount());
+
+            releaseFirstBatch.countDown();
+            for (final Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+
+            Assertions.assertEquals(List.of(50, 1, 1, 100, 100), new ArrayList<>(sentSizes));
+            Assertions.assertEquals(0, fairQueue.getQueuedBatches());
+            Assertions.assertEquals(0, fairQueue.getFlowCount());
+        }
+        finally {
+            executorService.shutdownNow();
+            fairQueue.stop();
+        }
+    }
+
+    @Test
+    public void stateCoversQueuedAndInProgressBatches() throws Exception {
+        final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        final OutputSink sink = syslogMessages -> {
+            firstBatchStarted.countDown();
+            try {
+                releaseFirstBatch.await();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture(null);
+        };
+        final Configuration configuration = new Configuration();
+        final FairQueue fairQueue = new FairQueue(
+                sink,
+                new TokenRegistry(configuration),
+                configuration,
+                0,
+                new SimpleMeterRegistry()
+        );
+        fairQueue.start();
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> first = executorService.submit(() -> fairQueue.send("TOKEN", messages(1)));
+            Assertions.assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+            final Future<?> second = executorService
+                    .submit(() -> fairQueue.send("TOKEN", List.of(new SyslogMessage().withMsg("12345"), new SyslogMessage().withMsg("ä€😀"))));
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (fairQueue.getQueuedBatches() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(20);
+            final OutputState state = fairQueue.state();
+            Assertions.assertEquals(1, state.queuedBatches());
+            Assertions.assertEquals(2, state.queuedMessages());
+            // counted in UTF-8, "ä€😀" is nine bytes
+            Assertions.assertEquals(14, state.queuedBytes());
+            // the batch in progress is older than the queued one
+            Assertions.assertTrue(state.oldestQueuedNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+
+            releaseFirstBatch.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            second.get(10, TimeUnit.SECONDS);
+            Assertions.assertTrue(fairQueue.drain(System.nanoTime() + TimeUnit.SECONDS.toNanos(10)));
+            Assertions.assertEquals(new OutputState(), fairQueue.state());
+        }
+        finally {
+            executorService.shutdownNow();
+            fairQueue.stop();
+        }
+    }
+
+    @Test
+    public void batchIsSettledWhenTheSinkDeliversIt() throws Exception {
+        final CompletableFuture<Void> delivered = new CompletableFuture<>();
+        final CountDownLatch firstWritten = new CountDownLatch(1);
+        final OutputSink sink = syslogMessages -> {
+            // the first batch waits for a later group commit, the next ones are delivered at once
+            final CompletableFuture<Void> stage;
+            if (firstWritten.getCount() > 0) {
+                firstWritten.countDown();
+                stage = delivered;
+            }
+            else {
+                stage = CompletableFuture.completedFuture(null);
+            }
+            return stage;
+        };
+        final Configuration configuration = new Configuration();
+        final FairQueue fairQueue = new FairQueue(
+                sink,
+                new TokenRegistry(configuration),
+                configuration,
+                0,
+                new SimpleMeterRegistry()
+        );
+        fairQueue.start();
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> first = executorService.submit(() -> fairQueue.send("TOKEN", messages(1)));
+            Assertions.assertTrue(firstWritten.await(10, TimeUnit.SECONDS));
+            // the dispatcher moves on while the first batch waits
+            final Future<?> second = executorService.submit(() -> fairQueue.send("OTHER_TOKEN", messages(1)));
+            second.get(10, TimeUnit.SECONDS);
+            Thread.sleep(50);
+            Assertions.assertFalse(first.isDone());
+            Assertions.assertFalse(fairQueue.drain(System.nanoTime()));
+
+            delivered.complete(null);
+            first.get(10, TimeUnit.SECONDS);
+            Assertions.assertTrue(fairQueue.drain(System.nanoTime() + TimeUnit.SECONDS.toNanos(10)));
+        }
+        finally {
+            executorService.shutdownNow();
+            fairQueue.stop();
+        }
+    }
+
+    private List<SyslogMessage> messages(final int count) {
+        return Collections.nCopies(count, new SyslogMessage());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class RoutesFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private RoutingTable routingTable(final String ... lines) throws IOException {
+        final Path file = tempDir.resolve("routes");
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+        return new RoutesFile(file).routingTable();
+    }
+
+    @Test
+    public void mostSpecificRuleWins() throws IOException {
+        final RoutingTable routingTable = routingTable(
+                "# name,host,port,shards,token,index,sourcetype", "audit,audit.example.com,601,1,*,audit,*",
+                "debug,debug.example.com,601,2,*,*,debug", "debug,debug.example.com,601,2,app,main,*", "",
+                "archive,archive.example.com,1601,,app,*,*"
+        );
+
+        Assertions
+                .assertEquals(List.of(new Destination("audit", "audit.example.com", 601, 1), new Destination("debug", "debug.example.com", 601, 2), new Destination("archive", "archive.example.com", 1601, 1)), routingTable.destinations());
+        final RoutingTable.TokenRoutes anyToken = routingTable.routesOf("other");
+        Assertions.assertEquals(0, anyToken.destinationOf("audit", "debug"));
+        Assertions.assertEquals(1, anyToken.destinationOf("main", "debug"));
+        Assertions.assertEquals(1, anyToken.destinationOf(null, "debug"));
+        Assertions.assertEquals(-1, anyToken.destinationOf("main", "access"));
+        Assertions.assertEquals(-1, anyToken.destinationOf(null, null));
+
+        final RoutingTable.TokenRoutes app = routingTable.routesOf("app");
+        Assertions.assertEquals(1, app.destinationOf("main", "access"));
+        Assertions.assertEquals(2, app.destinationOf("audit", "debug"));
+        Assertions.assertEquals(2, app.destinationOf(null, null));
+    }
+
+    @Test
+    public void rejectsContradictions() {
+        Assertions
+                .assertThrows(
+                        IllegalArgumentException.class,
+                        () -> routingTable("audit,a.example.com,601,1,*,audit", "audit,b.example.com,601,1,*,other")
+                );
+        Assertions
+                .assertThrows(
+                        IllegalArgumentException.class,
+                        () -> routingTable("audit,a.example.com,601,1,*,audit", "debug,b.example.com,601,1,*,audit")
+                );
+        Assertions.assertThrows(IllegalArgumentException.class, () -> routingTable("default,a.example.com,601"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> routingTable("audit,a.example.com"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> routingTable("audit,a.example.com,port"));
+    }
+
+    @Test
+    public void hostMayNameTheProtocol() throws IOException {
+        final RoutingTable routingTable = routingTable(
+                "audit,tls://audit.example.com,6514,1,*,audit", "debug,TCP://debug.example.com,601,1,*,debug",
+                "archive,relp://archive.example.com,1601,1,*,archive"
+        );
+
+        Assertions
+                .assertEquals(List.of(new Destination("audit", Destination.TLS, "audit.example.com", 6514, 1), new Destination("debug", Destination.TCP, "debug.example.com", 601, 1), new Destination("archive", "archive.example.com", 1601, 1)), routingTable.destinations());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> routingTable("audit,udp://a.example.com,514"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> routingTable("audit,tls://,6514"));
+        Assertions
+                .assertThrows(
+                        IllegalArgumentException.class,
+                        () -> routingTable(
+                                "audit,tls://a.example.com,601,1,*,audit", "audit,a.example.com,601,1,*,other"
+                        )
+                );
+    }
+
+    @Test
+    public void sameRulesCompileToEqualTables() throws IOException {
+        Assertions
+                .assertEquals(routingTable("audit,audit.example.com,601,1,*,audit,*"), routingTable("audit,audit.example.com,601,1,*,audit"));
+        Assertions.assertTrue(routingTable("# nothing").isEmpty());
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.output;
+
+import com.cloudbees.syslog.Facility;
+import com.cloudbees.syslog.Severity;
+import com.cloudbees.syslog.SyslogMessage;
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.bo.HECRecord;
+import com.teragrep.cfe_16.bo.HECRecordImpl;
+import com.teragrep.cfe_16.bo.HeaderInfo;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.config.ConfigurationChangedEvent;
+import com.teragrep.cfe_16.config.ConfigurationSnapshot;
+import com.teragrep.cfe_16.event.EventMessageImpl;
+import com.teragrep.cfe_16.event.time.HECTimeStub;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public final class ShardedOutputTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void channelAlwaysMapsToSameShard() {
+        final Configuration configuration = new Configuration();
+        configuration.setOutputShards(4);
+        final ShardedOutput output = new ShardedOutput(
+                configuration,
+                new TokenRegistry(configuration),
+                new SimpleMeterRegistry()
+        );
+
+        final Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            final int shard = output.shardOf("AUTH_TOKEN_11111", "CHANNEL_" + i);
+            Assertions.assertTrue(shard >= 0 && shard < 4, "Shard " + shard + " out of range");
+            Assertions.assertEquals(shard, output.shardOf("AUTH_TOKEN_11111", "CHANNEL_" + i));
+            usedShards.add(shard);
+        }
+        Assertions.assertEquals(4, usedShards.size(), "Channels should spread over all shards");
+    }
+
+    @Test
+    public void defaultsToSingleShard() {
+        final Configuration configuration = new Configuration();
+        final ShardedOutput output = new ShardedOutput(
+                configuration,
+                new TokenRegistry(configuration),
+                new SimpleMeterRegistry()
+        );
+        Assertions.assertEquals(0, output.shardOf("AUTH_TOKEN_11111", "CHANNEL_1"));
+        Assertions.assertEquals(0, output.shardOf("AUTH_TOKEN_22222", "CHANNEL_2"));
+    }
+
+    @Test
+    public void registersGaugesPerDestination() throws IOException {
+        final Path file = tempDir.resolve("routes");
+        Files.write(file, List.of("audit,127.0.0.1,1601,2,*,audit"), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        configuration.setOutputRoutesFile(file.toString());
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ShardedOutput(configuration, new TokenRegistry(configuration), registry);
+
+        Assertions.assertEquals(3, registry.find("cfe_16.output.queue.depth").gauges().size());
+        Assertions
+                .assertEquals(0, registry.get("cfe_16.output.queue.depth").tag("destination", "audit").tag("shard", "1").gauge().value());
+    }
+
+    @Test
+    public void rejectsMalformedRoutes() throws IOException {
+        final Path file = tempDir.resolve("routes");
+        Files.write(file, List.of("audit,127.0.0.1"), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        configuration.setOutputRoutesFile(file.toString());
+
+        Assertions
+                .assertThrows(
+                        IllegalStateException.class, () -> new ShardedOutput(
+                                configuration,
+                                new TokenRegistry(configuration),
+                                new SimpleMeterRegistry()
+                        )
+                );
+    }
+
+    @Test
+    public void reloadDoesNotWaitForUnreachableDestination() throws Exception {
+        final int port;
+        try (final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = serverSocket.getLocalPort();
+        }
+        final Path file = tempDir.resolve("routes");
+        Files.write(file, List.of("audit,127.0.0.1," + port + ",1,*,audit"), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        final ShardedOutput output = new ShardedOutput(
+                configuration,
+                new TokenRegistry(configuration),
+                new SimpleMeterRegistry()
+        );
+        final ConfigurationSnapshot previous = configuration.snapshot();
+        configuration.setOutputRoutesFile(file.toString());
+        final ConfigurationChangedEvent event = new ConfigurationChangedEvent(this, previous, configuration.snapshot());
+
+        try {
+            Assertions
+                    .assertDoesNotThrow(() -> CompletableFuture.runAsync(() -> output.onConfigurationChanged(event)).get(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(2, output.state().connections());
+        }
+        finally {
+            output.stop();
+        }
+    }
+
+    @Test
+    public void reloadAfterStopIsIgnored() throws IOException {
+        final Path file = tempDir.resolve("routes");
+        Files.write(file, List.of("audit,127.0.0.1,1601,1,*,audit"), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        final ShardedOutput output = new ShardedOutput(
+                configuration,
+                new TokenRegistry(configuration),
+                new SimpleMeterRegistry()
+        );
+        output.stop();
+        final ConfigurationSnapshot previous = configuration.snapshot();
+        configuration.setOutputRoutesFile(file.toString());
+
+        output.onConfigurationChanged(new ConfigurationChangedEvent(this, previous, configuration.snapshot()));
+        Assertions.assertEquals(1, output.state().connections());
+    }
+
+    @Test
+    public void reloadKeepsChannelOrder() throws Exception {
+        final Configuration configuration = new Configuration();
+        configuration.setShutdownDrainTimeout(500);
+        // not started, so the first batch stays queued on the previous shards until they are stopped
+        final ShardedOutput output = new ShardedOutput(
+                configuration,
+                new TokenRegistry(configuration),
+                new SimpleMeterRegistry()
+        );
+        final HECRecord record = new HECRecordImpl(
+                "CHANNEL_11111",
+                new EventMessageImpl("event"),
+                "AUTH_TOKEN_11111",
+                0,
+                new HECTimeStub(),
+                new HeaderInfo(new MockHttpServletRequest())
+        );
+        final SyslogMessage first = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withMsg("first");
+        final SyslogMessage second = new SyslogMessage()
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withMsg("second");
+        final CompletableFuture<Void> firstSend = CompletableFuture
+                .runAsync(() -> output.send("AUTH_TOKEN_11111", "CHANNEL_11111", List.of(record), List.of(first)));
+        while (output.getQueuedBatches() == 0) {
+            Thread.sleep(10);
+        }
+        final Path directory = tempDir.resolve("output");
+        final Path file = tempDir.resolve("routes");
+        Files.write(file, List.of("all,file://" + directory + ",0,1,*,*,*"), StandardCharsets.UTF_8);
+        final ConfigurationSnapshot previous = configuration.snapshot();
+        configuration.setOutputRoutesFile(file.toString());
+        final ConfigurationChangedEvent event = new ConfigurationChangedEvent(this, previous, configuration.snapshot());
+        final CompletableFuture<Void> reload = CompletableFuture.runAsync(() -> output.onConfigurationChanged(event));
+        while (output.state().connections() < 2) {
+            Thread.sleep(10);
+        }
+
+        try {
+            output.send("AUTH_TOKEN_11111", "CHANNEL_11111", List.of(record), List.of(second));
+
+            Assertions.assertTrue(firstSend.isDone(), "a later batch of the channel must not overtake the first");
+            Assertions.assertTrue(firstSend.isCompletedExceptionally(), "the first batch is failed after the deadline");
+            final String written = Files.readString(directory.resolve("all-0.log"), StandardCharsets.UTF_8);
+            Assertions.assertTrue(written.endsWith(" second"));
+            reload.get(10, TimeUnit.SECONDS);
+        }
+        finally {
+            output.stop();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.ratelimit;
+
+import com.teragrep.cfe_16.TokenRegistry;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.ServerIsBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public final class RateLimiterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void limitsTokenAndPublishesMeters() throws IOException {
+        final Path file = tempDir.resolve("tokens");
+        Files.write(file, List.of("LIMITED_TOKEN,limited,5,1000", "FREE_TOKEN,free,0,0"), StandardCharsets.UTF_8);
+        final Configuration configuration = new Configuration();
+        configuration.setTokenRegistryFile(file.toString());
+        final TokenRegistry registry = new TokenRegistry(configuration);
+        registry.start();
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final RateLimiter rateLimiter = new RateLimiter(registry, configuration, meterRegistry);
+
+        try {
+            // first request takes the bucket into debt with its events
+            Assertions.assertDoesNotThrow(() -> rateLimiter.admit("LIMITED_TOKEN", 100));
+            rateLimiter.charge("LIMITED_TOKEN", 20);
+            Assertions.assertThrows(ServerIsBusyException.class, () -> rateLimiter.admit("LIMITED_TOKEN", 100));
+
+            for (int i = 0; i < 100; i++) {
+                Assertions.assertDoesNotThrow(() -> rateLimiter.admit("FREE_TOKEN", 100_000));
+            }
+
+            Assertions
+                    .assertEquals(20, meterRegistry.get("cfe_16.ratelimit.admitted.events").tag("name", "limited").counter().count());
+            Assertions
+                    .assertEquals(100, meterRegistry.get("cfe_16.ratelimit.admitted.bytes").tag("name", "limited").counter().count());
+            Assertions
+                    .assertEquals(1, meterRegistry.get("cfe_16.ratelimit.rejected").tag("name", "limited").tag("limit", "events").counter().count());
+            Assertions
+                    .assertTrue(meterRegistry.find("cfe_16.ratelimit.rejected").tag("name", "free").meters().isEmpty());
+        }
+        finally {
+            registry.stop();
+        }
+    }
+
+    @Test
+    public void stopsWithoutStart() {
+        final Configuration configuration = new Configuration();
+        final RateLimiter rateLimiter = new RateLimiter(
+                new TokenRegistry(configuration),
+                configuration,
+                new SimpleMeterRegistry()
+        );
+
+        Assertions.assertDoesNotThrow(rateLimiter::stop);
+    }
+}
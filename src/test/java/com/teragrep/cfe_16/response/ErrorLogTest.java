@@ -0,0 +1,119 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.response;
+
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.InternalServerErrorException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import tools.jackson.core.exc.StreamReadException;
+
+class ErrorLogTest {
+
+    @Test
+    @DisplayName("errors over the rate are counted instead of logged")
+    void errorsOverTheRateAreCountedInsteadOfLogged() {
+        final Configuration configuration = new Configuration();
+        configuration.setErrorLogPerSecond(2);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final ErrorLog errorLog = new ErrorLog(configuration, meterRegistry);
+
+        final Set<UUID> uuids = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            final ExceptionJsonResponse response = errorLog
+                    .report(new MockHttpServletRequest(), new StreamReadException(null, "malformed"));
+            uuids.add(UUID.fromString(response.asJsonNodeResponseEntity().getBody().get("id").asString()));
+        }
+        errorLog.report(new MockHttpServletRequest(), new IOException("failed"));
+
+        Assertions.assertEquals(10, uuids.size());
+        for (final UUID uuid : uuids) {
+            Assertions.assertEquals(4, uuid.version());
+            Assertions.assertEquals(2, uuid.variant());
+        }
+        Assertions.assertEquals(10, meterRegistry.get("cfe_16.errors").tag("kind", "client").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("cfe_16.errors").tag("kind", "server").counter().count());
+        Assertions.assertEquals(9, meterRegistry.get("cfe_16.errors.suppressed").counter().count());
+    }
+
+    @Test
+    @DisplayName("errors answered otherwise share the rate")
+    void errorsAnsweredOtherwiseShareTheRate() {
+        final Configuration configuration = new Configuration();
+        configuration.setErrorLogPerSecond(1);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final ErrorLog errorLog = new ErrorLog(configuration, meterRegistry);
+
+        errorLog.report(new MockHttpServletRequest(), new StreamReadException(null, "malformed"));
+        for (int i = 0; i < 5; i++) {
+            errorLog.log(new MockHttpServletRequest(), new InternalServerErrorException("Output failed"));
+        }
+
+        Assertions.assertEquals(5, meterRegistry.get("cfe_16.errors").tag("kind", "server").counter().count());
+        Assertions.assertEquals(5, meterRegistry.get("cfe_16.errors.suppressed").counter().count());
+    }
+
+    @Test
+    @DisplayName("zero rate logs every error")
+    void zeroRateLogsEveryError() {
+        final Configuration configuration = new Configuration();
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final ErrorLog errorLog = new ErrorLog(configuration, meterRegistry);
+
+        for (int i = 0; i < 10; i++) {
+            errorLog.report(new MockHttpServletRequest(), new IllegalStateException("malformed"));
+        }
+
+        Assertions.assertEquals(0, meterRegistry.get("cfe_16.errors.suppressed").counter().count());
+    }
+}
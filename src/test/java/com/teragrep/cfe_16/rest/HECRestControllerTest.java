@@ -49,6 +49,8 @@ import com.teragrep.cfe_16.response.AcknowledgedJsonResponse;
 import com.teragrep.cfe_16.response.JsonResponse;
 import com.teragrep.cfe_16.server.TestServer;
 import com.teragrep.cfe_16.server.TestServerFactory;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.AfterAll;
@@ -59,13 +61,12 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.TestPropertySource;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import tools.jackson.databind.JsonNode;
 
 @TestPropertySource(properties = {
@@ -123,8 +124,10 @@ class HECRestControllerTest {
                 + "{\"sourcetype\":\"access\", \"source\":\"/var/log/access.log\", \"event\": "
                 + "{\"message\":\"Access log test message 2\"}}";
 
+        final byte[] body = eventInJson.getBytes(StandardCharsets.UTF_8);
+
         final ResponseEntity<JsonNode> responseEntity = Assertions
-                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1, eventInJson, channel1));
+                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1, body, channel1));
         final AcknowledgedJsonResponse expectedResponse = new AcknowledgedJsonResponse("Success", 0);
         final ResponseEntity<JsonNode> expectedResponseEntity = expectedResponse.asJsonNodeResponseEntity();
 
@@ -141,8 +144,10 @@ class HECRestControllerTest {
                 + "{\"sourcetype\":\"access\", \"source\":\"/var/log/access.log\", \"event\": "
                 + "{\"message\":\"Access log test message 2\"}}";
 
+        final byte[] body = eventInJson.getBytes(StandardCharsets.UTF_8);
+
         final ResponseEntity<JsonNode> responseEntity = Assertions
-                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1, eventInJson, null));
+                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1, body, null));
         final JsonResponse expectedResponse = new JsonResponse("Success");
         final ResponseEntity<JsonNode> expectedResponseEntity = expectedResponse.asJsonNodeResponseEntity();
 
@@ -150,8 +155,8 @@ class HECRestControllerTest {
     }
 
     @Test
-    @DisplayName("test multiValueMap sendEvents endpoint with channel present")
-    void testMultiValueMapSendEventsEndpointWithChannelPresent() {
+    @DisplayName("test form-urlencoded sendEvents endpoint with channel present")
+    void testFormUrlencodedSendEventsEndpointWithChannelPresent() {
         final MockHttpServletRequest request1 = new MockHttpServletRequest();
         request1.addHeader("Authorization", "AUTH_TOKEN_11111");
         final String channel1 = "CHANNEL_11111";
@@ -160,12 +165,12 @@ class HECRestControllerTest {
                 + "\"event\": {\"message\":\"Access log test message 1\"}} "
                 + "{\"sourcetype\":\"access\", \"source\":\"/var/log/access.log\", \"event\": "
                 + "{\"message\":\"Access log test message 2\"}";
-        final MultiValueMap<String, String> multiValueMap = new LinkedMultiValueMap<>();
-        multiValueMap.add("channel", channel1);
-        multiValueMap.add(eventInJson, null);
+        request1.setContentType(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+        request1
+                .setContent(("channel=" + channel1 + "&" + URLEncoder.encode(eventInJson, StandardCharsets.UTF_8)).getBytes(StandardCharsets.US_ASCII));
 
         final ResponseEntity<JsonNode> responseEntity = Assertions
-                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1, multiValueMap, channel1));
+                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1));
         final AcknowledgedJsonResponse expectedResponse = new AcknowledgedJsonResponse("Success", 0);
         final ResponseEntity<JsonNode> expectedResponseEntity = expectedResponse.asJsonNodeResponseEntity();
 
@@ -173,8 +178,8 @@ class HECRestControllerTest {
     }
 
     @Test
-    @DisplayName("test multiValueMap sendEvents endpoint without channel present")
-    void testMultiValueMapSendEventsEndpointWithoutChannelPresent() {
+    @DisplayName("test form-urlencoded sendEvents endpoint without channel present")
+    void testFormUrlencodedSendEventsEndpointWithoutChannelPresent() {
         final MockHttpServletRequest request1 = new MockHttpServletRequest();
         request1.addHeader("Authorization", "AUTH_TOKEN_11111");
         // Send JSON without the outer object brackets
@@ -182,14 +187,31 @@ class HECRestControllerTest {
                 + "\"event\": {\"message\":\"Access log test message 1\"}} "
                 + "{\"sourcetype\":\"access\", \"source\":\"/var/log/access.log\", \"event\": "
                 + "{\"message\":\"Access log test message 2\"}";
-        final MultiValueMap<String, String> multiValueMap = new LinkedMultiValueMap<>();
-        multiValueMap.add(eventInJson, null);
+        request1.setContentType(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+        request1.setContent(URLEncoder.encode(eventInJson, StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII));
 
         final ResponseEntity<JsonNode> responseEntity = Assertions
-                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1, multiValueMap, null));
+                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1));
         final JsonResponse expectedResponse = new JsonResponse("Success");
         final ResponseEntity<JsonNode> expectedResponseEntity = expectedResponse.asJsonNodeResponseEntity();
 
         Assertions.assertEquals(expectedResponseEntity, responseEntity);
     }
+
+    @Test
+    @DisplayName("test form-urlencoded sendEvents endpoint with channel in query string")
+    void testFormUrlencodedSendEventsEndpointWithChannelInQueryString() {
+        final MockHttpServletRequest request1 = new MockHttpServletRequest();
+        request1.addHeader("Authorization", "AUTH_TOKEN_11111");
+        request1.addParameter("channel", "CHANNEL_11111");
+        request1.setContentType(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+        request1
+                .setContent(URLEncoder.encode("{\"event\": \"Form test message\"}", StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII));
+
+        final ResponseEntity<JsonNode> responseEntity = Assertions
+                .assertDoesNotThrow(() -> this.hecRestController.sendEvents(request1));
+        final AcknowledgedJsonResponse expectedResponse = new AcknowledgedJsonResponse("Success", 0);
+
+        Assertions.assertEquals(expectedResponse.asJsonNodeResponseEntity(), responseEntity);
+    }
 }
@@ -0,0 +1,275 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.sharedstate;
+
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.exceptionhandling.ServerIsBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class SharedStateTest {
+
+    /**
+     * Two nodes sharing one embedded H2 database.
+     */
+    private SharedState[] nodes(final Configuration configuration) {
+        return nodes(configuration, "jdbc:h2:mem:cfe16-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    private SharedState[] nodes(final Configuration configuration, final String url) {
+        return new SharedState[] {
+                new SharedState(configuration, new JdbcStateStore(url, "sa", ""), new SimpleMeterRegistry()),
+                new SharedState(configuration, new JdbcStateStore(url, "sa", ""), new SimpleMeterRegistry())
+        };
+    }
+
+    private Configuration configuration() {
+        final Configuration configuration = new Configuration();
+        configuration.setMaxAckValue(1000);
+        configuration.setSharedStateAckBlock(10);
+        configuration.setSharedStateReadTtl(60000);
+        return configuration;
+    }
+
+    @Test
+    public void channelAddedOnOneNodeIsFoundOnAnother() {
+        final SharedState[] nodes = nodes(configuration());
+        Assertions.assertTrue(nodes[0].isEnabled());
+        Assertions.assertFalse(nodes[1].hasChannel("TOKEN", "CHANNEL"));
+
+        nodes[0].addChannel("TOKEN", "CHANNEL");
+
+        Assertions.assertTrue(nodes[1].hasChannel("TOKEN", "CHANNEL"));
+        Assertions.assertFalse(nodes[1].hasChannel("OTHER_TOKEN", "CHANNEL"));
+    }
+
+    @Test
+    public void touchedChannelIsWrittenOnFlush() {
+        final SharedState[] nodes = nodes(configuration());
+        nodes[0].touchChannel("TOKEN", "CHANNEL");
+        Assertions.assertFalse(nodes[1].hasChannel("TOKEN", "CHANNEL"));
+
+        nodes[0].flush();
+
+        Assertions.assertTrue(nodes[1].hasChannel("TOKEN", "CHANNEL"));
+    }
+
+    @Test
+    public void nodesDoNotShareAckIds() {
+        final SharedState[] nodes = nodes(configuration());
+        final Set<Integer> first = new HashSet<>();
+        final Set<Integer> second = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            Assertions.assertTrue(first.add(nodes[0].nextAckId("TOKEN", "CHANNEL")));
+            Assertions.assertTrue(second.add(nodes[1].nextAckId("TOKEN", "CHANNEL")));
+        }
+
+        first.retainAll(second);
+        Assertions.assertTrue(first.isEmpty(), "Nodes should take ack ids from separate blocks");
+    }
+
+    @Test
+    public void leaseIsRunAgainWhenAnotherNodeAddsTheChannel() throws Exception {
+        final String url = "jdbc:h2:mem:cfe16-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=5000";
+        final SharedState node = new SharedState(
+                configuration(),
+                new JdbcStateStore(url, "sa", ""),
+                new SimpleMeterRegistry()
+        );
+        // creates the tables
+        Assertions.assertFalse(node.hasChannel("TOKEN", "CHANNEL"));
+        try (final Connection other = DriverManager.getConnection(url, "sa", "")) {
+            other.setAutoCommit(false);
+            try (final Statement statement = other.createStatement()) {
+                statement
+                        .executeUpdate(
+                                "INSERT INTO cfe_16_channel (token_hash, channel, next_ack_id, touched) VALUES ('"
+                                        + JdbcStateStore.tokenHash("TOKEN") + "', 'CHANNEL', 10, 0)"
+                        );
+            }
+            // finds no channel and waits for the lock of the row being inserted
+            final CompletableFuture<Integer> leased = CompletableFuture
+                    .supplyAsync(() -> node.nextAckId("TOKEN", "CHANNEL"));
+            Thread.sleep(200);
+            other.commit();
+
+            // the insert fails on the committed row, and the lease is run again after the ids leased by the other node
+            Assertions.assertEquals(Integer.valueOf(10), leased.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void ackIdsWrapAroundAfterMaxAckValue() {
+        final Configuration configuration = configuration();
+        configuration.setMaxAckValue(14);
+        final SharedState[] nodes = nodes(configuration);
+        for (int i = 0; i < 10; i++) {
+            nodes[0].nextAckId("TOKEN", "CHANNEL");
+        }
+        // the next block of 10 does not fit below 14 and starts again from zero
+        Assertions.assertEquals(0, nodes[1].nextAckId("TOKEN", "CHANNEL"));
+    }
+
+    @Test
+    public void acknowledgedAckIsPolledOnce() {
+        final SharedState[] nodes = nodes(configuration());
+        final int ackId = nodes[0].nextAckId("TOKEN", "CHANNEL");
+        nodes[0].acknowledge("TOKEN", "CHANNEL", ackId);
+        Assertions.assertEquals(Set.of(ackId), nodes[0].acknowledged("TOKEN", "CHANNEL", List.of(ackId)));
+        Assertions.assertTrue(nodes[1].acknowledged("TOKEN", "CHANNEL", List.of(ackId)).isEmpty());
+
+        nodes[0].flush();
+        Assertions.assertEquals(Set.of(ackId), nodes[1].acknowledged("TOKEN", "CHANNEL", List.of(ackId, ackId + 1)));
+
+        nodes[1].forget("TOKEN", "CHANNEL", List.of(ackId));
+        nodes[1].flush();
+        Assertions.assertTrue(nodes[0].acknowledged("TOKEN", "CHANNEL", List.of(ackId)).isEmpty());
+    }
+
+    @Test
+    public void statementsRunInPostgreSqlMode() {
+        final SharedState[] nodes = nodes(
+                configuration(), "jdbc:h2:mem:cfe16-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+        );
+        nodes[0].addChannel("TOKEN", "CHANNEL");
+        Assertions.assertTrue(nodes[1].hasChannel("TOKEN", "CHANNEL"));
+        final int ackId = nodes[0].nextAckId("TOKEN", "CHANNEL");
+        Assertions.assertNotEquals(ackId, nodes[1].nextAckId("TOKEN", "CHANNEL"));
+
+        nodes[0].acknowledge("TOKEN", "CHANNEL", ackId);
+        nodes[0].flush();
+        Assertions.assertEquals(Set.of(ackId), nodes[1].acknowledged("TOKEN", "CHANNEL", List.of(ackId)));
+        nodes[1].forget("TOKEN", "CHANNEL", List.of(ackId));
+        nodes[1].flush();
+        Assertions.assertTrue(nodes[0].acknowledged("TOKEN", "CHANNEL", List.of(ackId)).isEmpty());
+    }
+
+    @Test
+    public void busyStoreFailsAsBusyWithinTimeout() throws Exception {
+        final String url = "jdbc:h2:mem:cfe16-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=5000";
+        final Configuration configuration = configuration();
+        configuration.setSharedStateAckBlock(1);
+        final SharedState node = new SharedState(
+                configuration,
+                new JdbcStateStore(url, "sa", "", 500, 1),
+                new SimpleMeterRegistry()
+        );
+        node.nextAckId("TOKEN", "CHANNEL");
+        try (final Connection other = DriverManager.getConnection(url, "sa", "")) {
+            other.setAutoCommit(false);
+            try (final Statement statement = other.createStatement()) {
+                statement.executeQuery("SELECT next_ack_id FROM cfe_16_channel FOR UPDATE").close();
+            }
+            // takes the only connection and waits for the row lock
+            final CompletableFuture<Integer> blocked = CompletableFuture
+                    .supplyAsync(() -> node.nextAckId("TOKEN", "CHANNEL"));
+            Thread.sleep(200);
+
+            final long start = System.nanoTime();
+            Assertions.assertThrows(ServerIsBusyException.class, () -> node.hasChannel("TOKEN", "OTHER_CHANNEL"));
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+            other.rollback();
+            blocked.handle((ackId, e) -> ackId).get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void unreachableStoreFailsAsBusy() {
+        final SharedState node = new SharedState(
+                configuration(),
+                new JdbcStateStore("jdbc:cfe16-missing:store", "sa", "", 500, 2),
+                new SimpleMeterRegistry()
+        );
+        Assertions.assertThrows(ServerIsBusyException.class, () -> node.hasChannel("TOKEN", "CHANNEL"));
+        Assertions.assertThrows(ServerIsBusyException.class, () -> node.nextAckId("TOKEN", "CHANNEL"));
+        // written with a later flush instead
+        Assertions.assertDoesNotThrow(() -> node.addChannel("TOKEN", "CHANNEL"));
+        Assertions.assertTrue(node.hasChannel("TOKEN", "CHANNEL"));
+    }
+
+    @Test
+    public void tokensAreStoredAsHashes() throws Exception {
+        final String url = "jdbc:h2:mem:cfe16-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        final SharedState[] nodes = nodes(configuration(), url);
+        nodes[0].addChannel("TOKEN", "CHANNEL");
+        nodes[0].acknowledge("TOKEN", "CHANNEL", nodes[0].nextAckId("TOKEN", "CHANNEL"));
+        nodes[0].flush();
+
+        try (final Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (final Statement statement = connection.createStatement()) {
+                for (final String table : new String[] {
+                        "cfe_16_channel", "cfe_16_ack"
+                }) {
+                    try (final ResultSet resultSet = statement.executeQuery("SELECT token_hash FROM " + table)) {
+                        Assertions.assertTrue(resultSet.next());
+                        Assertions.assertEquals(JdbcStateStore.tokenHash("TOKEN"), resultSet.getString(1));
+                        Assertions.assertNotEquals("TOKEN", resultSet.getString(1));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void disabledWithoutJdbcUrl() {
+        final SharedState sharedState = new SharedState(configuration(), new SimpleMeterRegistry());
+        Assertions.assertFalse(sharedState.isEnabled());
+        // nothing to start or stop without a store
+        sharedState.start();
+        sharedState.stop();
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * HTTP Event Capture to RFC5424 CFE_16
+ * Copyright (C) 2021-2025 Suomen Kanuuna Oy
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *
+ * Additional permission under GNU Affero General Public License version 3
+ * section 7
+ *
+ * If you modify this Program, or any covered work, by linking or combining it
+ * with other code, such other code is not for that reason alone subject to any
+ * of the requirements of the GNU Affero GPL version 3 as long as this Program
+ * is the same Program as licensed from Suomen Kanuuna Oy without any additional
+ * modifications.
+ *
+ * Supplemented terms under GNU Affero General Public License version 3
+ * section 7
+ *
+ * Origin of the software must be attributed to Suomen Kanuuna Oy. Any modified
+ * versions must be marked as "Modified version of" The Program.
+ *
+ * Names of the licensors and authors may not be used for publicity purposes.
+ *
+ * No rights are granted for use of trade names, trademarks, or service marks
+ * which are in The Program if any.
+ *
+ * Licensee must indemnify licensors and authors for any liability that these
+ * contractual assumptions impose on licensors and authors.
+ *
+ * To the extent this program is licensed as part of the Commercial versions of
+ * Teragrep, the applicable Commercial License may apply to this file if you as
+ * a licensee so wish it.
+ */
+package com.teragrep.cfe_16.snapshot;
+
+import com.teragrep.cfe_16.Acknowledgements;
+import com.teragrep.cfe_16.SessionManager;
+import com.teragrep.cfe_16.bo.Ack;
+import com.teragrep.cfe_16.bo.Session;
+import com.teragrep.cfe_16.config.Configuration;
+import com.teragrep.cfe_16.config.ConfigurationSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import tools.jackson.databind.ObjectMapper;
+
+public final class StateSnapshotsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Configuration configuration(final Path file) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("syslog.server.host", "127.0.0.1");
+        properties.put("syslog.server.port", "601");
+        properties.put("max.ack.value", "1000");
+        // the cleaners of the components are not started, the ages only matter on restore
+        properties.put("max.ack.age", "60000");
+        properties.put("max.session.age", "60000");
+        properties.put("max.channels", "1000");
+        properties.put("poll.time", "60000");
+        properties.put("server.print.times", "false");
+        properties.put("state.snapshot.file", file.toString());
+        final StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new MapPropertySource("test", properties));
+        return new Configuration(new ConfigurationSnapshot(environment));
+    }
+
+    @Test
+    public void restartedNodeAnswersAckPolls() throws IOException {
+        final Path file = tempDir.resolve("state.snapshot");
+        final Configuration configuration = configuration(file);
+
+        final Acknowledgements acknowledgements = new Acknowledgements(configuration);
+        final SessionManager sessionManager = new SessionManager(configuration);
+        sessionManager.getOrCreateSession("TOKEN").addChannel("CHANNEL");
+        acknowledgements.initializeContext("TOKEN", "CHANNEL");
+        acknowledgements.addAck("TOKEN", "CHANNEL", new Ack(0, false));
+        acknowledgements.addAck("TOKEN", "CHANNEL", new Ack(1, false));
+        acknowledgements.acknowledge("TOKEN", "CHANNEL", 0);
+        // an ack older than max.ack.age is not restored
+        acknowledgements.addAck("TOKEN", "CHANNEL", new Ack(2, true, System.currentTimeMillis() - 120000));
+        new StateSnapshots(configuration, acknowledgements, sessionManager, new SimpleMeterRegistry()).write();
+        Assertions.assertTrue(Files.exists(file));
+
+        final Acknowledgements restoredAcknowledgements = new Acknowledgements(configuration);
+        final SessionManager restoredSessionManager = new SessionManager(configuration);
+        new StateSnapshots(configuration, restoredAcknowledgements, restoredSessionManager, new SimpleMeterRegistry())
+                .restore();
+
+        final Session session = restoredSessionManager.getSession("TOKEN");
+        Assertions.assertTrue(session.doesChannelExist("CHANNEL"));
+        Assertions.assertEquals(2, restoredAcknowledgements.getAckListSize("TOKEN", "CHANNEL"));
+        Assertions.assertTrue(restoredAcknowledgements.getAckList("TOKEN", "CHANNEL").get(0).isAcknowledged());
+        Assertions.assertFalse(restoredAcknowledgements.getAckList("TOKEN", "CHANNEL").get(1).isAcknowledged());
+        final ObjectMapper objectMapper = new ObjectMapper();
+        Assertions
+                .assertEquals(objectMapper.readTree("{\"0\":true,\"1\":false,\"2\":false}"), restoredAcknowledgements.getRequestedAckStatuses("TOKEN", "CHANNEL", objectMapper.readTree("{\"acks\":[0,1,2]}")));
+    }
+
+    @Test
+    public void snapshotIsReadableByOwnerOnly() throws IOException {
+        Assumptions.assumeTrue(tempDir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        final Path file = tempDir.resolve("state.snapshot");
+        final Configuration configuration = configuration(file);
+        final SessionManager sessionManager = new SessionManager(configuration);
+        sessionManager.getOrCreateSession("TOKEN").addChannel("CHANNEL");
+        // a leftover of a failed write does not pass its permissions on
+        final Path leftover = Files.createFile(file.resolveSibling("state.snapshot.tmp"));
+        Files.setPosixFilePermissions(leftover, PosixFilePermissions.fromString("rw-rw-rw-"));
+
+        new StateSnapshots(
+                configuration,
+                new Acknowledgements(configuration),
+                sessionManager,
+                new SimpleMeterRegistry()
+        ).write();
+
+        Assertions.assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file));
+    }
+
+    @Test
+    public void unreadableSnapshotIsIgnored() throws IOException {
+        final Path file = tempDir.resolve("state.snapshot");
+        Files.write(file, "not a snapshot".getBytes(StandardCharsets.UTF_8));
+        final Configuration configuration = configuration(file);
+        final SessionManager sessionManager = new SessionManager(configuration);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        new StateSnapshots(configuration, new Acknowledgements(configuration), sessionManager, registry).restore();
+
+        Assertions.assertEquals(0, sessionManager.getSessionCount());
+        Assertions.assertEquals(1, registry.get("cfe_16.snapshot.failures").counter().count());
+    }
+
+    @Test
+    public void truncatedSnapshotRestoresNothing() throws IOException {
+        final Path file = tempDir.resolve("state.snapshot");
+        final Configuration configuration = configuration(file);
+        final Acknowledgements acknowledgements = new Acknowledgements(configuration);
+        final SessionManager sessionManager = new SessionManager(configuration);
+        sessionManager.getOrCreateSession("TOKEN").addChannel("CHANNEL");
+        acknowledgements.initializeContext("TOKEN", "CHANNEL");
+        acknowledgements.addAck("TOKEN", "CHANNEL", new Ack(0, true));
+        new StateSnapshots(configuration, acknowledgements, sessionManager, new SimpleMeterRegistry()).write();
+        // cut off within the acks, after the sessions
+        final byte[] snapshot = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(snapshot, snapshot.length - 4));
+
+        final Acknowledgements restoredAcknowledgements = new Acknowledgements(configuration);
+        final SessionManager restoredSessionManager = new SessionManager(configuration);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new StateSnapshots(configuration, restoredAcknowledgements, restoredSessionManager, registry).restore();
+
+        Assertions.assertEquals(0, restoredSessionManager.getSessionCount());
+        Assertions.assertEquals(0, restoredAcknowledgements.getChannelCount());
+        Assertions.assertEquals(1, registry.get("cfe_16.snapshot.failures").counter().count());
+    }
+
+    @Test
+    public void missingSnapshotIsNotAFailure() {
+        final Configuration configuration = configuration(tempDir.resolve("missing"));
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        new StateSnapshots(
+                configuration,
+                new Acknowledgements(configuration),
+                new SessionManager(configuration),
+                registry
+        ).restore();
+
+        Assertions.assertEquals(0, registry.get("cfe_16.snapshot.failures").counter().count());
+    }
+}